@@ -1,7 +1,6 @@
 package extract;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.zip.Adler32;
 
 import lemmini.Constants;
@@ -28,6 +27,12 @@ import lemmini.Constants;
  * binary difference files. However this very simple approach is only sensible
  * for small files. It is by no way meant as rival to full featured approaches
  * like XDelta.
+ * <p>
+ * To find the differences, every position of the source buffer is indexed by
+ * a hash of the following bytes. The target buffer is then scanned with a
+ * rolling hash to find the next matching block in the remaining source,
+ * similar to rsync. Since the patch format only moves forward through the
+ * source, only matches behind the bytes already used are taken.
  *
  * @author Volker Oth
  */
@@ -56,6 +61,32 @@ public final class Diff {
      * Re-synchronization length.
      */
     private static final int RESYNC_LENGTH = 4;
+    /**
+     * Minimum number of bytes hashed per position. Shorter matches cost more
+     * in the patch than copying the bytes.
+     */
+    private static final int MIN_HASH_LENGTH = 8;
+    /**
+     * Match length which is good enough to stop searching for a longer one.
+     * Matches further ahead in the source than the re-synchronization window
+     * also need this length, else short random matches would skip large
+     * parts of the source.
+     */
+    private static final int GOOD_MATCH_LENGTH = 256;
+    /**
+     * Factor for the minimum length of a match which skips source bytes. Such
+     * a match can't be undone later, so short random matches must not be
+     * taken.
+     */
+    private static final int SKIP_MATCH_FACTOR = 4;
+    /** maximum number of source positions compared per target position. */
+    private static final int MAX_CHAIN_LENGTH = 256;
+    /** multiplier of the rolling hash. */
+    private static final int HASH_PRIME = 0x01000193;
+    /** multiplier used to spread hash values over the hash table. */
+    private static final int HASH_SPREAD = 0x9e3779b1;
+    /** bits in an integer. */
+    private static final int INT_BITS = 32;
     /** insert n bytes... */
     private static final byte INSERT = 0;
     /** delete n bytes.. */
@@ -111,6 +142,7 @@ public final class Diff {
      *
      * @param winLen    Length of windows to search for re-synchronization
      * @param resyncLen Number of equal bytes needed for re-synchronization
+     *                  (at least {@link #MIN_HASH_LENGTH} bytes are hashed)
      */
     public static void setParameters(final int winLen, final int resyncLen) {
         resyncLength = resyncLen;
@@ -125,15 +157,13 @@ public final class Diff {
      * @return buffer of differences
      */
     public static byte[] diffBuffers(final byte[] bsrc, final byte[] btrg) {
-        final List<Byte> patch = new ArrayList<Byte>();
-        final Buffer src = new Buffer(bsrc);
-        final Buffer trg = new Buffer(btrg);
+        final GrowableBuffer patch = new GrowableBuffer();
 
         // compare crcs
         final Adler32 crcSrc = new Adler32();
-        crcSrc.update(src.getData());
+        crcSrc.update(bsrc);
         final Adler32 crcTrg = new Adler32();
-        crcTrg.update(trg.getData());
+        crcTrg.update(btrg);
         targetCRC = (int) crcTrg.getValue();
 
         if (crcTrg.getValue() == crcSrc.getValue()) {
@@ -143,215 +173,299 @@ public final class Diff {
         // write header
         setDWord(patch, HEADER_ID);
         // write lengths to patch list
-        setLen(patch, src.length());
-        setLen(patch, trg.length());
+        setLen(patch, bsrc.length);
+        setLen(patch, btrg.length);
         // write crcs to patch list
         setDWord(patch, (int) crcSrc.getValue());
         setDWord(patch, (int) crcTrg.getValue());
         setDWord(patch, DATA_ID);
 
-        // examine source buffer
-        final int ofs = writeSourceToDest(patch, src, trg);
-
-        // if the files end identically, the offset needs to be written
-        writeOffsetIfFilesEndIdentically(patch, ofs);
-
-        // check for stuff to insert in target
-        checkForStuffToInsertInTarget(patch, trg);
-
-        if (patch.size() == 0) {
-            return null;
-        }
-
+        writeDifferences(patch, bsrc, btrg);
         out("Patch length: " + patch.size());
 
-        // convert patch list to output byte array
-        final byte[] retVal = convertPatchListToOutputByteAArray(patch);
-
-        return retVal;
+        return patch.toArray();
     }
 
-    private static int writeSourceToDest(final List<Byte> patch,
-            final Buffer src, final Buffer trg) {
-        int ofs = 0;
+    /**
+     * Scan the target buffer and write the differences to the source buffer.
+     *
+     * @param patch patch buffer to write to
+     * @param src   source buffer
+     * @param trg   target buffer
+     */
+    private static void writeDifferences(final GrowableBuffer patch,
+            final byte[] src, final byte[] trg) {
+        final int hashLen = Math.max(resyncLength, MIN_HASH_LENGTH);
+        final int[] head = new int[hashTableSize(src.length)];
+        final int[] next = new int[Math.max(0, src.length - hashLen + 1)];
+        indexSource(src, hashLen, head, next);
+        final int hashShift = INT_BITS
+                - Integer.numberOfTrailingZeros(head.length);
+        final int outFactor = power(HASH_PRIME, hashLen - 1);
+        final int[] match = new int[2];
+        int srcPos = 0; // next unused byte of the source
+        int lit = 0; // first target byte not covered yet
+        int copy = 0; // bytes to copy from the source before lit
+        int t = 0;
+        int hash = 0;
+        int hashPos = -2; // target position hash belongs to
+
+        while (t < trg.length) {
+            // still in sync: just copy the next byte
+            if (lit == t && srcPos < src.length && src[srcPos] == trg[t]) {
+                copy++;
+                srcPos++;
+                lit = ++t;
+                continue;
+            }
 
-        while (src.getIndex() < src.length()) {
-            // search for difference
-            final int s = src.getByte();
-            final int t = trg.getByte();
+            if (t + hashLen > trg.length) {
+                t = trg.length;
+                break;
+            }
 
-            if (s == t) {
-                ofs++;
-                continue; // Go to next iteration of src.getIndex().
+            if (hashPos == t - 1) {
+                hash = (hash - (trg[t - 1] & Constants.EIGHT_BIT_MASK)
+                        * outFactor) * HASH_PRIME
+                        + (trg[t + hashLen - 1] & Constants.EIGHT_BIT_MASK);
+            } else {
+                hash = hash(trg, t, hashLen);
             }
 
-            // reset indeces
-            src.setIndex(src.getIndex() - 1);
-            trg.setIndex(trg.getIndex() - 1);
-            // write offset
-            setLen(patch, ofs);
-            out("Offset: " + ofs);
-            ofs = 0;
-            // check for insert, delete, replace
-            final int leni = checkInsert(src, trg);
-            final int lend = checkDelete(src, trg);
-            final int lenr = checkReplace(src, trg);
-            final int[] lens = checkSubstitute(src, trg);
-            final int len = getLen(leni, lend, lenr, lens);
-            int state = -1;
-
-            if (len > windowLength) {
-                state = getReplaceOrInsertState(src, trg);
-                break; // Exit while loop.
+            hashPos = t;
+
+            if (!findMatch(src, trg, srcPos, t, hashLen, head,
+                    (hash * HASH_SPREAD) >>> hashShift, next, match)) {
+                t++;
+                continue;
             }
 
-            state = getFinalState(leni, lend, lenr, lens, state);
+            // extend match backwards into the uncovered target bytes
+            int ms = match[0];
+            int mt = t;
+            int len = match[1];
 
-            switch (state) {
-            case INSERT:
-                handleInsert(patch, trg, len);
-                break;
-            case DELETE:
-                handleDelete(patch, src, len);
-                break;
-            case REPLACE:
-                // replace
-                handleReplace(patch, src, trg, len);
-                break;
-            case SUBSTITUTE:
-                handleSubstitute(patch, src, trg, lens);
-                break;
-            default:
-                break;
+            while (mt > lit && ms > srcPos && src[ms - 1] == trg[mt - 1]) {
+                ms--;
+                mt--;
+                len++;
             }
-        }
 
-        return ofs;
-    }
+            final int skip = ms - srcPos;
+            final int ins = mt - lit;
 
-    private static void handleSubstitute(final List<Byte> patch,
-            final Buffer src, final Buffer trg, final int[] lens) {
-        // substitute
-        out("Substitute: " + lens[0] + "/" + lens[1]);
-        patch.add(SUBSTITUTE);
-        setLen(patch, lens[0]);
-        setLen(patch, lens[1]);
+            if (skip > 0 || ins > 0) {
+                writeCommand(patch, copy, skip, trg, lit, ins);
+                copy = 0;
+            }
 
-        for (int i = 0; i < lens[1]; i++) {
-            patch.add((byte) trg.getByte());
+            copy += len;
+            srcPos = ms + len;
+            t = mt + len;
+            lit = t;
         }
 
-        src.setIndex(src.getIndex() + lens[0]);
+        // everything after lit has to be inserted
+        if (lit < trg.length) {
+            writeCommand(patch, copy, 0, trg, lit, trg.length - lit);
+        } else if (copy != 0) {
+            out("Offset: " + copy);
+            setLen(patch, copy);
+        }
     }
 
-    private static void handleReplace(final List<Byte> patch, final Buffer src,
-            final Buffer trg, final int len) {
-        out("Replace: " + len);
-        patch.add(REPLACE);
-        setLen(patch, len);
+    /**
+     * Write offset and command to get from the source to the target.
+     *
+     * @param patch patch buffer to write to
+     * @param ofs   number of bytes to copy from source before the command
+     * @param skip  number of source bytes to skip
+     * @param trg   target buffer
+     * @param pos   position of the bytes to insert in the target buffer
+     * @param ins   number of target bytes to insert
+     */
+    private static void writeCommand(final GrowableBuffer patch,
+            final int ofs, final int skip, final byte[] trg, final int pos,
+            final int ins) {
+        out("Offset: " + ofs);
+        setLen(patch, ofs);
+
+        if (ins == 0) {
+            out("Delete: " + skip);
+            patch.add(DELETE);
+            setLen(patch, skip);
+            return;
+        }
 
-        for (int i = 0; i < len; i++) {
-            patch.add((byte) trg.getByte());
+        if (skip == 0) {
+            out("Insert: " + ins);
+            patch.add(INSERT);
+            setLen(patch, ins);
+        } else if (skip == ins) {
+            out("Replace: " + ins);
+            patch.add(REPLACE);
+            setLen(patch, ins);
+        } else {
+            out("Substitute: " + skip + "/" + ins);
+            patch.add(SUBSTITUTE);
+            setLen(patch, skip);
+            setLen(patch, ins);
         }
 
-        src.setIndex(src.getIndex() + len);
+        patch.add(trg, pos, ins);
     }
 
-    private static void handleDelete(final List<Byte> patch, final Buffer src,
-            final int len) {
-        // delete
-        out("Delete: " + len);
-        patch.add(DELETE);
-        setLen(patch, len);
-        src.setIndex(src.getIndex() + len);
-    }
+    /**
+     * Find the longest match for the target bytes at a given position in the
+     * unused part of the source.
+     *
+     * @param src     source buffer
+     * @param trg     target buffer
+     * @param srcPos  first unused position in source
+     * @param t       position in target
+     * @param hashLen minimum match length
+     * @param head    first source position for each hash (-1: none)
+     * @param h       hash table index of the target bytes
+     * @param next    hash chains of source positions
+     * @param match   returns [0]: source position, [1]: length of match
+     * @return true if a match was found
+     */
+    private static boolean findMatch(final byte[] src, final byte[] trg,
+            final int srcPos, final int t, final int hashLen,
+            final int[] head, final int h, final int[] next,
+            final int[] match) {
+        boolean found = false;
+        long best = Long.MIN_VALUE;
+        int tries = MAX_CHAIN_LENGTH;
+
+        // the source is only used front to back, so positions before srcPos
+        // can be dropped from the chain for good
+        while (head[h] >= 0 && head[h] < srcPos) {
+            head[h] = next[head[h]];
+        }
 
-    private static void handleInsert(final List<Byte> patch, final Buffer trg,
-            final int len) {
-        // insert
-        out("Insert: " + len);
-        patch.add(INSERT);
-        setLen(patch, len);
+        // chains are sorted by ascending position, so the nearest candidates
+        // are compared first
+        for (int s = head[h]; s >= 0 && tries > 0; s = next[s], tries--) {
+            final int max = Math.min(src.length - s, trg.length - t);
+            int len = 0;
 
-        for (int i = 0; i < len; i++) {
-            patch.add((byte) trg.getByte());
-        }
-    }
+            while (len < max && src[s + len] == trg[t + len]) {
+                len++;
+            }
 
-    private static int getLen(final int leni, final int lend, final int lenr,
-            final int[] lens) {
-        int len = Math.min(leni, lend);
-        len = Math.min(len, lenr);
-        len = Math.min(len, lens[1]);
-        return len;
-    }
+            // skipped source bytes are lost for later matches, so a match
+            // far ahead has to be longer to be preferred
+            final int skip = s - srcPos;
+            final long score = (long) len - skip;
 
-    private static int getReplaceOrInsertState(final Buffer src,
-            final Buffer trg) {
-        int state;
-        // completely lost synchronisation
-        final int rs = src.length() - src.getIndex();
-        final int rt = trg.length() - trg.getIndex();
+            final int minLen;
 
-        if (rs == rt) {
-            // len = rs;
-            state = REPLACE;
-        } else {
-            // len = rt;
-            state = INSERT;
+            if (skip == 0) {
+                minLen = hashLen;
+            } else if (skip <= windowLength) {
+                minLen = hashLen * SKIP_MATCH_FACTOR;
+            } else {
+                minLen = GOOD_MATCH_LENGTH;
+            }
+
+            if (len >= minLen && score > best) {
+                found = true;
+                best = score;
+                match[0] = s;
+                match[1] = len;
+
+                if (len >= GOOD_MATCH_LENGTH) {
+                    break;
+                }
+            }
         }
 
-        return state;
+        return found;
     }
 
-    private static int getFinalState(final int leni, final int lend,
-            final int lenr, final int[] lens, final int initialState) {
-        int state = initialState;
-        final int len = getLen(leni, lend, lenr, lens);
-
-        if (len == leni) {
-            state = INSERT;
-        } else if (len == lend) {
-            state = DELETE;
-        } else if (len == lenr) {
-            state = REPLACE;
-        } else if (len == lens[1]) {
-            state = SUBSTITUTE;
+    /**
+     * Build hash chains of all source positions.
+     *
+     * @param src     source buffer
+     * @param hashLen number of bytes hashed per position
+     * @param head    returns the first position for each hash (-1: none)
+     * @param next    returns the next position with the same hash (-1: none)
+     */
+    private static void indexSource(final byte[] src, final int hashLen,
+            final int[] head, final int[] next) {
+        final int hashShift = INT_BITS
+                - Integer.numberOfTrailingZeros(head.length);
+        final int outFactor = power(HASH_PRIME, hashLen - 1);
+        Arrays.fill(head, -1);
+
+        if (next.length == 0) {
+            return;
         }
 
-        return state;
-    }
+        int hash = hash(src, 0, hashLen);
 
-    private static void writeOffsetIfFilesEndIdentically(final List<Byte> patch,
-            final int ofs) {
-        if (ofs != 0) {
-            out("Offset: " + ofs);
-            setLen(patch, ofs);
+        for (int s = 0; s < next.length; s++) {
+            if (s > 0) {
+                hash = (hash - (src[s - 1] & Constants.EIGHT_BIT_MASK)
+                        * outFactor) * HASH_PRIME
+                        + (src[s + hashLen - 1] & Constants.EIGHT_BIT_MASK);
+            }
+
+            next[s] = (hash * HASH_SPREAD) >>> hashShift;
+        }
+
+        // link backwards so that each chain is sorted by ascending position
+        for (int s = next.length - 1; s >= 0; s--) {
+            final int h = next[s];
+            next[s] = head[h];
+            head[h] = s;
         }
     }
 
-    private static void checkForStuffToInsertInTarget(final List<Byte> patch,
-            final Buffer trg) {
-        if (trg.getIndex() < trg.length()) {
-            patch.add(INSERT);
-            final int len = trg.length() - trg.getIndex();
-            out("Insert (End): " + len);
-            setLen(patch, len);
+    /**
+     * Get size of the hash table for a source buffer.
+     *
+     * @param len length of source buffer
+     * @return size of hash table (power of two, at least 2)
+     */
+    private static int hashTableSize(final int len) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, len)) << 1);
+    }
 
-            for (int i = 0; i < len; i++) {
-                patch.add((byte) trg.getByte());
-            }
+    /**
+     * Calculate the hash of a range of bytes.
+     *
+     * @param b   byte array
+     * @param ofs offset in byte array
+     * @param len number of bytes
+     * @return hash value
+     */
+    private static int hash(final byte[] b, final int ofs, final int len) {
+        int hash = 0;
+
+        for (int i = 0; i < len; i++) {
+            hash = hash * HASH_PRIME + (b[ofs + i] & Constants.EIGHT_BIT_MASK);
         }
+
+        return hash;
     }
 
-    private static byte[] convertPatchListToOutputByteAArray(
-            final List<Byte> patch) {
-        final byte[] retVal = new byte[patch.size()];
+    /**
+     * Integer power with overflow (as used for the rolling hash).
+     *
+     * @param base base
+     * @param exp  exponent
+     * @return base to the power of exp modulo 2^32
+     */
+    private static int power(final int base, final int exp) {
+        int val = 1;
 
-        for (int i = 0; i < retVal.length; i++) {
-            retVal[i] = patch.get(i).byteValue();
+        for (int i = 0; i < exp; i++) {
+            val *= base;
         }
-        return retVal;
+
+        return val;
     }
 
     /**
@@ -518,10 +632,10 @@ public final class Diff {
      * continued in next byte So 127 is stored as 0x7f, but 128 is stored as
      * 0x80 0x01 (where 0x80 means 0, highest bit is marker)
      *
-     * @param l     Patch list to add length/offset in 7bit encoding
+     * @param l     Patch buffer to add length/offset in 7bit encoding
      * @param value Value to add in 7bit encoding
      */
-    private static void setLen(final List<Byte> l, final int value) {
+    private static void setLen(final GrowableBuffer l, final int value) {
         int val = value;
 
         while (val > HEX7F) {
@@ -532,188 +646,13 @@ public final class Diff {
         l.add((byte) val);
     }
 
-    /**
-     * Check for "insert" difference.
-     *
-     * @param src source buffer
-     * @param trg target buffer
-     * @return number of bytes inserted
-     * @throws ArrayIndexOutOfBoundsException
-     */
-    private static int checkInsert(final Buffer src, final Buffer trg)
-            throws ArrayIndexOutOfBoundsException {
-        final byte[] bs = src.getData();
-        final int is = src.getIndex();
-        final byte[] bt = trg.getData();
-        final int it = trg.getIndex();
-        int len = getLenForCheckingSubstitute(bs, is, bt, it);
-
-        for (int w = 1; w < len; w++) {
-            int r;
-
-            for (r = 0; r < resyncLength; r++) {
-                if (bs[is + r] != bt[it + w + r]) {
-                    break;
-                }
-            }
-
-            if (r == resyncLength) {
-                return w;
-            }
-        }
-
-        return Integer.MAX_VALUE;
-    }
-
-    /**
-     * Check for "delete" difference.
-     *
-     * @param src source buffer
-     * @param trg target buffer
-     * @return number of bytes deleted
-     * @throws ArrayIndexOutOfBoundsException
-     */
-    private static int checkDelete(final Buffer src, final Buffer trg)
-            throws ArrayIndexOutOfBoundsException {
-        final byte[] bs = src.getData();
-        final int is = src.getIndex();
-        final byte[] bt = trg.getData();
-        final int it = trg.getIndex();
-        int len = getLenForCheckingSubstitute(bs, is, bt, it);
-
-        for (int w = 1; w < len; w++) {
-            int r;
-
-            for (r = 0; r < resyncLength; r++) {
-                if (bs[is + w + r] != bt[it + r]) {
-                    break;
-                }
-            }
-
-            if (r == resyncLength) {
-                return w;
-            }
-        }
-
-        return Integer.MAX_VALUE;
-    }
-
-    /**
-     * Check for "replace" difference.
-     *
-     * @param src source buffer
-     * @param trg target buffer
-     * @return number of bytes replaced
-     * @throws ArrayIndexOutOfBoundsException
-     */
-    private static int checkReplace(final Buffer src, final Buffer trg)
-            throws ArrayIndexOutOfBoundsException {
-        final byte[] bs = src.getData();
-        final int is = src.getIndex();
-        final byte[] bt = trg.getData();
-        final int it = trg.getIndex();
-        int len = getLenForCheckingSubstitute(bs, is, bt, it);
-
-        for (int w = 1; w < len; w++) {
-            int r;
-
-            for (r = 0; r < resyncLength; r++) {
-                if (bs[is + w + r] != bt[it + w + r]) {
-                    break;
-                }
-            }
-
-            if (r == resyncLength) {
-                return w;
-            }
-        }
-
-        return Integer.MAX_VALUE;
-    }
-
-    /**
-     * Check for "substitute" difference.
-     *
-     * @param src source buffer
-     * @param trg target buffer
-     * @return integer array: [0]: number of bytes to delete in source, [1]:
-     *         number of bytes to insert in target
-     * @throws ArrayIndexOutOfBoundsException
-     *
-     */
-    private static int[] checkSubstitute(final Buffer src, final Buffer trg)
-            throws ArrayIndexOutOfBoundsException {
-        final byte[] bs = src.getData();
-        final int is = src.getIndex();
-        final byte[] bt = trg.getData();
-        final int it = trg.getIndex();
-        final int len = getLenForCheckingSubstitute(bs, is, bt, it);
-        final List<int[]> solutions = new ArrayList<int[]>();
-
-        for (int ws = 1; ws < len; ws++) {
-            for (int wt = 1; wt < len; wt++) {
-                int r;
-
-                for (r = 0; r < resyncLength; r++) {
-                    if (bs[is + ws + r] != bt[it + wt + r]) {
-                        break;
-                    }
-                }
-
-                if (r == resyncLength) {
-                    final int[] retVal = new int[2];
-                    retVal[0] = ws;
-                    retVal[1] = wt;
-                    solutions.add(retVal);
-                }
-            }
-        }
-
-        if (solutions.size() == 0) {
-            // nothing found
-            final int[] retVal = new int[2];
-            retVal[0] = Integer.MAX_VALUE;
-            retVal[1] = Integer.MAX_VALUE;
-            return retVal;
-        }
-
-        // search best solution
-        int sMinIdx = 0;
-
-        for (int i = 1; i < solutions.size(); i++) {
-            final int[] s = solutions.get(i);
-            final int[] sMin = solutions.get(sMinIdx);
-
-            if (s[0] + s[1] < sMin[0] + sMin[1]) {
-                sMinIdx = i;
-            }
-        }
-
-        return solutions.get(sMinIdx);
-    }
-
-    private static int getLenForCheckingSubstitute(final byte[] bs,
-            final int is, final byte[] bt, final int it) {
-        int len = windowLength;
-
-        if (is + len + resyncLength >= bs.length) {
-            len = bs.length - is - resyncLength;
-        }
-
-        if (it + len + resyncLength >= bt.length) {
-            len = bt.length - it - resyncLength;
-        }
-
-        return len;
-    }
-
     /**
      * Write DWord to difference list.
      *
-     * @param l   difference list
+     * @param l   difference buffer
      * @param val DWord value
      */
-    private static void setDWord(final List<Byte> l, final int val) {
+    private static void setDWord(final GrowableBuffer l, final int val) {
         l.add((byte) val);
         l.add((byte) (val >> ONE_BYTE_SHIFT));
         l.add((byte) (val >> Constants.SHIFT_16));
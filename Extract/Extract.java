@@ -9,12 +9,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.zip.Adler32;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 
+import tools.CrcCache;
 import tools.FileUtils;
 import tools.PatchService;
 import tools.Props;
@@ -36,7 +49,10 @@ import tools.Props;
  */
 
 /**
- * Extraction of resources.
+ * Extraction of resources. The single steps are split into independent tasks
+ * (one per file or sprite set) which are run on a work-stealing thread pool.
+ * The results of each step are collected in the order the tasks were created,
+ * so the output files and the log don't depend on the scheduling.
  *
  * @author Volker Oth
  */
@@ -57,14 +73,20 @@ public class Extract extends Thread {
      * Index for path in array.
      */
     private static final int PATH_INDEX = 3;
+    /** nanoseconds per millisecond. */
+    private static final long NS_PER_MS = 1000000L;
+    /** maximum time to wait for running tasks after an error in seconds. */
+    private static final int SHUTDOWN_TIMEOUT = 60;
     /** file name of extraction configuration. */
     private static final String INI_NAME = "extract.ini";
     /** file name of resource CRCs (WINLEMM). */
     public static final String CRC_INI_NAME = "crc.ini";
+    /** file name of the cached CRCs of the source files. */
+    private static final String CRC_CACHE_NAME = "crccache.ini";
     /** output dialog. */
     private static OutputDialog outputDiag;
     /** monitor the files created without erasing the target dir. */
-    private static HashMap<String, Object> createdFiles;
+    private static Map<String, Object> createdFiles;
     /** source path (WINLEMM) for extraction. */
     private static String sourcePath;
 
@@ -108,6 +130,53 @@ public class Extract extends Thread {
     private static Thread thisThread;
     /** reference to class loader. */
     private static ClassLoader loader;
+    /** cached CRCs of the source (WINLEMM) files. */
+    private static CrcCache crcCache = new CrcCache();
+    /**
+     * CRCs of the extracted files after patching by lower case file name (null
+     * while DIF files are created). Files which already have their final CRC
+     * are not extracted again.
+     */
+    private static Map<String, Long> finalCrcs;
+    /**
+     * Thread pool running the extraction tasks. The number of threads also
+     * limits the number of files held in memory at the same time.
+     */
+    private static ForkJoinPool pool;
+
+    /**
+     * A step of the extraction: a number of independent tasks.
+     */
+    private static final class Stage {
+        /** title printed to the output dialog. */
+        private final String title;
+        /** tasks of this step, each returns a line for the log (or null). */
+        private final List<Callable<String>> tasks =
+                new ArrayList<Callable<String>>();
+        /** results of the submitted tasks. */
+        private final List<Future<String>> results =
+                new ArrayList<Future<String>>();
+        /** start time in nanoseconds. */
+        private long start;
+
+        /**
+         * Constructor.
+         *
+         * @param t title printed to the output dialog
+         */
+        Stage(final String t) {
+            title = t;
+        }
+
+        /**
+         * Add a task.
+         *
+         * @param task task returning a line for the log (or null)
+         */
+        void add(final Callable<String> task) {
+            tasks.add(task);
+        }
+    }
 
     /**
      * Display an exception message box.
@@ -141,9 +210,10 @@ public class Extract extends Thread {
      */
     @Override
     public void run() {
-        createdFiles = new HashMap<String, Object>(); // to monitor the files
-                                                      // created without erasing
-                                                      // the target dir
+        // to monitor the files created without erasing the target dir
+        createdFiles = Collections
+                .synchronizedMap(new HashMap<String, Object>());
+        pool = new ForkJoinPool();
 
         try {
             // read ini file
@@ -156,19 +226,39 @@ public class Extract extends Thread {
             }
 
             // prolog_ check CRC
-            validateWINLEMM();
-            extractLevels(props);
-            final ExtractSPR sprite = extractStyles(props);
-            extractObjects(props, sprite);
+            FileUtils.makeDirIfItDoesNotExist(destinationPath);
+            crcCache.load(destinationPath + CRC_CACHE_NAME);
+            loadFinalCrcs(props);
+            final Stage validate = validateWINLEMM();
+            submit(validate);
+            finish(validate);
+            saveCrcCache();
+            // levels, styles and objects are independent of each other
+            final Stage levels = extractLevels(props);
+            final Stage styles = extractStyles(props);
+            final Stage objects = extractObjects(props);
+            submit(levels);
+            submit(styles);
+            submit(objects);
+            finish(levels);
+            finish(styles);
+            finish(objects);
 
             // if (false) { // debug only
             createDirectories(props);
-            copyStuff(props);
-            cloneFiles(props);
+            final Stage copy = copyStuff(props);
+            submit(copy);
+            finish(copy);
+            final Stage clone = cloneFiles(props);
+            submit(clone);
+            finish(clone);
             final PatchService patchService = new PatchService();
             patchService.createDifFiles(props, referencePath, destinationPath,
                     createdFiles);
+            final long start = System.nanoTime();
             patchService.patchAllFiles(destinationPath);
+            out("(" + (System.nanoTime() - start) / NS_PER_MS + " ms)");
+            saveCrcCache();
             // } // debug only
 
             // finished
@@ -182,19 +272,165 @@ public class Extract extends Thread {
         } catch (final Error ex) {
             showException(ex);
             System.exit(1);
+        } finally {
+            pool.shutdown();
         }
 
         outputDiag.enableOk();
     }
 
+    /**
+     * Read the CRCs the extracted files have after patching. The sources of
+     * clones are left out, since they have to be extracted unpatched.
+     *
+     * @param props the Properties for the game.
+     * @throws ExtractException if patch.ini can't be read
+     */
+    private static void loadFinalCrcs(final Props props)
+            throws ExtractException {
+        if (referencePath != null) {
+            // DIF files are created from the unpatched files
+            finalCrcs = null;
+            return;
+        }
+
+        finalCrcs = PatchService.readFinalCrcs(destinationPath);
+
+        for (int i = 0; true; i++) {
+            String[] clone = {null, null};
+            // 0: srcName, 1: destName
+            clone = props.get("clone_" + Integer.toString(i), clone);
+
+            if (clone[0] == null) {
+                break;
+            }
+
+            finalCrcs.remove((destinationPath + clone[0]).toLowerCase());
+        }
+    }
+
+    /**
+     * Check if an extracted file already has the CRC it has after patching.
+     * Extracting it again would only write the unpatched file, which then is
+     * patched back to the same content.
+     *
+     * @param fname file name
+     * @return true if the file doesn't need to be extracted
+     */
+    static boolean isFinal(final String fname) {
+        if (finalCrcs == null) {
+            return false;
+        }
+
+        final Long crc = finalCrcs.get(fname.toLowerCase());
+
+        if (crc == null || !new File(fname).isFile()) {
+            return false;
+        }
+
+        try {
+            return getCrc(fname) == crc;
+        } catch (final ExtractException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Run a number of independent tasks on the thread pool and print their
+     * results in the given order.
+     *
+     * @param title title printed to the output dialog
+     * @param tasks tasks returning a line for the log (or null)
+     * @throws ExtractException if a task failed or the user cancelled
+     */
+    public static void runTasks(final String title,
+            final List<Callable<String>> tasks) throws ExtractException {
+        final Stage stage = new Stage(title);
+        stage.tasks.addAll(tasks);
+        submit(stage);
+        finish(stage);
+    }
+
+    /**
+     * Start all tasks of a step on the thread pool.
+     *
+     * @param stage step to start
+     */
+    private static void submit(final Stage stage) {
+        stage.start = System.nanoTime();
+
+        for (final Callable<String> task : stage.tasks) {
+            stage.results.add(pool.submit(task));
+        }
+    }
+
+    /**
+     * Wait for all tasks of a step and print their results in the order the
+     * tasks were created. If a task failed, the remaining tasks are cancelled
+     * and the exception is passed on after the running tasks finished.
+     *
+     * @param stage step to finish
+     * @throws ExtractException if a task failed or the user cancelled
+     */
+    private static void finish(final Stage stage) throws ExtractException {
+        out("\n" + stage.title);
+        boolean ok = false;
+
+        try {
+            for (final Future<String> result : stage.results) {
+                final String msg = result.get();
+
+                if (msg != null) {
+                    out(msg);
+                }
+            }
+
+            ok = true;
+        } catch (final InterruptedException ex) {
+            throw new ExtractException("Extraction interrupted");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof ExtractException) {
+                throw (ExtractException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            final String msg = cause.getMessage();
+
+            if (msg != null && msg.length() > 0) {
+                out(msg);
+            } else {
+                out(cause.toString());
+            }
+
+            throw new ExtractException(msg);
+        } finally {
+            if (!ok) {
+                for (final Future<String> result : stage.results) {
+                    result.cancel(false);
+                }
+
+                pool.awaitQuiescence(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+            }
+        }
+
+        out("(" + stage.tasks.size() + " tasks, "
+                + (System.nanoTime() - stage.start) / NS_PER_MS + " ms)");
+    }
+
     /**
      * Validate that the program has access to a valid WINLEMM installation's
      * files.
      *
+     * @return step checking the CRC of each file
      * @throws ExtractException if an extraction error occurs.
      */
-    private void validateWINLEMM() throws ExtractException {
-        out("\nValidating WINLEMM");
+    private Stage validateWINLEMM() throws ExtractException {
+        final Stage stage = new Stage("Validating WINLEMM");
         final URL fncrc = findFile(CRC_INI_NAME);
         final Props cprops = new Props();
 
@@ -212,25 +448,69 @@ public class Extract extends Thread {
                 break;
             }
 
-            out(crcbuf[0]);
-            final long len = new File(sourcePath + crcbuf[0]).length();
+            final String[] crcEntry = crcbuf;
+            stage.add(() -> {
+                checkCancel();
+                final long len = new File(sourcePath + crcEntry[0]).length();
 
-            if (len != Long.parseLong(crcbuf[1])) {
-                throw new ExtractException(
-                        "CRC error for file " + sourcePath + crcbuf[0] + ".\n");
-            }
+                if (len != Long.parseLong(crcEntry[1])) {
+                    throw new ExtractException("CRC error for file "
+                            + sourcePath + crcEntry[0] + ".\n");
+                }
 
-            final byte[] src = readFile(sourcePath + crcbuf[0]);
-            final Adler32 crc32 = new Adler32();
-            crc32.update(src);
+                final long crc = getCrc(sourcePath + crcEntry[0]);
 
-            if (Long.toHexString(crc32.getValue())
-                    .compareToIgnoreCase(crcbuf[2].substring(2)) != 0) {
-                throw new ExtractException(
-                        "CRC error for file " + sourcePath + crcbuf[0] + ".\n");
-            }
+                if (Long.toHexString(crc)
+                        .compareToIgnoreCase(crcEntry[2].substring(2)) != 0) {
+                    throw new ExtractException("CRC error for file "
+                            + sourcePath + crcEntry[0] + ".\n");
+                }
 
-            checkCancel();
+                return crcEntry[0];
+            });
+        }
+
+        return stage;
+    }
+
+    /**
+     * Store the cached CRCs in the destination path. Failing to do so only
+     * means that the files are read again during the next extraction.
+     */
+    private static void saveCrcCache() {
+        try {
+            crcCache.save(destinationPath + CRC_CACHE_NAME);
+        } catch (final IOException ex) {
+            System.out.println("Unable to write " + destinationPath
+                    + CRC_CACHE_NAME);
+        }
+    }
+
+    /**
+     * Remember the CRC of a file which was just written, so it doesn't have to
+     * be read again to check it.
+     *
+     * @param fname file name
+     * @param crc   Adler32 checksum of the file
+     */
+    public static void putCrc(final String fname, final long crc) {
+        crcCache.put(new File(fname), crc);
+    }
+
+    /**
+     * Get the CRC of a file. Uses the cached CRC if the file didn't change
+     * since it was last read.
+     *
+     * @param fname file name
+     * @return Adler32 checksum of the file
+     * @throws ExtractException if the file can't be read
+     */
+    public static long getCrc(final String fname) throws ExtractException {
+        try {
+            return crcCache.getCrc(new File(fname));
+        } catch (final IOException ex) {
+            throw new ExtractException(
+                    "IO exception while reading file " + fname);
         }
     }
 
@@ -238,11 +518,14 @@ public class Extract extends Thread {
      * Step 6 of Extract thread run: clone files inside destination dir.
      *
      * @param props the Properties for the game.
-     * @throws ExtractException if an extraction error occurs.
+     * @return step cloning the files
      */
-    private void cloneFiles(final Props props) throws ExtractException {
+    private Stage cloneFiles(final Props props) {
         // step six: clone files inside destination dir
-        out("\nClone files");
+        final Stage stage = new Stage("Clone files");
+        final List<String[]> clones = new ArrayList<String[]>();
+        final Set<String> targets = new HashSet<String>();
+        boolean chained = false;
 
         for (int i = 0; true; i++) {
             String[] clone = {null, null};
@@ -253,18 +536,52 @@ public class Extract extends Thread {
                 break;
             }
 
-            try {
-                copyFile(destinationPath + clone[0],
-                        destinationPath + clone[1]);
-                createdFiles.put((destinationPath + clone[1]).toLowerCase(),
-                        null);
-            } catch (final Exception ex) {
-                throw new ExtractException(
-                        "Cloning " + destinationPath + clone[0] + " to "
-                                + destinationPath + clone[1] + " failed");
+            chained |= targets.contains(clone[0].toLowerCase());
+            targets.add(clone[1].toLowerCase());
+            clones.add(clone);
+        }
+
+        if (chained) {
+            // a clone is the source of another clone: keep the order
+            stage.add(() -> {
+                for (final String[] clone : clones) {
+                    cloneFile(clone);
+                }
+
+                return null;
+            });
+        } else {
+            for (final String[] clone : clones) {
+                stage.add(() -> {
+                    cloneFile(clone);
+                    return null;
+                });
             }
+        }
 
-            checkCancel();
+        return stage;
+    }
+
+    /**
+     * Clone a file inside the destination dir.
+     *
+     * @param clone 0: srcName, 1: destName
+     * @throws ExtractException if cloning failed
+     */
+    private static void cloneFile(final String[] clone)
+            throws ExtractException {
+        checkCancel();
+        createdFiles.put((destinationPath + clone[1]).toLowerCase(), null);
+
+        if (isFinal(destinationPath + clone[1])) {
+            return;
+        }
+
+        try {
+            copyFile(destinationPath + clone[0], destinationPath + clone[1]);
+        } catch (final Exception ex) {
+            throw new ExtractException("Cloning " + destinationPath + clone[0]
+                    + " to " + destinationPath + clone[1] + " failed");
         }
     }
 
@@ -272,11 +589,11 @@ public class Extract extends Thread {
      * Step 5 of Extract thread run: copy stuff.
      *
      * @param props the Properties for the game.
-     * @throws ExtractException if unable to copy stuff.
+     * @return step copying the files
      */
-    private void copyStuff(final Props props) throws ExtractException {
+    private Stage copyStuff(final Props props) {
         // step five: copy stuff
-        out("\nCopy files");
+        final Stage stage = new Stage("Copy files");
 
         for (int i = 0; true; i++) {
             String[] copy = {null, null};
@@ -287,17 +604,30 @@ public class Extract extends Thread {
                 break;
             }
 
-            try {
-                copyFile(sourcePath + copy[0], destinationPath + copy[1]);
-                createdFiles.put((destinationPath + copy[1]).toLowerCase(),
-                        null);
-            } catch (final Exception ex) {
-                throw new ExtractException("Copying " + sourcePath + copy[0]
-                        + " to " + destinationPath + copy[1] + " failed");
-            }
+            final String[] copyEntry = copy;
+            stage.add(() -> {
+                checkCancel();
+                createdFiles.put(
+                        (destinationPath + copyEntry[1]).toLowerCase(), null);
 
-            checkCancel();
+                if (isFinal(destinationPath + copyEntry[1])) {
+                    return null;
+                }
+
+                try {
+                    copyFile(sourcePath + copyEntry[0],
+                            destinationPath + copyEntry[1]);
+                } catch (final Exception ex) {
+                    throw new ExtractException("Copying " + sourcePath
+                            + copyEntry[0] + " to " + destinationPath
+                            + copyEntry[1] + " failed");
+                }
+
+                return null;
+            });
         }
+
+        return stage;
     }
 
     /**
@@ -326,16 +656,16 @@ public class Extract extends Thread {
     }
 
     /**
-     * Step 3 of Extract thread run: extract the objects.
+     * Step 3 of Extract thread run: extract the objects. Each SPR file is
+     * converted by its own task.
      *
-     * @param props  the Properties for the game.
-     * @param sprite Extract graphics from "Lemming for Win95" SPR data files.
+     * @param props the Properties for the game.
+     * @return step extracting the objects
      * @throws ExtractException if unable to extract the objects.
      */
-    private void extractObjects(final Props props, final ExtractSPR sprite)
-            throws ExtractException {
+    private Stage extractObjects(final Props props) throws ExtractException {
         // step three: extract the objects
-        out("\nExtracting objects");
+        final Stage stage = new Stage("Extracting objects");
 
         for (int i = 0; true; i++) {
             String[] object = {null, null, null, null};
@@ -346,13 +676,9 @@ public class Extract extends Thread {
                 break;
             }
 
-            out(object[0]);
             final String pathname = destinationPath + object[PATH_INDEX];
             FileUtils.makeDirIfItDoesNotExist(pathname);
-
-            // load palette and sprite
-            sprite.loadPalette(sourcePath + object[1]);
-            sprite.loadSPR(sourcePath + object[0]);
+            final List<String[]> members = new ArrayList<String[]>();
 
             for (int j = 0; true; j++) {
                 String[] member = {null, null, null};
@@ -364,33 +690,80 @@ public class Extract extends Thread {
                     break;
                 }
 
-                // save object
-                createdFiles
-                        .put((destinationPath + addSeparator(object[PATH_INDEX])
-                                + member[2]).toLowerCase(), null);
-                sprite.saveAnim(
-                        destinationPath + addSeparator(object[PATH_INDEX])
-                                + member[2],
-                        Integer.parseInt(member[0]),
-                        Integer.parseInt(member[1]));
-                checkCancel();
+                members.add(member);
             }
+
+            final String[] objectEntry = object;
+            stage.add(() -> {
+                checkCancel();
+                final List<String[]> changed = new ArrayList<String[]>();
+
+                for (final String[] member : members) {
+                    final String fName = destinationPath
+                            + addSeparator(objectEntry[PATH_INDEX])
+                            + member[2];
+                    createdFiles.put(fName.toLowerCase(), null);
+
+                    if (!isFinal(fName)) {
+                        changed.add(member);
+                    }
+                }
+
+                if (changed.isEmpty()) {
+                    return objectEntry[0] + " (unchanged)";
+                }
+
+                // load palette and sprite
+                final ExtractSPR sprite = new ExtractSPR();
+                sprite.loadPalette(sourcePath + objectEntry[1]);
+                sprite.loadSPR(sourcePath + objectEntry[0]);
+                // the loaded sprite is only read: encode the members in
+                // parallel
+                final List<ForkJoinTask<Object>> saves =
+                        new ArrayList<ForkJoinTask<Object>>();
+
+                for (final String[] member : changed) {
+                    // save object
+                    final String fName = destinationPath
+                            + addSeparator(objectEntry[PATH_INDEX])
+                            + member[2];
+                    saves.add(ForkJoinTask.adapt(() -> {
+                        checkCancel();
+                        sprite.saveAnim(fName, Integer.parseInt(member[0]),
+                                Integer.parseInt(member[1]));
+                        return null;
+                    }));
+                }
+
+                try {
+                    ForkJoinTask.invokeAll(saves);
+                } catch (final RuntimeException ex) {
+                    // adapted tasks wrap checked exceptions
+                    if (ex.getCause() instanceof ExtractException) {
+                        throw (ExtractException) ex.getCause();
+                    }
+
+                    throw ex;
+                }
+
+                return objectEntry[0];
+            });
         }
+
+        return stage;
     }
 
     /**
-     * Step 2 of Extract thread run: extract the styles and return Extract
-     * graphics from "Lemming for Win95" SPR data files.
+     * Step 2 of Extract thread run: extract the styles. Each style is
+     * converted by its own task.
      *
      * @param props the Properties for the game.
-     * @return Extract graphics from "Lemming for Win95" SPR data files.
+     * @return step extracting the styles
      * @throws ExtractException if unable to extract the styles.
      */
-    private ExtractSPR extractStyles(final Props props)
-            throws ExtractException {
+    private Stage extractStyles(final Props props) throws ExtractException {
         // step two: extract the styles
-        out("\nExtracting styles");
-        final ExtractSPR sprite = new ExtractSPR();
+        final Stage stage = new Stage("Extracting styles");
 
         for (int i = 0; true; i++) {
             String[] styles = {null, null, null, null};
@@ -401,35 +774,39 @@ public class Extract extends Thread {
                 break;
             }
 
-            out(styles[FNAME_INDEX]);
             final String pathname = destinationPath + styles[2];
             FileUtils.makeDirIfItDoesNotExist(pathname);
+            final String[] style = styles;
+            stage.add(() -> {
+                checkCancel();
+                // load palette and sprite
+                final ExtractSPR sprite = new ExtractSPR();
+                sprite.loadPalette(sourcePath + style[1]);
+                sprite.loadSPR(sourcePath + style[0]);
+                final String[] files = sprite.saveAll(destinationPath
+                        + addSeparator(style[2]) + style[FNAME_INDEX], false);
+
+                for (int j = 0; j < files.length; j++) {
+                    createdFiles.put(files[j].toLowerCase(), null);
+                }
 
-            // load palette and sprite
-            sprite.loadPalette(sourcePath + styles[1]);
-            sprite.loadSPR(sourcePath + styles[0]);
-            final String[] files = sprite.saveAll(destinationPath
-                    + addSeparator(styles[2]) + styles[FNAME_INDEX], false);
-
-            for (int j = 0; j < files.length; j++) {
-                createdFiles.put(files[j].toLowerCase(), null);
-            }
-
-            checkCancel();
+                return style[FNAME_INDEX];
+            });
         }
 
-        return sprite;
+        return stage;
     }
 
     /**
      * Step 1 of Extract thread run: extract the levels.
      *
      * @param props the properties for the game.
+     * @return step extracting the levels
      * @throws ExtractException if unable to retrieve the levels.
      */
-    private void extractLevels(final Props props) throws ExtractException {
+    private Stage extractLevels(final Props props) throws ExtractException {
         // step one: extract the levels
-        out("\nExtracting levels");
+        final Stage stage = new Stage("Extracting levels");
 
         for (int i = 0; true; i++) {
             String[] lvls = {null, null};
@@ -440,9 +817,11 @@ public class Extract extends Thread {
                 break;
             }
 
-            extractLevels(sourcePath + lvls[0], destinationPath + lvls[1]);
-            checkCancel();
+            extractLevels(stage, sourcePath + lvls[0],
+                    destinationPath + lvls[1]);
         }
+
+        return stage;
     }
 
     /**
@@ -534,14 +913,15 @@ public class Extract extends Thread {
     }
 
     /**
-     * Extract the level INI files from LVL files.
+     * Add tasks to extract the level INI files from LVL files.
      *
-     * @param r    name of root folder (source of LVL files)
-     * @param dest destination folder for extraction (resource folder)
+     * @param stage step to add the tasks to
+     * @param r     name of root folder (source of LVL files)
+     * @param dest  destination folder for extraction (resource folder)
      * @throws ExtractException
      */
-    private static void extractLevels(final String r, final String dest)
-            throws ExtractException {
+    private static void extractLevels(final Stage stage, final String r,
+            final String dest) throws ExtractException {
         // first extract the levels
         final File fRoot = new File(r);
         final FilenameFilter ff = new LvlFilter();
@@ -556,6 +936,8 @@ public class Extract extends Thread {
                     "Path " + root + " doesn't exist or IO error occured.");
         }
 
+        Arrays.sort(levels);
+
         for (int i = 0; i < levels.length; i++) {
             int pos;
             final String fIn = root + levels[i].getName();
@@ -565,21 +947,18 @@ public class Extract extends Thread {
             fOut = destination
                     + (fOut.substring(0, pos) + ".ini").toLowerCase();
             createdFiles.put(fOut.toLowerCase(), null);
+            final String name = levels[i].getName();
+            final String fLvl = fOut;
+            stage.add(() -> {
+                checkCancel();
 
-            try {
-                out(levels[i].getName());
-                ExtractLevel.convertLevel(fIn, fOut);
-            } catch (final Exception ex) {
-                final String msg = ex.getMessage();
-
-                if (msg != null && msg.length() > 0) {
-                    out(ex.getMessage());
-                } else {
-                    out(ex.toString());
+                if (isFinal(fLvl)) {
+                    return name + " (unchanged)";
                 }
 
-                throw new ExtractException(msg);
-            }
+                ExtractLevel.convertLevel(fIn, fLvl);
+                return name;
+            });
         }
     }
 
@@ -223,14 +223,15 @@ public final class ExtractLevel {
     }
 
     /**
-     * Convert one binary LVL file into text file.
+     * Convert one binary LVL file into text file. Synchronized since the
+     * level data is kept in static fields.
      *
      * @param fnIn  Name of binary LVL file
      * @param fnOut Name of target text file
      * @throws Exception
      */
-    public static void convertLevel(final String fnIn, final String fnOut)
-            throws Exception {
+    public static synchronized void convertLevel(final String fnIn,
+            final String fnOut) throws Exception {
         // read file into buffer
         LevelBuffer b;
 
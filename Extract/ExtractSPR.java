@@ -3,8 +3,9 @@ package extract;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -37,6 +38,11 @@ public class ExtractSPR {
      * Large sprite line offset.
      */
     private static final int LARGE_SPRITE_LINE_OFFSET = 0x7f;
+    /**
+     * GIF encoder of each thread (keeps its LZW tables and output buffer).
+     */
+    private static final ThreadLocal<GifEncoder> ENCODER = ThreadLocal
+            .withInitial(GifEncoder::new);
 
     /**
      * High byte multiplier.
@@ -450,22 +456,27 @@ public class ExtractSPR {
                 num = 1;
             }
 
-            final byte[] pixels = new byte[width * num * height];
-            final GIFImage anim = new GIFImage(width, num * height, pixels,
-                    palette);
+            // construct filename
+            final String fn = fname + "_" + Integer.toString(animNum++)
+                    + ".gif";
+
+            // files which are already patched are kept
+            if (!Extract.isFinal(fn)) {
+                final byte[] pixels = new byte[width * num * height];
+                final GIFImage anim = new GIFImage(width, num * height,
+                        pixels, palette);
 
-            for (int n = 0; n < num; n++) {
-                System.arraycopy(images[startIdx + n].getPixels(), 0, pixels,
-                        n * height * width,
-                        images[startIdx + n].getPixels().length);
+                for (int n = 0; n < num; n++) {
+                    System.arraycopy(images[startIdx + n].getPixels(), 0,
+                            pixels, n * height * width,
+                            images[startIdx + n].getPixels().length);
+                }
+
+                // save gif
+                saveGif(anim, fn);
             }
 
             startIdx = idx;
-            // construct filename
-            final String fn = fname + "_" + Integer.toString(animNum++)
-                    + ".gif";
-            // save gif
-            saveGif(anim, fn);
             files.add(fn.toLowerCase());
 
             // remember new size
@@ -516,14 +527,15 @@ public class ExtractSPR {
      */
     public static void saveGif(final GIFImage img, final String fname)
             throws ExtractException {
-        final GifEncoder gifEnc = new GifEncoder(img.getWidth(),
-                img.getHeight(), img.getPixels(), img.getPalette().getRed(),
-                img.getPalette().getGreen(), img.getPalette().getBlue());
-
-        try (FileOutputStream f = new FileOutputStream(fname)) {
-            gifEnc.setTransparentPixel(TRANSPARENT_INDEX);
-            gifEnc.write(f);
-        } catch (final FileNotFoundException ex) {
+        final GifEncoder gifEnc = ENCODER.get();
+        gifEnc.setImage(img.getWidth(), img.getHeight(), img.getPixels(),
+                img.getPalette().getRed(), img.getPalette().getGreen(),
+                img.getPalette().getBlue());
+        gifEnc.setTransparentPixel(TRANSPARENT_INDEX);
+
+        try {
+            gifEnc.write(fname);
+        } catch (final NoSuchFileException | AccessDeniedException ex) {
             throw new ExtractException(
                     "Can't open file " + fname + " for writing.");
         } catch (final IOException ex) {
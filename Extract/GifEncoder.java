@@ -5,6 +5,11 @@ import java.awt.image.ColorModel;
 import java.awt.image.IndexColorModel;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import lemmini.Constants;
 
@@ -15,6 +20,11 @@ import lemmini.Constants;
  *
  * Some hacks for compatibility with JVM on MacOS by Volker Oth
  *
+ * An encoder can be reused for any number of images (see
+ * {@link #setImage(int, int, byte[], byte[], byte[], byte[])}), so the LZW
+ * tables and the output buffer are only allocated once. The whole GIF is
+ * assembled in memory and written with one call.
+ *
  * Copyright (C) 1996 by Jef Poskanzer <jef(at)acme.com>. All rights reserved.
  *
  * Redistribution and use in source and binary forms, with or without
@@ -98,23 +108,33 @@ public class GifEncoder {
     /** Indicates whether GIF should be interlaced. */
     private boolean interlace = false;
     /** Width of GIF. */
-    private final int width;
+    private int width;
     /** Height of GIF. */
-    private final int height;
+    private int height;
     /** Pixels. */
-    private final byte[] pixels;
+    private byte[] pixels;
     /** Red color components. */
-    private final byte[] r;
+    private byte[] r;
     /** Green color components. */
-    private final byte[] g;
+    private byte[] g;
     /** Blue color components. */
-    private final byte[] b;
+    private byte[] b;
     /** Pixel index. */
     private int pixelIndex;
     /** Number of pixels. */
-    private final int numPixels;
+    private int numPixels;
     /** Transparent pixel. */
     private int transparentPixel = -1; // hpm
+    /** Buffer the GIF is assembled in. */
+    private final GrowableBuffer outBuf = new GrowableBuffer();
+
+    /**
+     * Constructs a new GifEncoder without an image. Use
+     * {@link #setImage(int, int, byte[], byte[], byte[], byte[])} before
+     * writing.
+     */
+    public GifEncoder() {
+    }
 
     /**
      * Constructs a new GifEncoder.
@@ -129,6 +149,22 @@ public class GifEncoder {
     public GifEncoder(final int imageWidth, final int imageHeight,
             final byte[] pixelData, final byte[] red, final byte[] green,
             final byte[] blue) {
+        setImage(imageWidth, imageHeight, pixelData, red, green, blue);
+    }
+
+    /**
+     * Set the image to encode next. Resets the transparent pixel.
+     *
+     * @param imageWidth  The image width.
+     * @param imageHeight The image height.
+     * @param pixelData   The pixel data.
+     * @param red         The red look-up table.
+     * @param green       The green look-up table.
+     * @param blue        The blue look-up table.
+     */
+    public final void setImage(final int imageWidth, final int imageHeight,
+            final byte[] pixelData, final byte[] red, final byte[] green,
+            final byte[] blue) {
         this.width = imageWidth;
         this.height = imageHeight;
         this.pixels = pixelData;
@@ -136,6 +172,7 @@ public class GifEncoder {
         this.g = green;
         this.b = blue;
         interlace = false;
+        transparentPixel = -1;
         pixelIndex = 0;
         numPixels = imageWidth * imageHeight;
     }
@@ -193,6 +230,37 @@ public class GifEncoder {
      * @throws IOException
      */
     public void write(final OutputStream out) throws IOException {
+        encode();
+        out.write(outBuf.getData(), 0, outBuf.size());
+    }
+
+    /**
+     * Saves the image as a GIF file.
+     *
+     * @param fname Name of the file to write
+     * @throws IOException
+     */
+    public void write(final String fname) throws IOException {
+        encode();
+
+        try (FileChannel ch = FileChannel.open(Paths.get(fname),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buf = ByteBuffer.wrap(outBuf.getData(), 0,
+                    outBuf.size());
+
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+        }
+    }
+
+    /**
+     * Encode the image into the output buffer.
+     */
+    private void encode() {
+        outBuf.clear();
+        pixelIndex = 0;
         // Figure out how many bits to use.
         final int numColors = r.length;
         int bitsPerPixel;
@@ -221,7 +289,7 @@ public class GifEncoder {
         final Palette palette = new Palette(reds, grns, blus);
         final GIFImage image = new GIFImage(width, height, null, palette);
         // hpm
-        gifEncode(image, out, interlace, (byte) 0, getTransparentPixel(),
+        gifEncode(image, interlace, (byte) 0, getTransparentPixel(),
                 bitsPerPixel);
     }
 
@@ -245,19 +313,18 @@ public class GifEncoder {
         return transparentPixel;
     }
 
-    static void writeString(final OutputStream out, final String str)
-            throws IOException {
+    final void writeString(final String str) {
         final byte[] buf = str.getBytes();
-        out.write(buf);
+        outBuf.add(buf, 0, buf.length);
     }
 
     // Adapted from ppmtogif, which is based on GIFENCOD by David
     // Rowley <mgardi@watdscu.waterloo.edu>. Lempel-Zim compression
     // based on "compress".
 
-    final void gifEncode(final GIFImage image, final OutputStream outs,
-            final boolean gifInterlace, final byte background,
-            final int transparent, final int bitsPerPixel) throws IOException {
+    final void gifEncode(final GIFImage image, final boolean gifInterlace,
+            final byte background, final int transparent,
+            final int bitsPerPixel) {
         final int imageWidth = image.getWidth();
         final int imageHeight = image.getHeight();
         final Palette palette = image.getPalette();
@@ -283,11 +350,11 @@ public class GifEncoder {
         }
 
         // Write the Magic header
-        writeString(outs, "GIF89a");
+        writeString("GIF89a");
 
         // Write out the screen width and height
-        putWord(imageWidth, outs);
-        putWord(imageHeight, outs);
+        putWord(imageWidth);
+        putWord(imageHeight);
 
         // Indicate that there is a global colour map
         byteToOutput = (byte) COLOR_MAP_FLAG; // Yes, there is a color map
@@ -299,65 +366,65 @@ public class GifEncoder {
         byteToOutput |= (byte) ((bitsPerPixel - 1));
 
         // Write it out
-        putByte(byteToOutput, outs);
+        putByte(byteToOutput);
 
         // Write out the Background colour
-        putByte(background, outs);
+        putByte(background);
 
         // Pixel aspect ratio - 1:1.
-        // Putbyte( (byte) 49, outs );
+        // Putbyte( (byte) 49 );
         // Java's GIF reader currently has a bug, if the aspect ratio byte is
         // not zero it throws an ImageFormatException. It doesn't know that
         // 49 means a 1:1 aspect ratio. Well, whatever, zero works with all
         // the other decoders I've tried so it probably doesn't hurt.
-        putByte((byte) 0, outs);
+        putByte((byte) 0);
 
         // Write out the Global Colour Map
         for (i = 0; i < colorMapSize; ++i) {
-            putByte(red[i], outs);
-            putByte(green[i], outs);
-            putByte(blue[i], outs);
+            putByte(red[i]);
+            putByte(green[i]);
+            putByte(blue[i]);
         }
 
         // Write out extension for transparent colour index, if necessary.
         if (transparent != -1) {
-            putByte((byte) '!', outs);
-            putByte((byte) TRANSPARENT_BYTE_2, outs);
-            putByte((byte) TRANSPARENT_BYTE_3, outs);
-            putByte((byte) 1, outs);
-            putByte((byte) 0, outs);
-            putByte((byte) 0, outs);
-            putByte((byte) transparent, outs);
-            putByte((byte) 0, outs);
+            putByte((byte) '!');
+            putByte((byte) TRANSPARENT_BYTE_2);
+            putByte((byte) TRANSPARENT_BYTE_3);
+            putByte((byte) 1);
+            putByte((byte) 0);
+            putByte((byte) 0);
+            putByte((byte) transparent);
+            putByte((byte) 0);
         }
 
         // Write an Image separator
-        putByte((byte) ',', outs);
+        putByte((byte) ',');
 
         // Write the Image header
-        putWord(leftOfs, outs);
-        putWord(topOfs, outs);
-        putWord(imageWidth, outs);
-        putWord(imageHeight, outs);
+        putWord(leftOfs);
+        putWord(topOfs);
+        putWord(imageWidth);
+        putWord(imageHeight);
 
         // Write out whether or not the image is interlaced
         if (gifInterlace) {
-            putByte((byte) INTERLACED, outs);
+            putByte((byte) INTERLACED);
         } else {
-            putByte((byte) 0x00, outs);
+            putByte((byte) 0x00);
         }
 
         // Write out the initial code size
-        putByte((byte) initCodeSize, outs);
+        putByte((byte) initCodeSize);
 
         // Go and actually compress the data
-        compress(initCodeSize + 1, outs);
+        compress(initCodeSize + 1);
 
         // Write out a Zero-length packet (to end the series)
-        putByte((byte) 0, outs);
+        putByte((byte) 0);
 
         // Write the GIF file terminator
-        putByte((byte) ';', outs);
+        putByte((byte) ';');
     }
 
     /**
@@ -375,17 +442,14 @@ public class GifEncoder {
     }
 
     // Write out a word to the GIF file
-    final void putWord(final int w, final OutputStream outs)
-            throws IOException {
-        putByte((byte) (w & Constants.EIGHT_BIT_MASK), outs);
-        putByte((byte) ((w >> Constants.SHIFT_8) & Constants.EIGHT_BIT_MASK),
-                outs);
+    final void putWord(final int w) {
+        putByte((byte) (w & Constants.EIGHT_BIT_MASK));
+        putByte((byte) ((w >> Constants.SHIFT_8) & Constants.EIGHT_BIT_MASK));
     }
 
     // Write out a byte to the GIF file
-    final void putByte(final byte byteToWrite, final OutputStream outs)
-            throws IOException {
-        outs.write(byteToWrite);
+    final void putByte(final byte byteToWrite) {
+        outBuf.add(byteToWrite);
     }
 
     // GIFCOMPR.C - GIF Image compression routines
@@ -461,8 +525,7 @@ public class GifEncoder {
     /** EOF code. */
     private int eofCode;
 
-    final void compress(final int initBits, final OutputStream outs)
-            throws IOException {
+    final void compress(final int initBits) {
         int fcode;
         int i /* = 0 */;
         int c;
@@ -476,6 +539,8 @@ public class GifEncoder {
 
         // Set up the necessary values
         clearFlag = false;
+        curAccum = 0;
+        curBits = 0;
         numBits = globalInitBits;
         maxcode = getMaxCode(numBits);
 
@@ -498,7 +563,7 @@ public class GifEncoder {
         hsizeReg = HSIZE;
         clHash(hsizeReg); // clear hash table
 
-        output(clearCode, outs);
+        output(clearCode);
 
         outer_loop: while ((c = gifNextPixel()) != EOF) {
             fcode = (c << MAXBITS) + ent;
@@ -528,19 +593,19 @@ public class GifEncoder {
                 } while (htab[i] >= 0);
             }
 
-            output(ent, outs);
+            output(ent);
             ent = c;
 
             if (freeEntry < MAX_MAX_CODE) {
                 codetab[i] = freeEntry++; // code -> hashtable
                 htab[i] = fcode;
             } else {
-                clBlock(outs);
+                clBlock();
             }
         }
         // Put out the final code.
-        output(ent, outs);
-        output(eofCode, outs);
+        output(ent);
+        output(eofCode);
     }
 
     // output
@@ -567,8 +632,7 @@ public class GifEncoder {
             0x003F, 0x007F, 0x00FF, 0x01FF, 0x03FF, 0x07FF, 0x0FFF, 0x1FFF,
             0x3FFF, 0x7FFF, 0xFFFF};
 
-    final void output(final int code, final OutputStream outs)
-            throws IOException {
+    final void output(final int code) {
         curAccum &= masks[curBits];
 
         if (curBits > 0) {
@@ -580,7 +644,7 @@ public class GifEncoder {
         curBits += numBits;
 
         while (curBits >= Constants.SHIFT_8) {
-            charOut((byte) (curAccum & Constants.EIGHT_BIT_MASK), outs);
+            charOut((byte) (curAccum & Constants.EIGHT_BIT_MASK));
             curAccum >>= Constants.SHIFT_8;
             curBits -= BITS_PER_CHARACTER;
         }
@@ -606,31 +670,29 @@ public class GifEncoder {
         if (code == eofCode) {
             // At EOF, write the rest of the buffer.
             while (curBits > 0) {
-                charOut((byte) (curAccum & Constants.EIGHT_BIT_MASK), outs);
+                charOut((byte) (curAccum & Constants.EIGHT_BIT_MASK));
                 curAccum >>= Constants.SHIFT_8;
                 curBits -= BITS_PER_CHARACTER;
             }
 
-            flushChar(outs);
+            flushChar();
         }
     }
 
     // Clear out the hash table
 
     // table clear for block compress
-    final void clBlock(final OutputStream outs) throws IOException {
+    final void clBlock() {
         clHash(HSIZE);
         freeEntry = clearCode + 2;
         clearFlag = true;
 
-        output(clearCode, outs);
+        output(clearCode);
     }
 
     // reset code table
     final void clHash(final int hsize) {
-        for (int i = 0; i < hsize; ++i) {
-            htab[i] = -1;
-        }
+        Arrays.fill(htab, 0, hsize, -1);
     }
 
     // GIF Specific routines
@@ -648,20 +710,19 @@ public class GifEncoder {
 
     // Add a character to the end of the current packet, and if it is 254
     // characters, flush the packet to disk.
-    final void charOut(final byte c, final OutputStream outs)
-            throws IOException {
+    final void charOut(final byte c) {
         accum[aCount++] = c;
 
         if (aCount >= PACKET_SIZE) {
-            flushChar(outs);
+            flushChar();
         }
     }
 
     // Flush the packet to disk, and reset the accumulator
-    final void flushChar(final OutputStream outs) throws IOException {
+    final void flushChar() {
         if (aCount > 0) {
-            outs.write(aCount);
-            outs.write(accum, 0, aCount);
+            outBuf.add((byte) aCount);
+            outBuf.add(accum, 0, aCount);
             aCount = 0;
         }
     }
@@ -0,0 +1,109 @@
+package extract;
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Byte buffer which grows while it is written. Used to collect data of
+ * unknown length (e.g. a patch) without boxing every byte.
+ *
+ * @author Volker Oth
+ */
+class GrowableBuffer {
+    /** initial capacity in bytes. */
+    private static final int INITIAL_SIZE = 1024;
+    /** data buffer. */
+    private byte[] buffer;
+    /** number of bytes written. */
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    GrowableBuffer() {
+        buffer = new byte[INITIAL_SIZE];
+    }
+
+    /**
+     * Get number of bytes written.
+     *
+     * @return number of bytes written
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Make sure that at least n more bytes fit into the buffer.
+     *
+     * @param n number of bytes to be written
+     */
+    private void ensureFree(final int n) {
+        if (size + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer,
+                    Math.max(buffer.length * 2, size + n));
+        }
+    }
+
+    /**
+     * Append one byte.
+     *
+     * @param val byte value to append
+     */
+    void add(final byte val) {
+        ensureFree(1);
+        buffer[size++] = val;
+    }
+
+    /**
+     * Append a range of bytes.
+     *
+     * @param b   source array
+     * @param ofs offset in source array
+     * @param len number of bytes to append
+     */
+    void add(final byte[] b, final int ofs, final int len) {
+        ensureFree(len);
+        System.arraycopy(b, ofs, buffer, size, len);
+        size += len;
+    }
+
+    /**
+     * Discard all bytes written. The capacity is kept.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the internal array. Only the first {@link #size()} bytes are valid.
+     *
+     * @return internal array
+     */
+    byte[] getData() {
+        return buffer;
+    }
+
+    /**
+     * Get a copy of the bytes written.
+     *
+     * @return array of the bytes written
+     */
+    byte[] toArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
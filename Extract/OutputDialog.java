@@ -67,7 +67,7 @@ public class OutputDialog extends JDialog {
 
     // own stuff
     /** Extraction canceled?. */
-    private boolean cancel = false;
+    private volatile boolean cancel = false;
 
     /**
      * Constructor for modal dialog in parent frame.
@@ -6,6 +6,7 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.Point;
 
+import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
@@ -13,7 +14,14 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
-
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import game.LevelCode;
+import game.LevelPack;
+import game.level.Level;
+import game.level.ThumbnailService;
 import gameutil.FaderHandler;
 
 /*
@@ -64,6 +72,11 @@ public class LevelCodeDialog extends JDialog {
      */
     private static final int GRIDY_4 = 4;
 
+    /**
+     * Gridy of 5.
+     */
+    private static final int GRIDY_5 = 5;
+
     /**
      * Inset of 4.
      */
@@ -82,7 +95,7 @@ public class LevelCodeDialog extends JDialog {
     /**
      * Default height, in pixels.
      */
-    private static final int DEFAULT_HEIGHT = 153;
+    private static final int DEFAULT_HEIGHT = 209;
 
     /**
      * Default width, in pixels.
@@ -113,6 +126,9 @@ public class LevelCodeDialog extends JDialog {
     /** Cancel button. */
     private JButton jButtonCancel = null;
 
+    /** Preview of the level of the entered code. */
+    private JLabel jLabelPreview = null;
+
     // own stuff
     /** Level pack index. */
     private int levelPackIndex;
@@ -238,6 +254,15 @@ public class LevelCodeDialog extends JDialog {
             gridBagLblLPack.gridy = 0;
             jLabelLvlPack = new JLabel();
             jLabelLvlPack.setText("Chose level pack");
+            final GridBagConstraints gridBagPreview = new GridBagConstraints();
+            gridBagPreview.gridx = 0;
+            gridBagPreview.gridy = GRIDY_5;
+            gridBagPreview.gridwidth = 2;
+            gridBagPreview.insets = new Insets(INSET_8, INSET_4, 0, INSET_4);
+            jLabelPreview = new JLabel();
+            jLabelPreview.setPreferredSize(new Dimension(
+                    Level.WIDTH / ThumbnailService.X_SCALE,
+                    Level.HEIGHT / ThumbnailService.Y_SCALE));
             jContentPane = new JPanel();
             jContentPane.setLayout(new GridBagLayout());
             jContentPane.add(jLabelLvlPack, gridBagLblLPack);
@@ -246,6 +271,7 @@ public class LevelCodeDialog extends JDialog {
             jContentPane.add(getJTextFieldCode(), gridBagText);
             jContentPane.add(getJButtonOk(), gridBagButtonOk);
             jContentPane.add(getJButtonCancel(), gridBagCancel);
+            jContentPane.add(jLabelPreview, gridBagPreview);
         }
 
         return jContentPane;
@@ -260,6 +286,7 @@ public class LevelCodeDialog extends JDialog {
     private JComboBox getJComboBoxLvlPack() {
         if (jComboBoxLvlPack == null) {
             jComboBoxLvlPack = new JComboBox();
+            jComboBoxLvlPack.addActionListener(e -> updatePreview());
         }
 
         return jComboBoxLvlPack;
@@ -284,11 +311,82 @@ public class LevelCodeDialog extends JDialog {
                             dispose();
                         }
                     });
+            jTextFieldCode.getDocument()
+                    .addDocumentListener(new DocumentListener() {
+                        @Override
+                        public void insertUpdate(final DocumentEvent e) {
+                            updatePreview();
+                        }
+
+                        @Override
+                        public void removeUpdate(final DocumentEvent e) {
+                            updatePreview();
+                        }
+
+                        @Override
+                        public void changedUpdate(final DocumentEvent e) {
+                            updatePreview();
+                        }
+                    });
         }
 
         return jTextFieldCode;
     }
 
+    /**
+     * Get the entered level code in the form used for decoding.
+     *
+     * @return trimmed upper case level code
+     */
+    private String getEnteredCode() {
+        return jTextFieldCode.getText().trim().toUpperCase();
+    }
+
+    /**
+     * Show the thumbnail of the level of the entered code, if the code is
+     * valid for the selected level pack.
+     */
+    private void updatePreview() {
+        if (jLabelPreview == null || jTextFieldCode == null) {
+            return;
+        }
+
+        jLabelPreview.setIcon(null);
+        final int lpi = jComboBoxLvlPack.getSelectedIndex() + 1;
+        final String c = getEnteredCode();
+
+        if (lpi < 1 || c.isEmpty()) {
+            return;
+        }
+
+        final LevelPack lpack = FaderHandler.getLevelPack(lpi);
+        final int lvlAbs = LevelCode.getLevel(lpack.getCodeSeed(), c,
+                lpack.getCodeOffset());
+
+        if (lvlAbs == -1) {
+            return;
+        }
+
+        final int[] l = FaderHandler.relLevelNum(lpi, lvlAbs);
+
+        if (l[1] >= lpack.getLevels(l[0]).length) {
+            return;
+        }
+
+        final String path = lpack.getInfo(l[0], l[1]).getFileName();
+        ThumbnailService.get(path).thenAccept(img -> {
+            if (img != null) {
+                SwingUtilities.invokeLater(() -> {
+                    // the code may have changed in the meantime
+                    if (c.equals(getEnteredCode()) && lpi == jComboBoxLvlPack
+                            .getSelectedIndex() + 1) {
+                        jLabelPreview.setIcon(new ImageIcon(img));
+                    }
+                });
+            }
+        });
+    }
+
     /**
      * This method initializes jButtonOk.
      *
@@ -4,6 +4,7 @@ import java.awt.Component;
 import java.awt.Image;
 import java.awt.MediaTracker;
 import java.awt.Toolkit;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
@@ -24,6 +25,7 @@ import extract.ExtractException;
 import game.level.Level;
 import gui.LegalDialog;
 import tools.Props;
+import tools.Resources;
 import tools.ToolBox;
 
 /*
@@ -303,6 +305,9 @@ public final class Core {
                         "Ressource extraction failed\n" + ex.getMessage());
             }
         }
+
+        Resources.init(resourcePath,
+                programProps.get("resourceOverrides", false));
     }
 
     /**
@@ -424,8 +429,16 @@ public final class Core {
         if (jar) {
             image = Toolkit.getDefaultToolkit()
                     .createImage(ToolBox.findFile(fName));
-        } else {
+        } else if (new File(fName).isFile()) {
             image = Toolkit.getDefaultToolkit().createImage(fName);
+        } else {
+            // not a loose file: try the resource archive
+            try {
+                image = Toolkit.getDefaultToolkit()
+                        .createImage(Resources.readAllBytes(fName));
+            } catch (final IOException ex) {
+                image = null;
+            }
         }
 
         if (image != null) {
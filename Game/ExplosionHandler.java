@@ -16,18 +16,16 @@ package game;
  */
 
 import java.awt.Graphics2D;
-import java.util.Iterator;
-import java.util.LinkedList;
 
-import game.level.Explosion;
+import game.level.ExplosionPool;
 
 /**
  * Utility that handles explosions for a Level. Code extracted from
  * GameController by John Watne 07/2023.
  */
 public final class ExplosionHandler {
-    /** list of all active explosions. */
-    private static LinkedList<Explosion> explosions;
+    /** pool holding the particles of all active explosions. */
+    private static ExplosionPool explosions;
 
     /**
      * Private default constructor for utility class.
@@ -37,11 +35,11 @@ public final class ExplosionHandler {
     }
 
     /**
-     * Returnslist of all active explosions.
+     * Returns pool holding the particles of all active explosions.
      *
-     * @return list of all active explosions.
+     * @return pool holding the particles of all active explosions.
      */
-    public static LinkedList<Explosion> getExplosions() {
+    public static ExplosionPool getExplosions() {
         return explosions;
     }
 
@@ -52,13 +50,12 @@ public final class ExplosionHandler {
      * @param width  width of screen in pixels
      * @param height height of screen in pixels
      * @param xOfs   horizontal level offset in pixels
+     * @param yOfs   vertical level offset in pixels
      */
     public static void drawExplosions(final Graphics2D g, final int width,
-            final int height, final int xOfs) {
+            final int height, final int xOfs, final int yOfs) {
         synchronized (explosions) {
-            for (final Explosion e : explosions) {
-                e.draw(g, width, height, xOfs);
-            }
+            explosions.draw(g, width, height, xOfs, yOfs);
         }
     }
 
@@ -71,7 +68,7 @@ public final class ExplosionHandler {
     public static void addExplosion(final int x, final int y) {
         // create particle explosion
         synchronized (explosions) {
-            explosions.add(new Explosion(x, y));
+            explosions.add(x, y, GameController.getLevel());
         }
     }
 
@@ -80,17 +77,18 @@ public final class ExplosionHandler {
      */
     public static void handleExplosions() {
         synchronized (explosions) {
-            final Iterator<Explosion> it = explosions.iterator();
-
-            while (it.hasNext()) {
-                final Explosion e = it.next();
+            explosions.update();
+        }
+    }
 
-                if (e.isFinished()) {
-                    it.remove();
-                } else {
-                    e.update();
-                }
-            }
+    /**
+     * Indicates whether any explosion is still visible.
+     *
+     * @return <code>true</code> if any explosion is still visible.
+     */
+    public static boolean isActive() {
+        synchronized (explosions) {
+            return explosions.isActive();
         }
     }
 
@@ -98,14 +96,16 @@ public final class ExplosionHandler {
      * Clear the list of explosions when initializing a Level.
      */
     public static void initLevel() {
-        explosions.clear();
+        synchronized (explosions) {
+            explosions.clear();
+        }
     }
 
     /**
      * Initialization.
      */
     public static void init() {
-        explosions = new LinkedList<Explosion>();
+        explosions = new ExplosionPool();
     }
 
 }
@@ -0,0 +1,425 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import tools.Histogram;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures how long the phases of a frame take. The game thread marks the
+ * end of each phase with {@link #lap(Phase, long)}; the times of a frame are
+ * summed per phase and recorded into histograms by {@link #endFrame(long)}.
+ * Histograms are kept per level, can be shown as overlay and are written to
+ * a CSV file on exit.
+ *
+ * @author Volker Oth
+ */
+public final class FrameProfiler {
+    /** phases of a frame. */
+    public enum Phase {
+        /** whole frame: update and redraw. */
+        FRAME("frame"),
+        /** game state update. */
+        UPDATE("update"),
+        /** skill assignment and release rate buttons. */
+        SKILLS("skills"),
+        /** replay handling. */
+        REPLAY("replay"),
+        /** time and release of new Lemmings. */
+        RELEASE("release"),
+        /** nuke, trap doors and end of level. */
+        NUKE("nuke"),
+        /** Lemming animation. */
+        ANIMATE("animate"),
+        /** explosion handling. */
+        EXPLOSIONS("explosions"),
+        /** animation of level objects. */
+        OBJECTS("objects"),
+        /** drawing of level and objects. */
+        DRAW_LEVEL("drawLevel"),
+        /** drawing of Lemmings. */
+        DRAW_LEMMINGS("drawLemmings"),
+        /** drawing of icons, counters, mini map and info string. */
+        DRAW_HUD("drawHud"),
+        /** drawing of explosions. */
+        DRAW_EXPLOSIONS("drawExplosions"),
+        /** fader. */
+        FADER("fader"),
+        /** copying the frame to the screen (AWT thread). */
+        PRESENT("present");
+
+        /** name used in overlay and CSV file. */
+        private final String label;
+
+        /**
+         * Constructor.
+         *
+         * @param l name used in overlay and CSV file
+         */
+        Phase(final String l) {
+            label = l;
+        }
+
+        /**
+         * Get the name used in overlay and CSV file.
+         *
+         * @return name
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** all phases. */
+    private static final Phase[] PHASES = Phase.values();
+    /** name of the CSV file inside the resource folder. */
+    private static final String CSV_NAME = "framestats.csv";
+    /** section used before the first level is loaded. */
+    private static final String NO_LEVEL = "menu";
+    /** number of frames after which the overlay is updated. */
+    private static final int OVERLAY_FRAMES = 100;
+    /** nanoseconds per microsecond. */
+    private static final double NS_PER_US = 1000.0;
+    /** percentiles written to the CSV file. */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    /** percentile shown in the overlay. */
+    private static final double OVERLAY_PERCENTILE = 99;
+    /** x position of overlay. */
+    private static final int OVERLAY_X = 4;
+    /** y position of overlay. */
+    private static final int OVERLAY_Y = 4;
+    /** width of overlay. */
+    private static final int OVERLAY_WIDTH = 260;
+    /** line height of overlay text. */
+    private static final int LINE_HEIGHT = 11;
+    /** font size of overlay text. */
+    private static final int FONT_SIZE = 10;
+    /** background color of overlay. */
+    private static final Color OVERLAY_BG = new Color(0, 0, 0, 176);
+    /** font of overlay text. */
+    private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED,
+            Font.PLAIN, FONT_SIZE);
+
+    /** histograms per section (level), in order of first use. */
+    private static final Map<String, Histogram[]> SECTIONS =
+            new LinkedHashMap<String, Histogram[]>();
+    /** times of the current frame per phase (game thread only). */
+    private static final long[] FRAME_NANOS = new long[PHASES.length];
+    /** phases measured in the current frame (game thread only). */
+    private static final boolean[] FRAME_USED = new boolean[PHASES.length];
+
+    /** flag: profiling is enabled. */
+    private static volatile boolean enabled = true;
+    /** flag: overlay is visible. */
+    private static volatile boolean overlayVisible;
+    /** histograms of the current section. */
+    private static volatile Histogram[] section = createHistograms();
+    /** histograms collected for the next overlay update. */
+    private static volatile Histogram[] recent = createHistograms();
+    /** lines currently shown in the overlay. */
+    private static volatile List<String> overlayLines =
+            new ArrayList<String>();
+    /** number of frames since the last overlay update. */
+    private static int overlayCtr;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private FrameProfiler() {
+
+    }
+
+    /**
+     * Initialization: read property "frameStats".
+     */
+    public static void init() {
+        enabled = Core.getProgramProps().get("frameStats", true);
+        setSection(NO_LEVEL);
+    }
+
+    /**
+     * Start measuring the levels with the given name.
+     *
+     * @param name name of the level
+     */
+    public static void setSection(final String name) {
+        synchronized (SECTIONS) {
+            Histogram[] h = SECTIONS.get(name);
+
+            if (h == null) {
+                h = createHistograms();
+                SECTIONS.put(name, h);
+            }
+
+            section = h;
+        }
+    }
+
+    /**
+     * Get the start time of a measurement.
+     *
+     * @return time in nanoseconds or 0 if profiling is disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * End a phase of the current frame (game thread only).
+     *
+     * @param p phase
+     * @param t start time of the phase from {@link #start()} or from the end
+     *          of the previous phase
+     * @return end time of the phase, to be used as start of the next one
+     */
+    public static long lap(final Phase p, final long t) {
+        if (!enabled) {
+            return 0;
+        }
+
+        final long now = System.nanoTime();
+        FRAME_NANOS[p.ordinal()] += now - t;
+        FRAME_USED[p.ordinal()] = true;
+        return now;
+    }
+
+    /**
+     * Record a single measurement outside of the game thread.
+     *
+     * @param p phase
+     * @param t start time from {@link #start()}
+     */
+    public static void record(final Phase p, final long t) {
+        if (enabled) {
+            final long dt = System.nanoTime() - t;
+            section[p.ordinal()].record(dt);
+            recent[p.ordinal()].record(dt);
+        }
+    }
+
+    /**
+     * End the current frame (game thread only): record the frame time and the
+     * times of all phases measured in this frame.
+     *
+     * @param t start time of the frame from {@link #start()}
+     */
+    public static void endFrame(final long t) {
+        if (!enabled) {
+            return;
+        }
+
+        lap(Phase.FRAME, t);
+        final Histogram[] s = section;
+        final Histogram[] r = recent;
+
+        for (int i = 0; i < PHASES.length; i++) {
+            if (FRAME_USED[i]) {
+                s[i].record(FRAME_NANOS[i]);
+                r[i].record(FRAME_NANOS[i]);
+                FRAME_NANOS[i] = 0;
+                FRAME_USED[i] = false;
+            }
+        }
+
+        if (++overlayCtr >= OVERLAY_FRAMES) {
+            overlayCtr = 0;
+            recent = createHistograms();
+
+            if (overlayVisible) {
+                overlayLines = formatOverlay(r);
+            }
+        }
+    }
+
+    /**
+     * Show or hide the overlay.
+     */
+    public static void toggleOverlay() {
+        overlayVisible = !overlayVisible;
+    }
+
+    /**
+     * Draw the overlay if it's visible.
+     *
+     * @param g graphics object
+     */
+    public static void drawOverlay(final Graphics2D g) {
+        if (!overlayVisible || !enabled) {
+            return;
+        }
+
+        final List<String> lines = overlayLines;
+        final Color c = g.getColor();
+        final Font f = g.getFont();
+        g.setColor(OVERLAY_BG);
+        g.fillRect(OVERLAY_X, OVERLAY_Y, OVERLAY_WIDTH,
+                (lines.size() + 1) * LINE_HEIGHT);
+        g.setColor(Color.WHITE);
+        g.setFont(OVERLAY_FONT);
+        int y = OVERLAY_Y + LINE_HEIGHT;
+
+        for (final String s : lines) {
+            g.drawString(s, OVERLAY_X + 2, y);
+            y += LINE_HEIGHT;
+        }
+
+        g.setFont(f);
+        g.setColor(c);
+    }
+
+    /**
+     * Write the histograms of all levels to the CSV file in the resource
+     * folder (if profiling is enabled and frames were measured).
+     */
+    public static void saveCsv() {
+        if (!enabled) {
+            return;
+        }
+
+        final File f = new File(Core.getResourcePath() + CSV_NAME);
+
+        try {
+            writeCsv(f);
+        } catch (final IOException ex) {
+            System.out.println("Can't write " + f.getPath());
+        }
+    }
+
+    /**
+     * Write the histograms of all levels to a CSV file. One line per level
+     * and phase; times are in microseconds.
+     *
+     * @param f CSV file
+     * @throws IOException if the file can't be written
+     */
+    public static void writeCsv(final File f) throws IOException {
+        final Map<String, Histogram[]> sections;
+
+        synchronized (SECTIONS) {
+            sections = new LinkedHashMap<String, Histogram[]>(SECTIONS);
+        }
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(f))) {
+            final StringBuilder sb = new StringBuilder(
+                    "level,phase,count,min_us,mean_us");
+
+            for (final double p : PERCENTILES) {
+                sb.append(",p").append(formatNumber(p)).append("_us");
+            }
+
+            out.println(sb.append(",max_us"));
+
+            for (final Map.Entry<String, Histogram[]> e : sections
+                    .entrySet()) {
+                for (final Phase p : PHASES) {
+                    final Histogram h = e.getValue()[p.ordinal()];
+
+                    if (h.getCount() == 0) {
+                        continue;
+                    }
+
+                    sb.setLength(0);
+                    sb.append('"').append(e.getKey().replace("\"", "\"\""))
+                            .append("\",").append(p.getLabel()).append(',')
+                            .append(h.getCount()).append(',')
+                            .append(toMicros(h.getMin())).append(',')
+                            .append(toMicros(h.getMean()));
+
+                    for (final double pc : PERCENTILES) {
+                        sb.append(',').append(
+                                toMicros(h.getValueAtPercentile(pc)));
+                    }
+
+                    out.println(sb.append(',').append(toMicros(h.getMax())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Create one empty histogram per phase.
+     *
+     * @return histograms
+     */
+    private static Histogram[] createHistograms() {
+        final Histogram[] h = new Histogram[PHASES.length];
+
+        for (int i = 0; i < h.length; i++) {
+            h[i] = new Histogram();
+        }
+
+        return h;
+    }
+
+    /**
+     * Format the overlay text.
+     *
+     * @param h histograms of the last frames
+     * @return lines of text
+     */
+    private static List<String> formatOverlay(final Histogram[] h) {
+        final List<String> lines = new ArrayList<String>();
+        lines.add(String.format(Locale.ROOT, "%-15s %8s %8s %8s", "us",
+                "mean", "p" + formatNumber(OVERLAY_PERCENTILE), "max"));
+
+        for (final Phase p : PHASES) {
+            final Histogram hp = h[p.ordinal()];
+
+            if (hp.getCount() > 0) {
+                lines.add(String.format(Locale.ROOT, "%-15s %8s %8s %8s",
+                        p.getLabel(), toMicros(hp.getMean()),
+                        toMicros(hp.getValueAtPercentile(OVERLAY_PERCENTILE)),
+                        toMicros(hp.getMax())));
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Convert nanoseconds to a string in microseconds.
+     *
+     * @param ns nanoseconds
+     * @return microseconds with one decimal
+     */
+    private static String toMicros(final double ns) {
+        return String.format(Locale.ROOT, "%.1f", ns / NS_PER_US);
+    }
+
+    /**
+     * Format a percentile without unneeded decimals.
+     *
+     * @param p percentile
+     * @return formatted percentile
+     */
+    private static String formatNumber(final double p) {
+        return p == Math.rint(p) ? Long.toString((long) p)
+                : Double.toString(p);
+    }
+}
@@ -2,18 +2,17 @@ package game;
 
 import java.awt.Component;
 import java.awt.Graphics2D;
-import java.awt.Transparency;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
+import game.jfr.TickEvent;
 import game.lemmings.Lemming;
 import game.lemmings.LemmingImageLoader;
 import game.lemmings.SkillHandler;
-import game.level.Explosion;
+import game.level.ChunkedImage;
+import game.level.ExplosionPool;
 import game.level.Level;
 import game.level.ReleaseRateHandler;
 import game.level.SpriteObject;
@@ -25,7 +24,7 @@ import gameutil.FaderState;
 import gameutil.Sprite;
 import lemmini.Constants;
 import tools.MicrosecondTimer;
-import tools.ToolBox;
+import tools.Resources;
 /*
  * Copyright 2009 Volker Oth
  *
@@ -52,8 +51,10 @@ public final class GameController {
     public static final int KEYREPEAT_ICON = 1;
     /** key repeat bitmask for keys. */
     public static final int KEYREPEAT_KEY = 2;
-    /** updates 5 frames instead of 1 in fast forward mode. */
+    /** default: updates 5 frames instead of 1 in fast forward mode. */
     public static final int FAST_FWD_MULTI = 5;
+    /** maximum number of updates per frame in fast forward mode. */
+    public static final int MAX_FAST_FWD_MULTI = 50;
     /** updates 3 frames instead of 1 in Superlemming mode. */
     public static final int SUPERLEMM_MULTI = 3;
     /**
@@ -73,14 +74,18 @@ public final class GameController {
             / MICROSEC_PER_FRAME;
     /** the background stencil. */
     private static Stencil stencil;
-    /** the background image. */
-    private static BufferedImage bgImage;
+    /** the background image (terrain pixels of the level). */
+    private static ChunkedImage bgImage;
+    /** input commands executed at the start of the next update. */
+    private static final InputQueue INPUT = new InputQueue();
     /** flag: use advanced mouse selection methods. */
     private static boolean advancedSelect;
     /** flag: use classical mouse cursor behavior. */
     private static boolean classicalCursor;
     /** flag: fast forward mode is active. */
     private static boolean fastForward;
+    /** number of updates per frame in fast forward mode. */
+    private static volatile int fastForwardMulti = FAST_FWD_MULTI;
     /** flag: Superlemming mode is active. */
     private static boolean superLemming;
     /** game state. */
@@ -127,6 +132,11 @@ public final class GameController {
 
     /** horizontal scrolling offset for level. */
     private static int xPos;
+    /**
+     * vertical scrolling offset for level (not recorded in replays, since
+     * it does not influence the game).
+     */
+    private static int yPos;
     /** old value of release rate. */
     private static int releaseRateOld;
     /** old value of nuke flag. */
@@ -276,12 +286,12 @@ public final class GameController {
      * @throws ResourceException
      */
     public static void init(final Component frame) throws ResourceException {
-        bgImage = ToolBox.createImage(Level.WIDTH, Level.HEIGHT,
-                Transparency.BITMASK);
+        bgImage = new ChunkedImage(Level.WIDTH, Level.HEIGHT);
         gameState = GameState.INIT;
+        FrameProfiler.init();
         SoundController.initSound();
         Icons.init(frame);
-        Explosion.init(frame);
+        ExplosionPool.init(frame);
         LemmingImageLoader.loadLemmings(frame);
         LemmingHandler.init();
         ExplosionHandler.init();
@@ -295,30 +305,31 @@ public final class GameController {
         SkillHandler.setTimerNuke(new MicrosecondTimer());
         level = new Level();
         // read level packs
-        final File dir = new File(Core.getResourcePath() + "levels");
-        final File[] files = dir.listFiles();
+        final String dir = Core.getResourcePath() + "levels/";
+        final String[] files = Resources.list(dir);
         // now get the names of the directories
-        final List<String> dirs = getNamesOfDirectories(files);
+        final List<String> dirs = getNamesOfDirectories(dir, files);
         Collections.sort(dirs);
-        FaderHandler.init(bgImage, dirs);
+        FaderHandler.init(dirs);
         ReplayController.init();
         wasCheated = isCheat();
+        GameStats.register();
     }
 
     /**
      * Returns the names of the directories.
      *
-     * @param files the level files.
+     * @param dir   the level folder.
+     * @param files the names of the level files.
      * @return the names of the directories.
      */
-    private static List<String> getNamesOfDirectories(final File[] files) {
+    private static List<String> getNamesOfDirectories(final String dir,
+            final String[] files) {
         final List<String> dirs = new ArrayList<String>();
 
-        if (files != null) {
-            for (int i = 0; i < files.length; i++) {
-                if (files[i].isDirectory()) {
-                    dirs.add(files[i].getName());
-                }
+        for (int i = 0; i < files.length; i++) {
+            if (Resources.isDirectory(dir + files[i])) {
+                dirs.add(files[i]);
             }
         }
 
@@ -401,10 +412,17 @@ public final class GameController {
      * Update the whole game state by one frame.
      */
     public static synchronized void update() {
+        // apply all input received since the last tick
+        INPUT.drain();
+
         if (gameState != GameState.LEVEL) {
             return;
         }
 
+        final long start = FrameProfiler.start();
+        final TickEvent tick = new TickEvent();
+        tick.begin();
+        final int stencilMods = tick.isEnabled() ? getStencilModCount() : 0;
         updateCtr++;
         final boolean replayMode = ReplayController.isReplayMode();
 
@@ -414,13 +432,17 @@ public final class GameController {
 
         // check +/- buttons also if paused
         ReleaseRateHandler.checkPlusMinusButtons();
+        long t = FrameProfiler.lap(FrameProfiler.Phase.SKILLS, start);
 
         if (isPaused()) {
+            FrameProfiler.lap(FrameProfiler.Phase.UPDATE, start);
+            commitTick(tick, stencilMods, true);
             return;
         }
 
+        GameStats.tick();
         ReplayController.testForEndOfReplayMode();
-        final LinkedList<Lemming> lemmings = LemmingHandler.getLemmings();
+        final List<Lemming> lemmings = LemmingHandler.getLemmings();
 
         if (!replayMode) {
             handleNonReplayModeUpdate();
@@ -428,31 +450,69 @@ public final class GameController {
             ReplayController.handleReplayModeUpdate(lemmings);
         }
 
+        t = FrameProfiler.lap(FrameProfiler.Phase.REPLAY, t);
         // replay: xpos changed
         // store locally to avoid it's overwritten amidst function
         final boolean nukeTemp = nuke;
         checkForTimeExpired();
         LemmingHandler.releaseLemmings(nukeTemp, entryOpened);
+        t = FrameProfiler.lap(FrameProfiler.Phase.RELEASE, t);
         LemmingHandler.nuke(nukeTemp, updateCtr);
         openTrapDoors();
 
         // end of game conditions
         if ((nukeTemp
                 || LemmingHandler.getNumLemmingsOut() == getNumLemmingsMax())
-                && ExplosionHandler.getExplosions().size() == 0
+                && !ExplosionHandler.isActive()
                 && lemmings.size() == 0) {
             endLevel();
         }
 
+        t = FrameProfiler.lap(FrameProfiler.Phase.NUKE, t);
         LemmingHandler.animateLemmings();
+        t = FrameProfiler.lap(FrameProfiler.Phase.ANIMATE, t);
         ExplosionHandler.handleExplosions();
+        t = FrameProfiler.lap(FrameProfiler.Phase.EXPLOSIONS, t);
         animateLevelObjects();
+        t = FrameProfiler.lap(FrameProfiler.Phase.OBJECTS, t);
 
         if (!replayMode) {
             LemmingHandler.assignSkill(true); // 2nd try to assign skill
         }
 
         ReplayController.incrementReplayFrame();
+        FrameProfiler.lap(FrameProfiler.Phase.SKILLS, t);
+        FrameProfiler.lap(FrameProfiler.Phase.UPDATE, start);
+        commitTick(tick, stencilMods, false);
+    }
+
+    /**
+     * Commit the JFR event of a tick if it's recorded.
+     *
+     * @param tick        event started at the begin of the tick
+     * @param stencilMods stencil modification count at the begin of the tick
+     * @param paused      flag: the game is paused
+     */
+    private static void commitTick(final TickEvent tick,
+            final int stencilMods, final boolean paused) {
+        if (tick.shouldCommit()) {
+            tick.tick = updateCtr;
+            tick.lemmings = LemmingHandler.getLemmings().size();
+            tick.particles = ExplosionHandler.getExplosions()
+                    .getNumParticles();
+            tick.stencilPixels = getStencilModCount() - stencilMods;
+            tick.paused = paused;
+            tick.commit();
+        }
+    }
+
+    /**
+     * Get the modification count of the stencil.
+     *
+     * @return modification count or 0 if there is no stencil
+     */
+    private static int getStencilModCount() {
+        return stencil != null ? stencil.getModCount() : 0;
     }
 
     /**
@@ -577,6 +637,24 @@ public final class GameController {
         return xPos;
     }
 
+    /**
+     * Set vertical scrolling offset.
+     *
+     * @param y vertical scrolling offset in pixels
+     */
+    public static void setyPos(final int y) {
+        yPos = y;
+    }
+
+    /**
+     * Get vertical scrolling offset.
+     *
+     * @return vertical scrolling offset in pixels
+     */
+    public static int getyPos() {
+        return yPos;
+    }
+
     /**
      * Set game state.
      *
@@ -676,6 +754,24 @@ public final class GameController {
         fastForward = ff;
     }
 
+    /**
+     * Get the number of updates per frame in fast forward mode.
+     *
+     * @return number of updates per frame
+     */
+    public static int getFastForwardMulti() {
+        return fastForwardMulti;
+    }
+
+    /**
+     * Set the number of updates per frame in fast forward mode.
+     *
+     * @param multi number of updates per frame (1..MAX_FAST_FWD_MULTI)
+     */
+    public static void setFastForwardMulti(final int multi) {
+        fastForwardMulti = Math.max(1, Math.min(MAX_FAST_FWD_MULTI, multi));
+    }
+
     /**
      * Get fast forward state.
      *
@@ -740,6 +836,24 @@ public final class GameController {
         return Icons.getType(x);
     }
 
+    /**
+     * Queue an input command. Input changing the game state is not applied
+     * directly by the AWT thread, but at the start of the next update.
+     *
+     * @param command command to execute in the game loop
+     */
+    public static void queueInput(final Runnable command) {
+        INPUT.add(command);
+    }
+
+    /**
+     * Discard all queued input commands (e.g. when a new level is started).
+     * Must only be called from the game loop.
+     */
+    public static void clearInput() {
+        INPUT.clear();
+    }
+
     /**
      * Icon was pressed.
      *
@@ -812,10 +926,19 @@ public final class GameController {
      *
      * @return background image of level
      */
-    public static BufferedImage getBgImage() {
+    public static ChunkedImage getBgImage() {
         return bgImage;
     }
 
+    /**
+     * Set background image of level.
+     *
+     * @param image background image of level
+     */
+    public static void setBgImage(final ChunkedImage image) {
+        bgImage = image;
+    }
+
     /**
      * Get background stencil of level.
      *
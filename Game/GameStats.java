@@ -0,0 +1,315 @@
+package game;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import game.lemmings.Lemming;
+import game.level.ChunkedImage;
+import game.level.Level;
+import game.level.Stencil;
+import gameutil.SoundBank;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Live counters of the running game and their JMX interface. The game loop
+ * reports ticks and frames; everything else is read from the game when
+ * requested.
+ *
+ * @author Volker Oth
+ */
+public final class GameStats implements GameStatsMXBean {
+    /** name of the MBean. */
+    public static final String OBJECT_NAME = "lemmini:type=Game";
+    /** nanoseconds per second. */
+    private static final double NS_PER_SECOND = 1e9;
+    /** length of the window used for rates in nanoseconds. */
+    private static final long RATE_WINDOW = 1000000000L;
+    /** bytes per pixel of images. */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** number of game state updates. */
+    private static final AtomicLong TICKS = new AtomicLong();
+    /** number of drawn frames. */
+    private static final AtomicLong FRAMES = new AtomicLong();
+    /** number of late frames. */
+    private static final AtomicLong LATE_FRAMES = new AtomicLong();
+    /** number of resyncs of the frame timer. */
+    private static final AtomicLong RESYNCS = new AtomicLong();
+
+    /** start of the current rate window (game thread only). */
+    private static long windowStart = System.nanoTime();
+    /** ticks at the start of the current rate window (game thread only). */
+    private static long windowTicks;
+    /** frames at the start of the current rate window (game thread only). */
+    private static long windowFrames;
+    /** updates per second during the last window. */
+    private static volatile double ticksPerSecond;
+    /** frames per second during the last window. */
+    private static volatile double framesPerSecond;
+
+    /**
+     * Register the MBean at the platform MBean server.
+     */
+    public static void register() {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (!ManagementFactory.getPlatformMBeanServer()
+                    .isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(new GameStats(), name);
+            }
+        } catch (final JMException ex) {
+            System.out.println("Can't register MBean: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Count a game state update.
+     */
+    public static void tick() {
+        TICKS.incrementAndGet();
+    }
+
+    /**
+     * Count a drawn frame (game thread only). Rates are updated once per
+     * second.
+     *
+     * @param late true if the frame was drawn a frame time or more behind
+     *             schedule
+     */
+    public static void frame(final boolean late) {
+        final long frames = FRAMES.incrementAndGet();
+
+        if (late) {
+            LATE_FRAMES.incrementAndGet();
+        }
+
+        final long now = System.nanoTime();
+        final long dt = now - windowStart;
+
+        if (dt >= RATE_WINDOW) {
+            final long ticks = TICKS.get();
+            ticksPerSecond = (ticks - windowTicks) * NS_PER_SECOND / dt;
+            framesPerSecond = (frames - windowFrames) * NS_PER_SECOND / dt;
+            windowStart = now;
+            windowTicks = ticks;
+            windowFrames = frames;
+        }
+    }
+
+    /**
+     * Count a resync of the frame timer.
+     */
+    public static void resync() {
+        RESYNCS.incrementAndGet();
+    }
+
+    @Override
+    public long getTicks() {
+        return TICKS.get();
+    }
+
+    @Override
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getFrames() {
+        return FRAMES.get();
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public long getLateFrames() {
+        return LATE_FRAMES.get();
+    }
+
+    @Override
+    public long getResyncs() {
+        return RESYNCS.get();
+    }
+
+    @Override
+    public String getGameState() {
+        final GameState s = GameController.getGameState();
+        return s != null ? s.name() : "";
+    }
+
+    @Override
+    public String getLevelName() {
+        final Level level = GameController.getLevel();
+        return level != null && level.getLevelName() != null
+                ? level.getLevelName() : "";
+    }
+
+    @Override
+    public int getLemmings() {
+        final List<Lemming> lemmings = LemmingHandler.getLemmings();
+        return lemmings != null ? lemmings.size() : 0;
+    }
+
+    @Override
+    public int getExplosionParticles() {
+        return ExplosionHandler.getExplosions() != null
+                ? ExplosionHandler.getExplosions().getNumParticles() : 0;
+    }
+
+    @Override
+    public int getActiveVoices() {
+        return SoundController.getActiveVoices();
+    }
+
+    @Override
+    public double getMusicCacheHitRate() {
+        return hitRate(ModCache.getHits(), ModCache.getMisses());
+    }
+
+    @Override
+    public double getSoundBankHitRate() {
+        return hitRate(SoundBank.getHits(), SoundBank.getMisses());
+    }
+
+    @Override
+    public Map<String, Long> getMemoryBytes() {
+        final Map<String, Long> m = new LinkedHashMap<String, Long>();
+        final ChunkedImage bgImage = GameController.getBgImage();
+        m.put("level", (bgImage != null ? bgImage.getMemoryBytes() : 0L)
+                + imageBytes(GameController.getMapPreview()));
+        final Stencil s = GameController.getStencil();
+        m.put("stencil", s != null ? s.getMemoryBytes() : 0L);
+        m.put("explosions", ExplosionHandler.getExplosions() != null
+                ? ExplosionHandler.getExplosions().getMemoryBytes() : 0L);
+        m.put("sound", SoundController.getSampleBytes());
+        return m;
+    }
+
+    @Override
+    public boolean isPaused() {
+        return GameController.isPaused();
+    }
+
+    @Override
+    public int getFastForwardMultiplier() {
+        return GameController.getFastForwardMulti();
+    }
+
+    @Override
+    public void setFastForwardMultiplier(final int multi) {
+        GameController.setFastForwardMulti(multi);
+    }
+
+    @Override
+    public void pause() {
+        setPaused(true);
+    }
+
+    @Override
+    public void resume() {
+        setPaused(false);
+    }
+
+    @Override
+    public String dumpSnapshot() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("state: ").append(getGameState()).append('\n');
+        sb.append("level: ").append(getLevelName()).append('\n');
+        sb.append("ticks: ").append(getTicks()).append('\n');
+        sb.append("time: ").append(GameController.getTimeString())
+                .append('\n');
+        sb.append("paused: ").append(GameController.isPaused())
+                .append(", fastForward: ")
+                .append(GameController.isFastForward())
+                .append(", nuke: ").append(GameController.isNuke())
+                .append('\n');
+        sb.append("out: ").append(LemmingHandler.getNumLemmingsOut())
+                .append(", saved: ").append(GameController.getNumLeft())
+                .append(", max: ").append(GameController.getNumLemmingsMax())
+                .append(", toRescue: ")
+                .append(GameController.getNumToRescue()).append('\n');
+        sb.append("particles: ").append(getExplosionParticles())
+                .append(", voices: ").append(getActiveVoices()).append('\n');
+        final List<Lemming> lemmings = LemmingHandler.getLemmings();
+
+        if (lemmings != null) {
+            synchronized (lemmings) {
+                sb.append("lemmings: ").append(lemmings.size()).append('\n');
+                int i = 0;
+
+                for (final Lemming l : lemmings) {
+                    sb.append(i++).append(": x=").append(l.getX())
+                            .append(" y=").append(l.getY()).append(' ')
+                            .append(l.getSkill()).append(' ')
+                            .append(l.getDirection()).append('\n');
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Pause or continue the game like the pause icon. Applied at the start of
+     * the next update like all other input.
+     *
+     * @param p true: pause, false: continue
+     */
+    private static void setPaused(final boolean p) {
+        GameController.queueInput(() -> {
+            if (GameController.isPaused() != p) {
+                GameController.setPaused(p);
+                GameController.pressIcon(Icons.Type.PAUSE);
+            }
+        });
+    }
+
+    /**
+     * Calculate a hit rate.
+     *
+     * @param hits   number of hits
+     * @param misses number of misses
+     * @return hits / (hits + misses) or 0 if both are 0
+     */
+    private static double hitRate(final long hits, final long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Get the approximate size of an image.
+     *
+     * @param img image (may be null)
+     * @return size in bytes
+     */
+    private static long imageBytes(final BufferedImage img) {
+        return img != null
+                ? (long) img.getWidth() * img.getHeight() * BYTES_PER_PIXEL
+                : 0;
+    }
+}
@@ -0,0 +1,166 @@
+package game;
+
+import java.util.Map;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Management interface of a running game, registered as
+ * "lemmini:type=Game" by {@link GameStats#register()}.
+ *
+ * @author Volker Oth
+ */
+public interface GameStatsMXBean {
+    /**
+     * Get the number of game state updates since start.
+     *
+     * @return number of updates
+     */
+    long getTicks();
+
+    /**
+     * Get the game state updates per second during the last second.
+     *
+     * @return updates per second
+     */
+    double getTicksPerSecond();
+
+    /**
+     * Get the number of frames drawn since start.
+     *
+     * @return number of frames
+     */
+    long getFrames();
+
+    /**
+     * Get the frames drawn per second during the last second.
+     *
+     * @return frames per second
+     */
+    double getFramesPerSecond();
+
+    /**
+     * Get the number of frames which were drawn a whole frame time or more
+     * behind schedule.
+     *
+     * @return number of late frames
+     */
+    long getLateFrames();
+
+    /**
+     * Get the number of times the frame timer was resynchronized.
+     *
+     * @return number of resyncs
+     */
+    long getResyncs();
+
+    /**
+     * Get the game state.
+     *
+     * @return name of the game state
+     */
+    String getGameState();
+
+    /**
+     * Get the name of the current level.
+     *
+     * @return level name or empty string
+     */
+    String getLevelName();
+
+    /**
+     * Get the number of active Lemmings.
+     *
+     * @return number of Lemmings
+     */
+    int getLemmings();
+
+    /**
+     * Get the number of active explosion particles.
+     *
+     * @return number of particles
+     */
+    int getExplosionParticles();
+
+    /**
+     * Get the number of sound effect voices currently playing.
+     *
+     * @return number of voices
+     */
+    int getActiveVoices();
+
+    /**
+     * Get the hit rate of the pre-rendered music cache.
+     *
+     * @return hits / requests (0 if there were no requests)
+     */
+    double getMusicCacheHitRate();
+
+    /**
+     * Get the hit rate of the sound bank file.
+     *
+     * @return hits / requests (0 if there were no requests)
+     */
+    double getSoundBankHitRate();
+
+    /**
+     * Get the approximate heap memory used by the big buffers of each
+     * subsystem.
+     *
+     * @return bytes per subsystem
+     */
+    Map<String, Long> getMemoryBytes();
+
+    /**
+     * Check whether the game is paused.
+     *
+     * @return true if paused
+     */
+    boolean isPaused();
+
+    /**
+     * Get the number of updates per drawn frame in fast forward mode.
+     *
+     * @return fast forward multiplier
+     */
+    int getFastForwardMultiplier();
+
+    /**
+     * Set the number of updates per drawn frame in fast forward mode.
+     *
+     * @param multi fast forward multiplier
+     */
+    void setFastForwardMultiplier(int multi);
+
+    /**
+     * Pause the game.
+     */
+    void pause();
+
+    /**
+     * Continue the game.
+     */
+    void resume();
+
+    /**
+     * Get a text snapshot of the simulation: game state, counters and all
+     * Lemmings.
+     *
+     * @return snapshot
+     */
+    String dumpSnapshot();
+}
@@ -0,0 +1,107 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Lock-free queue of input commands with any number of producing threads (AWT
+ * event thread, JMX) and exactly one consuming thread (the game loop). A
+ * producer only swaps the tail reference, so it never blocks and never
+ * retries. The consumer follows the links from its own head node. Commands
+ * are executed in the order they were added.
+ *
+ * @author Volker Oth
+ */
+public class InputQueue {
+    /**
+     * Node of the linked list of commands.
+     */
+    private static final class Node {
+        /** command or null if executed. */
+        private Runnable command;
+        /** next node (set once by the producer). */
+        private volatile Node next;
+
+        /**
+         * Constructor.
+         *
+         * @param c command
+         */
+        Node(final Runnable c) {
+            command = c;
+        }
+    }
+
+    /** last node added (changed by the producers). */
+    private final AtomicReference<Node> tail;
+    /** node before the next command (only changed by the consumer). */
+    private Node head;
+
+    /**
+     * Constructor.
+     */
+    public InputQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<Node>(head);
+    }
+
+    /**
+     * Add a command. May be called from any thread.
+     *
+     * @param command command to execute in the consuming thread
+     */
+    public void add(final Runnable command) {
+        final Node n = new Node(command);
+        // a command is visible to the consumer once the link is set
+        tail.getAndSet(n).next = n;
+    }
+
+    /**
+     * Execute all queued commands. Must only be called from the consuming
+     * thread.
+     *
+     * @return number of executed commands
+     */
+    public int drain() {
+        int num = 0;
+        Node n;
+
+        while ((n = head.next) != null) {
+            head = n;
+            final Runnable command = n.command;
+            n.command = null;
+            command.run();
+            num++;
+        }
+
+        return num;
+    }
+
+    /**
+     * Discard all queued commands. Must only be called from the consuming
+     * thread.
+     */
+    public void clear() {
+        Node n;
+
+        while ((n = head.next) != null) {
+            head = n;
+            n.command = null;
+        }
+    }
+}
@@ -7,7 +7,6 @@ import java.awt.Toolkit;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 
-import game.lemmings.Lemming;
 import tools.ToolBox;
 
 /*
@@ -53,7 +52,7 @@ public final class LemmCursor {
      * Distance from center of cursor to be used to detect Lemmings under the
      * cursor.
      */
-    private static final int HIT_DISTANCE = 12;
+    static final int HIT_DISTANCE = 12;
 
     /** cursor type. */
     public enum Type {
@@ -225,29 +224,6 @@ public final class LemmCursor {
         type = t;
     }
 
-    /**
-     * Check if a Lemming is under the cursor.
-     *
-     * @param l    Lemming to check
-     * @param xOfs screen x offset
-     * @return true if the Lemming is under the Cursor, else false.
-     */
-    public static boolean doesCollide(final Lemming l, final int xOfs) {
-        // get center of lemming
-        final int lx = l.midX() - xOfs;
-        final int ly = l.midY();
-
-        // calculate center of cursor
-        final int cx = getX();
-        final int cy = getY();
-
-        // calculate distance
-        final int dx = Math.abs(lx - cx);
-        final int dy = Math.abs(ly - cy);
-
-        return dx <= HIT_DISTANCE && dy <= HIT_DISTANCE;
-    }
-
     /**
      * Set x position in pixels.
      *
@@ -0,0 +1,180 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import game.lemmings.Lemming;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Spatial index of Lemmings: the level is divided into vertical stripes
+ * (buckets) and each Lemming is sorted into the stripe of its collision
+ * position. The index is rebuilt once per frame, so queries only look at the
+ * stripes near the position instead of at all Lemmings. Positions are copied
+ * when building, so queries don't read the Lemmings while they are animated.
+ *
+ * @author Volker Oth
+ */
+public class LemmingGrid {
+    /** width of a bucket as power of two. */
+    private static final int BUCKET_SHIFT = 4;
+    /** initial capacity for Lemmings. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** number of buckets. */
+    private final int numBuckets;
+    /** start index of each bucket in {@link #order} (plus end marker). */
+    private final int[] bucketStart;
+    /** indices of the Lemmings sorted by bucket, ascending in each bucket. */
+    private int[] order = new int[INITIAL_CAPACITY];
+    /** Lemmings in the order of the Lemming list. */
+    private Lemming[] lemmings = new Lemming[INITIAL_CAPACITY];
+    /** x collision positions of the Lemmings. */
+    private int[] xs = new int[INITIAL_CAPACITY];
+    /** y collision positions of the Lemmings. */
+    private int[] ys = new int[INITIAL_CAPACITY];
+    /** number of Lemmings. */
+    private int count;
+    /** incremented with each rebuild. */
+    private int version;
+
+    /**
+     * Constructor.
+     *
+     * @param width width of the level in pixels
+     */
+    public LemmingGrid(final int width) {
+        numBuckets = (width >> BUCKET_SHIFT) + 1;
+        bucketStart = new int[numBuckets + 1];
+    }
+
+    /**
+     * Rebuild the index from a list of Lemmings.
+     *
+     * @param list Lemmings (query results keep the order of this list)
+     */
+    public synchronized void rebuild(final Collection<Lemming> list) {
+        count = list.size();
+
+        if (lemmings.length < count) {
+            final int cap = Math.max(count, lemmings.length * 2);
+            lemmings = new Lemming[cap];
+            xs = new int[cap];
+            ys = new int[cap];
+            order = new int[cap];
+        }
+
+        Arrays.fill(bucketStart, 0);
+        int i = 0;
+
+        for (final Lemming l : list) {
+            lemmings[i] = l;
+            xs[i] = l.midX();
+            ys[i] = l.midY();
+            bucketStart[bucket(xs[i]) + 1]++;
+            i++;
+        }
+
+        Arrays.fill(lemmings, count, lemmings.length, null);
+
+        for (int b = 0; b < numBuckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        // counting sort: the indices in each bucket stay ascending
+        final int[] fill = Arrays.copyOf(bucketStart, numBuckets);
+
+        for (i = 0; i < count; i++) {
+            order[fill[bucket(xs[i])]++] = i;
+        }
+
+        version++;
+    }
+
+    /**
+     * Remove all Lemmings.
+     */
+    public synchronized void clear() {
+        rebuild(Collections.<Lemming>emptyList());
+    }
+
+    /**
+     * Get the number of rebuilds (to detect changes).
+     *
+     * @return number of rebuilds
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Find all Lemmings whose collision position is at most the given
+     * distance away from a position (in x and in y).
+     *
+     * @param x    x position in pixels
+     * @param y    y position in pixels
+     * @param dist maximum distance in pixels
+     * @return Lemmings in the order of the list used to build the index
+     */
+    public synchronized List<Lemming> query(final int x, final int y,
+            final int dist) {
+        final int b0 = bucket(x - dist);
+        final int b1 = bucket(x + dist);
+        int[] found = null;
+        int num = 0;
+
+        for (int k = bucketStart[b0]; k < bucketStart[b1 + 1]; k++) {
+            final int i = order[k];
+
+            if (Math.abs(xs[i] - x) <= dist && Math.abs(ys[i] - y) <= dist) {
+                if (found == null) {
+                    found = new int[bucketStart[b1 + 1] - k];
+                }
+
+                found[num++] = i;
+            }
+        }
+
+        if (num == 0) {
+            return Collections.emptyList();
+        }
+
+        // indices of several buckets: restore the list order
+        Arrays.sort(found, 0, num);
+        final List<Lemming> result = new ArrayList<Lemming>(num);
+
+        for (int k = 0; k < num; k++) {
+            result.add(lemmings[found[k]]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the bucket of an x position.
+     *
+     * @param x x position in pixels
+     * @return index of bucket
+     */
+    private int bucket(final int x) {
+        return Math.max(0, Math.min(numBuckets - 1, x >> BUCKET_SHIFT));
+    }
+}
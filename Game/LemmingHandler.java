@@ -1,8 +1,7 @@
 package game;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import game.lemmings.Lemming;
@@ -34,18 +33,27 @@ import game.replay.ReplayController;
  */
 public final class LemmingHandler {
     /**
-     * Initial capacity of ArrayList for lemmsUnderCursor.
+     * list of all active Lemmings in the Level. An array list, as replays
+     * address Lemmings by index and levels may have thousands of Lemmings.
      */
-    private static final int INITIAL_CAPACITY = 10;
-
-    /** list of all active Lemmings in the Level. */
-    private static LinkedList<Lemming> lemmings;
-    /** list of all Lemmings under the mouse cursor. */
-    private static List<Lemming> lemmsUnderCursor;
+    private static ArrayList<Lemming> lemmings;
+    /** spatial index of the Lemmings, rebuilt after each animation step. */
+    private static final LemmingGrid GRID = new LemmingGrid(Level.MAX_WIDTH);
+    /** list of all Lemmings under the mouse cursor (not modifiable). */
+    private static volatile List<Lemming> lemmsUnderCursor = Collections
+            .emptyList();
+    /** cursor x position in the level used for lemmsUnderCursor. */
+    private static int cursorX = -1;
+    /** cursor y position used for lemmsUnderCursor. */
+    private static int cursorY = -1;
+    /** grid version used for lemmsUnderCursor. */
+    private static int cursorVersion = -1;
     /** Lemming for which skill change is requested. */
     private static Lemming lemmSkillRequest;
     /** number of Lemmings who entered the level. */
     private static int numLemmingsOut;
+    /** all Lemmings before this index are nuked, dead or have left. */
+    private static int nukeIdx;
 
     /**
      * Private default constructor for utility class.
@@ -97,18 +105,64 @@ public final class LemmingHandler {
     /**
      * Get list of all Lemmings under the mouse cursor.
      *
-     * @return list of all Lemmings under the mouse cursor
+     * @return list of all Lemmings under the mouse cursor (not modifiable)
      */
     public static List<Lemming> getLemmsUnderCursor() {
         return lemmsUnderCursor;
     }
 
+    /**
+     * Update the list of Lemmings under the current position of the mouse
+     * cursor.
+     *
+     * @param xOfs screen x offset
+     * @param yOfs screen y offset
+     */
+    public static void updateLemmsUnderCursor(final int xOfs,
+            final int yOfs) {
+        updateLemmsAt(LemmCursor.getX() + xOfs, LemmCursor.getY() + yOfs);
+    }
+
+    /**
+     * Update the list of Lemmings under the mouse cursor for a cursor
+     * position in the level. The list is only searched again if the position
+     * or the Lemmings have moved since the last update.
+     *
+     * @param x x position of the cursor in the level in pixels
+     * @param y y position of the cursor in the level in pixels
+     */
+    public static void updateLemmsAt(final int x, final int y) {
+        final int version = GRID.getVersion();
+
+        if (x != cursorX || y != cursorY || version != cursorVersion) {
+            cursorX = x;
+            cursorY = y;
+            cursorVersion = version;
+            lemmsUnderCursor = Collections.unmodifiableList(
+                    GRID.query(x, y, LemmCursor.HIT_DISTANCE));
+        }
+    }
+
+    /**
+     * Get all Lemmings near a position in the level. Positions are the ones
+     * after the last animation step.
+     *
+     * @param x    x position in pixels
+     * @param y    y position in pixels
+     * @param dist maximum distance in pixels (in x and in y)
+     * @return Lemmings in the order of the list of all Lemmings
+     */
+    public static List<Lemming> getLemmingsNear(final int x, final int y,
+            final int dist) {
+        return GRID.query(x, y, dist);
+    }
+
     /**
      * Get list of all Lemmings in this level.
      *
      * @return list of all Lemmings in this level
      */
-    public static LinkedList<Lemming> getLemmings() {
+    public static ArrayList<Lemming> getLemmings() {
         return lemmings;
     }
 
@@ -117,7 +171,7 @@ public final class LemmingHandler {
      *
      * @param delete flag: reset the current skill request
      */
-    public static synchronized void assignSkill(final boolean delete) {
+    public static void assignSkill(final boolean delete) {
         final Type lemmSkill = SkillHandler.getLemmSkill();
 
         if (lemmSkillRequest == null || Type.UNDEFINED == lemmSkill) {
@@ -145,12 +199,12 @@ public final class LemmingHandler {
             // add to replay stream
             if (!GameController.isWasCheated()) {
                 synchronized (lemmings) {
-                    for (int i = 0; i < lemmings.size(); i++) {
-                        if (lemmings.get(i) == lemm) {
-                            // if 2nd try (delete==true) assign to next frame
-                            ReplayController.addAssignSkillEvent(delete,
-                                    lemmSkill, i);
-                        }
+                    final int i = lemmings.indexOf(lemm);
+
+                    if (i >= 0) {
+                        // if 2nd try (delete==true) assign to next frame
+                        ReplayController.addAssignSkillEvent(delete,
+                                lemmSkill, i);
                     }
                 }
             }
@@ -183,7 +237,7 @@ public final class LemmingHandler {
      *
      * @param lemm Lemming
      */
-    public static synchronized void requestSkill(final Lemming lemm) {
+    public static void requestSkill(final Lemming lemm) {
         if (SkillHandler.getLemmSkill() != Type.UNDEFINED) {
             lemmSkillRequest = lemm;
         }
@@ -208,15 +262,21 @@ public final class LemmingHandler {
                 final Level level = GameController.getLevel();
 
                 if (level.getEntryNum() != 0) {
-                    final Entry e = level.getEntry(TrapDoor.getNext());
-                    final Lemming l = new Lemming(e.getxPos() + 2,
-                            e.getyPos() + 20);
+                    // levels with many Lemmings may release several at once
+                    final int num = Math.min(level.getReleaseCount(),
+                            GameController.getNumLemmingsMax()
+                                    - numLemmingsOut);
 
                     synchronized (lemmings) {
-                        lemmings.add(l);
-                    }
+                        lemmings.ensureCapacity(lemmings.size() + num);
 
-                    numLemmingsOut++;
+                        for (int i = 0; i < num; i++) {
+                            final Entry e = level.getEntry(TrapDoor.getNext());
+                            lemmings.add(new Lemming(e.getxPos() + 2,
+                                    e.getyPos() + 20));
+                            numLemmingsOut++;
+                        }
+                    }
                 }
             } catch (final ArrayIndexOutOfBoundsException ex) {
             }
@@ -231,12 +291,18 @@ public final class LemmingHandler {
      */
     public static void nuke(final boolean nukeTemp, final int updateCtr) {
         if (nukeTemp && ((updateCtr & 1) == 1)) {
+            // as many as are released at once
+            int num = GameController.getLevel().getReleaseCount();
+
             synchronized (lemmings) {
-                for (final Lemming l : lemmings) {
+                // continue where the last nuke stopped
+                for (; nukeIdx < lemmings.size() && num > 0; nukeIdx++) {
+                    final Lemming l = lemmings.get(nukeIdx);
+
                     if (!l.nuke() && !l.hasDied() && !l.hasLeft()) {
                         SkillSetter.setSkill(Type.NUKE, l);
                         // System.out.println("nuked!");
-                        break;
+                        num--;
                     }
                 }
             }
@@ -248,18 +314,32 @@ public final class LemmingHandler {
      */
     public static void animateLemmings() {
         synchronized (lemmings) {
-            final Iterator<Lemming> it = lemmings.iterator();
+            // remove in one pass: removing single elements would be O(n)
+            final int size = lemmings.size();
+            final int oldNukeIdx = nukeIdx;
+            int n = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (i == oldNukeIdx) {
+                    nukeIdx = n;
+                }
 
-            while (it.hasNext()) {
-                final Lemming l = it.next();
+                final Lemming l = lemmings.get(i);
 
                 if (l.hasDied() || l.hasLeft()) {
-                    it.remove();
                     continue;
                 }
 
                 LemmingAnimator.animate(l);
+                lemmings.set(n++, l);
             }
+
+            if (oldNukeIdx >= size) {
+                nukeIdx = n;
+            }
+
+            lemmings.subList(n, size).clear();
+            GRID.rebuild(lemmings);
         }
     }
 
@@ -269,16 +349,20 @@ public final class LemmingHandler {
     public static void initLevelsLemmings() {
         lemmSkillRequest = null;
         lemmings.clear();
+        lemmings.trimToSize();
+        GRID.clear();
         releaseCtr = 0;
         numLemmingsOut = 0;
+        nukeIdx = 0;
     }
 
     /**
      * Initialization.
      */
     public static void init() {
-        lemmings = new LinkedList<Lemming>();
-        lemmsUnderCursor = new ArrayList<Lemming>(INITIAL_CAPACITY);
+        lemmings = new ArrayList<Lemming>();
+        GRID.clear();
+        nukeIdx = 0;
         lemmSkillRequest = null;
     }
 }
@@ -1,8 +1,9 @@
 package game;
 
-import java.io.FileInputStream;
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MetaEventListener;
@@ -14,6 +15,8 @@ import javax.sound.midi.Sequence;
 import javax.sound.midi.Sequencer;
 import javax.sound.midi.Synthesizer;
 
+import tools.Resources;
+
 /*
  * Copyright 2009 Volker Oth
  *
@@ -63,8 +66,8 @@ public class MidiMusic {
      */
     public MidiMusic(final String fName)
             throws ResourceException, LemmException {
-        try (FileInputStream f = new FileInputStream(
-                Core.findResource(fName))) {
+        try (InputStream f = new BufferedInputStream(
+                Resources.open(Core.findResource(fName)))) {
             canPlay = false;
             sequencer = MidiSystem.getSequencer();
 
@@ -0,0 +1,396 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Adler32;
+
+import gameutil.SoundMixer;
+import micromod.Micromod;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Disk cache of MOD music rendered to PCM. A MOD is rendered by a background
+ * thread the first time it is played (it is mixed live meanwhile) and stored as interleaved 16bit little endian stereo at
+ * {@link SoundMixer#SAMPLE_RATE}. Two song lengths are rendered without a
+ * break: notes still playing at the end of the song ring into the second
+ * pass, so only the second pass is looped on playback. The frame where it
+ * starts is stored in a header in front of the samples. Cache files are named
+ * after the checksum and the length of the MOD data, so changed files are
+ * rendered again. The cached PCM is memory mapped for playback.
+ * <p>
+ * The size of the cache folder is limited (property "musicCacheMB"). When a
+ * new file exceeds it, the files which were played least recently are
+ * deleted. Songs larger than the whole limit are always mixed live.
+ *
+ * @author Volker Oth
+ */
+public final class ModCache {
+    /** name of the cache folder inside the resource folder. */
+    private static final String CACHE_DIR = "musiccache";
+    /** extension of cache files. */
+    private static final String EXTENSION = ".pcm";
+    /** extension of cache files which are being written. */
+    private static final String TEMP_EXTENSION = ".tmp";
+    /** number of frames rendered at once. */
+    private static final int RENDER_FRAMES = 4096;
+    /** bytes per frame: two 16bit channels. */
+    private static final int FRAME_BYTES = 4;
+    /** bytes of the header (loop start frame as int). */
+    private static final int HEADER_BYTES = 4;
+    /** version of the cache file format (part of the file name). */
+    private static final int FORMAT_VERSION = 2;
+    /** radix for hexadecimal numbers. */
+    private static final int HEX_RADIX = 16;
+    /** default size limit of the cache folder in megabytes. */
+    private static final int DEFAULT_LIMIT_MB = 128;
+    /** bytes per megabyte. */
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    /** background thread rendering the MODs one after the other. */
+    private static final ExecutorService RENDERER = Executors
+            .newSingleThreadExecutor(r -> {
+                final Thread t = new Thread(r, "MOD renderer");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+    /** names of cache files which are queued or being rendered. */
+    private static final Set<String> PENDING = ConcurrentHashMap.newKeySet();
+    /** number of requests found in the cache. */
+    private static final AtomicLong HITS = new AtomicLong();
+    /** number of requests not found in the cache. */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * Rendered PCM of a MOD.
+     */
+    public static final class Song {
+        /** read only interleaved stereo samples. */
+        private final ShortBuffer samples;
+        /** frame where the looped part starts. */
+        private final int loopStart;
+
+        /**
+         * Constructor.
+         *
+         * @param s read only interleaved stereo samples
+         * @param l frame where the looped part starts
+         */
+        Song(final ShortBuffer s, final int l) {
+            samples = s;
+            loopStart = l;
+        }
+
+        /**
+         * Get the samples.
+         *
+         * @return read only interleaved stereo samples
+         */
+        public ShortBuffer getSamples() {
+            return samples;
+        }
+
+        /**
+         * Get the frame where the looped part starts. Frames before it are
+         * only played once.
+         *
+         * @return loop start in frames
+         */
+        public int getLoopStart() {
+            return loopStart;
+        }
+    }
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private ModCache() {
+
+    }
+
+    /**
+     * Check whether the cache is enabled (property "musicCache").
+     *
+     * @return true if the cache is enabled
+     */
+    public static boolean isEnabled() {
+        return Core.getProgramProps().get("musicCache", true);
+    }
+
+    /**
+     * Create a Micromod player for MOD data with the configured options.
+     *
+     * @param data MOD data
+     * @return Micromod player at {@link SoundMixer#SAMPLE_RATE}
+     */
+    public static Micromod createMicromod(final byte[] data) {
+        final Micromod mm = new Micromod(data, SoundMixer.SAMPLE_RATE);
+        mm.setInterpolation(isInterpolation());
+        return mm;
+    }
+
+    /**
+     * Get the rendered PCM of a MOD. If it isn't in the cache yet, it is
+     * queued for rendering and null is returned.
+     *
+     * @param data MOD data
+     * @return rendered song or null
+     */
+    public static Song get(final byte[] data) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final File f = getCacheFile(data);
+
+        if (f.isFile()) {
+            try (FileChannel ch = FileChannel.open(f.toPath(),
+                    StandardOpenOption.READ)) {
+                final ByteBuffer map = ch
+                        .map(FileChannel.MapMode.READ_ONLY, 0, ch.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                final int loopStart = map.getInt(0);
+                final ShortBuffer pcm = map.position(HEADER_BYTES).slice()
+                        .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+
+                if (loopStart < 0 || loopStart >= pcm.limit() >> 1) {
+                    throw new IOException("Invalid loop start");
+                }
+
+                HITS.incrementAndGet();
+                // keep recently played files when the cache is trimmed
+                f.setLastModified(System.currentTimeMillis());
+                return new Song(pcm, loopStart);
+            } catch (final IOException ex) {
+                MISSES.incrementAndGet();
+                return null;
+            }
+        }
+
+        MISSES.incrementAndGet();
+        queue(data, f);
+        return null;
+    }
+
+    /**
+     * Get the number of requests which were found in the cache.
+     *
+     * @return number of hits
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * Get the number of requests which were not found in the cache.
+     *
+     * @return number of misses
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Queue MOD data for rendering unless it's already queued.
+     *
+     * @param data MOD data
+     * @param f    cache file to create
+     */
+    private static void queue(final byte[] data, final File f) {
+        if (PENDING.add(f.getName())) {
+            RENDERER.execute(() -> {
+                try {
+                    if (!f.isFile()) {
+                        render(data, f);
+                    }
+                } finally {
+                    PENDING.remove(f.getName());
+                }
+            });
+        }
+    }
+
+    /**
+     * Render two song lengths of a MOD into a cache file. The file is written
+     * under a temporary name and renamed when complete. Afterwards the cache
+     * is trimmed to its size limit.
+     *
+     * @param data MOD data
+     * @param f    cache file to create
+     */
+    private static void render(final byte[] data, final File f) {
+        final Path temp = Paths.get(f.getPath() + TEMP_EXTENSION);
+
+        try {
+            final Micromod mm = createMicromod(data);
+            // the first pass starts silent, the second one starts with the
+            // notes still playing at the end of the first one
+            final int len = mm.getlen();
+            final long size = HEADER_BYTES + ((long) len << 1) * FRAME_BYTES;
+
+            if (size > getLimit()) {
+                return;
+            }
+
+            final int[] mix = new int[RENDER_FRAMES << 1];
+            final ByteBuffer out = ByteBuffer
+                    .allocateDirect(RENDER_FRAMES * FRAME_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            int remain = len << 1;
+            Files.createDirectories(temp.getParent());
+
+            try (FileChannel ch = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).putInt(0, len);
+
+                while (header.hasRemaining()) {
+                    ch.write(header);
+                }
+
+                while (remain > 0) {
+                    final int count = Math.min(RENDER_FRAMES, remain);
+                    mm.mix(mix, 0, count);
+                    out.clear();
+
+                    for (int i = 0; i < count << 1; i++) {
+                        out.putShort((short) Math.max(Short.MIN_VALUE,
+                                Math.min(Short.MAX_VALUE, mix[i])));
+                        mix[i] = 0;
+                    }
+
+                    out.flip();
+
+                    while (out.hasRemaining()) {
+                        ch.write(out);
+                    }
+
+                    remain -= count;
+                }
+            }
+
+            try {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            trim(f);
+        } catch (final IOException | IllegalArgumentException ex) {
+            System.out.println("Can't render music to " + f.getName());
+
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently played cache files until the cache folder
+     * fits into its size limit. Files which can't be deleted (e.g. because
+     * they are mapped on some systems) are skipped.
+     *
+     * @param keep cache file which must not be deleted
+     */
+    private static void trim(final File keep) {
+        final File[] files = keep.getParentFile()
+                .listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+
+        for (final File cf : files) {
+            total += cf.length();
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        final long limit = getLimit();
+
+        for (int i = 0; i < files.length && total > limit; i++) {
+            if (!files[i].equals(keep)) {
+                final long len = files[i].length();
+
+                if (files[i].delete()) {
+                    total -= len;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the size limit of the cache folder (property "musicCacheMB").
+     *
+     * @return size limit in bytes
+     */
+    private static long getLimit() {
+        return Core.getProgramProps().get("musicCacheMB", DEFAULT_LIMIT_MB)
+                * BYTES_PER_MB;
+    }
+
+    /**
+     * Get the cache file of MOD data.
+     *
+     * @param data MOD data
+     * @return cache file
+     */
+    private static File getCacheFile(final byte[] data) {
+        final Adler32 crc = new Adler32();
+        crc.update(data, 0, data.length);
+        return new File(Core.getResourcePath() + CACHE_DIR,
+                Long.toString(crc.getValue(), HEX_RADIX) + "_" + data.length
+                        + "_" + SoundMixer.SAMPLE_RATE
+                        + (isInterpolation() ? "i" : "") + "_v"
+                        + FORMAT_VERSION + EXTENSION);
+    }
+
+    /**
+     * Check whether linear interpolation is enabled (property
+     * "musicInterpolation").
+     *
+     * @return true if linear interpolation is enabled
+     */
+    private static boolean isInterpolation() {
+        return Core.getProgramProps().get("musicInterpolation", false);
+    }
+}
@@ -1,17 +1,14 @@
 package game;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ShortBuffer;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
-
-import lemmini.Constants;
+import game.jfr.MusicBufferEvent;
+import gameutil.AudioSource;
+import gameutil.SoundMixer;
 import micromod.Micromod;
+import tools.Resources;
 
 /*
  * Copyright 2009 Volker Oth
@@ -30,40 +27,40 @@ import micromod.Micromod;
  */
 
 /**
- * Class to play MOD music.
+ * Class to play MOD music. The music is rendered block by block by the render
+ * thread of the {@link SoundMixer} and mixed together with the sound effects.
+ * If the song was already rendered to PCM by the {@link ModCache}, the cached
+ * PCM is played instead of mixing the MOD live. Both loop without resetting
+ * the song, so notes still playing at its end ring into the next loop.
  *
  * @author Volker Oth
  */
-public class ModMusic implements Runnable {
-    /**
-     * Local copy of {@link Constants#SHIFT_8} used to avoid line-too-long
-     * Checkstyle errors.
-     */
-    private static final int SHIFT8 = Constants.SHIFT_8;
-
-    /**
-     * Thread sleep time = 40 ms.
-     */
-    private static final int SLEEP_40MS = 40;
-
-    /**
-     * 3 added to base index within array.
-     */
-    private static final int OFFSET_3 = 3;
-
-    /** sample frequency. */
-    private static final int SAMPLE_RATE = 44100;
+public class ModMusic implements AudioSource {
+    /** fixed point shift used for the gain. */
+    private static final int FIX_SHIFT = 16;
+    /** 1.0 in fixed point notation. */
+    private static final int FIX_ONE = 1 << FIX_SHIFT;
 
     /** object to play MODs. */
     private Micromod micromod;
     /** flag: loop the song. */
     private boolean songloop;
     /** flag: currently playing. */
-    private boolean play;
-    /** thread for playing. */
-    private Thread mmThread;
-    /** data line used to play samples. */
-    private SourceDataLine line;
+    private volatile boolean play;
+    /** number of frames left until the end of the song. */
+    private int remain;
+    /** length of the song in frames (live mixing). */
+    private int songlen;
+    /** frame of the cached PCM where the looped part starts. */
+    private int loopStart;
+    /** interleaved stereo buffer for Micromod. */
+    private int[] mixbuf = new int[0];
+    /** cached PCM of the song (null: mix live). */
+    private ShortBuffer pcm;
+    /** buffer for samples read from the cached PCM. */
+    private short[] pcmbuf = new short[0];
+    /** gain (fixed point). */
+    private volatile int gain = FIX_ONE;
 
     /**
      * Load MOD file, initialize player.
@@ -72,25 +69,34 @@ public class ModMusic implements Runnable {
      * @throws ResourceException
      */
     public void load(final String fn) throws ResourceException {
-        if (mmThread != null) {
-            close();
-        }
+        close();
 
         final String fName = Core.findResource(fn);
-        final int datalen = (int) (new File(fName).length());
-
-        if (datalen < 0) {
-            throw new ResourceException(fName);
-        }
 
-        try (FileInputStream f = new FileInputStream(fName)) {
-            final byte[] songdata = new byte[datalen];
+        try {
+            final byte[] songdata = Resources.readAllBytes(fName);
 
-            if (f.read(songdata) < 1) {
+            if (songdata.length < 1) {
                 System.out.println("No bytes read from file " + fName);
             }
 
-            micromod = new Micromod(songdata, SAMPLE_RATE);
+            final ModCache.Song cached = ModCache.get(songdata);
+
+            synchronized (this) {
+                if (cached != null) {
+                    pcm = cached.getSamples();
+                    loopStart = cached.getLoopStart();
+                    micromod = null;
+                    remain = pcm.limit() >> 1;
+                } else {
+                    // not rendered yet: mix live
+                    pcm = null;
+                    micromod = ModCache.createMicromod(songdata);
+                    songlen = micromod.getlen();
+                    remain = songlen;
+                }
+            }
+
             setloop(true);
         } catch (final FileNotFoundException ex) {
             throw new ResourceException(fName);
@@ -98,8 +104,8 @@ public class ModMusic implements Runnable {
             throw new ResourceException(fName + " (IO exception)");
         }
 
-        mmThread = new Thread(this);
-        mmThread.start();
+        setGain(Music.getGain());
+        SoundController.getSound().getSoundMixer().setMusic(this);
     }
 
     /**
@@ -115,107 +121,130 @@ public class ModMusic implements Runnable {
     /*
      * (non-Javadoc)
      *
-     * @see java.lang.Runnable#run()
+     * @see gameutil.AudioSource#mix(int[], int)
      *
-     * Begin playback. This method will return once the song has finished, or
-     * stop has been called.
+     * Called from the render thread of the sound mixer. Adds the next frames
+     * of the song to the mix buffer while playing.
      */
     @Override
-    public final void run() {
-        final int buflen = 2048;
-        final int[] lbuf = new int[buflen];
-        final int[] rbuf = new int[buflen];
-        final byte[] obuf = new byte[buflen << 2];
+    public synchronized void mix(final int[] buf, final int frames) {
+        if (!play || (pcm == null && micromod == null)) {
+            return;
+        }
 
-        try {
-            final AudioFormat af = new AudioFormat(SAMPLE_RATE, 16, 2, true,
-                    false);
-            final DataLine.Info lineInfo = new DataLine.Info(
-                    SourceDataLine.class, af);
-            line = (SourceDataLine) SoundController.getSound()
-                    .getLine(lineInfo);
-            line.open();
-            line.start();
-            setGain(Music.getGain());
-            final int songlen = micromod.getlen();
-            int remain = songlen;
-
-            while (remain > 0 && Thread.currentThread() == mmThread) {
-                if (play) {
-                    int count = buflen;
-
-                    if (count > remain) {
-                        count = remain;
-                    }
-
-                    micromod.mix(lbuf, rbuf, 0, count);
-
-                    for (int i = 0; i < count; i++) {
-                        final int ox = i << 2;
-                        obuf[ox] = (byte) (lbuf[i] & Constants.EIGHT_BIT_MASK);
-                        obuf[ox + 1] = (byte) (lbuf[i] >> SHIFT8);
-                        obuf[ox + 2] = (byte) (rbuf[i]
-                                & Constants.EIGHT_BIT_MASK);
-                        obuf[ox + OFFSET_3] = (byte) (rbuf[i] >> SHIFT8);
-                        rbuf[i] = 0;
-                        lbuf[i] = 0;
-                    }
-
-                    line.write(obuf, 0, count << 2);
-                    remain -= count;
-
-                    if (remain == 0 && songloop) {
-                        remain = songlen;
-                    }
-
-                    Thread.yield();
-                } else {
-                    try {
-                        line.flush();
-                        Thread.sleep(SLEEP_40MS);
-                    } catch (final InterruptedException ex) {
-                    }
-                }
+        final MusicBufferEvent event = new MusicBufferEvent();
+        event.begin();
+
+        if (pcm != null) {
+            mixCached(buf, frames);
+        } else {
+            mixLive(buf, frames);
+        }
+
+        if (event.shouldCommit()) {
+            event.frames = frames;
+            event.cached = pcm != null;
+            event.commit();
+        }
+    }
+
+    /**
+     * Mix the next frames of the song with Micromod into the mix buffer.
+     *
+     * @param buf    mix buffer (interleaved stereo)
+     * @param frames number of frames to add
+     */
+    private void mixLive(final int[] buf, final int frames) {
+
+        if (mixbuf.length < frames << 1) {
+            mixbuf = new int[frames << 1];
+        }
+
+        final long g = gain;
+        int ofs = 0;
+
+        while (ofs < frames && remain > 0) {
+            final int count = Math.min(frames - ofs, remain);
+            micromod.mix(mixbuf, 0, count);
+            final int bofs = ofs << 1;
+
+            for (int i = 0; i < count << 1; i++) {
+                buf[bofs + i] += (int) ((mixbuf[i] * g) >> FIX_SHIFT);
+                mixbuf[i] = 0;
             }
 
-            line.flush();
-            line.close();
-        } catch (final LineUnavailableException e) {
-            e.printStackTrace();
-            return;
+            ofs += count;
+            remain -= count;
+
+            if (remain == 0 && songloop) {
+                // keep playing: the song jumps back on its own
+                remain = songlen;
+            }
         }
     }
 
     /**
-     * Instruct the run() method to finish playing and return.
+     * Add the next frames of the cached PCM to the mix buffer.
+     *
+     * @param buf    mix buffer (interleaved stereo)
+     * @param frames number of frames to add
      */
-    public void stop() {
-        if (mmThread != null) {
-            mmThread.interrupt();
+    private void mixCached(final int[] buf, final int frames) {
+        if (pcmbuf.length < frames << 1) {
+            pcmbuf = new short[frames << 1];
+        }
+
+        final long g = gain;
+        final int len = pcm.limit() >> 1;
+        int ofs = 0;
+
+        while (ofs < frames && remain > 0) {
+            final int count = Math.min(frames - ofs, remain);
+            pcm.get((len - remain) << 1, pcmbuf, 0, count << 1);
+            final int bofs = ofs << 1;
+
+            for (int i = 0; i < count << 1; i++) {
+                buf[bofs + i] += (int) ((pcmbuf[i] * g) >> FIX_SHIFT);
+            }
+
+            ofs += count;
+            remain -= count;
+
+            if (remain == 0 && songloop) {
+                remain = len - loopStart;
+            }
         }
+    }
+
+    /**
+     * Pause playing.
+     */
+    public void stop() {
         play = false;
     }
 
     /**
-     * Instruct the run() method to resume playing.
+     * Resume playing. Opens the sound output if needed.
      */
     public void play() {
-        if (mmThread != null) {
-            mmThread.interrupt();
+        if (SoundController.getSound().openOutput()) {
+            play = true;
         }
-        play = true;
     }
 
     /**
-     * Kills the thread.
+     * Stop playing and release the song.
      */
     public void close() {
-        final Thread moribund = mmThread;
-        mmThread = null;
-        try {
-            moribund.interrupt();
-            moribund.join();
-        } catch (final InterruptedException ex) {
+        play = false;
+
+        if (SoundController.getSound() != null) {
+            SoundController.getSound().getSoundMixer().setMusic(null);
+        }
+
+        synchronized (this) {
+            micromod = null;
+            pcm = null;
         }
     }
 
@@ -225,19 +254,17 @@ public class ModMusic implements Runnable {
      * @param gn gain factor: 0.0 (off) .. 1.0 (full volume)
      */
     public void setGain(final double gn) {
-        double gain;
+        double g;
 
         if (gn > 1.0) {
-            gain = 1.0;
+            g = 1.0;
         } else if (gn < 0) {
-            gain = 0;
+            g = 0;
         } else {
-            gain = gn;
+            g = gn;
         }
 
-        if (line != null) {
-            SoundController.getSound().setLineGain(line, gain);
-        }
+        gain = (int) (g * FIX_ONE);
     }
 
 }
@@ -2,6 +2,10 @@ package game;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.List;
+
+import tools.Resources;
 
 /*
  * Copyright 2009 Volker Oth
@@ -64,16 +68,17 @@ public final class Music {
         modMusic = new ModMusic();
 
         // read available musicfiles for random mode
-        final File dir = new File(Core.getResourcePath() + "music");
-        final File[] files = dir.listFiles(new MusicFileFilter());
-
-        if (files != null) {
-            musicFiles = new String[files.length];
+        final String dir = Core.getResourcePath() + "music/";
+        final List<String> files = new ArrayList<String>();
+        final MusicFileFilter filter = new MusicFileFilter();
 
-            for (int i = 0; i < files.length; i++) {
-                musicFiles[i] = files[i].getName();
+        for (final String name : Resources.list(dir)) {
+            if (filter.accept(dir + name)) {
+                files.add(name);
             }
         }
+
+        musicFiles = files.toArray(new String[files.size()]);
     }
 
     /**
@@ -245,11 +250,35 @@ class MusicFileFilter implements FileFilter {
             return false;
         }
 
-        if (f.getName().toLowerCase().indexOf(".mid") != -1) {
+        return isMusic(f.getName());
+    }
+
+    /**
+     * Check whether a resource (file or archive entry) is a music file.
+     *
+     * @param path path of resource
+     * @return true if the resource is a music file
+     */
+    public boolean accept(final String path) {
+        if (!Resources.exists(path) || Resources.isDirectory(path)) {
+            return false;
+        }
+
+        return isMusic(path);
+    }
+
+    /**
+     * Check whether a name is the name of a music file.
+     *
+     * @param name file name
+     * @return true if the name is the name of a music file
+     */
+    private static boolean isMusic(final String name) {
+        if (name.toLowerCase().indexOf(".mid") != -1) {
             return true;
         }
 
-        if (f.getName().toLowerCase().indexOf(".mod") != -1) {
+        if (name.toLowerCase().indexOf(".mod") != -1) {
             return true;
         }
 
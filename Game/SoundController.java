@@ -164,6 +164,24 @@ public final class SoundController {
         SoundController.sound = soundObject;
     }
 
+    /**
+     * Get the number of sound effect voices currently playing.
+     *
+     * @return number of voices
+     */
+    public static int getActiveVoices() {
+        return sound != null ? sound.getSoundMixer().getActiveVoices() : 0;
+    }
+
+    /**
+     * Get the size of all sound samples.
+     *
+     * @return size in bytes
+     */
+    public static long getSampleBytes() {
+        return sound != null ? sound.getSampleBytes() : 0;
+    }
+
     /**
      * Initialize sound and music.
      *
@@ -0,0 +1,70 @@
+package game.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JFR event for one phase of loading or painting a level. Phases are
+ * chained: {@link #next(String)} ends the current phase and starts the next
+ * one.
+ *
+ * @author Volker Oth
+ */
+@Name("lemmini.LevelPhase")
+@Label("Level Phase")
+@Category({"Lemmini", "Level"})
+@Description("Phase of loading or painting a level")
+public class LevelPhaseEvent extends Event {
+    /** level file or name. */
+    @Label("Level")
+    public String level;
+
+    /** name of the phase. */
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * Start a phase.
+     *
+     * @param lvl level file or name
+     * @param ph  name of the phase
+     * @return started event
+     */
+    public static LevelPhaseEvent start(final String lvl, final String ph) {
+        final LevelPhaseEvent e = new LevelPhaseEvent();
+        e.level = lvl;
+        e.phase = ph;
+        e.begin();
+        return e;
+    }
+
+    /**
+     * End this phase and start the next one.
+     *
+     * @param ph name of the next phase
+     * @return started event of the next phase
+     */
+    public LevelPhaseEvent next(final String ph) {
+        commit();
+        return start(level, ph);
+    }
+}
@@ -0,0 +1,55 @@
+package game.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JFR event for a transition handled by {@link gameutil.FaderHandler} when
+ * the screen is faded out (e.g. loading, restarting or leaving a level).
+ *
+ * @author Volker Oth
+ */
+@Name("lemmini.LevelTransition")
+@Label("Level Transition")
+@Category({"Lemmini", "Level"})
+@Description("Transition between game states while faded out")
+public class LevelTransitionEvent extends Event {
+    /** transition state. */
+    @Label("Transition")
+    public String transition;
+
+    /** index of the level pack. */
+    @Label("Level Pack")
+    public int levelPack;
+
+    /** index of the difficulty level. */
+    @Label("Difficulty")
+    public int difficulty;
+
+    /** level number. */
+    @Label("Level Number")
+    public int levelNumber;
+
+    /** name of the level after the transition. */
+    @Label("Level")
+    public String level;
+}
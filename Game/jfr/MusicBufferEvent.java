@@ -0,0 +1,45 @@
+package game.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JFR event for one block of MOD music written into the mix buffer by the
+ * render thread of the sound mixer.
+ *
+ * @author Volker Oth
+ */
+@Name("lemmini.MusicBuffer")
+@Label("Music Buffer")
+@Category({"Lemmini", "Audio"})
+@Description("Block of MOD music added to the mix buffer")
+@StackTrace(false)
+public class MusicBufferEvent extends Event {
+    /** number of frames requested. */
+    @Label("Frames")
+    public int frames;
+
+    /** flag: the frames were copied from the pre-rendered PCM cache. */
+    @Label("Cached")
+    public boolean cached;
+}
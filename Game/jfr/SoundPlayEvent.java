@@ -0,0 +1,65 @@
+package game.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JFR event for a request to play a sound effect.
+ *
+ * @author Volker Oth
+ */
+@Name("lemmini.SoundPlay")
+@Label("Sound Play")
+@Category({"Lemmini", "Audio"})
+@Description("Request to play a sound effect")
+@StackTrace(false)
+public class SoundPlayEvent extends Event {
+    /** result: the sound was passed to the mixer. */
+    public static final String PLAYED = "played";
+    /** result: rejected because sound is switched off. */
+    public static final String SOUND_OFF = "soundOff";
+    /** result: rejected because no output line could be opened. */
+    public static final String NO_OUTPUT = "noOutput";
+    /** result: rejected because there is no such sample. */
+    public static final String NO_SAMPLE = "noSample";
+
+    /** index of the sound or pitch of the pitched sound. */
+    @Label("Sound")
+    public int sound;
+
+    /** flag: the pitched sound was requested. */
+    @Label("Pitched")
+    public boolean pitched;
+
+    /** result of the request. */
+    @Label("Result")
+    public String result;
+
+    /** number of voices playing when the sound was requested. */
+    @Label("Active Voices")
+    public int activeVoices;
+
+    /** flag: all voices were busy, so the oldest one is stolen. */
+    @Label("Voice Stolen")
+    public boolean voiceStolen;
+}
@@ -0,0 +1,56 @@
+package game.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JFR event for one simulation tick ({@link game.GameController#update()}).
+ *
+ * @author Volker Oth
+ */
+@Name("lemmini.Tick")
+@Label("Simulation Tick")
+@Category({"Lemmini", "Game"})
+@Description("One update of the game state")
+@StackTrace(false)
+public class TickEvent extends Event {
+    /** number of the tick in the level. */
+    @Label("Tick")
+    public int tick;
+
+    /** number of Lemmings after the tick. */
+    @Label("Lemmings")
+    public int lemmings;
+
+    /** number of explosion particles after the tick. */
+    @Label("Particles")
+    public int particles;
+
+    /** number of stencil pixels modified during the tick. */
+    @Label("Stencil Pixels Modified")
+    public int stencilPixels;
+
+    /** flag: the game is paused (only skills were handled). */
+    @Label("Paused")
+    public boolean paused;
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the Java Flight Recorder events of the game. Events
+ * cost nothing unless a recording is active, so they are always compiled in.
+ */
+package game.jfr;
@@ -18,7 +18,6 @@ package game.lemmings;
 import game.GameController;
 import game.SoundController;
 import game.Type;
-import game.level.Level;
 import game.level.Mask;
 import game.level.Stencil;
 import lemmini.Constants;
@@ -245,7 +244,8 @@ public class Basher {
      */
     private boolean canBash() {
         final int xm = lemming.midX();
-        final int ypos = Level.WIDTH * (lemming.getY() - BASHER_CHECK_STEP);
+        final int ypos = GameController.getStencil().getWidth()
+                * (lemming.getY() - BASHER_CHECK_STEP);
         int xb;
         int bricks = 0;
 
@@ -16,10 +16,10 @@ package game.lemmings;
  */
 
 import game.ExplosionHandler;
+import game.GameController;
 import game.LemmingExplosion;
 import game.SoundController;
 import game.Type;
-import game.level.Level;
 import game.level.Mask;
 import game.level.Stencil;
 import lemmini.Constants;
@@ -60,7 +60,8 @@ public class Bomber {
         final int sy = lemming.getY() + 1;
         final int x = lemming.getX();
 
-        if (x > 0 && x < Level.WIDTH && sy > 0 && sy < Level.HEIGHT) {
+        if (x > 0 && x < GameController.getStencil().getWidth() && sy > 0
+                && sy < GameController.getStencil().getHeight()) {
             m.eraseMask(x - m.getWidth() / 2,
                     lemming.midY() - m.getHeight() / 2 + Constants.THREE, 0,
                     Stencil.MSK_STEEL);
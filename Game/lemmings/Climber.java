@@ -17,7 +17,6 @@ package game.lemmings;
 
 import game.GameController;
 import game.Type;
-import game.level.Level;
 import game.level.Stencil;
 
 /**
@@ -86,14 +85,15 @@ public class Climber {
      */
     private boolean reachedPlateau() {
         final int x = lemming.getX();
+        final Stencil stencil = GameController.getStencil();
 
-        if (x < 2 || x >= Level.WIDTH - 2) {
+        if (x < 2 || x >= stencil.getWidth() - 2) {
             return false;
         }
 
         final int ym = lemming.midY();
 
-        if (ym >= Level.HEIGHT || ym < 0) {
+        if (ym >= stencil.getHeight() || ym < 0) {
             return false;
         }
 
@@ -105,8 +105,8 @@ public class Climber {
             pos += 2;
         }
 
-        pos += ym * Level.WIDTH;
-        return (GameController.getStencil().get(pos)
+        pos += ym * stencil.getWidth();
+        return (stencil.get(pos)
                 & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY;
     }
 
@@ -18,7 +18,6 @@ package game.lemmings;
 import game.GameController;
 import game.SoundController;
 import game.Type;
-import game.level.Level;
 
 /**
  * Class for handling faller (default) Lemmings. Code moved from Lemming class
@@ -95,7 +94,7 @@ public class Faller {
      *         false otherwise
      */
     public boolean crossedLowerBorder() {
-        if (lemming.getY() >= Level.HEIGHT) {
+        if (lemming.getY() >= GameController.getStencil().getHeight()) {
             lemming.setHasDied(true);
             SoundController.getSound().play(SoundController.SND_DIE);
             return true;
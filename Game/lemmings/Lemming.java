@@ -7,7 +7,6 @@ import game.LemmingExplosion;
 import game.MiscGfx;
 import game.SoundController;
 import game.Type;
-import game.level.Level;
 import game.level.Stencil;
 
 /*
@@ -470,10 +469,12 @@ public class Lemming {
     public int stencilMid() {
         final int xm = x;
         final int ym = y - lemRes.getSize();
+        final Stencil stencil = GameController.getStencil();
+        final int levelWidth = stencil.getWidth();
         int retval;
 
-        if (xm > 0 && xm < Level.WIDTH && ym > 0 && ym < Level.HEIGHT) {
-            retval = GameController.getStencil().get(xm + Level.WIDTH * ym);
+        if (xm > 0 && xm < levelWidth && ym > 0 && ym < stencil.getHeight()) {
+            retval = stencil.get(xm + levelWidth * ym);
         } else {
             retval = Stencil.MSK_EMPTY;
         }
@@ -489,18 +490,20 @@ public class Lemming {
      * @return number of free pixels below the lemming
      */
     public int freeBelow(final int step) {
-        if (x < 0 || x >= Level.WIDTH) {
+        final Stencil stencil = GameController.getStencil();
+        final int levelWidth = stencil.getWidth();
+
+        if (x < 0 || x >= levelWidth) {
             return 0;
         }
 
         int free = 0;
         int pos = x;
-        final Stencil stencil = GameController.getStencil();
         final int yb = y + 1;
-        pos = x + yb * Level.WIDTH; // line below the lemming
+        pos = x + yb * levelWidth; // line below the lemming
 
         for (int i = 0; i < step; i++) {
-            if (yb + i >= Level.HEIGHT) {
+            if (yb + i >= stencil.getHeight()) {
                 return Faller.FALL_DISTANCE_FORCE_FALL; // convert most skill to
                                                         // faller
             }
@@ -513,7 +516,7 @@ public class Lemming {
                 break;
             }
 
-            pos += Level.WIDTH;
+            pos += levelWidth;
         }
 
         return free;
@@ -527,15 +530,17 @@ public class Lemming {
      * @return number of free pixels above the lemming
      */
     public int freeAbove(final int step) {
-        if (x < 0 || x >= Level.WIDTH) {
+        final Stencil stencil = GameController.getStencil();
+        final int levelWidth = stencil.getWidth();
+
+        if (x < 0 || x >= levelWidth) {
             return 0;
         }
 
         int free = 0;
         int pos;
         final int ym = midY();
-        final Stencil stencil = GameController.getStencil();
-        pos = x + ym * Level.WIDTH;
+        pos = x + ym * levelWidth;
 
         for (int i = 0; i < step; i++) {
             if (ym - i <= 0) {
@@ -547,7 +552,7 @@ public class Lemming {
             } else {
                 break;
             }
-            pos -= Level.WIDTH;
+            pos -= levelWidth;
         }
         return free;
     }
@@ -558,23 +563,27 @@ public class Lemming {
      * @return number of pixels of walkable ground above the Lemmings foot.
      */
     public int aboveGround() {
-        if (x < 0 || x >= Level.WIDTH) {
-            return Level.HEIGHT - 1;
+        final Stencil stencil = GameController.getStencil();
+        final int levelWidth = stencil.getWidth();
+
+        final int levelHeight = stencil.getHeight();
+
+        if (x < 0 || x >= levelWidth) {
+            return levelHeight - 1;
         }
 
         int ym = y;
 
-        if (ym >= Level.HEIGHT) {
-            return Level.HEIGHT - 1;
+        if (ym >= levelHeight) {
+            return levelHeight - 1;
         }
 
         int pos = x;
-        final Stencil stencil = GameController.getStencil();
-        pos += ym * Level.WIDTH;
+        pos += ym * levelWidth;
         int l; // Levitation.
         final int walkerObstacleHeight = Walker.WALKER_OBSTACLE_HEIGHT;
 
-        for (l = 0; l < walkerObstacleHeight; l++, pos -= Level.WIDTH, ym--) {
+        for (l = 0; l < walkerObstacleHeight; l++, pos -= levelWidth, ym--) {
             if (ym < 0) {
                 return walkerObstacleHeight + 1; // forbid leaving
                                                  // level to
@@ -890,7 +899,7 @@ public class Lemming {
      * @return true if digging is possible, false otherwise.
      */
     public boolean canDig() {
-        final int ypos = Level.WIDTH * (y + 1);
+        final int ypos = GameController.getStencil().getWidth() * (y + 1);
         final int xm = x;
         final int sval = GameController.getStencil().get(xm + ypos);
 
@@ -907,7 +916,7 @@ public class Lemming {
      * @return true if mining is possible, false otherwise.
      */
     public boolean canMine() {
-        final int ypos = Level.WIDTH * (y + 1);
+        final int ypos = GameController.getStencil().getWidth() * (y + 1);
         int bricks = 0;
         int xMin;
         int xMax;
@@ -3,7 +3,6 @@ package game.lemmings;
 import game.GameController;
 import game.SoundController;
 import game.Type;
-import game.level.Level;
 import game.level.Mask;
 import game.level.SpriteObjectHandler;
 import game.level.Stencil;
@@ -183,8 +182,8 @@ public final class LemmingAnimator {
 
             if (x < 0) {
                 x = 0;
-            } else if (x >= Level.WIDTH) {
-                x = Level.WIDTH;
+            } else if (x >= GameController.getStencil().getWidth()) {
+                x = GameController.getStencil().getWidth();
             }
 
             free = lemming.freeBelow(Floater.FLOATER_STEP);
@@ -363,13 +362,14 @@ public final class LemmingAnimator {
         boolean flip = false;
 
         if (lemming.getLemRes().getDirs() > 1) {
+            final int levelWidth = GameController.getStencil().getWidth();
             int x = lemming.getX();
 
             if (x < 0) {
                 x = 0;
                 flip = true;
-            } else if (x >= Level.WIDTH) {
-                x = Level.WIDTH - 1;
+            } else if (x >= levelWidth) {
+                x = levelWidth - 1;
                 flip = true;
             }
 
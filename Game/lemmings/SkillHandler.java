@@ -1,7 +1,6 @@
 package game.lemmings;
 
 import java.awt.Graphics2D;
-import java.util.LinkedList;
 import java.util.List;
 
 import game.GameController;
@@ -159,15 +158,19 @@ public final class SkillHandler {
 
     /**
      * Assigns the selected skill to a lemming and decrements the count of
-     * available number of that skill by 1.
+     * available number of that skill by 1. Events for Lemmings which don't
+     * exist (replay of a changed level) are ignored.
      *
      * @param rs       the ReplayAssignSkillEvent for assigning the skill.
      * @param lemmings list of all active Lemmings in the Level.
      */
     public static void assignSkillAndDecrementAvailable(
-            final ReplayAssignSkillEvent rs,
-            final LinkedList<Lemming> lemmings) {
+            final ReplayAssignSkillEvent rs, final List<Lemming> lemmings) {
         synchronized (lemmings) {
+            if (rs.getLemming() < 0 || rs.getLemming() >= lemmings.size()) {
+                return;
+            }
+
             final Lemming l = lemmings.get(rs.getLemming());
             SkillSetter.setSkill(rs.getSkill(), l);
             l.setSelected();
@@ -337,8 +340,7 @@ public final class SkillHandler {
      * @param type cursor type
      * @return fitting Lemming or null if none found
      */
-    public static synchronized Lemming lemmUnderCursor(
-            final LemmCursor.Type type) {
+    public static Lemming lemmUnderCursor(final LemmCursor.Type type) {
         // search for level without the skill
         final List<Lemming> lemmsUnderCursor = LemmingHandler
                 .getLemmsUnderCursor();
@@ -439,7 +441,7 @@ public final class SkillHandler {
      *
      * @param type icon type
      */
-    public static synchronized void handleIconButton(final Icons.Type type) {
+    public static void handleIconButton(final Icons.Type type) {
         final Type startingSkill = lemmSkill;
         boolean ok = false;
 
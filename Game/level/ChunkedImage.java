@@ -0,0 +1,290 @@
+package game.level;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import lemmini.Constants;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Image which holds the terrain pixels of a level. The pixels are stored in
+ * square tiles which are only allocated when something visible is written
+ * into them. Pixels are ARGB values, a pixel with an alpha value of 0 is
+ * transparent.
+ * <p>
+ * For drawing, each tile has an image of its own which Java2D can keep
+ * accelerated. A tile's image is only updated when pixels of the tile were
+ * changed since it was last drawn.
+ *
+ * @author Volker Oth
+ */
+public class ChunkedImage {
+    /** number of bits of the position inside a tile (in x and in y). */
+    private static final int TILE_SHIFT = 6;
+    /** width and height of a tile in pixels. */
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    /** mask to get the position inside a tile. */
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    /** number of pixels in a tile. */
+    private static final int TILE_PIXELS = TILE_SIZE * TILE_SIZE;
+    /** bytes per pixel. */
+    private static final int BYTES_PER_PIXEL = 4;
+    /** tile shared by all empty parts of all images - never written. */
+    private static final int[] EMPTY_TILE = new int[TILE_PIXELS];
+
+    /** pixels of the tiles, row by row. */
+    private final int[][] tiles;
+    /** images of the tiles used for drawing (null: not drawn yet). */
+    private final BufferedImage[] images;
+    /** true for tiles changed since their image was updated. */
+    private final boolean[] dirty;
+    /** width of image (=width of level). */
+    private final int width;
+    /** height of image (=height of level). */
+    private final int height;
+    /** number of tiles in a row. */
+    private final int tilesX;
+    /** number of allocated tiles. */
+    private int numTiles;
+    /** number of created tile images. */
+    private int numImages;
+
+    /**
+     * Constructor.
+     *
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    public ChunkedImage(final int w, final int h) {
+        width = w;
+        height = h;
+        tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        final int num = tilesX * ((height + TILE_MASK) >> TILE_SHIFT);
+        tiles = new int[num][];
+        images = new BufferedImage[num];
+        dirty = new boolean[num];
+        Arrays.fill(tiles, EMPTY_TILE);
+    }
+
+    /**
+     * Clear image (make all pixels transparent). All tiles are released.
+     */
+    public void clear() {
+        Arrays.fill(tiles, EMPTY_TILE);
+        Arrays.fill(images, null);
+        Arrays.fill(dirty, false);
+        numTiles = 0;
+        numImages = 0;
+    }
+
+    /**
+     * Get the index of the tile holding a pixel.
+     *
+     * @param x x position in pixels
+     * @param y y position in pixels
+     * @return index of tile
+     */
+    private int tile(final int x, final int y) {
+        return (x >> TILE_SHIFT) + (y >> TILE_SHIFT) * tilesX;
+    }
+
+    /**
+     * Get the position of a pixel inside its tile.
+     *
+     * @param x x position in pixels
+     * @param y y position in pixels
+     * @return position inside the tile
+     */
+    private static int pos(final int x, final int y) {
+        return (x & TILE_MASK) + ((y & TILE_MASK) << TILE_SHIFT);
+    }
+
+    /**
+     * Set the color of a pixel.
+     *
+     * @param x    x position in pixels
+     * @param y    y position in pixels
+     * @param argb ARGB color
+     */
+    public void setRGB(final int x, final int y, final int argb) {
+        final int t = tile(x, y);
+        int[] c = tiles[t];
+
+        if (c == EMPTY_TILE) {
+            if ((argb & Constants.MAX_ALPHA) == 0) {
+                return;
+            }
+
+            c = new int[TILE_PIXELS];
+            tiles[t] = c;
+            numTiles++;
+        }
+
+        c[pos(x, y)] = argb;
+        dirty[t] = true;
+    }
+
+    /**
+     * Get the color of a pixel.
+     *
+     * @param x x position in pixels
+     * @param y y position in pixels
+     * @return ARGB color
+     */
+    public int getRGB(final int x, final int y) {
+        return tiles[tile(x, y)][pos(x, y)];
+    }
+
+    /**
+     * Copy the colors of a rectangle into an array (like
+     * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}).
+     *
+     * @param x0     x position in pixels
+     * @param y0     y position in pixels
+     * @param w      width of the rectangle in pixels
+     * @param h      height of the rectangle in pixels
+     * @param rgb    array to copy the ARGB colors into
+     * @param offset offset of the first pixel in the array
+     * @param scan   line stride of the array
+     */
+    public void getRGB(final int x0, final int y0, final int w, final int h,
+            final int[] rgb, final int offset, final int scan) {
+        for (int y = y0; y < y0 + h; y++) {
+            int x = x0;
+            int dst = offset + (y - y0) * scan;
+
+            while (x < x0 + w) {
+                final int n = Math.min(x0 + w - x,
+                        TILE_SIZE - (x & TILE_MASK));
+                System.arraycopy(tiles[tile(x, y)], pos(x, y), rgb, dst, n);
+                x += n;
+                dst += n;
+            }
+        }
+    }
+
+    /**
+     * Draw a part of the image at position 0,0. Empty tiles are skipped, the
+     * images of changed tiles are updated first.
+     *
+     * @param g    graphics object to draw on
+     * @param xOfs x position of the part in pixels
+     * @param yOfs y position of the part in pixels
+     * @param w    width of the part in pixels
+     * @param h    height of the part in pixels
+     */
+    public void draw(final Graphics2D g, final int xOfs, final int yOfs,
+            final int w, final int h) {
+        final int x0 = Math.max(0, xOfs);
+        final int y0 = Math.max(0, yOfs);
+        final int x1 = Math.min(width, xOfs + w);
+        final int y1 = Math.min(height, yOfs + h);
+
+        if (x1 <= x0 || y1 <= y0) {
+            return;
+        }
+
+        for (int ty = y0 & ~TILE_MASK; ty < y1; ty += TILE_SIZE) {
+            for (int tx = x0 & ~TILE_MASK; tx < x1; tx += TILE_SIZE) {
+                final int t = tile(tx, ty);
+
+                if (tiles[t] == EMPTY_TILE) {
+                    continue;
+                }
+
+                if (images[t] == null) {
+                    images[t] = g.getDeviceConfiguration()
+                            .createCompatibleImage(TILE_SIZE, TILE_SIZE,
+                                    Transparency.TRANSLUCENT);
+                    numImages++;
+                    dirty[t] = true;
+                }
+
+                if (dirty[t]) {
+                    // reset first: changes while copying mark it again
+                    dirty[t] = false;
+                    images[t].setRGB(0, 0, TILE_SIZE, TILE_SIZE, tiles[t], 0,
+                            TILE_SIZE);
+                }
+
+                // only the part of the tile inside the drawn part
+                final int sx0 = Math.max(tx, x0);
+                final int sy0 = Math.max(ty, y0);
+                final int sx1 = Math.min(tx + TILE_SIZE, x1);
+                final int sy1 = Math.min(ty + TILE_SIZE, y1);
+                g.drawImage(images[t], sx0 - xOfs, sy0 - yOfs, sx1 - xOfs,
+                        sy1 - yOfs, sx0 - tx, sy0 - ty, sx1 - tx, sy1 - ty,
+                        null);
+            }
+        }
+    }
+
+    /**
+     * Draw the whole image scaled down (nearest neighbor).
+     *
+     * @param g graphics object to draw on
+     * @param w width of the scaled image in pixels
+     * @param h height of the scaled image in pixels
+     */
+    public void drawScaled(final Graphics2D g, final int w, final int h) {
+        final BufferedImage img = new BufferedImage(w, h,
+                BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer())
+                .getData();
+
+        for (int y = 0; y < h; y++) {
+            final int sy = (int) ((long) y * height / h);
+
+            for (int x = 0; x < w; x++) {
+                pixels[y * w + x] = getRGB((int) ((long) x * width / w), sy);
+            }
+        }
+
+        g.drawImage(img, 0, 0, null);
+    }
+
+    /**
+     * Get the memory used by the terrain pixels.
+     *
+     * @return number of bytes of all allocated tiles and tile images
+     */
+    public long getMemoryBytes() {
+        return (long) (numTiles + numImages) * TILE_PIXELS * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Get width of image.
+     *
+     * @return width of image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get height of image.
+     *
+     * @return height of image
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,323 @@
+package game.level;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import game.Core;
+import game.ResourceException;
+import tools.ToolBox;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Pooled storage for the nuke/bomber particle explosions. All particles of
+ * all active explosions are kept in one set of primitive arrays which are
+ * allocated up front, so adding an explosion doesn't create any objects.
+ * Dead particles are removed by moving the last active particle into their
+ * slot. Replaces the former Explosion/Particle classes.
+ *
+ * @author Volker Oth
+ */
+public class ExplosionPool {
+
+    /** number of particles per explosion. */
+    public static final int PARTICLE_NUM = 24;
+    /** number of explosions the pool has room for initially. */
+    private static final int INITIAL_EXPLOSIONS = 128;
+    /** maximum step width (velocity) in X direction (pixels per step). */
+    private static final double MAX_DX = 1.5;
+    /** minimum step width (velocity) in X direction (pixels per step). */
+    private static final double MIN_DX = -1.5;
+    /** maximum step width (velocity) in Y direction (pixels per step). */
+    private static final double MAX_DY = 1;
+    /** minimum step width (velocity) in Y direction (pixels per step). */
+    private static final double MIN_DY = -4;
+    /** mean life time of a particle (in animation frames). */
+    private static final int LIFE_COUNTER = 64;
+    /** life time variance of a particle (in animation frames). */
+    private static final int LIFE_VARIANCE = 16;
+    /** factor used to simulate gravity (drags particles down). */
+    private static final double GRAVITY = 0.1;
+    /** Remove the explosion bitmaps after REMOVE_IMAGE_CTR animation steps. */
+    private static final int REMOVE_IMAGE_CTR = 2;
+    /** alpha mask to make a RGB color opaque. */
+    private static final int OPAQUE = 0xff000000;
+    /** number of double arrays per particle. */
+    private static final int PARTICLE_DOUBLES = 4;
+    /** number of int arrays per particle. */
+    private static final int PARTICLE_INTS = 3;
+    /** number of int arrays per explosion bitmap. */
+    private static final int BITMAP_INTS = 3;
+
+    /** explosion image used for the first few frames. */
+    private static BufferedImage expImg;
+
+    /** x positions of particles in pixels. */
+    private double[] px;
+    /** y positions of particles in pixels. */
+    private double[] py;
+    /** x step widths (velocities) of particles in pixels per step. */
+    private double[] pdx;
+    /** y step widths (velocities) of particles in pixels per step. */
+    private double[] pdy;
+    /** indices of the particle colors in {@link #colors}. */
+    private int[] pcol;
+    /** life counters of particles in steps (counting down). */
+    private int[] plife;
+    /** age of particles in steps (used for gravity). */
+    private int[] page;
+    /** number of active particles. */
+    private int numParticles;
+
+    /** x positions of explosion bitmaps in pixels. */
+    private int[] ex;
+    /** y positions of explosion bitmaps in pixels. */
+    private int[] ey;
+    /** frame counters of explosion bitmaps. */
+    private int[] ectr;
+    /** number of visible explosion bitmaps. */
+    private int numBitmaps;
+    /** particle colors of the level, created once instead of per draw. */
+    private final Color[] colors =
+            new Color[Level.DEFAULT_PARTICLE_COLORS.length];
+
+    /**
+     * Load explosion image as static resource. Mainly outside constructor for
+     * easier handling of ResourceException.
+     *
+     * @param frame the parent component (main frame of the application).
+     *
+     * @throws ResourceException
+     */
+    public static void init(final Component frame) throws ResourceException {
+        expImg = ToolBox.imageToBuffered(
+                Core.loadImage("misc/explode.gif", frame),
+                Transparency.BITMASK);
+    }
+
+    /**
+     * Constructor. Allocates room for the particles of INITIAL_EXPLOSIONS
+     * explosions.
+     */
+    public ExplosionPool() {
+        allocParticles(INITIAL_EXPLOSIONS * PARTICLE_NUM);
+        ex = new int[INITIAL_EXPLOSIONS];
+        ey = new int[INITIAL_EXPLOSIONS];
+        ectr = new int[INITIAL_EXPLOSIONS];
+    }
+
+    /**
+     * (Re)allocate the particle arrays, keeping the active particles.
+     *
+     * @param capacity new capacity in particles
+     */
+    private void allocParticles(final int capacity) {
+        if (px == null) {
+            px = new double[capacity];
+            py = new double[capacity];
+            pdx = new double[capacity];
+            pdy = new double[capacity];
+            pcol = new int[capacity];
+            plife = new int[capacity];
+            page = new int[capacity];
+        } else {
+            px = Arrays.copyOf(px, capacity);
+            py = Arrays.copyOf(py, capacity);
+            pdx = Arrays.copyOf(pdx, capacity);
+            pdy = Arrays.copyOf(pdy, capacity);
+            pcol = Arrays.copyOf(pcol, capacity);
+            plife = Arrays.copyOf(plife, capacity);
+            page = Arrays.copyOf(page, capacity);
+        }
+    }
+
+    /**
+     * Add a new explosion. The arrays only grow if more explosions are active
+     * than the pool was sized for.
+     *
+     * @param x     x position in pixels.
+     * @param y     y position in pixels.
+     * @param level level which supplies the particle colors
+     */
+    public void add(final int x, final int y, final Level level) {
+        if (numParticles + PARTICLE_NUM > px.length) {
+            allocParticles(px.length * 2);
+        }
+
+        for (int i = 0; i < colors.length; i++) {
+            final int col = OPAQUE | level.getParticleColor(i);
+
+            if (colors[i] == null || colors[i].getRGB() != col) {
+                colors[i] = new Color(col);
+            }
+        }
+
+        for (int i = 0; i < PARTICLE_NUM; i++) {
+            final int idx = numParticles++;
+            px[idx] = x;
+            py[idx] = y;
+            pdx[idx] = (Math.random() * (MAX_DX - MIN_DX) + MIN_DX);
+            pdy[idx] = (Math.random() * (MAX_DY - MIN_DY) + MIN_DY);
+            pcol[idx] = (int) (Math.random() * colors.length);
+            plife[idx] = LIFE_COUNTER
+                    + (int) (Math.random() * 2 * LIFE_VARIANCE) - LIFE_VARIANCE;
+            page[idx] = 0;
+        }
+
+        if (numBitmaps == ex.length) {
+            ex = Arrays.copyOf(ex, ex.length * 2);
+            ey = Arrays.copyOf(ey, ey.length * 2);
+            ectr = Arrays.copyOf(ectr, ectr.length * 2);
+        }
+
+        ex[numBitmaps] = x - expImg.getWidth() / 2;
+        ey[numBitmaps] = y - expImg.getHeight() / 2;
+        ectr[numBitmaps] = 0;
+        numBitmaps++;
+    }
+
+    /**
+     * Update all explosions (move particles etc.).
+     */
+    public void update() {
+        int i = 0;
+
+        while (i < numParticles) {
+            // calculate new position
+            px[i] += pdx[i];
+            py[i] += pdy[i] + page[i]++ * GRAVITY;
+
+            // check life counter
+            if (plife[i] > 0) {
+                plife[i]--;
+                i++;
+            } else {
+                removeParticle(i);
+            }
+        }
+
+        i = 0;
+
+        while (i < numBitmaps) {
+            if (++ectr[i] >= REMOVE_IMAGE_CTR) {
+                numBitmaps--;
+                ex[i] = ex[numBitmaps];
+                ey[i] = ey[numBitmaps];
+                ectr[i] = ectr[numBitmaps];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Remove a particle by moving the last active particle into its slot.
+     *
+     * @param idx index of particle to remove
+     */
+    private void removeParticle(final int idx) {
+        final int last = --numParticles;
+        px[idx] = px[last];
+        py[idx] = py[last];
+        pdx[idx] = pdx[last];
+        pdy[idx] = pdy[last];
+        pcol[idx] = pcol[last];
+        plife[idx] = plife[last];
+        page[idx] = page[last];
+    }
+
+    /**
+     * Draw all explosions. Particles are drawn as 2x2 pixel rectangles via the
+     * graphics object, so the image drawn on stays accelerated.
+     *
+     * @param g      graphics object
+     * @param width  width of drawing area in pixels
+     * @param height height of drawing area in pixels
+     * @param xOfs   horizontal level offset in pixels
+     * @param yOfs   vertical level offset in pixels
+     */
+    public void draw(final Graphics2D g, final int width, final int height,
+            final int xOfs, final int yOfs) {
+        final int maxY = height - 1;
+        final int maxX = width - 1;
+
+        // draw explosion bitmaps
+        for (int i = 0; i < numBitmaps; i++) {
+            final int x = ex[i] - xOfs;
+
+            if (x > 0 && x < maxX) {
+                g.drawImage(expImg, x, ey[i] - yOfs, null);
+            }
+        }
+
+        // draw particles
+        for (int i = 0; i < numParticles; i++) {
+            final int x = (int) px[i] - xOfs;
+            final int y = (int) py[i] - yOfs;
+
+            if (x > 0 && x < maxX - 1 && y > 0 && y < maxY - 1) {
+                g.setColor(colors[pcol[i]]);
+                g.fillRect(x, y, 2, 2);
+            }
+        }
+    }
+
+    /**
+     * Get number of active particles.
+     *
+     * @return number of active particles
+     */
+    public int getNumParticles() {
+        return numParticles;
+    }
+
+    /**
+     * Get the size of the particle arrays.
+     *
+     * @return size in bytes
+     */
+    public long getMemoryBytes() {
+        if (px == null) {
+            return 0;
+        }
+
+        return (long) px.length * (Double.BYTES * PARTICLE_DOUBLES
+                + Integer.BYTES * PARTICLE_INTS)
+                + (long) ex.length * Integer.BYTES * BITMAP_INTS;
+    }
+
+    /**
+     * Get active state.
+     *
+     * @return true if any explosion is still visible, false otherwise
+     */
+    public boolean isActive() {
+        return numParticles > 0 || numBitmaps > 0;
+    }
+
+    /**
+     * Remove all explosions.
+     */
+    public void clear() {
+        numParticles = 0;
+        numBitmaps = 0;
+    }
+}
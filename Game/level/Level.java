@@ -48,10 +48,17 @@ public class Level {
      * Number of RGB color channels (R, G, and B).
      */
     private static final int NUM_RGB_CHANNELS = 3;
-    /** maximum width of level. */
+    /** width of classic levels (default and minimum width of a level). */
     public static final int WIDTH = 1664 * 2;
-    /** maximum height of level. */
+    /** maximum width of level. */
+    public static final int MAX_WIDTH = WIDTH * 8;
+    /**
+     * height of classic levels (default and minimum height of a level, height
+     * of the visible part of a level).
+     */
     public static final int HEIGHT = 160 * 2;
+    /** maximum height of level. */
+    public static final int MAX_HEIGHT = HEIGHT * 8;
     /** array of default ARGB colors for particle effects. */
     public static final int[] DEFAULT_PARTICLE_COLORS = {0xff00ff00, 0xff0000ff,
             0xffffffff, 0xffffffff, 0xffff0000};
@@ -103,6 +110,8 @@ public class Level {
     private int numDiggers;
     /** start screen x pos : 0 - 0x04f0 (1264) rounded to modulo 8. */
     private int xPos;
+    /** start screen y pos (only used by levels higher than HEIGHT). */
+    private int yPos;
     /** background color as ARGB. */
     private int bgCol;
     /** background color. */
@@ -115,6 +124,12 @@ public class Level {
     private int maxFallDistance;
     /** this level is a SuperLemming level (runs faster). */
     private boolean superlemming;
+    /** number of Lemmings released at once (from consecutive entries). */
+    private int releaseCount = 1;
+    /** width of level in pixels. */
+    private int width = WIDTH;
+    /** height of level in pixels. */
+    private int height = HEIGHT;
     /** level is completely loaded. */
     private boolean ready = false;
     /**
@@ -340,12 +355,14 @@ public class Level {
     /**
      * Draw opaque objects behind background image.
      *
-     * @param g     graphics object to draw on
-     * @param width width of screen
-     * @param xOfs  level offset position
+     * @param g      graphics object to draw on
+     * @param width  width of screen
+     * @param height height of screen
+     * @param xOfs   horizontal level offset position
+     * @param yOfs   vertical level offset position
      */
     public void drawBehindObjects(final Graphics2D g, final int width,
-            final int xOfs) {
+            final int height, final int xOfs, final int yOfs) {
         // draw "behind" objects
         if (sprObjBehind != null) {
             for (int n = 0; n < sprObjBehind.length; n++) {
@@ -353,8 +370,11 @@ public class Level {
                     final SpriteObject spr = sprObjBehind[n];
                     final BufferedImage img = spr.getImage();
                     if (spr.getX() + spr.getWidth() > xOfs
-                            && spr.getX() < xOfs + width) {
-                        g.drawImage(img, spr.getX() - xOfs, spr.getY(), null);
+                            && spr.getX() < xOfs + width
+                            && spr.getY() + spr.getHeight() > yOfs
+                            && spr.getY() < yOfs + height) {
+                        g.drawImage(img, spr.getX() - xOfs, spr.getY() - yOfs,
+                                null);
                         // spr.drawHidden(offImg,xOfsTemp);
                     }
                 } catch (final ArrayIndexOutOfBoundsException ex) {
@@ -366,12 +386,14 @@ public class Level {
     /**
      * Draw transparent objects in front of background image.
      *
-     * @param g     graphics object to draw on
-     * @param width width of screen
-     * @param xOfs  level offset position
+     * @param g      graphics object to draw on
+     * @param width  width of screen
+     * @param height height of screen
+     * @param xOfs   horizontal level offset position
+     * @param yOfs   vertical level offset position
      */
     public void drawInFrontObjects(final Graphics2D g, final int width,
-            final int xOfs) {
+            final int height, final int xOfs, final int yOfs) {
         // draw "in front" objects
         if (sprObjFront != null) {
             for (int n = 0; n < sprObjFront.length; n++) {
@@ -379,8 +401,11 @@ public class Level {
                     final SpriteObject spr = sprObjFront[n];
                     final BufferedImage img = spr.getImage();
                     if (spr.getX() + spr.getWidth() > xOfs
-                            && spr.getX() < xOfs + width) {
-                        g.drawImage(img, spr.getX() - xOfs, spr.getY(), null);
+                            && spr.getX() < xOfs + width
+                            && spr.getY() + spr.getHeight() > yOfs
+                            && spr.getY() < yOfs + height) {
+                        g.drawImage(img, spr.getX() - xOfs, spr.getY() - yOfs,
+                                null);
                     }
                 } catch (final ArrayIndexOutOfBoundsException ex) {
                 }
@@ -393,14 +418,14 @@ public class Level {
      *
      * @param image   image to re-use (if null or wrong size, it will be
      *                recreated)
-     * @param bgImage background image used as source for the mini map
+     * @param bgImage terrain used as source for the mini map
      * @param scaleX  integer X scaling factor (2 -> half width)
      * @param scaleY  integer Y scaling factor (2 -> half height)
      * @param tint    apply a greenish color tint
      * @return image with mini map
      */
     public BufferedImage createMiniMap(final BufferedImage image,
-            final BufferedImage bgImage, final int scaleX, final int scaleY,
+            final ChunkedImage bgImage, final int scaleX, final int scaleY,
             final boolean tint) {
         final Level level = GameController.getLevel();
         int backgroundColor;
@@ -422,32 +447,13 @@ public class Level {
         // (bgColor written can be slightly different from the one read)
         backgroundColor = img.getRGB(0, 0);
         // draw "behind" objects
-        if (level != null && level.sprObjBehind != null) {
-            for (int n = 0; n < level.sprObjBehind.length; n++) {
-                try {
-                    final SpriteObject spr = level.sprObjBehind[n];
-                    final BufferedImage sprImg = spr.getImage();
-                    gx.drawImage(sprImg, spr.getX() / scaleX,
-                            spr.getY() / scaleY, spr.getWidth() / scaleX,
-                            spr.getHeight() / scaleY, null);
-                } catch (final ArrayIndexOutOfBoundsException ex) {
-                }
-            }
+        if (level != null) {
+            level.drawSmallObjects(gx, false, scaleX, scaleY);
         }
-        gx.drawImage(bgImage, 0, 0, width, height, 0, 0, bgImage.getWidth(),
-                bgImage.getHeight(), null);
+        bgImage.drawScaled(gx, width, height);
         // draw "in front" objects
-        if (level != null && level.sprObjFront != null) {
-            for (int n = 0; n < level.sprObjFront.length; n++) {
-                try {
-                    final SpriteObject spr = level.sprObjFront[n];
-                    final BufferedImage sprImg = spr.getImage();
-                    gx.drawImage(sprImg, spr.getX() / scaleX,
-                            spr.getY() / scaleY, spr.getWidth() / scaleX,
-                            spr.getHeight() / scaleY, null);
-                } catch (final ArrayIndexOutOfBoundsException ex) {
-                }
-            }
+        if (level != null) {
+            level.drawSmallObjects(gx, true, scaleX, scaleY);
         }
 
         gx.dispose();
@@ -460,6 +466,32 @@ public class Level {
         return img;
     }
 
+    /**
+     * Draw scaled down "behind" or "in front" objects (for the mini map).
+     *
+     * @param gx     graphics object to draw on
+     * @param front  true: draw "in front" objects, false: "behind" objects
+     * @param scaleX X scale (2 means 0.5, 3 means 1/3...)
+     * @param scaleY Y scale (2 means 0.5, 3 means 1/3...)
+     */
+    void drawSmallObjects(final Graphics2D gx, final boolean front,
+            final int scaleX, final int scaleY) {
+        final SpriteObject[] objects = front ? sprObjFront : sprObjBehind;
+
+        if (objects != null) {
+            for (int n = 0; n < objects.length; n++) {
+                try {
+                    final SpriteObject spr = objects[n];
+                    final BufferedImage sprImg = spr.getImage();
+                    gx.drawImage(sprImg, spr.getX() / scaleX,
+                            spr.getY() / scaleY, spr.getWidth() / scaleX,
+                            spr.getHeight() / scaleY, null);
+                } catch (final ArrayIndexOutOfBoundsException ex) {
+                }
+            }
+        }
+    }
+
     private void doTint(final int backgroundColor, final BufferedImage img) {
         for (int y = 0; y < img.getHeight(); y++) {
             for (int x = 0; x < img.getWidth(); x++) {
@@ -477,7 +509,13 @@ public class Level {
         }
     }
 
-    private int tintNonBackgroundColor(final int initialColor) {
+    /**
+     * Convert a non background color to the greenish mini map tint.
+     *
+     * @param initialColor ARGB color
+     * @return tinted ARGB color
+     */
+    static int tintNonBackgroundColor(final int initialColor) {
         int c = initialColor;
         int sum = 0;
 
@@ -611,6 +649,16 @@ public class Level {
         return particleCol.clone();
     }
 
+    /**
+     * Get ARGB color used for particle effects without copying the array.
+     *
+     * @param idx index of particle color
+     * @return ARGB color used for particle effects
+     */
+    int getParticleColor(final int idx) {
+        return particleCol[idx];
+    }
+
     /**
      * Sets array of ARGB colors used for particle effects.
      *
@@ -638,6 +686,24 @@ public class Level {
         this.xPos = position;
     }
 
+    /**
+     * Get start screen y position.
+     *
+     * @return start screen y position
+     */
+    public int getYpos() {
+        return yPos;
+    }
+
+    /**
+     * Sets start screen y position.
+     *
+     * @param position start screen y position.
+     */
+    public void setyPos(final int position) {
+        this.yPos = position;
+    }
+
     /**
      * Get number of climbers in this level : max 0xfa (250).
      *
@@ -895,6 +961,129 @@ public class Level {
         this.superlemming = superLemmingLevel;
     }
 
+    /**
+     * Get number of Lemmings released at once.
+     *
+     * @return number of Lemmings released at once (1 for classic levels)
+     */
+    public int getReleaseCount() {
+        return releaseCount;
+    }
+
+    /**
+     * Sets number of Lemmings released at once. Levels with thousands of
+     * Lemmings use this to release them in reasonable time.
+     *
+     * @param count number of Lemmings released at once (at least 1)
+     */
+    public void setReleaseCount(final int count) {
+        this.releaseCount = Math.max(1, count);
+    }
+
+    /**
+     * Get width of level.
+     *
+     * @return width of level in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Sets width of level.
+     *
+     * @param w width of level in pixels (clamped to WIDTH..MAX_WIDTH)
+     */
+    public void setWidth(final int w) {
+        this.width = clampWidth(w);
+    }
+
+    /**
+     * Clamp a level width to the supported range.
+     *
+     * @param w width of level in pixels
+     * @return width clamped to WIDTH..MAX_WIDTH
+     */
+    public static int clampWidth(final int w) {
+        return Math.max(WIDTH, Math.min(MAX_WIDTH, w));
+    }
+
+    /**
+     * Get a horizontal scaling factor for views which are laid out for levels
+     * of the classic width (mini map, preview). Wider levels are scaled down
+     * by the next integer factor, so the view keeps its size.
+     *
+     * @param scale integer scaling factor for the classic width
+     * @return integer scaling factor for this level
+     */
+    public int scaleToClassicWidth(final int scale) {
+        return scaleToClassicWidth(width, scale);
+    }
+
+    /**
+     * Get a horizontal scaling factor for views of a level of the given width
+     * which are laid out for levels of the classic width.
+     *
+     * @param w     width of level in pixels
+     * @param scale integer scaling factor for the classic width
+     * @return integer scaling factor for a level of this width
+     */
+    public static int scaleToClassicWidth(final int w, final int scale) {
+        return scale * ((w + WIDTH - 1) / WIDTH);
+    }
+
+    /**
+     * Get height of level.
+     *
+     * @return height of level in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets height of level.
+     *
+     * @param h height of level in pixels (clamped to HEIGHT..MAX_HEIGHT)
+     */
+    public void setHeight(final int h) {
+        this.height = clampHeight(h);
+    }
+
+    /**
+     * Clamp a level height to the supported range.
+     *
+     * @param h height of level in pixels
+     * @return height clamped to HEIGHT..MAX_HEIGHT
+     */
+    public static int clampHeight(final int h) {
+        return Math.max(HEIGHT, Math.min(MAX_HEIGHT, h));
+    }
+
+    /**
+     * Get a vertical scaling factor for views which are laid out for levels
+     * of the classic height (mini map, preview). Higher levels are scaled down
+     * by the next integer factor, so the view keeps its size.
+     *
+     * @param scale integer scaling factor for the classic height
+     * @return integer scaling factor for this level
+     */
+    public int scaleToClassicHeight(final int scale) {
+        return scaleToClassicHeight(height, scale);
+    }
+
+    /**
+     * Get a vertical scaling factor for views of a level of the given height
+     * which are laid out for levels of the classic height.
+     *
+     * @param h     height of level in pixels
+     * @param scale integer scaling factor for the classic height
+     * @return integer scaling factor for a level of this height
+     */
+    public static int scaleToClassicHeight(final int h, final int scale) {
+        return scale * ((h + HEIGHT - 1) / HEIGHT);
+    }
+
     /**
      * Get level name.
      *
@@ -12,6 +12,7 @@ import game.LemmException;
 import game.ResourceException;
 import game.Steel;
 import game.Terrain;
+import game.jfr.LevelPhaseEvent;
 import game.lemmings.Lemming;
 import gameutil.FaderHandler;
 import gameutil.Sprite;
@@ -50,11 +51,11 @@ public final class LevelLoader {
     /**
      * Number of int elements in terrain_x array.
      */
-    private static final int TERRAIN_X_LENGTH = 4;
+    static final int TERRAIN_X_LENGTH = 4;
     /**
      * Number of int elements in object_x array.
      */
-    private static final int OBJECT_X_LENGTH = 5;
+    static final int OBJECT_X_LENGTH = 5;
     /** array of default styles. */
     private static final String[] STYLES = {"dirt", "fire", "marble", "pillar",
             "crystal", "brick", "rock", "snow", "Bubble", "special"};
@@ -84,6 +85,7 @@ public final class LevelLoader {
     public static void loadLevel(final String fname, final Component frame,
             final Level level) throws ResourceException, LemmException {
         level.setReady(false);
+        LevelPhaseEvent phase = LevelPhaseEvent.start(fname, "properties");
         // read level properties from file
         final Props p = new Props();
 
@@ -109,6 +111,7 @@ public final class LevelLoader {
         level.setNumMiners(p.get("numMiners", -1));
         level.setNumDiggers(p.get("numDiggers", -1));
         level.setxPos(p.get("xPos", -1));
+        level.setyPos(p.get("yPos", 0));
         final String strStyle = p.get("style", "");
         int style = -1;
 
@@ -120,15 +123,23 @@ public final class LevelLoader {
         }
 
         level.setSuperlemming(p.get("superlemming", false));
+        level.setReleaseCount(p.get("releaseCount", 1));
+        level.setWidth(p.get("width", Level.WIDTH));
+        level.setHeight(p.get("height", Level.HEIGHT));
 
         // read objects
+        phase = phase.next("objects");
         final int[] def = readObjects(level, p);
         // read terrain
+        phase = phase.next("terrain");
         readTerrain(level, p, def);
         // read steel blocks
+        phase = phase.next("steel");
         readSteelBlocks(level, p, def);
         // load objects
+        phase = phase.next("resources");
         loadObjects(frame, level, strStyle, style);
+        phase.commit();
         level.setReady(true);
     }
 
@@ -2,12 +2,12 @@ package game.level;
 
 import java.awt.Component;
 import java.awt.Image;
-import java.awt.image.BufferedImage;
 import java.awt.image.PixelGrabber;
 import java.util.List;
 
 import game.Steel;
 import game.Terrain;
+import game.jfr.LevelPhaseEvent;
 import lemmini.Constants;
 
 /*
@@ -51,8 +51,10 @@ public class LevelPainter {
      * @param s       stencil to reuse
      * @return stencil of this level
      */
-    public Stencil paintLevel(final BufferedImage bgImage, final Component cmp,
+    public Stencil paintLevel(final ChunkedImage bgImage, final Component cmp,
             final Stencil s) {
+        LevelPhaseEvent phase = LevelPhaseEvent.start(level.getLevelName(),
+                "stencil");
         // flush all resources
         flushLevelResources();
         // the screenBuffer should be big enough to hold the level
@@ -62,18 +64,23 @@ public class LevelPainter {
         // try to reuse old stencil
         final Stencil stencil = getStencil(bgImage, s);
         // paint terrain
+        phase = phase.next("paintTerrain");
         paintTerrain(bgImage, stencil);
         // now for the animated objects
+        phase = phase.next("paintObjects");
         final ObjectProcessor objectProcessor = paintAnimatedObjects(bgImage,
                 stencil);
         // paint steel tiles into stencil
+        phase = phase.next("paintSteel");
         paintSteelTilesIntoStencil(bgWidth, bgHeight, stencil);
+        phase = phase.next("sortObjects");
         SpriteObject[] sprObjects = getCombinedObjects(objectProcessor);
         level.setSprObjects(sprObjects);
         SpriteObject[] sprObjFront = getForegroundObjects(objectProcessor);
         level.setSprObjFront(sprObjFront);
         SpriteObject[] sprObjBehind = getBackgroundObjects(objectProcessor);
         level.setSprObjBehind(sprObjBehind);
+        phase.commit();
         return stencil;
     }
 
@@ -108,7 +115,7 @@ public class LevelPainter {
         level.setEntries(null);
     }
 
-    private Stencil getStencil(final BufferedImage bgImage, final Stencil s) {
+    private Stencil getStencil(final ChunkedImage bgImage, final Stencil s) {
         Stencil stencil;
         final int bgWidth = bgImage.getWidth();
 
@@ -122,7 +129,7 @@ public class LevelPainter {
         return stencil;
     }
 
-    private void paintTerrain(final BufferedImage bgImage,
+    private void paintTerrain(final ChunkedImage bgImage,
             final Stencil stencil) {
         final List<Terrain> terrain = level.getTerrain();
 
@@ -148,7 +155,7 @@ public class LevelPainter {
         }
     }
 
-    private ObjectProcessor paintAnimatedObjects(final BufferedImage bgImage,
+    private ObjectProcessor paintAnimatedObjects(final ChunkedImage bgImage,
             final Stencil stencil) {
         final ObjectProcessor objectProcessor = new ObjectProcessor(level);
         final List<Entry> entry = objectProcessor.processObjects(bgImage,
@@ -192,7 +199,7 @@ public class LevelPainter {
         }
     }
 
-    private void paintTerrain(final BufferedImage bgImage,
+    private void paintTerrain(final ChunkedImage bgImage,
             final Stencil stencil, final Image i, final int[] source,
             final Terrain t) {
         final int width = i.getWidth(null);
@@ -29,10 +29,6 @@ import lemmini.Constants;
  * @author Volker Oth
  */
 public class Mask {
-    /**
-     * Maximum Red (R) and Blue (B) RGBA value.
-     */
-    private static final int MAX_R_B = 0xff00ff00;
     /**
      * Number by which to divide total number of pixels to get maxMaskPixels.
      */
@@ -110,14 +106,11 @@ public class Mask {
     public boolean eraseMask(final int x0, final int y0, final int maskNum,
             final int checkMask) {
         int ctrIndestructable = 0;
-        final BufferedImage bgImage = GameController.getBgImage();
-        final BufferedImage bgImageSmall = MiniMap.getImage();
+        final ChunkedImage bgImage = GameController.getBgImage();
         final Stencil stencil = GameController.getStencil();
         final byte[] m = mask[maskNum];
         int sPos = y0 * bgImage.getWidth();
         int pos = 0;
-        final int scaleX = bgImage.getWidth() / bgImageSmall.getWidth();
-        final int scaleY = bgImage.getHeight() / bgImageSmall.getHeight();
         int yMax = y0 + height;
 
         if (yMax >= bgImage.getHeight()) {
@@ -138,14 +131,11 @@ public class Mask {
                 continue;
             }
 
-            final boolean drawSmallY = (y % scaleY) == 0;
-
             for (int x = x0; x < xMax; x++) {
                 if (x < 0) {
                     continue;
                 }
 
-                final boolean drawSmallX = (x % scaleX) == 0;
                 final int s = stencil.get(sPos + x);
 
                 if (m[pos + x - x0] != 0) {
@@ -166,12 +156,6 @@ public class Mask {
                                                                       // in
                                                                       // stencil
                         bgImage.setRGB(x, y, bgCol); // erase pixel in bgIMage
-
-                        if (drawSmallX && drawSmallY) {
-                            bgImageSmall.setRGB(x / scaleX, y / scaleY,
-                                    Constants.MAX_ALPHA);
-                            // erase pixel in bgIMageSmall
-                        }
                     } else {
                         ctrIndestructable++;
                     }
@@ -179,6 +163,7 @@ public class Mask {
             }
         }
 
+        MiniMap.invalidate(x0, y0, width, height);
         return ctrIndestructable > maxMaskPixels[maskNum]; // to be checked
     }
 
@@ -193,14 +178,11 @@ public class Mask {
      */
     public void paintStep(final int x0, final int y0, final int maskNum,
             final int color) {
-        final BufferedImage bgImage = GameController.getBgImage();
-        final BufferedImage bgImageSmall = MiniMap.getImage();
+        final ChunkedImage bgImage = GameController.getBgImage();
         final Stencil stencil = GameController.getStencil();
         final byte[] m = mask[maskNum];
         int sPos = y0 * bgImage.getWidth();
         int pos = 0;
-        final int scaleX = bgImage.getWidth() / bgImageSmall.getWidth();
-        final int scaleY = bgImage.getHeight() / bgImageSmall.getHeight();
         int yMax = y0 + height;
 
         if (yMax >= bgImage.getHeight()) {
@@ -215,8 +197,6 @@ public class Mask {
 
         for (int y = y0; y < yMax; y++, pos += width, sPos += bgImage
                 .getWidth()) {
-            final boolean drawSmallY = (y % scaleY) == 0;
-
             if (y < 0) {
                 continue;
             }
@@ -226,7 +206,6 @@ public class Mask {
                     continue;
                 }
 
-                final boolean drawSmallX = (x % scaleX) == 0;
                 int s = stencil.get(sPos + x);
 
                 if (m[pos + x
@@ -239,15 +218,11 @@ public class Mask {
                     stencil.set(sPos + x, s | Stencil.MSK_STAIR); // set type in
                                                                   // stencil
                     bgImage.setRGB(x, y, color);
-
-                    if (drawSmallX && drawSmallY) {
-                        bgImageSmall.setRGB(x / scaleX, y / scaleY,
-                                color & MAX_R_B); // green pixel in
-                                                  // bgIMageSmall
-                    }
                 }
             }
         }
+
+        MiniMap.invalidate(x0, y0, width, height);
     }
 
     /**
@@ -259,7 +234,7 @@ public class Mask {
      * @param xMid x position of Lemming's foot
      */
     public void setStopperMask(final int x0, final int y0, final int xMid) {
-        final BufferedImage bgImage = GameController.getBgImage();
+        final ChunkedImage bgImage = GameController.getBgImage();
         final Stencil stencil = GameController.getStencil();
         final byte[] m = mask[0];
         int sPos = y0 * bgImage.getWidth();
@@ -364,7 +339,7 @@ public class Mask {
      */
     public void clearType(final int x0, final int y0, final int maskNum,
             final int type) {
-        final BufferedImage bgImage = GameController.getBgImage();
+        final ChunkedImage bgImage = GameController.getBgImage();
         final Stencil stencil = GameController.getStencil();
         final byte[] m = mask[maskNum];
         int sPos = y0 * bgImage.getWidth();
@@ -2,10 +2,15 @@ package game.level;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 import game.Core;
 import game.GameController;
+import lemmini.Constants;
+import tools.ToolBox;
 
 /*
  * Copyright 2009 Volker Oth
@@ -24,19 +29,50 @@ import game.GameController;
  */
 
 /**
- * Handles the mini map.
+ * Handles the mini map. The mini map is a downsampled copy of the level that
+ * is kept up to date incrementally: changes to the terrain only mark a dirty
+ * rectangle, which is area averaged into the mini map before it is drawn.
+ * Lemmings are plotted into a separate overlay raster.
  *
  * @author Volker Oth
  */
 public final class MiniMap {
 
     /** color of Lemmings in mini map. */
-    private static final Color LEMM_COLOR = Color.RED;
+    private static final int LEMM_COLOR = 0xffff0000;
     /** color of screen frame in mini map. */
     private static final Color BORDER_COLOR = Color.YELLOW;
 
     /** image used for mini map. */
     private static BufferedImage img;
+    /** overlay image with the Lemming pixels. */
+    private static BufferedImage lemmImg;
+    /** pixels of the Lemming overlay. */
+    private static int[] lemmPixels;
+    /** flag: at least one Lemming was plotted into the overlay. */
+    private static boolean lemmPlotted;
+    /** mini map pixels (ARGB) including terrain. */
+    private static int[] pixels;
+    /** downsampled background and "behind" objects (ARGB). */
+    private static int[] behindLayer;
+    /** downsampled "in front" objects (ARGB, 0 if transparent). */
+    private static int[] frontLayer;
+    /** line buffer used to read the terrain. */
+    private static int[] lineBuffer;
+    /** background color of the level (ARGB). */
+    private static int bgColor;
+    /** flag: apply greenish tint. */
+    private static boolean tinted;
+    /** left border of dirty rectangle in mini map pixels. */
+    private static int dirtyX0;
+    /** top border of dirty rectangle in mini map pixels. */
+    private static int dirtyY0;
+    /** right border (exclusive) of dirty rectangle in mini map pixels. */
+    private static int dirtyX1;
+    /** bottom border (exclusive) of dirty rectangle in mini map pixels. */
+    private static int dirtyY1;
+    /** monitor object used to synchronize access to the dirty rectangle. */
+    private static final Object DIRTY_LOCK = new Object();
     /** X position in main gfx. */
     private static int xPos;
     /** Y position in main gfx. */
@@ -62,21 +98,229 @@ public final class MiniMap {
      *
      * @param x    X position in main gfx used in drawLemming() and move()
      * @param y    Y position in main gfx used in drawLemming() and move()
-     * @param sx   X Scale (2 -> 0.5)
-     * @param sy   Y Scale (3 -> 0.333)
+     * @param sx   X Scale for levels of classic width (2 -> 0.5)
+     * @param sy   Y Scale for levels of classic height (3 -> 0.333)
      * @param tint true: apply greenish tint, false: use original colors
      */
     public static void init(final int x, final int y, final int sx,
             final int sy, final boolean tint) {
         xPos = x;
         yPos = y;
-        scaleX = sx;
-        scaleY = sy;
-        Level level = GameController.getLevel();
-        BufferedImage bgImage = GameController.getBgImage();
-        img = level.createMiniMap(img, bgImage, scaleX, scaleY, tint);
-        width = img.getWidth();
-        height = img.getHeight();
+        final Level level = GameController.getLevel();
+        scaleX = level.scaleToClassicWidth(sx);
+        scaleY = level.scaleToClassicHeight(sy);
+        tinted = tint;
+        final ChunkedImage bgImage = GameController.getBgImage();
+        final int w = bgImage.getWidth() / scaleX;
+        final int h = bgImage.getHeight() / scaleY;
+
+        if (img == null || w != width || h != height) {
+            width = w;
+            height = h;
+            img = ToolBox.createImage(width, height, Transparency.OPAQUE);
+            lemmImg = new BufferedImage(width + 1, height + 1,
+                    BufferedImage.TYPE_INT_ARGB);
+            lemmPixels = ((DataBufferInt) lemmImg.getRaster().getDataBuffer())
+                    .getData();
+            pixels = new int[width * height];
+        }
+
+        if (lineBuffer == null
+                || lineBuffer.length != bgImage.getWidth() * scaleY) {
+            lineBuffer = new int[bgImage.getWidth() * scaleY];
+        }
+
+        bgColor = level.getBgColor().getRGB() | Constants.MAX_ALPHA;
+        behindLayer = createObjectLayer(level, false);
+        frontLayer = createObjectLayer(level, true);
+
+        synchronized (DIRTY_LOCK) {
+            dirtyX0 = 0;
+            dirtyY0 = 0;
+            dirtyX1 = width;
+            dirtyY1 = height;
+        }
+
+        update();
+    }
+
+    /**
+     * Downsample the "behind" or "in front" objects of a level.
+     *
+     * @param level level containing the objects
+     * @param front true: "in front" objects, false: background and "behind"
+     *              objects
+     * @return ARGB pixels of the object layer
+     */
+    private static int[] createObjectLayer(final Level level,
+            final boolean front) {
+        final BufferedImage layer = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D gx = layer.createGraphics();
+
+        if (!front) {
+            gx.setBackground(new Color(bgColor));
+            gx.clearRect(0, 0, width, height);
+        }
+
+        level.drawSmallObjects(gx, front, scaleX, scaleY);
+        gx.dispose();
+        final int[] argb = ((DataBufferInt) layer.getRaster().getDataBuffer())
+                .getData();
+
+        for (int i = 0; i < argb.length; i++) {
+            if ((argb[i] & Constants.MAX_ALPHA) != 0) {
+                argb[i] = tint(argb[i] | Constants.MAX_ALPHA);
+            } else {
+                argb[i] = 0;
+            }
+        }
+
+        return argb;
+    }
+
+    /**
+     * Apply the mini map tint to a pixel if tinting is active.
+     *
+     * @param c opaque ARGB color
+     * @return color to use in mini map
+     */
+    private static int tint(final int c) {
+        if (!tinted) {
+            return c;
+        }
+
+        if (c == bgColor) {
+            return Constants.MAX_ALPHA; // make background black instead of
+                                        // dark
+        }
+
+        return Level.tintNonBackgroundColor(c);
+    }
+
+    /**
+     * Mark a part of the level as changed. The mini map is updated before it's
+     * drawn the next time.
+     *
+     * @param x0 x position of changed rectangle in level pixels
+     * @param y0 y position of changed rectangle in level pixels
+     * @param w  width of changed rectangle in level pixels
+     * @param h  height of changed rectangle in level pixels
+     */
+    public static void invalidate(final int x0, final int y0, final int w,
+            final int h) {
+        if (img == null || w <= 0 || h <= 0) {
+            return;
+        }
+
+        final int cx0 = Math.max(0, x0 / scaleX);
+        final int cy0 = Math.max(0, y0 / scaleY);
+        final int cx1 = Math.min(width, (x0 + w - 1) / scaleX + 1);
+        final int cy1 = Math.min(height, (y0 + h - 1) / scaleY + 1);
+
+        if (cx0 >= cx1 || cy0 >= cy1) {
+            return;
+        }
+
+        synchronized (DIRTY_LOCK) {
+            if (dirtyX0 >= dirtyX1) {
+                dirtyX0 = cx0;
+                dirtyY0 = cy0;
+                dirtyX1 = cx1;
+                dirtyY1 = cy1;
+            } else {
+                dirtyX0 = Math.min(dirtyX0, cx0);
+                dirtyY0 = Math.min(dirtyY0, cy0);
+                dirtyX1 = Math.max(dirtyX1, cx1);
+                dirtyY1 = Math.max(dirtyY1, cy1);
+            }
+        }
+    }
+
+    /**
+     * Recalculate the dirty rectangle of the mini map from the background
+     * image. Each mini map pixel is the average of the scaleX*scaleY level
+     * pixels it covers, with transparent terrain showing the "behind" layer.
+     */
+    private static void update() {
+        final int x0;
+        final int y0;
+        final int x1;
+        final int y1;
+
+        synchronized (DIRTY_LOCK) {
+            if (dirtyX0 >= dirtyX1) {
+                return;
+            }
+
+            x0 = dirtyX0;
+            y0 = dirtyY0;
+            x1 = dirtyX1;
+            y1 = dirtyY1;
+            dirtyX0 = 0;
+            dirtyY0 = 0;
+            dirtyX1 = 0;
+            dirtyY1 = 0;
+        }
+
+        final ChunkedImage bgImage = GameController.getBgImage();
+        final int lineWidth = (x1 - x0) * scaleX;
+        final int area = scaleX * scaleY;
+
+        for (int cy = y0; cy < y1; cy++) {
+            // read one row of mini map pixels worth of terrain
+            bgImage.getRGB(x0 * scaleX, cy * scaleY, lineWidth, scaleY,
+                    lineBuffer, 0, lineWidth);
+
+            for (int cx = x0; cx < x1; cx++) {
+                final int pos = cy * width + cx;
+                final int front = frontLayer[pos];
+
+                if (front != 0) {
+                    pixels[pos] = front;
+                    continue;
+                }
+
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                int numTransparent = 0;
+                int lPos = (cx - x0) * scaleX;
+
+                for (int y = 0; y < scaleY; y++, lPos += lineWidth) {
+                    for (int x = 0; x < scaleX; x++) {
+                        final int c = lineBuffer[lPos + x];
+
+                        if ((c & Constants.MAX_ALPHA) == 0) {
+                            numTransparent++;
+                        } else {
+                            final int t = tint(c | Constants.MAX_ALPHA);
+                            r += (t >> Constants.SHIFT_16)
+                                    & Constants.EIGHT_BIT_MASK;
+                            g += (t >> Constants.SHIFT_8)
+                                    & Constants.EIGHT_BIT_MASK;
+                            b += t & Constants.EIGHT_BIT_MASK;
+                        }
+                    }
+                }
+
+                if (numTransparent == area) {
+                    pixels[pos] = behindLayer[pos];
+                } else {
+                    final int behind = behindLayer[pos];
+                    r += numTransparent * ((behind >> Constants.SHIFT_16)
+                            & Constants.EIGHT_BIT_MASK);
+                    g += numTransparent * ((behind >> Constants.SHIFT_8)
+                            & Constants.EIGHT_BIT_MASK);
+                    b += numTransparent * (behind & Constants.EIGHT_BIT_MASK);
+                    pixels[pos] = Constants.MAX_ALPHA
+                            | ((r / area) << Constants.SHIFT_16)
+                            | ((g / area) << Constants.SHIFT_8) | (b / area);
+                }
+            }
+        }
+
+        img.setRGB(x0, y0, x1 - x0, y1 - y0, pixels, y0 * width + x0, width);
     }
 
     /**
@@ -86,28 +330,57 @@ public final class MiniMap {
      * @param x    x position in pixels
      * @param y    y position in pixels
      * @param xOfs horizontal level offset
+     * @param yOfs vertical level offset
      */
     public static void draw(final Graphics2D g, final int x, final int y,
-            final int xOfs) {
+            final int xOfs, final int yOfs) {
         int wWidth = Core.getDrawWidth();
+        update();
         g.drawImage(img, x, y, null);
         g.setColor(BORDER_COLOR);
-        g.drawRect(x + xOfs / scaleX, y, wWidth / scaleX, img.getHeight() - 1);
+        g.drawRect(x + xOfs / scaleX, y + yOfs / scaleY, wWidth / scaleX,
+                Level.HEIGHT / scaleY - 1);
     }
 
     /**
-     * Draw Lemming in mini map.
+     * Remove all Lemmings from the overlay.
+     */
+    public static void clearLemmings() {
+        if (lemmPlotted) {
+            Arrays.fill(lemmPixels, 0);
+            lemmPlotted = false;
+        }
+    }
+
+    /**
+     * Plot Lemming into the overlay. The overlay is drawn by drawLemmings().
      *
-     * @param g  Graphics object to draw on
      * @param lx original lemming x position in pixels
      * @param ly original lemming y position in pixels
      */
-    public static void drawLemming(final Graphics2D g, final int lx,
-            final int ly) {
-        int x = xPos + (lx + scaleX / 2) / scaleX;
-        int y = yPos + (ly + scaleY / 2) / scaleY;
-        g.setColor(LEMM_COLOR);
-        g.fillRect(x, y, 2, 2);
+    public static void plotLemming(final int lx, final int ly) {
+        final int x = (lx + scaleX / 2) / scaleX;
+        final int y = (ly + scaleY / 2) / scaleY;
+
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            final int pos = y * (width + 1) + x;
+            lemmPixels[pos] = LEMM_COLOR;
+            lemmPixels[pos + 1] = LEMM_COLOR;
+            lemmPixels[pos + width + 1] = LEMM_COLOR;
+            lemmPixels[pos + width + 2] = LEMM_COLOR;
+            lemmPlotted = true;
+        }
+    }
+
+    /**
+     * Draw all Lemmings plotted into the overlay.
+     *
+     * @param g Graphics object to draw on
+     */
+    public static void drawLemmings(final Graphics2D g) {
+        if (lemmPlotted) {
+            g.drawImage(lemmImg, xPos, yPos, null);
+        }
     }
 
     /**
@@ -138,10 +411,25 @@ public final class MiniMap {
             xOfs = 0;
         }
 
-        if (xOfs > Level.WIDTH - swidth) {
-            xOfs = Level.WIDTH - swidth - 1;
+        final int levelWidth = GameController.getLevel().getWidth();
+
+        if (xOfs > levelWidth - swidth) {
+            xOfs = levelWidth - swidth - 1;
         }
 
         return xOfs;
     }
+
+    /**
+     * Get the vertical screen offset for a position in the mini map.
+     *
+     * @param y cursor y position in original gfx (inside the mini map).
+     * @return new vertical screen offset
+     */
+    public static int moveY(final int y) {
+        final int yOfs = (y - yPos) * scaleY - Level.HEIGHT / 2;
+        final int maxOfs = GameController.getLevel().getHeight()
+                - Level.HEIGHT;
+        return Math.max(0, Math.min(maxOfs, yOfs));
+    }
 }
@@ -114,7 +114,7 @@ public final class ObjectProcessor {
      * @param stencil Stencil for painting Level.
      * @return a List of processed Entry objects.
      */
-    public List<Entry> processObjects(final BufferedImage bgImage,
+    public List<Entry> processObjects(final ChunkedImage bgImage,
             final Stencil stencil) {
         oCombined = new ArrayList<SpriteObject>(
                 LevelLoader.MAX_NUM_SPRITE_OBJECTS);
@@ -141,7 +141,7 @@ public final class ObjectProcessor {
      * @param stencil Stencil for painting Level.
      * @param n       LvlObject number.
      */
-    private void processNthLvlObject(final BufferedImage bgImage,
+    private void processNthLvlObject(final ChunkedImage bgImage,
             final Stencil stencil, final int n) {
         final LvlObject o = level.getObjects().get(n);
         final SpriteObject spr = getSpriteObjectForLevelObject(o);
@@ -213,7 +213,7 @@ public final class ObjectProcessor {
      * @param spr     the SpriteObject to draw.
      */
     private void drawStencil(final Stencil stencil, final int n,
-            final BufferedImage bgImage, final SpriteObject spr) {
+            final ChunkedImage bgImage, final SpriteObject spr) {
         final int bgWidth = bgImage.getWidth();
         final int bgHeight = bgImage.getHeight();
 
@@ -280,7 +280,7 @@ public final class ObjectProcessor {
      * @param spr     the SpriteObject to draw.
      */
     private void removeInvisiblePixelsFromFrontObjectFrames(
-            final BufferedImage bgImage, final Stencil stencil, final int n,
+            final ChunkedImage bgImage, final Stencil stencil, final int n,
             final SpriteObject spr) {
         final LvlObject o = level.getObjects().get(n);
         final boolean inFront = isObjectInFront(o);
@@ -370,7 +370,7 @@ public final class ObjectProcessor {
      * @param imgSpr  flipped or normal version of sprite image.
      */
     private void determinePixelsToDraw(final Stencil stencil, final int n,
-            final BufferedImage bgImage, final SpriteObject spr,
+            final ChunkedImage bgImage, final SpriteObject spr,
             final BufferedImage imgSpr) {
         final int bgWidth = bgImage.getWidth();
         final int bgHeight = bgImage.getHeight();
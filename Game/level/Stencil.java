@@ -1,5 +1,7 @@
 package game.level;
 
+import java.util.Arrays;
+
 /*
  * Copyright 2009 Volker Oth
  *
@@ -77,12 +79,33 @@ public class Stencil {
      */
     private static final int ID_SHIFT_VAL = 16;
 
-    /** array which represents the stencil buffer. */
-    private int[] stencil;
+    /** number of bits of the position inside a chunk. */
+    private static final int CHUNK_SHIFT = 8;
+    /** number of pixels in a chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /** mask to get the position inside a chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /** bytes per pixel. */
+    private static final int BYTES_PER_PIXEL = 4;
+    /** chunk shared by all empty parts of all stencils - never written. */
+    private static final int[] EMPTY_CHUNK = new int[CHUNK_SIZE];
+
+    /*
+     * The stencil buffer is split into chunks of CHUNK_SIZE consecutive
+     * positions. Chunks are only allocated when something else than MSK_EMPTY
+     * is written into them, so the empty parts of a large level (the sky,
+     * the space between islands) cost nothing but a reference.
+     */
+    /** chunks which represent the stencil buffer. */
+    private final int[][] chunks;
     /** width of stencil (=width of level). */
-    private int width;
+    private final int width;
     /** height of stencil (=height of level). */
-    private int height;
+    private final int height;
+    /** number of allocated chunks. */
+    private int numChunks;
+    /** number of pixel modifications (wraps around). */
+    private int modCount;
 
     /**
      * Constructor.
@@ -93,18 +116,34 @@ public class Stencil {
     public Stencil(final int w, final int h) {
         width = w;
         height = h;
-        stencil = new int[width * height];
+        chunks = new int[(width * height + CHUNK_MASK) >> CHUNK_SHIFT][];
+        Arrays.fill(chunks, EMPTY_CHUNK);
     }
 
     /**
-     * Clear stencil (fill with MSK_EMPTY).
+     * Clear stencil (fill with MSK_EMPTY). All chunks are released.
      */
     public void clear() {
-        int size = width * height;
+        Arrays.fill(chunks, EMPTY_CHUNK);
+        numChunks = 0;
+    }
+
+    /**
+     * Get the chunk containing a position for writing, allocate it if needed.
+     *
+     * @param pos position (x+y*width)
+     * @return chunk containing the position
+     */
+    private int[] chunk(final int pos) {
+        int[] c = chunks[pos >> CHUNK_SHIFT];
 
-        for (int idx = 0; idx < size; idx++) {
-            stencil[idx] = MSK_EMPTY;
+        if (c == EMPTY_CHUNK) {
+            c = new int[CHUNK_SIZE];
+            chunks[pos >> CHUNK_SHIFT] = c;
+            numChunks++;
         }
+
+        return c;
     }
 
     /**
@@ -115,17 +154,21 @@ public class Stencil {
      * @param val stencil value
      */
     public void set(final int x, final int y, final int val) {
-        stencil[x + y * width] = val;
+        set(x + y * width, val);
     }
 
     /**
      * Set given value at given position.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @param val stencil value
      */
     public void set(final int pos, final int val) {
-        stencil[pos] = val;
+        if (val != MSK_EMPTY || chunks[pos >> CHUNK_SHIFT] != EMPTY_CHUNK) {
+            chunk(pos)[pos & CHUNK_MASK] = val;
+        }
+
+        modCount++;
     }
 
     /**
@@ -136,17 +179,17 @@ public class Stencil {
      * @return stencil value
      */
     public int get(final int x, final int y) {
-        return stencil[x + y * width];
+        return get(x + y * width);
     }
 
     /**
      * Get stencil value at given position.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @return stencil value
      */
     public int get(final int pos) {
-        return stencil[pos];
+        return chunks[pos >> CHUNK_SHIFT][pos & CHUNK_MASK];
     }
 
     /**
@@ -157,18 +200,23 @@ public class Stencil {
      * @param val stencil value
      */
     public void and(final int x, final int y, final int val) {
-        int pos = x + y * width;
-        stencil[pos] = (stencil[pos] & val);
+        and(x + y * width, val);
     }
 
     /**
      * AND given value with existing value at given position.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @param val stencil value
      */
     public void and(final int pos, final int val) {
-        stencil[pos] = (stencil[pos] & val);
+        final int[] c = chunks[pos >> CHUNK_SHIFT];
+
+        if (c != EMPTY_CHUNK) {
+            c[pos & CHUNK_MASK] &= val;
+        }
+
+        modCount++;
     }
 
     /**
@@ -179,18 +227,21 @@ public class Stencil {
      * @param val stencil value
      */
     public void or(final int x, final int y, final int val) {
-        int pos = x + y * width;
-        stencil[pos] = (stencil[pos] | val);
+        or(x + y * width, val);
     }
 
     /**
      * OR given value with existing value at given position.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @param val stencil value
      */
     public void or(final int pos, final int val) {
-        stencil[pos] = (stencil[pos] | val);
+        if (val != MSK_EMPTY) {
+            chunk(pos)[pos & CHUNK_MASK] |= val;
+        }
+
+        modCount++;
     }
 
     /**
@@ -201,17 +252,17 @@ public class Stencil {
      * @param id identifier (must not exceed 16bit)
      */
     public void setID(final int x, final int y, final int id) {
-        stencil[x + y * width] |= (id << ID_SHIFT_VAL);
+        setID(x + y * width, id);
     }
 
     /**
      * Set only the ID without changing the lower bitmask part.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @param id  identifier (must not exceed 16bit)
      */
     public void setID(final int pos, final int id) {
-        stencil[pos] |= (id << ID_SHIFT_VAL);
+        or(pos, id << ID_SHIFT_VAL);
     }
 
     /**
@@ -222,17 +273,17 @@ public class Stencil {
      * @return identifier
      */
     public int getID(final int x, final int y) {
-        return (stencil[x + y * width] >> ID_SHIFT_VAL);
+        return get(x + y * width) >> ID_SHIFT_VAL;
     }
 
     /**
      * Get the identifier from the stencil.
      *
-     * @param pos position (x*width+y)
+     * @param pos position (x+y*width)
      * @return identifier
      */
     public int getID(final int pos) {
-        return (stencil[pos] >> ID_SHIFT_VAL);
+        return get(pos) >> ID_SHIFT_VAL;
     }
 
     /**
@@ -255,6 +306,25 @@ public class Stencil {
         return id << ID_SHIFT_VAL;
     }
 
+    /**
+     * Get the number of pixel modifications since the stencil was created.
+     * Only differences between two calls are meaningful (the counter wraps).
+     *
+     * @return number of calls of set(), and(), or() and setID()
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Get the memory used by the stencil buffer.
+     *
+     * @return number of bytes of all allocated chunks
+     */
+    public long getMemoryBytes() {
+        return (long) numChunks * CHUNK_SIZE * BYTES_PER_PIXEL;
+    }
+
     /**
      * Get width of stencil.
      *
@@ -1,6 +1,5 @@
 package game.level;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
@@ -50,6 +49,10 @@ public final class TextScreen {
      * Rotation factor = 0.1.
      */
     private static final double FACTOR_POINT_ONE = 0.1;
+    /**
+     * Number of cached sizes of the rotation animation (1 / 0.1).
+     */
+    private static final int ROT_STEPS = 10;
     /**
      * Delta value used for rotation animation = -0.1.
      */
@@ -162,14 +165,13 @@ public final class TextScreen {
     private static double rotDelta;
     /** source image for rotation animation. */
     private static BufferedImage imgSrc;
-    /** target image for rotation animation. */
-    private static BufferedImage imgTrg;
-    /** graphics for rotation animation. */
-    private static Graphics2D imgGfx;
+    /**
+     * cached frames of the rotation animation: [flipped][size step], created
+     * when needed.
+     */
+    private static BufferedImage[][] rotImg;
     /** flip state for rotation: true - image is flipped in Y direction. */
     private static boolean flip;
-    /** affine transformation used for rotation animation. */
-    private static AffineTransform at;
     /**
      * Counter used to trigger the rotation animation (in animation update
      * frames).
@@ -189,10 +191,8 @@ public final class TextScreen {
     private static int scrollCharCtr;
     /** counter for scrolled pixels. */
     private static int scrollPixCtr;
-    /** image used for scroller. */
+    /** image of the whole scroll text (plus the wrapped around start). */
     private static BufferedImage scrollerImg;
-    /** graphics used for scroller. */
-    private static Graphics2D scrollerGfx;
     /** screen type to display. */
     private static Mode mode;
     /** synchronization monitor. */
@@ -437,22 +437,23 @@ public final class TextScreen {
             rotFact = 1.0;
             rotDelta = DELTA_NEG_POINT_ONE;
             imgSrc = MiscGfx.getImage(MiscGfx.Index.LEMMINI);
-            at = new AffineTransform();
+            rotImg = new BufferedImage[2][ROT_STEPS + 1];
             flip = false;
             rotCtr = 0;
             flipCtr = 0;
-            imgTrg = ToolBox.createImage(imgSrc.getWidth(), imgSrc.getHeight(),
-                    Transparency.TRANSLUCENT);
-            imgGfx = imgTrg.createGraphics();
-            imgGfx.setBackground(new Color(0, 0, 0, 0)); // invisible
             scrollCharCtr = 0;
             scrollPixCtr = 0;
 
+            // render the scroll text only once, the scroller just moves the
+            // visible window over it
+            final String text = SCROLL_TEXT
+                    + SCROLL_TEXT.substring(0, SCROLL_WIDTH + 1);
             scrollerImg = ToolBox.createImage(
-                    LemmFont.getWidth() * (1 + SCROLL_WIDTH), SCROLL_HEIGHT,
+                    LemmFont.getWidth() * text.length(), LemmFont.getHeight(),
                     Transparency.BITMASK);
-            scrollerGfx = scrollerImg.createGraphics();
-            scrollerGfx.setBackground(new Color(0, 0, 0, 0));
+            final Graphics2D scrollerGfx = scrollerImg.createGraphics();
+            LemmFont.strImage(scrollerGfx, text, LemmFont.Color.BLUE);
+            scrollerGfx.dispose();
 
             textScreen = new TextDialog(width, height);
         }
@@ -506,20 +507,14 @@ public final class TextScreen {
                 }
             }
 
-            if (flip) {
-                at.setToScale(1, -rotFact);
-                at.translate(1, -imgSrc.getHeight());
-            } else {
-                at.setToScale(1, rotFact);
-            }
+            final int step = (int) Math.round(rotFact * ROT_STEPS);
 
-            final AffineTransformOp op = new AffineTransformOp(at,
-                    AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-            imgGfx.clearRect(0, 0, imgTrg.getWidth(), imgTrg.getHeight());
-            op.filter(imgSrc, imgTrg);
-            textScreen.drawImage(imgTrg,
-                    Y_120 - (int) (imgSrc.getHeight() / 2 * Math.abs(rotFact)
-                            + Constants.HALF));
+            if (step > 0) {
+                textScreen.drawImage(getRotImage(flip, step),
+                        Y_120 - (int) (imgSrc.getHeight() / 2
+                                * ((double) step / ROT_STEPS)
+                                + Constants.HALF));
+            }
         } else {
             // display original image
             flipCtr = 0;
@@ -527,31 +522,14 @@ public final class TextScreen {
         }
 
         // manage scroller
-        String out;
-        boolean wrapAround = false;
-        int endIdx = scrollCharCtr + SCROLL_WIDTH + 1;
-
-        if (endIdx > SCROLL_TEXT.length()) {
-            endIdx = SCROLL_TEXT.length();
-            wrapAround = true;
-        }
-
-        out = SCROLL_TEXT.substring(scrollCharCtr, endIdx);
-
-        if (wrapAround) {
-            out += SCROLL_TEXT.substring(0,
-                    scrollCharCtr + SCROLL_WIDTH + 1 - SCROLL_TEXT.length());
-        }
-
-        scrollerGfx.clearRect(0, 0, scrollerImg.getWidth(),
-                scrollerImg.getHeight());
-        LemmFont.strImage(scrollerGfx, out, LemmFont.Color.BLUE);
         final int w = SCROLL_WIDTH * LemmFont.getWidth();
         final int dx = (textScreen.getScreen().getWidth() - w) / 2;
         final int dy = (textScreen.getScreen().getHeight() / 2) + SCROLL_Y;
-        textScreen.getScreen().createGraphics().drawImage(scrollerImg, dx, dy,
-                dx + w, dy + SCROLL_HEIGHT, scrollPixCtr, 0, scrollPixCtr + w,
-                SCROLL_HEIGHT / 2, null);
+        final int sx = scrollCharCtr * LemmFont.getWidth() + scrollPixCtr;
+        final Graphics2D g = textScreen.getScreen().createGraphics();
+        g.drawImage(scrollerImg, dx, dy, dx + w, dy + SCROLL_HEIGHT, sx, 0,
+                sx + w, SCROLL_HEIGHT / 2, null);
+        g.dispose();
 
         scrollPixCtr += SCROLL_STEP;
 
@@ -564,6 +542,40 @@ public final class TextScreen {
         }
     }
 
+    /**
+     * Get a frame of the rotation animation. Each frame is only rendered the
+     * first time it's needed.
+     *
+     * @param flipped true: image is flipped in Y direction
+     * @param step    size of the image in 1/ROT_STEPS of the original height
+     * @return frame of the rotation animation
+     */
+    private static BufferedImage getRotImage(final boolean flipped,
+            final int step) {
+        final int f = flipped ? 1 : 0;
+
+        if (rotImg[f][step] == null) {
+            final double fact = (double) step / ROT_STEPS;
+            final AffineTransform at = new AffineTransform();
+
+            if (flipped) {
+                at.setToScale(1, -fact);
+                at.translate(1, -imgSrc.getHeight());
+            } else {
+                at.setToScale(1, fact);
+            }
+
+            final BufferedImage img = ToolBox.createImage(imgSrc.getWidth(),
+                    imgSrc.getHeight(), Transparency.TRANSLUCENT);
+            final AffineTransformOp op = new AffineTransformOp(at,
+                    AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+            op.filter(imgSrc, img);
+            rotImg[f][step] = img;
+        }
+
+        return rotImg[f][step];
+    }
+
     /**
      * Update the briefing screen.
      */
@@ -0,0 +1,790 @@
+package game.level;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import game.Core;
+import game.Terrain;
+import lemmini.Constants;
+import tools.Props;
+import tools.Resources;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Preview images of levels at the scale of the mini map. Thumbnails are
+ * rendered by a pool with one thread per core without touching the game's
+ * level state: the level file is parsed, the style's tiles and objects are
+ * decoded once per style and the level is painted in bands of one thumbnail
+ * row, so memory stays small even for wide levels. Rendered thumbnails are
+ * kept in memory and in a disk cache named after a SHA-256 hash of the level
+ * file and of all files of the style, so changed levels and styles are
+ * rendered again. A style is only decoded if a thumbnail is not cached.
+ *
+ * @author Volker Oth
+ */
+public final class ThumbnailService {
+    /** name of the cache folder inside the resource folder. */
+    private static final String CACHE_DIR = "thumbcache";
+    /** image format of cache files. */
+    private static final String FORMAT = "png";
+    /** extension of cache files. */
+    private static final String EXTENSION = "." + FORMAT;
+    /** extension of cache files which are being written. */
+    private static final String TEMP_EXTENSION = ".tmp";
+    /** version of the renderer (part of the cache file name). */
+    private static final int RENDER_VERSION = 2;
+    /** algorithm of the hash used to name cache files. */
+    private static final String HASH = "SHA-256";
+    /** number of bits to shift for the next byte of a length. */
+    private static final int BYTE_BITS = 8;
+    /** horizontal scale of a classic level (same as the mini map). */
+    public static final int X_SCALE = 16;
+    /** vertical scale (same as the mini map). */
+    public static final int Y_SCALE = 8;
+    /** number of thumbnails kept in memory. */
+    private static final int MEMORY_SIZE = 256;
+    /** load factor of the map of thumbnails in memory. */
+    private static final float LOAD_FACTOR = 0.75f;
+    /** default number of tiles of a style. */
+    private static final int DEFAULT_TILES = 64;
+
+    /** number of the next renderer thread. */
+    private static final AtomicInteger THREAD_NUM = new AtomicInteger();
+    /** background threads rendering the thumbnails (one per core). */
+    private static final ExecutorService RENDERER = Executors
+            .newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    r -> {
+                        final Thread t = new Thread(r, "Thumbnail renderer "
+                                + THREAD_NUM.incrementAndGet());
+                        t.setDaemon(true);
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    });
+    /** decoded styles by name. */
+    private static final Map<String, CompletableFuture<Style>> STYLES =
+            new ConcurrentHashMap<>();
+    /** hashes of all files of the styles by name. */
+    private static final Map<String, CompletableFuture<byte[]>> FINGERPRINTS =
+            new ConcurrentHashMap<>();
+    /** thumbnails which are queued or being rendered by level path. */
+    private static final Map<String,
+            CompletableFuture<BufferedImage>> PENDING =
+                    new ConcurrentHashMap<>();
+    /** recently used thumbnails by level path. */
+    private static final Map<String, BufferedImage> MEMORY = Collections
+            .synchronizedMap(new LinkedHashMap<String, BufferedImage>(
+                    MEMORY_SIZE, LOAD_FACTOR, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, BufferedImage> e) {
+                    return size() > MEMORY_SIZE;
+                }
+            });
+    /** number of requests found in memory or in the cache. */
+    private static final AtomicLong HITS = new AtomicLong();
+    /** number of requests which had to be rendered. */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * Reads something from the files of a style.
+     *
+     * @param <T> type of the result
+     */
+    private interface StyleReader<T> {
+        /**
+         * Read from the files of a style.
+         *
+         * @param name name of the style
+         * @return result
+         * @throws IOException if the style can't be read
+         */
+        T read(String name) throws IOException;
+    }
+
+    /**
+     * Tiles, object images and background color of a style.
+     */
+    private static final class Style {
+        /** ARGB pixels of the tiles (null if missing). */
+        private final int[][] tiles;
+        /** widths of the tiles. */
+        private final int[] tileWidths;
+        /** ARGB pixels of the objects' first frames (null if missing). */
+        private final int[][] objects;
+        /** widths of the objects. */
+        private final int[] objectWidths;
+        /** background color. */
+        private final int bgCol;
+
+        /**
+         * Load and decode a style.
+         *
+         * @param name name of the style
+         * @throws IOException if the style's ini file can't be read
+         */
+        Style(final String name) throws IOException {
+            final String prefix = getStylePrefix(name);
+            final Props props = new Props();
+
+            if (!props.load(Core.findResource(prefix + ".ini"))) {
+                throw new IOException("Can't read " + prefix + ".ini");
+            }
+
+            final int numTiles = getNumTiles(props);
+            tiles = new int[numTiles][];
+            tileWidths = new int[numTiles];
+
+            for (int n = 0; n < numTiles; n++) {
+                final BufferedImage img = read(getTileName(prefix, n));
+
+                if (img != null) {
+                    tileWidths[n] = img.getWidth();
+                    tiles[n] = img.getRGB(0, 0, img.getWidth(),
+                            img.getHeight(), null, 0, img.getWidth());
+                }
+            }
+
+            final int numObjects = getNumObjects(props);
+            objects = new int[numObjects][];
+            objectWidths = new int[numObjects];
+
+            for (int n = 0; n < numObjects; n++) {
+                final BufferedImage img = read(getObjectName(prefix, n));
+                final int frames = Math.max(1, props.get("frames_" + n, 1));
+
+                if (img != null) {
+                    objectWidths[n] = img.getWidth();
+                    objects[n] = img.getRGB(0, 0, img.getWidth(),
+                            img.getHeight() / frames, null, 0,
+                            img.getWidth());
+                }
+            }
+
+            bgCol = props.get("bgColor", 0) | Constants.MAX_ALPHA;
+        }
+
+        /**
+         * Decode an image of the style without the AWT toolkit.
+         *
+         * @param name resource name
+         * @return image or null if it doesn't exist or can't be decoded
+         */
+        private static BufferedImage read(final String name) {
+            try (InputStream in = Resources.open(Core.findResource(name))) {
+                return ImageIO.read(in);
+            } catch (final IOException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private ThumbnailService() {
+
+    }
+
+    /**
+     * Check whether the disk cache is enabled (property "thumbnailCache").
+     *
+     * @return true if the disk cache is enabled
+     */
+    public static boolean isCacheEnabled() {
+        return Core.getProgramProps().get("thumbnailCache", true);
+    }
+
+    /**
+     * Get the thumbnail of a level. Thumbnails which are not in memory are
+     * loaded from the disk cache or rendered by the background threads.
+     *
+     * @param levelPath resource path of the level file
+     * @return future thumbnail (completes with null if the level can't be
+     *         read)
+     */
+    public static CompletableFuture<BufferedImage> get(final String levelPath) {
+        final BufferedImage img = MEMORY.get(levelPath);
+
+        if (img != null) {
+            HITS.incrementAndGet();
+            return CompletableFuture.completedFuture(img);
+        }
+
+        return PENDING.computeIfAbsent(levelPath,
+                p -> CompletableFuture.supplyAsync(() -> load(p), RENDERER)
+                        .whenComplete((i, ex) -> PENDING.remove(p)));
+    }
+
+    /**
+     * Queue the thumbnails of levels, e.g. of all level packs at startup, so
+     * they are ready when they are shown.
+     *
+     * @param levelPaths resource paths of the level files
+     */
+    public static void prescan(final Collection<String> levelPaths) {
+        for (final String path : levelPaths) {
+            get(path);
+        }
+    }
+
+    /**
+     * Get the number of requests which were found in memory or in the cache.
+     *
+     * @return number of hits
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * Get the number of requests which had to be rendered.
+     *
+     * @return number of misses
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Load a thumbnail from the disk cache or render it. The level file is
+     * read once and the style is only decoded if the thumbnail has to be
+     * rendered.
+     *
+     * @param levelPath resource path of the level file
+     * @return thumbnail or null if the level can't be read
+     */
+    private static BufferedImage load(final String levelPath) {
+        try {
+            final byte[] data = Resources.readAllBytes(levelPath);
+            final Props p = new Props();
+
+            if (!p.load(data)) {
+                return null;
+            }
+
+            final String styleName = p.get("style", "");
+            final File f = getCacheFile(data,
+                    getOnce(FINGERPRINTS, styleName,
+                            ThumbnailService::getFingerprint));
+            BufferedImage img = null;
+
+            if (isCacheEnabled() && f.isFile()) {
+                img = ImageIO.read(f);
+            }
+
+            if (img != null) {
+                HITS.incrementAndGet();
+            } else {
+                MISSES.incrementAndGet();
+                img = render(p, getOnce(STYLES, styleName, Style::new));
+
+                if (isCacheEnabled()) {
+                    write(img, f);
+                }
+            }
+
+            MEMORY.put(levelPath, img);
+            return img;
+        } catch (final IOException ex) {
+            System.out.println("Can't create thumbnail of " + levelPath);
+            return null;
+        }
+    }
+
+    /**
+     * Get something read from the files of a style. It is only read once per
+     * style, even if several threads ask for it at the same time.
+     *
+     * @param <T>    type of the result
+     * @param map    results by name of the style
+     * @param name   name of the style
+     * @param reader reads the result from the files of the style
+     * @return result
+     * @throws IOException if the style can't be read
+     */
+    private static <T> T getOnce(final Map<String, CompletableFuture<T>> map,
+            final String name, final StyleReader<T> reader)
+            throws IOException {
+        final CompletableFuture<T> f = new CompletableFuture<>();
+        final CompletableFuture<T> old = map.putIfAbsent(name, f);
+
+        if (old == null) {
+            try {
+                f.complete(reader.read(name));
+            } catch (final IOException ex) {
+                map.remove(name);
+                f.completeExceptionally(ex);
+                throw ex;
+            }
+
+            return f.join();
+        }
+
+        try {
+            return old.join();
+        } catch (final RuntimeException ex) {
+            throw new IOException("Can't read style " + name, ex);
+        }
+    }
+
+    /**
+     * Get the hash of all files of a style: the ini file and the images of
+     * all tiles and objects. The images are read, but not decoded.
+     *
+     * @param name name of the style
+     * @return SHA-256 hash
+     * @throws IOException if the style's ini file can't be read
+     */
+    private static byte[] getFingerprint(final String name)
+            throws IOException {
+        final String prefix = getStylePrefix(name);
+        final byte[] ini = Resources
+                .readAllBytes(Core.findResource(prefix + ".ini"));
+        final Props props = new Props();
+
+        if (!props.load(ini)) {
+            throw new IOException("Can't read " + prefix + ".ini");
+        }
+
+        final MessageDigest md = newDigest();
+        update(md, ini);
+        final List<String> images = new ArrayList<>();
+
+        for (int n = 0; n < getNumTiles(props); n++) {
+            images.add(getTileName(prefix, n));
+        }
+
+        for (int n = 0; n < getNumObjects(props); n++) {
+            images.add(getObjectName(prefix, n));
+        }
+
+        for (final String image : images) {
+            final String res = Core.findResource(image);
+
+            if (Resources.exists(res)) {
+                update(md, Resources.readAllBytes(res));
+            } else {
+                md.update((byte) 0);
+            }
+        }
+
+        return md.digest();
+    }
+
+    /**
+     * Get the common prefix of the resource names of a style's files.
+     *
+     * @param name name of the style
+     * @return prefix of the resource names
+     */
+    private static String getStylePrefix(final String name) {
+        return "styles/" + name + "/" + name;
+    }
+
+    /**
+     * Get the number of tiles of a style.
+     *
+     * @param props properties of the style
+     * @return number of tiles
+     */
+    private static int getNumTiles(final Props props) {
+        return props.get("tiles", DEFAULT_TILES);
+    }
+
+    /**
+     * Get the number of objects of a style.
+     *
+     * @param props properties of the style
+     * @return number of objects
+     */
+    private static int getNumObjects(final Props props) {
+        int numObjects = 0;
+
+        while (props.get("frames_" + numObjects, -1) >= 0) {
+            numObjects++;
+        }
+
+        return numObjects;
+    }
+
+    /**
+     * Get the resource name of a tile image.
+     *
+     * @param prefix prefix of the style's resource names
+     * @param n      number of the tile
+     * @return resource name
+     */
+    private static String getTileName(final String prefix, final int n) {
+        return prefix + "_" + n + ".gif";
+    }
+
+    /**
+     * Get the resource name of an object image.
+     *
+     * @param prefix prefix of the style's resource names
+     * @param n      number of the object
+     * @return resource name
+     */
+    private static String getObjectName(final String prefix, final int n) {
+        return prefix + "o_" + n + ".gif";
+    }
+
+    /**
+     * Render the thumbnail of a level. The level is painted one band of
+     * thumbnail rows at a time and each block of the band is averaged
+     * into one pixel like in the mini map. Transparent pixels show the
+     * background color.
+     *
+     * @param p     properties of the level
+     * @param style decoded style of the level
+     * @return thumbnail
+     */
+    private static BufferedImage render(final Props p, final Style style) {
+        final int width = Level.clampWidth(p.get("width", Level.WIDTH));
+        final int scaleX = Level.scaleToClassicWidth(width, X_SCALE);
+        final int tw = width / scaleX;
+        final int height = Level.clampHeight(p.get("height", Level.HEIGHT));
+        final int scaleY = Level.scaleToClassicHeight(height, Y_SCALE);
+        final int th = height / scaleY;
+        final List<Terrain> terrain = readTerrain(p);
+        final List<LvlObject> objects = readObjects(p);
+        final int[] terrainBand = new int[width * scaleY];
+        final int[] objectBand = new int[width * scaleY];
+        final int[] pixels = new int[tw * th];
+        final int area = scaleX * scaleY;
+
+        for (int ty = 0; ty < th; ty++) {
+            final int y0 = ty * scaleY;
+            Arrays.fill(terrainBand, 0);
+            Arrays.fill(objectBand, 0);
+
+            for (final Terrain t : terrain) {
+                paintTerrain(terrainBand, width, y0, style, t);
+            }
+
+            for (final LvlObject o : objects) {
+                paintObject(objectBand, terrainBand, width, y0, style, o);
+            }
+
+            for (int tx = 0; tx < tw; tx++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+
+                for (int y = 0; y < scaleY; y++) {
+                    int pos = y * width + tx * scaleX;
+
+                    for (int x = 0; x < scaleX; x++, pos++) {
+                        int c = objectBand[pos];
+
+                        if ((c & Constants.MAX_ALPHA) == 0) {
+                            c = terrainBand[pos];
+                        }
+
+                        if ((c & Constants.MAX_ALPHA) == 0) {
+                            c = style.bgCol;
+                        }
+
+                        r += (c >> Constants.SHIFT_16)
+                                & Constants.EIGHT_BIT_MASK;
+                        g += (c >> Constants.SHIFT_8)
+                                & Constants.EIGHT_BIT_MASK;
+                        b += c & Constants.EIGHT_BIT_MASK;
+                    }
+                }
+
+                pixels[ty * tw + tx] = Constants.MAX_ALPHA
+                        | ((r / area) << Constants.SHIFT_16)
+                        | ((g / area) << Constants.SHIFT_8) | (b / area);
+            }
+        }
+
+        final BufferedImage img = new BufferedImage(tw, th,
+                BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, tw, th, pixels, 0, tw);
+        return img;
+    }
+
+    /**
+     * Paint the rows of a terrain piece which lie inside a band. Same rules
+     * as the level painter: pieces may be upside down, may not overwrite
+     * existing terrain or may remove it.
+     *
+     * @param band  ARGB pixels of the band (all rows of the band)
+     * @param width width of the level
+     * @param y0    first row of the band in the level
+     * @param style decoded style
+     * @param t     terrain piece
+     */
+    private static void paintTerrain(final int[] band, final int width,
+            final int y0, final Style style, final Terrain t) {
+        final int id = t.getId();
+
+        if (id < 0 || id >= style.tiles.length || style.tiles[id] == null) {
+            return;
+        }
+
+        final int[] source = style.tiles[id];
+        final int w = style.tileWidths[id];
+        final int h = source.length / w;
+        final boolean upsideDown = (t.getModifier()
+                & Terrain.MODE_UPSIDE_DOWN) != 0;
+        final boolean overwrite = (t.getModifier()
+                & Terrain.MODE_NO_OVERWRITE) == 0;
+        final boolean remove = (t.getModifier() & Terrain.MODE_REMOVE) != 0;
+        final int yStart = Math.max(y0, t.getyPos());
+        final int yEnd = Math.min(y0 + band.length / width,
+                t.getyPos() + h);
+
+        for (int y = yStart; y < yEnd; y++) {
+            final int sy = y - t.getyPos();
+            final int sLine = (upsideDown ? h - sy - 1 : sy) * w;
+            final int bLine = (y - y0) * width + t.getxPos();
+
+            for (int x = Math.max(0, -t.getxPos()); x < w
+                    && x + t.getxPos() < width; x++) {
+                final int col = source[sLine + x];
+
+                if ((col & Constants.MAX_ALPHA) == 0) {
+                    continue;
+                }
+
+                if (!overwrite) {
+                    if ((band[bLine + x] & Constants.MAX_ALPHA) == 0) {
+                        band[bLine + x] = col;
+                    }
+                } else if (remove) {
+                    band[bLine + x] = 0;
+                } else {
+                    band[bLine + x] = col;
+                }
+            }
+        }
+    }
+
+    /**
+     * Paint the rows of the first frame of an object which lie inside a band.
+     * Like in the game, objects may be painted everywhere, only on terrain,
+     * only where there's no terrain or not at all.
+     *
+     * @param band    ARGB pixels of the objects in the band (all rows)
+     * @param terrain ARGB pixels of the terrain in the band
+     * @param width   width of the level
+     * @param y0      first row of the band in the level
+     * @param style   decoded style
+     * @param o       object
+     */
+    private static void paintObject(final int[] band, final int[] terrain,
+            final int width, final int y0, final Style style,
+            final LvlObject o) {
+        final int id = o.getId();
+        final int mode = o.getPaintMode();
+
+        if (id < 0 || id >= style.objects.length || style.objects[id] == null
+                || mode == LvlObject.MODE_HIDDEN) {
+            return;
+        }
+
+        final int[] source = style.objects[id];
+        final int w = style.objectWidths[id];
+        final int h = source.length / w;
+        final int yStart = Math.max(y0, o.getyPos());
+        final int yEnd = Math.min(y0 + band.length / width,
+                o.getyPos() + h);
+
+        for (int y = yStart; y < yEnd; y++) {
+            final int sy = y - o.getyPos();
+            final int sLine = (o.isUpsideDown() ? h - sy - 1 : sy) * w;
+            final int bLine = (y - y0) * width + o.getxPos();
+
+            for (int x = Math.max(0, -o.getxPos()); x < w
+                    && x + o.getxPos() < width; x++) {
+                final int col = source[sLine + x];
+
+                if ((col & Constants.MAX_ALPHA) == 0) {
+                    continue;
+                }
+
+                final boolean onTerrain = (terrain[bLine + x]
+                        & Constants.MAX_ALPHA) != 0;
+
+                if (mode == LvlObject.MODE_FULL
+                        || (mode == LvlObject.MODE_VIS_ON_TERRAIN && onTerrain)
+                        || (mode == LvlObject.MODE_NO_OVERWRITE
+                                && !onTerrain)) {
+                    band[bLine + x] = col;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the terrain pieces of a level.
+     *
+     * @param p properties of the level
+     * @return terrain pieces
+     */
+    private static List<Terrain> readTerrain(final Props p) {
+        final List<Terrain> terrain = new ArrayList<>();
+        final int[] def = {-1};
+
+        for (int i = 0; true; i++) {
+            final int[] val = p.get("terrain_" + i, def);
+
+            if (val.length != LevelLoader.TERRAIN_X_LENGTH) {
+                return terrain;
+            }
+
+            terrain.add(new Terrain(val));
+        }
+    }
+
+    /**
+     * Read the objects of a level.
+     *
+     * @param p properties of the level
+     * @return objects
+     */
+    private static List<LvlObject> readObjects(final Props p) {
+        final List<LvlObject> objects = new ArrayList<>();
+        final int[] def = {-1};
+
+        for (int i = 0; true; i++) {
+            final int[] val = p.get("object_" + i, def);
+
+            if (val.length != LevelLoader.OBJECT_X_LENGTH) {
+                return objects;
+            }
+
+            objects.add(new LvlObject(val));
+        }
+    }
+
+    /**
+     * Write a thumbnail into the disk cache. The file is written under a
+     * temporary name and renamed when complete.
+     *
+     * @param img thumbnail
+     * @param f   cache file to create
+     */
+    private static void write(final BufferedImage img, final File f) {
+        Path temp = null;
+
+        try {
+            Files.createDirectories(f.toPath().getParent());
+            temp = Files.createTempFile(f.toPath().getParent(), f.getName(),
+                    TEMP_EXTENSION);
+
+            if (!ImageIO.write(img, FORMAT, temp.toFile())) {
+                throw new IOException("No writer for " + FORMAT);
+            }
+
+            try {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException ex) {
+            System.out.println("Can't write thumbnail " + f.getName());
+
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (final IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+
+    /**
+     * Get the cache file of a level. It is named after the SHA-256 hash of
+     * the level file and the style's hash.
+     *
+     * @param data        data of the level file
+     * @param fingerprint hash of all files of the level's style
+     * @return cache file
+     */
+    private static File getCacheFile(final byte[] data,
+            final byte[] fingerprint) {
+        final MessageDigest md = newDigest();
+        update(md, data);
+        md.update(fingerprint);
+        return new File(Core.getResourcePath() + CACHE_DIR,
+                HexFormat.of().formatHex(md.digest()) + "_" + RENDER_VERSION
+                        + EXTENSION);
+    }
+
+    /**
+     * Create a digest for the hash used to name cache files.
+     *
+     * @return SHA-256 message digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH);
+        } catch (final NoSuchAlgorithmException ex) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Add the length and the contents of a file to a digest, so the files
+     * can't be confused when their contents are joined differently.
+     *
+     * @param md   message digest
+     * @param data contents of the file
+     */
+    private static void update(final MessageDigest md, final byte[] data) {
+        for (int i = 0; i < Integer.BYTES; i++) {
+            md.update((byte) (data.length >>> (i * BYTE_BITS)));
+        }
+
+        md.update(data);
+    }
+}
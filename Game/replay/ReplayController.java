@@ -16,7 +16,7 @@ package game.replay;
  */
 
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
+import java.util.List;
 
 import game.Core;
 import game.GameController;
@@ -171,8 +171,7 @@ public final class ReplayController {
      *
      * @param lemmings List of all active Lemmings in the Level.
      */
-    public static void handleReplayModeUpdate(
-            final LinkedList<Lemming> lemmings) {
+    public static void handleReplayModeUpdate(final List<Lemming> lemmings) {
         // replay mode
         ReplayEvent r;
 
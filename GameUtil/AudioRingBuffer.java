@@ -0,0 +1,124 @@
+package gameutil;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Lock-free ring buffer for audio data with exactly one writing and one
+ * reading thread. The read and write positions only ever grow, so the fill
+ * level is their difference; each position is only changed by its own thread.
+ *
+ * @author Volker Oth
+ */
+public class AudioRingBuffer {
+    /** buffer holding the audio bytes. */
+    private final byte[] buffer;
+    /** mask to wrap positions into the buffer (capacity - 1). */
+    private final int mask;
+    /** total number of bytes written (only changed by the writer). */
+    private volatile long writePos;
+    /** total number of bytes read (only changed by the reader). */
+    private volatile long readPos;
+
+    /**
+     * Constructor.
+     *
+     * @param minCapacity minimum capacity in bytes (rounded up to a power of
+     *                    two)
+     */
+    public AudioRingBuffer(final int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, minCapacity));
+
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+
+        buffer = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Get capacity.
+     *
+     * @return capacity in bytes
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Get number of bytes which can be read.
+     *
+     * @return number of bytes which can be read
+     */
+    public int available() {
+        return (int) (writePos - readPos);
+    }
+
+    /**
+     * Get number of bytes which can be written.
+     *
+     * @return number of bytes which can be written
+     */
+    public int free() {
+        return buffer.length - available();
+    }
+
+    /**
+     * Write bytes. Must only be called by the writing thread.
+     *
+     * @param src source array
+     * @param ofs offset in source array
+     * @param len number of bytes to write
+     * @return number of bytes written (less than len if the buffer is full)
+     */
+    public int write(final byte[] src, final int ofs, final int len) {
+        final long wp = writePos;
+        final int num = Math.min(len, buffer.length - (int) (wp - readPos));
+        final int pos = (int) wp & mask;
+        final int first = Math.min(num, buffer.length - pos);
+        System.arraycopy(src, ofs, buffer, pos, first);
+        System.arraycopy(src, ofs + first, buffer, 0, num - first);
+        writePos = wp + num;
+        return num;
+    }
+
+    /**
+     * Read bytes. Must only be called by the reading thread.
+     *
+     * @param dst target array
+     * @param ofs offset in target array
+     * @param len number of bytes to read
+     * @return number of bytes read (less than len if the buffer is empty)
+     */
+    public int read(final byte[] dst, final int ofs, final int len) {
+        final long rp = readPos;
+        final int num = Math.min(len, (int) (writePos - rp));
+        final int pos = (int) rp & mask;
+        final int first = Math.min(num, buffer.length - pos);
+        System.arraycopy(buffer, pos, dst, ofs, first);
+        System.arraycopy(buffer, 0, dst, ofs + first, num - first);
+        readPos = rp + num;
+        return num;
+    }
+
+    /**
+     * Discard all buffered bytes. Must only be called by the reading thread.
+     */
+    public void clear() {
+        readPos = writePos;
+    }
+}
@@ -0,0 +1,34 @@
+package gameutil;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Source of audio data (e.g. music) which is mixed by {@link SoundMixer}.
+ *
+ * @author Volker Oth
+ */
+public interface AudioSource {
+    /**
+     * Add the next frames to the mix buffer. Called from the audio render
+     * thread.
+     *
+     * @param buf    mix buffer: interleaved stereo 16bit values at
+     *               {@link SoundMixer#SAMPLE_RATE} (not clipped yet)
+     * @param frames number of frames to add
+     */
+    void mix(int[] buf, int frames);
+}
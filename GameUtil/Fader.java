@@ -2,12 +2,8 @@ package gameutil;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Transparency;
-import java.awt.image.BufferedImage;
 
 import lemmini.Constants;
-import tools.ToolBox;
 
 /*
  * Copyright 2009 Volker Oth
@@ -27,8 +23,8 @@ import tools.ToolBox;
 
 /**
  * Simple fader class. instead of doing painfully slow pixel wise gamma
- * manipulation, use a square with transparency with is drawn over the whole
- * graphic context.
+ * manipulation, fill the whole graphic context with a transparent color. The
+ * colors for all alpha values are created only once.
  *
  * @author Volker Oth
  */
@@ -49,10 +45,6 @@ public final class Fader {
      * Fade step size.
      */
     private static final int FADE_STEP_SIZE = 14;
-    /** width of square to use for fading. */
-    private static final int WIDTH = 64;
-    /** height of square to use for fading. */
-    private static final int HEIGHT = 64;
     /** maximum alpha (opaque). */
     private static final int MAX_ALPHA_VALUE = 0xff;
 
@@ -70,13 +62,10 @@ public final class Fader {
     private static int width;
     /** height of faded area. */
     private static int height;
-    /** the image used as fading rectangle. */
-    private static BufferedImage alphaImg = null;
-    /**
-     * The graphics used as fading rectangle (static to avoid multiple
-     * allocation).
-     */
-    private static Graphics2D alphaGfx;
+    /** alpha blended fill colors indexed by alpha value (created if needed). */
+    private static Color[] fillColors = new Color[MAX_CHANNEL_VALUE + 1];
+    /** current alpha blended fill color. */
+    private static Color fillColor;
 
     /**
      * Private constructor for utility class.
@@ -92,6 +81,7 @@ public final class Fader {
      */
     public static synchronized void setColor(final int c) {
         color = c & WHITE;
+        fillColors = new Color[MAX_CHANNEL_VALUE + 1];
         init();
     }
 
@@ -120,23 +110,15 @@ public final class Fader {
      * Initialize fader.
      */
     private static void init() {
-        Color fillColor; /*
-                          * ARGB color of the fading rectangle composed from
-                          * alpha and color
-                          */
-        // create alpha image if needed
-        if (alphaImg == null) {
-            alphaImg = ToolBox.createImage(WIDTH, HEIGHT,
-                    Transparency.TRANSLUCENT);
-            alphaGfx = alphaImg.createGraphics();
+        // ARGB color of the fading rectangle composed from alpha and color
+        if (fillColors[alpha] == null) {
+            fillColors[alpha] = new Color(
+                    (color >> Constants.TWO_BYTES) & MAX_CHANNEL_VALUE,
+                    (color >> Constants.TWO_BYTES) & MAX_CHANNEL_VALUE,
+                    color & MAX_CHANNEL_VALUE, alpha);
         }
-        // fill with alpha blended color
-        fillColor = new Color(
-                (color >> Constants.TWO_BYTES) & MAX_CHANNEL_VALUE,
-                (color >> Constants.TWO_BYTES) & MAX_CHANNEL_VALUE,
-                color & MAX_CHANNEL_VALUE, alpha);
-        alphaGfx.setBackground(fillColor);
-        alphaGfx.clearRect(0, 0, WIDTH, HEIGHT);
+
+        fillColor = fillColors[alpha];
     }
 
     /**
@@ -145,11 +127,14 @@ public final class Fader {
      * @param g graphics to apply fader to
      */
     public static synchronized void apply(final Graphics g) {
-        for (int y = 0; y < height; y += HEIGHT) {
-            for (int x = 0; x < width; x += WIDTH) {
-                g.drawImage(alphaImg, x, y, null);
-            }
+        if (fillColor == null || fillColor.getAlpha() == 0) {
+            return; // fully transparent
         }
+
+        final Color oldColor = g.getColor();
+        g.setColor(fillColor);
+        g.fillRect(0, 0, width, height);
+        g.setColor(oldColor);
     }
 
     /**
@@ -1,10 +1,7 @@
 package gameutil;
 
-import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.util.List;
 
 import javax.swing.JFrame;
@@ -12,6 +9,7 @@ import javax.swing.JOptionPane;
 
 import game.Core;
 import game.ExplosionHandler;
+import game.FrameProfiler;
 import game.GameController;
 import game.GameState;
 import game.Icons;
@@ -23,9 +21,11 @@ import game.ResourceException;
 import game.SoundController;
 import game.TransitionState;
 import game.TrapDoor;
+import game.jfr.LevelTransitionEvent;
 import game.Type;
 import game.lemmings.LemmingImageLoader;
 import game.lemmings.SkillHandler;
+import game.level.ChunkedImage;
 import game.level.Level;
 import game.level.LevelLoader;
 import game.level.LevelPainter;
@@ -59,19 +59,10 @@ public final class FaderHandler {
      * The maximum number of levels for a difficulty level.
      */
     private static final int MAX_LEVELS = 30;
-    /**
-     * Maximum hexidecimal value for an RGBA color component.
-     */
-    private static final int MAX_COLOR_COMPONENT_VALUE = 0xff;
     /**
      * Scale factor.
      */
     private static final int SCALE_FACTOR = 4;
-    /** graphics object for the background image. */
-    private static Graphics2D bgGfx;
-    /** color used to erase the background (black). */
-    private static Color blankColor = new Color(MAX_COLOR_COMPONENT_VALUE, 0, 0,
-            0);
     /** transition (fading) state. */
     private static TransitionState transitionState;
     /** index of next difficulty level. */
@@ -263,13 +254,11 @@ public final class FaderHandler {
     /**
      * Initialization.
      *
-     * @param bgImage background image for the parent frame.
-     * @param dirs    names of directories containing level packs.
+     * @param dirs names of directories containing level packs.
      * @throws ResourceException if a problem occurs while extracting resources.
      */
-    public static void init(final BufferedImage bgImage,
-            final List<String> dirs) throws ResourceException {
-        bgGfx = bgImage.createGraphics();
+    public static void init(final List<String> dirs)
+            throws ResourceException {
         levelPack = new LevelPack[dirs.size() + 1];
         levelPack[0] = new LevelPack(); // dummy
 
@@ -362,6 +351,28 @@ public final class FaderHandler {
         Fader.setState(FaderState.OUT);
     }
 
+    /**
+     * Load a level and start it at once, without fading, briefing and music.
+     * Used to run levels without user interaction.
+     *
+     * @param lPack    index of level pack
+     * @param dLevel   index of difficulty level
+     * @param lNum     level number
+     * @param doReplay true: replay, false: play
+     * @param frame    the parent component (main frame of the application).
+     * @return the new level.
+     * @throws ResourceException
+     * @throws LemmException
+     */
+    public static synchronized Level startLevel(final int lPack,
+            final int dLevel, final int lNum, final boolean doReplay,
+            final Component frame) throws ResourceException, LemmException {
+        final Level level = changeLevel(lPack, dLevel, lNum, doReplay, frame);
+        transitionState = TransitionState.NONE;
+        GameController.setGameState(GameState.LEVEL);
+        return level;
+    }
+
     /**
      * Proceed to next level.
      *
@@ -403,6 +414,9 @@ public final class FaderHandler {
     public static void fade(final Graphics g, final JFrame frame) {
         if (Fader.getState() == FaderState.OFF
                 && transitionState != TransitionState.NONE) {
+            final LevelTransitionEvent event = new LevelTransitionEvent();
+            event.begin();
+
             switch (transitionState) {
             case END_LEVEL:
                 GameController.finishLevel();
@@ -446,6 +460,16 @@ public final class FaderHandler {
             }
 
             Fader.setState(FaderState.IN);
+
+            if (event.shouldCommit()) {
+                event.transition = transitionState.name();
+                event.levelPack = curLevelPack;
+                event.difficulty = curDiffLevel;
+                event.levelNumber = curLevelNumber;
+                event.level = GameController.getLevel().getLevelName();
+                event.commit();
+            }
+
             transitionState = TransitionState.NONE;
         }
 
@@ -486,29 +510,49 @@ public final class FaderHandler {
         LemmingImageLoader.loadLemmings(frame);
         // loading the level will patch pink lemmings pixels to correct color
         LevelLoader.loadLevel(lvlPath, frame, GameController.getLevel());
+        FrameProfiler.setSection(lvlPath);
 
-        // if width and height would be stored inside the level, the bgImage
-        // etc. would have to be recreated here
+        // the size is stored inside the level: resize the bgImage, the
+        // stencil and the mini map follow its size
+        resizeBgImage(GameController.getLevel().getWidth(),
+                GameController.getLevel().getHeight());
         initLevel(frame);
         ReplayController.rewindIfReplayMode(doReplay);
         return GameController.getLevel();
     }
 
+    /**
+     * Recreate the background image if the size of the level changed.
+     *
+     * @param width  width of the level in pixels
+     * @param height height of the level in pixels
+     */
+    private static void resizeBgImage(final int width, final int height) {
+        final ChunkedImage bgImage = GameController.getBgImage();
+
+        if (bgImage.getWidth() == width && bgImage.getHeight() == height) {
+            return;
+        }
+
+        GameController.setBgImage(new ChunkedImage(width, height));
+    }
+
     /**
      * Initialize a level after it was loaded.
      *
      * @param frame the parent component (main frame of the application).
      */
     private static void initLevel(final Component frame) {
+        // input for the previous level must not be applied to this one
+        GameController.clearInput();
         Music.stop();
         GameController.setFastForward(false);
         GameController.setPaused(false);
         GameController.setNuke(false);
         LemmingHandler.initLevelsLemmings();
         TextScreen.setMode(TextScreen.Mode.INIT);
-        bgGfx.setBackground(blankColor);
-        final BufferedImage bgImage = GameController.getBgImage();
-        bgGfx.clearRect(0, 0, bgImage.getWidth(), bgImage.getHeight());
+        final ChunkedImage bgImage = GameController.getBgImage();
+        bgImage.clear();
         final Level level = GameController.getLevel();
         final LevelPainter levelPainter = new LevelPainter(level);
         GameController.setStencil(levelPainter.paintLevel(bgImage, frame,
@@ -530,10 +574,13 @@ public final class FaderHandler {
         SkillHandler.initLevel(level);
         final int xpos = level.getXpos();
         GameController.setxPos(xpos);
+        GameController.setyPos(Math.max(0, Math.min(
+                level.getHeight() - Level.HEIGHT, level.getYpos())));
         ReleaseRateHandler.calcReleaseBase();
         GameController.setMapPreview(
                 level.createMiniMap(GameController.getMapPreview(), bgImage,
-                        SCALE_FACTOR, SCALE_FACTOR, false));
+                        level.scaleToClassicWidth(SCALE_FACTOR),
+                        level.scaleToClassicHeight(SCALE_FACTOR), false));
         GameController.setSuperLemming(level.isSuperLemming());
         ReplayController.setReplayFrame(0);
         ReplayController.setStopReplayMode(false);
@@ -1,24 +1,28 @@
 package gameutil;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.CRC32;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.FloatControl;
 import javax.sound.sampled.Line;
-import javax.sound.sampled.LineEvent;
-import javax.sound.sampled.LineListener;
+import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
 
 import game.Core;
 import game.ResourceException;
 import game.SoundController;
+import game.jfr.SoundPlayEvent;
 import lemmini.Constants;
+import tools.Resources;
 
 /*
  * Copyright 2009 Volker Oth
@@ -38,14 +42,13 @@ import lemmini.Constants;
 
 /**
  * Used to play a number of sounds. Supports upsampling and one pitched sample.
+ * All sounds are played through one {@link SoundMixer}. The converted and
+ * pitched samples are stored in a {@link SoundBank} which is used until the
+ * source samples change.
  *
  * @author Volker Oth
  */
 public class Sound {
-    /**
-     * Minimum gain value.
-     */
-    private static final double MINIMUM_GAIN = 0.001;
     /**
      * Decimal value 10.0.
      */
@@ -80,11 +83,17 @@ public class Sound {
     private static final int NUMBER_PITCHED = 100;
     /** fade in the first n samples when calculating the pitched buffers. */
     private static final int PITCH_FADE_IN = 20;
-    /** maximum number of sounds played in parallel. */
+    /** maximum number of sounds played in parallel (number of voices). */
     private static final int MAX_SIMUL_SOUNDS = 6;
-
-    /** line listener to be called after sample was played. */
-    private final LineListener defaultListener;
+    /** name of the sound bank file. */
+    private static final String BANK_NAME = "sound/soundbank.bin";
+    /** multiplier used to combine the values of the sound bank key. */
+    private static final long KEY_MULTIPLIER = 1000003;
+    /** size of the buffer used to checksum the source samples. */
+    private static final int CRC_BUFFER_SIZE = 8192;
+
+    /** software mixer used to play the samples. */
+    private final SoundMixer soundMixer;
     /** sound buffers to store the samples. */
     private final byte[][] soundBuffer;
     /** pitch buffers to store all pitched samples. */
@@ -95,16 +104,8 @@ public class Sound {
     private AudioFormat pitchFormat;
     /** audio format for upsampling. */
     private final AudioFormat defaultFormat;
-    /** line info for each sample. */
-    private final DataLine.Info[] info;
-    /** line info for the pitched sample. */
-    private DataLine.Info pitchInfo;
-    /** line info for upsampling. */
-    private final DataLine.Info defaultInfo;
     /** gain/volume: 1.0 = 100%. */
     private double gain;
-    /** number of sounds currently played. */
-    private static int simulSounds;
     /** selected mixer index. */
     private static int mixerIdx;
 
@@ -159,11 +160,6 @@ public class Sound {
         Sound.sampleNum = numberOfSamples;
     }
 
-    /**
-     * Monitor object.
-     */
-    private static final Object MONITOR_OBJECT = new Object();
-
     /**
      * Constructor.
      *
@@ -172,31 +168,96 @@ public class Sound {
      * @throws ResourceException
      */
     public Sound(final int snum, final int pitchID) throws ResourceException {
-        String fName = "";
         sampleNum = snum;
         soundBuffer = new byte[sampleNum][];
         format = new AudioFormat[sampleNum];
-        info = new DataLine.Info[sampleNum];
         gain = 1.0;
-        setSimulSounds(0);
-        defaultListener = new DefaultListener();
+        soundMixer = new SoundMixer(MAX_SIMUL_SOUNDS,
+                Core.getProgramProps().get("audioBlockFrames",
+                        SoundMixer.DEFAULT_BLOCK_FRAMES));
         // upsampling to default frequency (more compatible for weird sample
         // frequencies)
         defaultFormat = new AudioFormat(DEFAULT_FREQUENCY, DEFAULT_SAMPLE_SIZE,
                 1, true, false);
-        defaultInfo = new DataLine.Info(Clip.class, defaultFormat);
-        int maxLen = 0;
+        final File bankFile = new File(Core.findResource(BANK_NAME));
+        final long bankKey = getBankKey(pitchID);
+        final int bankSize = sampleNum + (pitchID >= 0 ? NUMBER_PITCHED : 0);
+        final byte[][] bank = SoundBank.load(bankFile, bankKey, bankSize);
+
+        if (pitchID >= 0) {
+            // note that bit size (8) and channels (1) have to be the same for
+            // all pitched
+            // buffers
+            pitchFormat = new AudioFormat(SAMPLE_RATE, DEFAULT_SAMPLE_SIZE, 1,
+                    true, false);
+        }
+
+        if (bank != null) {
+            for (int i = 0; i < sampleNum; i++) {
+                soundBuffer[i] = bank[i];
+                format[i] = defaultFormat;
+            }
+
+            if (pitchID >= 0) {
+                pitchBuffers = Arrays.copyOfRange(bank, sampleNum, bankSize);
+            }
+        } else {
+            loadSamples();
+
+            if (pitchID >= 0) {
+                // create buffers for pitching
+                pitchBuffers = new byte[NUMBER_PITCHED][];
+
+                for (int i = 0; i < NUMBER_PITCHED; i++) {
+                    pitchBuffers[i] = createPitched(pitchID, i);
+                }
+            }
+
+            final byte[][] samples = Arrays.copyOf(soundBuffer, bankSize);
+
+            if (pitchID >= 0) {
+                System.arraycopy(pitchBuffers, 0, samples, sampleNum,
+                        NUMBER_PITCHED);
+            }
+
+            SoundBank.save(bankFile, bankKey, samples);
+        }
+
+        // get all available mixers
+        final Mixer.Info[] mixInfo = AudioSystem.getMixerInfo();
+        final List<Mixer> mix = new ArrayList<Mixer>();
+
+        for (int i = 0; i < mixInfo.length; i++) {
+            final Mixer mixer = AudioSystem.getMixer(mixInfo[i]);
+            final Line.Info lineInfo = new Line.Info(SourceDataLine.class);
+            final int num = mixer.getMaxLines(lineInfo);
+
+            if (num != 0) {
+                mix.add(mixer);
+            }
+        }
+
+        mixers = new Mixer[mix.size()];
+        mixers = mix.toArray(mixers);
+    }
+
+    /**
+     * Load and convert all samples.
+     *
+     * @throws ResourceException
+     */
+    private void loadSamples() throws ResourceException {
+        String fName = "";
 
         try {
             for (int i = 0; i < sampleNum; i++) {
                 final byte[] soundBuffer8;
                 fName = "sound/sound_" + Integer.toString(i) + ".wav";
-                final File fs = new File(Core.findResource(fName));
 
-                try (AudioInputStream f = AudioSystem
-                        .getAudioInputStream(fs.toURI().toURL())) {
+                try (AudioInputStream f = AudioSystem.getAudioInputStream(
+                        new BufferedInputStream(
+                                Resources.open(Core.findResource(fName))))) {
                     format[i] = f.getFormat();
-                    info[i] = new DataLine.Info(Clip.class, format[i]);
                     soundBuffer8 = new byte[(int) f.getFrameLength()
                             * format[i].getFrameSize()];
 
@@ -227,47 +288,45 @@ public class Sound {
 
                 soundBuffer[i] = convertToDefault(soundBuffer8, format[i]);
                 format[i] = defaultFormat;
-                info[i] = defaultInfo;
-
-                if (soundBuffer[i].length > maxLen) {
-                    maxLen = soundBuffer[i].length;
-                }
             }
         } catch (final Exception ex) {
             throw new ResourceException(fName);
         }
+    }
 
-        if (pitchID >= 0) {
-            // create buffers for pitching
-            // note that bit size (8) and channels (1) have to be the same for
-            // all pitched
-            // buffers
-            pitchFormat = new AudioFormat(SAMPLE_RATE, DEFAULT_SAMPLE_SIZE, 1,
-                    true, false);
-            pitchInfo = new DataLine.Info(Clip.class, pitchFormat);
-            pitchBuffers = new byte[NUMBER_PITCHED][];
-
-            for (int i = 0; i < NUMBER_PITCHED; i++) {
-                pitchBuffers[i] = createPitched(pitchID, i);
-            }
-        }
+    /**
+     * Get the key of the sound bank: describes the source samples (size and
+     * CRC32 of the contents) and the pitched sample. The samples are only
+     * a few hundred KB, so reading them is much cheaper than converting them.
+     *
+     * @param pitchID ID of the pitched sample (-1 for none)
+     * @return key of the sound bank
+     */
+    private static long getBankKey(final int pitchID) {
+        long key = pitchID;
+        final CRC32 crc = new CRC32();
+        final byte[] buf = new byte[CRC_BUFFER_SIZE];
 
-        // get all available mixers
-        final Mixer.Info[] mixInfo = AudioSystem.getMixerInfo();
-        final List<Mixer> mix = new ArrayList<Mixer>();
+        for (int i = 0; i < sampleNum; i++) {
+            final String fs = Core.findResource(
+                    "sound/sound_" + Integer.toString(i) + ".wav");
+            crc.reset();
 
-        for (int i = 0; i < mixInfo.length; i++) {
-            final Mixer mixer = AudioSystem.getMixer(mixInfo[i]);
-            final Line.Info clipInfo = new Line.Info(Clip.class);
-            final int num = mixer.getMaxLines(clipInfo);
+            try (InputStream in = Resources.open(fs)) {
+                int n;
 
-            if (num != 0) {
-                mix.add(mixer);
+                while ((n = in.read(buf)) > 0) {
+                    crc.update(buf, 0, n);
+                }
+            } catch (final IOException ex) {
+                // missing samples are reported when they are converted
             }
+
+            key = key * KEY_MULTIPLIER + Resources.length(fs);
+            key = key * KEY_MULTIPLIER + crc.getValue();
         }
 
-        mixers = new Mixer[mix.size()];
-        mixers = mix.toArray(mixers);
+        return key;
     }
 
     /**
@@ -275,23 +334,8 @@ public class Sound {
      *
      * @return number of sounds simultaneously played.
      */
-    public static int getSimulSounds() {
-        synchronized (MONITOR_OBJECT) {
-            return simulSounds;
-        }
-    }
-
-    /**
-     * Sets number of sounds simultaneously played.
-     *
-     * @param numberPlayed number of sounds simultaneously played.
-     * @return number of sounds simultaneously played.
-     */
-    public static int setSimulSounds(final int numberPlayed) {
-        synchronized (MONITOR_OBJECT) {
-            Sound.simulSounds = numberPlayed;
-            return numberPlayed;
-        }
+    public int getSimulSounds() {
+        return soundMixer.getActiveVoices();
     }
 
     /**
@@ -321,20 +365,66 @@ public class Sound {
         } else {
             mixerIdx = idx;
         }
+
+        if (soundMixer.isOpen()) {
+            openMixer();
+        }
     }
 
     /**
-     * Return a data line to play a sample.
+     * (Re)open the software mixer on the selected mixer.
      *
-     * @param lineInfo line info with requirements
-     * @return data line to play a sample
+     * @return true if the software mixer is ready to play
      */
-    public Line getLine(final DataLine.Info lineInfo) {
+    private boolean openMixer() {
         try {
-            return mixers[mixerIdx].getLine(lineInfo);
-        } catch (final Exception ex) {
-            return null;
+            soundMixer.open(mixers[mixerIdx]);
+            return true;
+        } catch (final LineUnavailableException ex) {
+            System.out.println("Error opening sound line: " + ex.getMessage());
+            return false;
+        } catch (final RuntimeException ex) {
+            System.out.println("Error opening sound line: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Open the sound output if it isn't open yet.
+     *
+     * @return true if the software mixer is ready to play
+     */
+    public synchronized boolean openOutput() {
+        return soundMixer.isOpen() || openMixer();
+    }
+
+    /**
+     * Get the software mixer which plays sound effects and music.
+     *
+     * @return software mixer
+     */
+    public SoundMixer getSoundMixer() {
+        return soundMixer;
+    }
+
+    /**
+     * Get the size of all samples (including the pitched ones).
+     *
+     * @return size in bytes
+     */
+    public long getSampleBytes() {
+        long size = 0;
+
+        for (final byte[][] samples : new byte[][][] {soundBuffer,
+                pitchBuffers}) {
+            if (samples != null) {
+                for (final byte[] s : samples) {
+                    size += s != null ? s.length : 0;
+                }
+            }
         }
+
+        return size;
     }
 
     /**
@@ -343,22 +433,45 @@ public class Sound {
      * @param idx index of the sound to be played
      */
     public synchronized void play(final int idx) {
-        if (!SoundController.isSoundOn()
-                || getSimulSounds() >= MAX_SIMUL_SOUNDS /* || clips==null */) {
+        final SoundPlayEvent event = new SoundPlayEvent();
+
+        if (!SoundController.isSoundOn()) {
+            commitPlayEvent(event, idx, false, SoundPlayEvent.SOUND_OFF);
             return;
         }
 
-        try {
-            final Clip c = (Clip) mixers[mixerIdx].getLine(info[idx]);
-            // Add a listener for line events
-            c.addLineListener(defaultListener);
-            c.open(format[idx], soundBuffer[idx], 0, soundBuffer[idx].length);
-            setLineGain(c, gain);
-            c.start();
-            setSimulSounds(getSimulSounds() + 1);
-        } catch (final Exception ex) {
-            System.out.println(
-                    "Error playing sound " + idx + ": " + ex.getMessage());
+        if (!openOutput()) {
+            commitPlayEvent(event, idx, false, SoundPlayEvent.NO_OUTPUT);
+            return;
+        }
+
+        commitPlayEvent(event, idx, false, SoundPlayEvent.PLAYED);
+        soundMixer.play(soundBuffer[idx], format[idx].getSampleRate(), 1.0,
+                1.0);
+    }
+
+    /**
+     * Commit the JFR event of a play request if it's recorded.
+     *
+     * @param event   event
+     * @param sound   index of the sound or pitch
+     * @param pitched flag: pitched sound
+     * @param result  result of the request
+     */
+    private void commitPlayEvent(final SoundPlayEvent event, final int sound,
+            final boolean pitched, final String result) {
+        if (event.shouldCommit()) {
+            event.sound = sound;
+            event.pitched = pitched;
+            event.result = result;
+
+            if (soundMixer != null) {
+                event.activeVoices = soundMixer.getActiveVoices();
+                event.voiceStolen = SoundPlayEvent.PLAYED.equals(result)
+                        && event.activeVoices >= MAX_SIMUL_SOUNDS;
+            }
+
+            event.commit();
         }
     }
 
@@ -517,51 +630,26 @@ public class Sound {
      * @param pitch pitch value 0..99
      */
     public synchronized void playPitched(final int pitch) {
-        if (!SoundController.isSoundOn()
-                || getSimulSounds() >= MAX_SIMUL_SOUNDS) {
+        final SoundPlayEvent event = new SoundPlayEvent();
+
+        if (!SoundController.isSoundOn()) {
+            commitPlayEvent(event, pitch, true, SoundPlayEvent.SOUND_OFF);
             return;
         }
 
-        try {
-            final Clip c = (Clip) mixers[mixerIdx].getLine(pitchInfo);
-            // Add a listener for line events
-            c.addLineListener(defaultListener);
-            c.open(pitchFormat, pitchBuffers[pitch], 0,
-                    pitchBuffers[pitch].length);
-            setLineGain(c, gain);
-            c.start();
-            setSimulSounds(getSimulSounds() + 1);
-        } catch (final Exception ex) {
-            System.out.println(
-                    "Error playing pitched sample: " + ex.getMessage());
+        if (pitchBuffers[pitch] == null) {
+            commitPlayEvent(event, pitch, true, SoundPlayEvent.NO_SAMPLE);
+            return;
         }
-    }
 
-    /**
-     * Set gain of a line.
-     *
-     * @param line line
-     * @param gn   gain (1.0 = 100%)
-     */
-    public void setLineGain(final Line line, final double gn) {
-        if (line != null) {
-            try {
-                double g;
-                final FloatControl control = (FloatControl) line
-                        .getControl(FloatControl.Type.MASTER_GAIN);
-                final double maxGain = Math.pow(10, control.getMaximum() / 20);
-
-                if (gn == 0) {
-                    g = MINIMUM_GAIN;
-                } else {
-                    g = gn;
-                }
-
-                final float fgain = 20 * (float) Math.log10(g * maxGain);
-                control.setValue(fgain);
-            } catch (final IllegalArgumentException ex) {
-            }
+        if (!openOutput()) {
+            commitPlayEvent(event, pitch, true, SoundPlayEvent.NO_OUTPUT);
+            return;
         }
+
+        commitPlayEvent(event, pitch, true, SoundPlayEvent.PLAYED);
+        soundMixer.play(pitchBuffers[pitch], pitchFormat.getSampleRate(), 1.0,
+                1.0);
     }
 
     /**
@@ -586,29 +674,8 @@ public class Sound {
         } else {
             gain = gn;
         }
+        soundMixer.setGain(gain);
         Core.getProgramProps().set("soundGain", gain);
     }
 
 }
-
-/**
- * Default Line Listener. Called after sample was played.
- *
- * @author Volker Oth
- */
-class DefaultListener implements LineListener {
-    @Override
-    public synchronized void update(final LineEvent event) {
-        if (event.getType().equals(LineEvent.Type.STOP)) {
-            final Clip c = (Clip) event.getLine();
-
-            if (c.isOpen()) {
-                c.close();
-
-                if (Sound.setSimulSounds(Sound.getSimulSounds() - 1) < 0) {
-                    Sound.setSimulSounds(0);
-                }
-            }
-        }
-    }
-}
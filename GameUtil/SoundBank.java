@@ -0,0 +1,195 @@
+package gameutil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Binary file holding converted sound samples, so they needn't be converted
+ * again at every start. The file starts with a magic number, a format version,
+ * a key describing the source files and the number of samples, followed by
+ * the length (-1 for none) and data of each sample. All values are little
+ * endian. A bank is only used if its version and key match.
+ *
+ * @author Volker Oth
+ */
+public final class SoundBank {
+    /** magic number: "LSBK". */
+    private static final int MAGIC = 0x4b42534c;
+    /** version of the file format and of the sample conversion. */
+    private static final int VERSION = 1;
+    /** size of the header in bytes. */
+    private static final int HEADER_SIZE = 20;
+    /** size of a length field in bytes. */
+    private static final int LENGTH_SIZE = 4;
+    /** extension of bank files which are being written. */
+    private static final String TEMP_EXTENSION = ".tmp";
+    /** number of successful loads. */
+    private static final AtomicLong HITS = new AtomicLong();
+    /** number of loads which found no matching bank. */
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private SoundBank() {
+
+    }
+
+    /**
+     * Load samples from a bank file. The file is read as a whole: the mixer
+     * voices and the pitching need the samples as byte arrays, so a memory
+     * mapping would be copied right away and only keep the file open.
+     *
+     * @param f   bank file
+     * @param key key describing the source files
+     * @param num number of samples expected
+     * @return samples (entries may be null) or null if the file doesn't exist
+     *         or doesn't match
+     */
+    public static byte[][] load(final File f, final long key, final int num) {
+        final byte[][] samples = read(f, key, num);
+        (samples != null ? HITS : MISSES).incrementAndGet();
+        return samples;
+    }
+
+    /**
+     * Get the number of loads which returned samples.
+     *
+     * @return number of hits
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * Get the number of loads which found no matching bank.
+     *
+     * @return number of misses
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Read samples from a bank file.
+     *
+     * @param f   bank file
+     * @param key key describing the source files
+     * @param num number of samples expected
+     * @return samples or null if the file doesn't exist or doesn't match
+     */
+    private static byte[][] read(final File f, final long key,
+            final int num) {
+        if (!f.isFile()) {
+            return null;
+        }
+
+        try {
+            final ByteBuffer buf = ByteBuffer
+                    .wrap(Files.readAllBytes(f.toPath()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                    || buf.getLong() != key || buf.getInt() != num) {
+                return null;
+            }
+
+            final byte[][] samples = new byte[num][];
+
+            for (int i = 0; i < num; i++) {
+                final int len = buf.getInt();
+
+                if (len >= 0) {
+                    samples[i] = new byte[len];
+                    buf.get(samples[i]);
+                }
+            }
+
+            return samples;
+        } catch (final IOException | BufferUnderflowException
+                | NegativeArraySizeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Save samples to a bank file. The file is written under a temporary name
+     * and renamed when complete. Errors are only reported, since the bank is
+     * just a cache.
+     *
+     * @param f       bank file
+     * @param key     key describing the source files
+     * @param samples samples (entries may be null)
+     */
+    public static void save(final File f, final long key,
+            final byte[][] samples) {
+        int size = HEADER_SIZE;
+
+        for (final byte[] s : samples) {
+            size += LENGTH_SIZE + (s != null ? s.length : 0);
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate(size)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(samples.length);
+
+        for (final byte[] s : samples) {
+            if (s != null) {
+                buf.putInt(s.length).put(s);
+            } else {
+                buf.putInt(-1);
+            }
+        }
+
+        buf.flip();
+        final Path temp = Paths.get(f.getPath() + TEMP_EXTENSION);
+
+        try {
+            try (FileChannel ch = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+
+            try {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temp, f.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException ex) {
+            System.out.println("Can't write sound bank " + f.getName());
+        }
+    }
+}
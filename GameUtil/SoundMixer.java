@@ -0,0 +1,557 @@
+package gameutil;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+import lemmini.Constants;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Software mixer for music and sound effects. One render thread mixes the
+ * music source and a fixed pool of sound effect voices block by block into a
+ * lock-free ring buffer. An output thread moves the blocks from the ring
+ * buffer into a single long-lived SourceDataLine. Each voice has its own gain
+ * and pitch. If all voices are busy, the voice that was started first is
+ * stolen.
+ * <p>
+ * The number of blocks rendered ahead adapts to the observed underruns: each
+ * underrun adds a block, a long time without underruns removes one again.
+ *
+ * @author Volker Oth
+ */
+public class SoundMixer {
+    /** output sample frequency. */
+    public static final int SAMPLE_RATE = 44100;
+    /** default number of frames rendered at once. */
+    public static final int DEFAULT_BLOCK_FRAMES = 512;
+    /** minimum number of frames rendered at once. */
+    public static final int MIN_BLOCK_FRAMES = 64;
+    /** maximum number of frames rendered at once. */
+    public static final int MAX_BLOCK_FRAMES = 8192;
+    /** number of blocks buffered by the output line. */
+    private static final int LINE_BLOCKS = 2;
+    /** minimum number of blocks rendered ahead. */
+    private static final int MIN_AHEAD_BLOCKS = 1;
+    /** maximum number of blocks rendered ahead. */
+    private static final int MAX_AHEAD_BLOCKS = 16;
+    /** number of blocks without underrun before the depth is reduced. */
+    private static final int SHRINK_BLOCKS = 2000;
+    /** bytes per output frame (16bit stereo). */
+    private static final int FRAME_SIZE = 4;
+    /** fixed point shift used for sample positions and gains. */
+    private static final int FIX_SHIFT = 16;
+    /** 1.0 in fixed point notation. */
+    private static final int FIX_ONE = 1 << FIX_SHIFT;
+    /** maximum value of a 16bit sample. */
+    private static final int MAX_SAMPLE = Short.MAX_VALUE;
+    /** minimum value of a 16bit sample. */
+    private static final int MIN_SAMPLE = Short.MIN_VALUE;
+    /** 3 added to base index within array. */
+    private static final int OFFSET_3 = 3;
+    /** nanoseconds per second. */
+    private static final long NS_PER_SECOND = 1000000000L;
+    /** milliseconds per second. */
+    private static final int MS_PER_SECOND = 1000;
+    /** number of steps the output thread waits for a late block in. */
+    private static final int LATE_WAIT_STEPS = 8;
+
+    /**
+     * Request to start a voice, passed from the game to the render thread.
+     */
+    private static final class Trigger {
+        /** sample data (16bit signed mono, little endian). */
+        private final byte[] data;
+        /** step width in samples per frame (fixed point). */
+        private final long step;
+        /** gain (fixed point). */
+        private final int gain;
+
+        /**
+         * Constructor.
+         *
+         * @param d sample data
+         * @param s step width in samples per frame (fixed point)
+         * @param g gain (fixed point)
+         */
+        Trigger(final byte[] d, final long s, final int g) {
+            data = d;
+            step = s;
+            gain = g;
+        }
+    }
+
+    /** number of frames rendered at once. */
+    private final int blockFrames;
+    /** sample data of the voices (16bit signed mono, little endian). */
+    private final byte[][] voiceData;
+    /** positions of the voices in samples (fixed point). */
+    private final long[] voicePos;
+    /** step widths of the voices in samples per frame (fixed point). */
+    private final long[] voiceStep;
+    /** gains of the voices (fixed point). */
+    private final int[] voiceGain;
+    /** start sequence number of the voices (used for voice stealing). */
+    private final long[] voiceStart;
+    /** sequence number of the next started voice. */
+    private long startCtr;
+    /** voices to be started by the render thread. */
+    private final ConcurrentLinkedQueue<Trigger> triggers;
+    /** number of voices currently playing. */
+    private volatile int activeVoices;
+    /** master gain for sound effects (fixed point). */
+    private volatile int masterGain = FIX_ONE;
+    /** music source (null for none). */
+    private volatile AudioSource music;
+    /** mix buffer (interleaved stereo). */
+    private final int[] mixBuf;
+    /** output buffer of the render thread. */
+    private final byte[] renderBuf;
+    /** output buffer of the output thread. */
+    private final byte[] outBuf;
+    /** ring buffer between render and output thread. */
+    private final AudioRingBuffer ring;
+    /** number of blocks currently rendered ahead. */
+    private volatile int aheadBlocks = 2;
+    /** number of underruns. */
+    private volatile long underruns;
+    /** number of blocks rendered. */
+    private volatile long blocksRendered;
+    /** total time spent mixing in nanoseconds. */
+    private volatile long mixTimeTotal;
+    /** time spent mixing the last block in nanoseconds. */
+    private volatile long mixTimeLast;
+    /** data line used to play the mixed samples. */
+    private SourceDataLine line;
+    /** thread for rendering. */
+    private volatile Thread renderThread;
+    /** thread for writing to the output line. */
+    private volatile Thread outputThread;
+
+    /**
+     * Constructor.
+     *
+     * @param voices number of voices which can be played in parallel
+     * @param frames number of frames rendered at once (clamped to
+     *               MIN_BLOCK_FRAMES..MAX_BLOCK_FRAMES)
+     */
+    public SoundMixer(final int voices, final int frames) {
+        blockFrames = Math.max(MIN_BLOCK_FRAMES,
+                Math.min(MAX_BLOCK_FRAMES, frames));
+        voiceData = new byte[voices][];
+        voicePos = new long[voices];
+        voiceStep = new long[voices];
+        voiceGain = new int[voices];
+        voiceStart = new long[voices];
+        triggers = new ConcurrentLinkedQueue<Trigger>();
+        mixBuf = new int[blockFrames * 2];
+        renderBuf = new byte[blockFrames * FRAME_SIZE];
+        outBuf = new byte[blockFrames * FRAME_SIZE];
+        ring = new AudioRingBuffer(
+                blockFrames * FRAME_SIZE * (MAX_AHEAD_BLOCKS + 1));
+    }
+
+    /**
+     * Get the format of the output line.
+     *
+     * @return audio format of output line
+     */
+    public static AudioFormat getFormat() {
+        return new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+    }
+
+    /**
+     * Open an output line on the given mixer and start rendering.
+     *
+     * @param mixer mixer to play on
+     * @throws LineUnavailableException if no line could be opened
+     */
+    public synchronized void open(final Mixer mixer)
+            throws LineUnavailableException {
+        close();
+        final AudioFormat af = getFormat();
+        final DataLine.Info lineInfo = new DataLine.Info(SourceDataLine.class,
+                af);
+        line = (SourceDataLine) mixer.getLine(lineInfo);
+        line.open(af, blockFrames * FRAME_SIZE * LINE_BLOCKS);
+        line.start();
+        renderThread = new Thread(this::render, "SoundMixer render");
+        renderThread.setDaemon(true);
+        renderThread.setPriority(Thread.MAX_PRIORITY);
+        outputThread = new Thread(this::output, "SoundMixer output");
+        outputThread.setDaemon(true);
+        outputThread.setPriority(Thread.MAX_PRIORITY);
+        renderThread.start();
+        outputThread.start();
+    }
+
+    /**
+     * Stop rendering and close the output line.
+     */
+    public synchronized void close() {
+        final Thread render = renderThread;
+        final Thread out = outputThread;
+        renderThread = null;
+        outputThread = null;
+
+        try {
+            if (render != null) {
+                render.join();
+            }
+
+            if (out != null) {
+                out.join();
+            }
+        } catch (final InterruptedException ex) {
+        }
+
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+    }
+
+    /**
+     * Get open state.
+     *
+     * @return true if the mixer is rendering to an output line
+     */
+    public synchronized boolean isOpen() {
+        return renderThread != null;
+    }
+
+    /**
+     * Start playing a sample. The voice is started by the render thread with
+     * the next block. If all voices are busy, the oldest voice is stolen.
+     *
+     * @param data       sample data (16bit signed mono, little endian)
+     * @param sampleRate sample frequency of the data
+     * @param gain       gain of this voice (1.0 = 100%)
+     * @param pitch      pitch factor (1.0 = original speed)
+     */
+    public void play(final byte[] data, final float sampleRate,
+            final double gain, final double pitch) {
+        triggers.offer(new Trigger(data,
+                (long) (sampleRate * pitch / SAMPLE_RATE * FIX_ONE),
+                (int) (gain * FIX_ONE)));
+    }
+
+    /**
+     * Set music source.
+     *
+     * @param source music source (null: no music)
+     */
+    public void setMusic(final AudioSource source) {
+        music = source;
+    }
+
+    /**
+     * Get number of voices currently playing.
+     *
+     * @return number of voices currently playing
+     */
+    public int getActiveVoices() {
+        return activeVoices;
+    }
+
+    /**
+     * Set master gain for sound effects.
+     *
+     * @param gain gain (1.0 = 100%)
+     */
+    public void setGain(final double gain) {
+        masterGain = (int) (gain * FIX_ONE);
+    }
+
+    /**
+     * Get number of frames rendered at once.
+     *
+     * @return block size in frames
+     */
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+
+    /**
+     * Get number of blocks currently rendered ahead.
+     *
+     * @return number of blocks rendered ahead
+     */
+    public int getAheadBlocks() {
+        return aheadBlocks;
+    }
+
+    /**
+     * Get number of underruns, i.e. blocks the output line needed before they
+     * were rendered.
+     *
+     * @return number of underruns
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Get current output latency: audio buffered in the ring buffer and in the
+     * output line.
+     *
+     * @return latency in milliseconds
+     */
+    public int getLatencyMillis() {
+        int bytes = ring.available();
+        final SourceDataLine l = line;
+
+        if (l != null) {
+            bytes += l.getBufferSize() - l.available();
+        }
+
+        return bytes * MS_PER_SECOND / (SAMPLE_RATE * FRAME_SIZE);
+    }
+
+    /**
+     * Get time needed to mix the last block.
+     *
+     * @return mix time in nanoseconds
+     */
+    public long getLastMixNanos() {
+        return mixTimeLast;
+    }
+
+    /**
+     * Get average time needed to mix a block.
+     *
+     * @return mix time in nanoseconds
+     */
+    public long getAverageMixNanos() {
+        final long blocks = blocksRendered;
+        return blocks == 0 ? 0 : mixTimeTotal / blocks;
+    }
+
+    /**
+     * Start the voices requested since the last block.
+     */
+    private void startVoices() {
+        Trigger t;
+
+        while ((t = triggers.poll()) != null) {
+            int v = -1;
+            long oldest = Long.MAX_VALUE;
+
+            for (int i = 0; i < voiceData.length; i++) {
+                if (voiceData[i] == null) {
+                    v = i;
+                    break;
+                }
+
+                if (voiceStart[i] < oldest) {
+                    oldest = voiceStart[i];
+                    v = i;
+                }
+            }
+
+            voiceData[v] = t.data;
+            voicePos[v] = 0;
+            voiceStep[v] = t.step;
+            voiceGain[v] = t.gain;
+            voiceStart[v] = startCtr++;
+        }
+    }
+
+    /**
+     * Mix all active voices into the mix buffer.
+     *
+     * @param frames number of frames to mix
+     */
+    private void mixVoices(final int frames) {
+        int num = 0;
+
+        for (int v = 0; v < voiceData.length; v++) {
+            final byte[] data = voiceData[v];
+
+            if (data != null) {
+                if (mixVoice(v, data, frames)) {
+                    num++;
+                } else {
+                    voiceData[v] = null;
+                }
+            }
+        }
+
+        activeVoices = num;
+    }
+
+    /**
+     * Mix one voice into the mix buffer using linear interpolation.
+     *
+     * @param v      voice index
+     * @param data   sample data of voice
+     * @param frames number of frames to mix
+     * @return true if the voice is still playing, false if it's finished
+     */
+    private boolean mixVoice(final int v, final byte[] data,
+            final int frames) {
+        final int len = data.length >> 1;
+        final long step = voiceStep[v];
+        final long gain = ((long) voiceGain[v] * masterGain) >> FIX_SHIFT;
+        long pos = voicePos[v];
+
+        for (int i = 0; i < frames; i++) {
+            final int idx = (int) (pos >> FIX_SHIFT);
+
+            if (idx >= len) {
+                return false;
+            }
+
+            final int frac = (int) (pos & (FIX_ONE - 1));
+            final int s0 = (data[idx << 1] & Constants.EIGHT_BIT_MASK)
+                    | (data[(idx << 1) + 1] << Constants.SHIFT_8);
+            int val = s0;
+
+            if (frac != 0 && idx + 1 < len) {
+                final int s1 = (data[(idx << 1) + 2] & Constants.EIGHT_BIT_MASK)
+                        | (data[(idx << 1) + OFFSET_3] << Constants.SHIFT_8);
+                val += (int) (((long) (s1 - s0) * frac) >> FIX_SHIFT);
+            }
+
+            val = (int) ((val * gain) >> FIX_SHIFT);
+            mixBuf[i << 1] += val;
+            mixBuf[(i << 1) + 1] += val;
+            pos += step;
+        }
+
+        voicePos[v] = pos;
+        return true;
+    }
+
+    /**
+     * Convert the mix buffer to 16bit output samples.
+     *
+     * @param frames number of frames to convert
+     */
+    private void convert(final int frames) {
+        for (int i = 0; i < frames * 2; i++) {
+            int val = mixBuf[i];
+
+            if (val > MAX_SAMPLE) {
+                val = MAX_SAMPLE;
+            } else if (val < MIN_SAMPLE) {
+                val = MIN_SAMPLE;
+            }
+
+            renderBuf[i << 1] = (byte) val;
+            renderBuf[(i << 1) + 1] = (byte) (val >> Constants.SHIFT_8);
+        }
+    }
+
+    /**
+     * Render thread: mix blocks into the ring buffer until the requested
+     * number of blocks is buffered, then wait for about half a block.
+     */
+    private void render() {
+        final Thread self = Thread.currentThread();
+        final int blockBytes = blockFrames * FRAME_SIZE;
+        final long waitNanos = NS_PER_SECOND * blockFrames / SAMPLE_RATE / 2;
+
+        while (renderThread == self) {
+            if (ring.available() >= aheadBlocks * blockBytes
+                    || ring.free() < blockBytes) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+
+            final long start = System.nanoTime();
+            Arrays.fill(mixBuf, 0);
+            startVoices();
+            final AudioSource src = music;
+
+            if (src != null) {
+                src.mix(mixBuf, blockFrames);
+            }
+
+            mixVoices(blockFrames);
+            convert(blockFrames);
+            ring.write(renderBuf, 0, blockBytes);
+            final long time = System.nanoTime() - start;
+            mixTimeLast = time;
+            mixTimeTotal += time;
+            blocksRendered++;
+        }
+    }
+
+    /**
+     * Output thread: move blocks from the ring buffer to the output line.
+     * Writing to the line blocks while its buffer is full, which paces the
+     * whole pipeline. As the line still holds LINE_BLOCKS blocks, a late
+     * block is waited for up to one block time. Only if it isn't ready then,
+     * silence is written and the number of blocks rendered ahead is
+     * increased.
+     */
+    private void output() {
+        final Thread self = Thread.currentThread();
+        final int blockBytes = blockFrames * FRAME_SIZE;
+        final long blockNanos = NS_PER_SECOND * blockFrames / SAMPLE_RATE;
+        int blocksOk = 0;
+
+        // wait until the render thread filled the buffer once
+        while (outputThread == self && ring.available() < blockBytes) {
+            LockSupport.parkNanos(NS_PER_SECOND / MS_PER_SECOND);
+        }
+
+        while (outputThread == self) {
+            if (ring.available() < blockBytes) {
+                final long deadline = System.nanoTime() + blockNanos;
+
+                while (ring.available() < blockBytes
+                        && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(blockNanos / LATE_WAIT_STEPS);
+                }
+            }
+
+            if (ring.available() >= blockBytes) {
+                ring.read(outBuf, 0, blockBytes);
+
+                if (++blocksOk >= SHRINK_BLOCKS) {
+                    blocksOk = 0;
+
+                    if (aheadBlocks > MIN_AHEAD_BLOCKS) {
+                        aheadBlocks--;
+                    }
+                }
+            } else {
+                Arrays.fill(outBuf, (byte) 0);
+                underruns++;
+                blocksOk = 0;
+
+                if (aheadBlocks < MAX_AHEAD_BLOCKS) {
+                    aheadBlocks++;
+                }
+            }
+
+            line.write(outBuf, 0, blockBytes);
+        }
+
+        line.flush();
+        ring.clear();
+    }
+}
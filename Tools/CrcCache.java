@@ -0,0 +1,204 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Cache of file CRCs (Adler32). An entry is only used while the size and the
+ * modification time of the file are unchanged, so unchanged files don't have
+ * to be read again. The cache can be stored in a manifest file with one line
+ * per file: "crc size mtime path". Can be used from several threads.
+ *
+ * @author Volker Oth
+ */
+public class CrcCache {
+    /** files of at least this size are memory mapped. */
+    private static final int MAP_THRESHOLD = 0x10000;
+    /** size of memory mapped chunks. */
+    private static final int MAP_CHUNK = 0x1000000;
+    /** size of the read buffer for smaller files. */
+    private static final int READ_BUFFER_SIZE = 0x10000;
+    /** radix for hexadecimal numbers. */
+    private static final int HEX_RADIX = 16;
+    /** number of fields in front of the path in a manifest line. */
+    private static final int NUM_FIELDS = 3;
+    /** index of the mtime in a cache entry. */
+    private static final int MTIME = 1;
+    /** index of the CRC in a cache entry. */
+    private static final int CRC = 2;
+
+    /** read buffer of each thread (direct, to avoid copying). */
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+
+    /** cache entries: absolute path -> {size, mtime, crc}. */
+    private final Map<String, long[]> entries =
+            new ConcurrentHashMap<String, long[]>();
+    /** true if entries were added since loading. */
+    private volatile boolean changed;
+
+    /**
+     * Load manifest file. Missing or corrupt files leave the cache empty.
+     *
+     * @param fname file name of manifest
+     * @return true if the manifest was read, false otherwise
+     */
+    public boolean load(final String fname) {
+        entries.clear();
+        changed = false;
+
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new FileInputStream(fname), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = r.readLine()) != null) {
+                final String[] f = line.split(" ", NUM_FIELDS + 1);
+
+                if (f.length == NUM_FIELDS + 1) {
+                    entries.put(f[NUM_FIELDS],
+                            new long[] {Long.parseLong(f[1]),
+                                    Long.parseLong(f[2]),
+                                    Long.parseLong(f[0], HEX_RADIX)});
+                }
+            }
+
+            return true;
+        } catch (final IOException ex) {
+            return false;
+        } catch (final NumberFormatException ex) {
+            entries.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Save manifest file if the cache was changed since loading.
+     *
+     * @param fname file name of manifest
+     * @throws IOException
+     */
+    public void save(final String fname) throws IOException {
+        if (!changed) {
+            return;
+        }
+
+        // sorted, so the manifest doesn't change if the CRCs don't
+        final Map<String, long[]> sorted =
+                new TreeMap<String, long[]>(entries);
+
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(fname),
+                StandardCharsets.UTF_8)) {
+            for (final Map.Entry<String, long[]> e : sorted.entrySet()) {
+                final long[] v = e.getValue();
+                w.write(Long.toHexString(v[CRC]) + " " + v[0] + " " + v[MTIME]
+                        + " " + e.getKey() + "\n");
+            }
+        }
+
+        changed = false;
+    }
+
+    /**
+     * Get CRC of a file. The file is only read if it isn't in the cache or if
+     * its size or modification time changed.
+     *
+     * @param f file
+     * @return Adler32 checksum of the file
+     * @throws IOException
+     */
+    public long getCrc(final File f) throws IOException {
+        final String key = f.getAbsolutePath();
+        final long size = f.length();
+        final long mtime = f.lastModified();
+        final long[] e = entries.get(key);
+
+        if (e != null && e[0] == size && e[MTIME] == mtime) {
+            return e[CRC];
+        }
+
+        final long crc = computeCrc(f);
+        entries.put(key, new long[] {size, mtime, crc});
+        changed = true;
+        return crc;
+    }
+
+    /**
+     * Put the CRC of a file which was just written into the cache.
+     *
+     * @param f   file
+     * @param crc Adler32 checksum of the file
+     */
+    public void put(final File f, final long crc) {
+        entries.put(f.getAbsolutePath(),
+                new long[] {f.length(), f.lastModified(), crc});
+        changed = true;
+    }
+
+    /**
+     * Calculate CRC of a file without reading it into an array: large files
+     * are memory mapped, smaller ones are read into a direct buffer.
+     *
+     * @param f file
+     * @return Adler32 checksum of the file
+     * @throws IOException
+     */
+    public static long computeCrc(final File f) throws IOException {
+        final Adler32 crc = new Adler32();
+
+        try (FileChannel ch = FileChannel.open(f.toPath(),
+                StandardOpenOption.READ)) {
+            final long size = ch.size();
+
+            if (size >= MAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MAP_CHUNK) {
+                    final MappedByteBuffer buf = ch.map(
+                            FileChannel.MapMode.READ_ONLY, pos,
+                            Math.min(MAP_CHUNK, size - pos));
+                    crc.update(buf);
+                }
+            } else {
+                final ByteBuffer buf = READ_BUFFER.get();
+                buf.clear();
+
+                while (ch.read(buf) >= 0) {
+                    buf.flip();
+                    crc.update(buf);
+                    buf.clear();
+                }
+            }
+        }
+
+        return crc.getValue();
+    }
+}
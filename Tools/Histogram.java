@@ -0,0 +1,216 @@
+package tools;
+
+import java.util.Arrays;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Histogram of positive long values (e.g. durations in nanoseconds) with a
+ * fixed relative precision, like a HDR histogram: each power of two is
+ * divided into the same number of buckets, so recording is cheap and needs
+ * no allocation, and percentiles are exact to about 6%.
+ *
+ * @author Volker Oth
+ */
+public class Histogram {
+    /** number of bits of a value which are kept exactly. */
+    private static final int SUB_BITS = 5;
+    /** number of values which are stored exactly (one bucket per value). */
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** number of buckets per further power of two. */
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    /** number of bits of the largest value (larger values are clamped). */
+    private static final int MAX_BITS = 40;
+    /** number of buckets. */
+    private static final int NUM_BUCKETS = SUB_COUNT
+            + (MAX_BITS - SUB_BITS) * HALF_COUNT;
+    /** largest value which can be recorded. */
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    /** percent of all values. */
+    private static final double HUNDRED_PERCENT = 100.0;
+
+    /** number of values per bucket. */
+    private final long[] counts = new long[NUM_BUCKETS];
+    /** number of recorded values. */
+    private long totalCount;
+    /** sum of recorded values. */
+    private long sum;
+    /** smallest recorded value. */
+    private long min = Long.MAX_VALUE;
+    /** largest recorded value. */
+    private long max;
+
+    /**
+     * Record a value.
+     *
+     * @param value value (negative values are recorded as 0)
+     */
+    public synchronized void record(final long value) {
+        final long v = Math.max(0, Math.min(MAX_VALUE, value));
+        counts[index(v)]++;
+        totalCount++;
+        sum += v;
+
+        if (v < min) {
+            min = v;
+        }
+
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * Add all values of another histogram.
+     *
+     * @param h histogram
+     */
+    public void add(final Histogram h) {
+        final long[] c;
+        final long n;
+        final long s;
+        final long mi;
+        final long ma;
+
+        synchronized (h) {
+            c = h.counts.clone();
+            n = h.totalCount;
+            s = h.sum;
+            mi = h.min;
+            ma = h.max;
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                counts[i] += c[i];
+            }
+
+            totalCount += n;
+            sum += s;
+            min = Math.min(min, mi);
+            max = Math.max(max, ma);
+        }
+    }
+
+    /**
+     * Remove all values.
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return number of recorded values
+     */
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the smallest recorded value.
+     *
+     * @return smallest value or 0 if empty
+     */
+    public synchronized long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return largest value or 0 if empty
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return mean or 0 if empty
+     */
+    public synchronized double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Get the value below or at which a given percentage of the recorded
+     * values are.
+     *
+     * @param percentile percentage (0..100)
+     * @return largest value of the bucket containing the percentile (at most
+     *         the largest recorded value) or 0 if empty
+     */
+    public synchronized long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math
+                .ceil(Math.min(percentile, HUNDRED_PERCENT) / HUNDRED_PERCENT
+                        * totalCount));
+        long n = 0;
+
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            n += counts[i];
+
+            if (n >= target) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param v value (0..MAX_VALUE)
+     * @return index of bucket
+     */
+    private static int index(final long v) {
+        final int shift = Long.SIZE - Long.numberOfLeadingZeros(v) - SUB_BITS;
+
+        if (shift <= 0) {
+            return (int) v;
+        }
+
+        return shift * HALF_COUNT + (int) (v >>> shift);
+    }
+
+    /**
+     * Get the largest value of a bucket.
+     *
+     * @param idx index of bucket
+     * @return largest value which is sorted into this bucket
+     */
+    private static long highestValue(final int idx) {
+        if (idx < SUB_COUNT) {
+            return idx;
+        }
+
+        final int shift = (idx - SUB_COUNT) / HALF_COUNT + 1;
+        final long lowest = (long) (idx - shift * HALF_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
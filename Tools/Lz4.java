@@ -0,0 +1,286 @@
+package tools;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compression and decompression in the LZ4 block format (no frame header).
+ * The compressor is a simple greedy one using a hash table of 4 byte
+ * sequences; decompression is fast and needs no extra memory.
+ *
+ * @author Volker Oth
+ */
+final class Lz4 {
+    /** minimum length of a match. */
+    private static final int MIN_MATCH = 4;
+    /** the last bytes of a block are always literals. */
+    private static final int LAST_LITERALS = 5;
+    /** a match must not start within the last bytes of a block. */
+    private static final int MF_LIMIT = 12;
+    /** maximum distance of a match. */
+    private static final int MAX_DISTANCE = 0xffff;
+    /** number of bits of the hash table index. */
+    private static final int HASH_BITS = 16;
+    /** multiplier of the hash function. */
+    private static final int HASH_PRIME = 0x9e3779b1;
+    /** maximum value of a length nibble in the token. */
+    private static final int RUN_MASK = 0x0f;
+    /** shift of the literal length in the token. */
+    private static final int LITERAL_SHIFT = 4;
+    /** value of a length byte which is followed by more length bytes. */
+    private static final int MORE_LENGTH = 0xff;
+    /** mask of a byte. */
+    private static final int BYTE_MASK = 0xff;
+    /** shift of the second byte of a value. */
+    private static final int SHIFT_8 = 8;
+    /** shift of the third byte of a value. */
+    private static final int SHIFT_16 = 16;
+    /** shift of the fourth byte of a value. */
+    private static final int SHIFT_24 = 24;
+    /** additional worst case output bytes per 255 input bytes. */
+    private static final int WORST_CASE_DIVISOR = 255;
+    /** additional worst case output bytes per block. */
+    private static final int WORST_CASE_EXTRA = 16;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private Lz4() {
+
+    }
+
+    /**
+     * Compress data.
+     *
+     * @param src data to compress
+     * @return compressed block
+     */
+    static byte[] compress(final byte[] src) {
+        final int len = src.length;
+        final byte[] dst = new byte[len + len / WORST_CASE_DIVISOR
+                + WORST_CASE_EXTRA];
+        final int[] table = new int[1 << HASH_BITS];
+        final int matchLimit = len - LAST_LITERALS;
+        int anchor = 0;
+        int op = 0;
+        int ip = 0;
+
+        if (len >= MF_LIMIT) {
+            // table entries are positions + 1, 0 means empty
+            while (ip < len - MF_LIMIT) {
+                final int seq = readInt(src, ip);
+                final int h = hash(seq);
+                final int ref = table[h] - 1;
+                table[h] = ip + 1;
+
+                if (ref < 0 || ip - ref > MAX_DISTANCE
+                        || readInt(src, ref) != seq) {
+                    ip++;
+                    continue;
+                }
+
+                int mlen = MIN_MATCH;
+
+                while (ip + mlen < matchLimit
+                        && src[ref + mlen] == src[ip + mlen]) {
+                    mlen++;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, mlen,
+                        dst, op);
+                ip += mlen;
+                anchor = ip;
+            }
+        }
+
+        // last literals
+        op = writeSequence(src, anchor, len - anchor, 0, 0, dst, op);
+        final byte[] out = new byte[op];
+        System.arraycopy(dst, 0, out, 0, op);
+        return out;
+    }
+
+    /**
+     * Decompress a block.
+     *
+     * @param src  compressed block (read from the current position to the
+     *             limit)
+     * @param size size of the decompressed data
+     * @return decompressed data
+     * @throws IllegalArgumentException if the block is corrupt
+     */
+    static byte[] decompress(final ByteBuffer src, final int size) {
+        final byte[] dst = new byte[size];
+        int op = 0;
+
+        try {
+            while (src.hasRemaining()) {
+                final int token = src.get() & BYTE_MASK;
+                int lit = token >>> LITERAL_SHIFT;
+
+                if (lit == RUN_MASK) {
+                    lit += readLength(src);
+                }
+
+                src.get(dst, op, lit);
+                op += lit;
+
+                if (!src.hasRemaining()) {
+                    break;
+                }
+
+                final int dist = (src.get() & BYTE_MASK)
+                        | (src.get() & BYTE_MASK) << SHIFT_8;
+                int mlen = token & RUN_MASK;
+
+                if (mlen == RUN_MASK) {
+                    mlen += readLength(src);
+                }
+
+                mlen += MIN_MATCH;
+                int ref = op - dist;
+
+                if (dist == 0 || ref < 0 || op + mlen > size) {
+                    throw new IllegalArgumentException("Corrupt LZ4 block");
+                }
+
+                // byte by byte: the match may overlap the output
+                for (final int end = op + mlen; op < end;) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        } catch (final RuntimeException ex) {
+            throw new IllegalArgumentException("Corrupt LZ4 block", ex);
+        }
+
+        if (op != size) {
+            throw new IllegalArgumentException("Corrupt LZ4 block");
+        }
+
+        return dst;
+    }
+
+    /**
+     * Write one sequence: literals followed by a match.
+     *
+     * @param src    source data
+     * @param litPos position of the literals
+     * @param litLen number of literals
+     * @param dist   distance of the match
+     * @param mlen   length of the match (0: no match, last sequence)
+     * @param dst    output buffer
+     * @param pos    position in output buffer
+     * @return new position in output buffer
+     */
+    private static int writeSequence(final byte[] src, final int litPos,
+            final int litLen, final int dist, final int mlen,
+            final byte[] dst, final int pos) {
+        int op = pos;
+        final int tokenPos = op++;
+        int token;
+
+        if (litLen >= RUN_MASK) {
+            token = RUN_MASK << LITERAL_SHIFT;
+            op = writeLength(litLen - RUN_MASK, dst, op);
+        } else {
+            token = litLen << LITERAL_SHIFT;
+        }
+
+        System.arraycopy(src, litPos, dst, op, litLen);
+        op += litLen;
+
+        if (mlen > 0) {
+            dst[op++] = (byte) dist;
+            dst[op++] = (byte) (dist >>> SHIFT_8);
+            final int m = mlen - MIN_MATCH;
+
+            if (m >= RUN_MASK) {
+                token |= RUN_MASK;
+                op = writeLength(m - RUN_MASK, dst, op);
+            } else {
+                token |= m;
+            }
+        }
+
+        dst[tokenPos] = (byte) token;
+        return op;
+    }
+
+    /**
+     * Write the additional bytes of a length.
+     *
+     * @param len remaining length
+     * @param dst output buffer
+     * @param pos position in output buffer
+     * @return new position in output buffer
+     */
+    private static int writeLength(final int len, final byte[] dst,
+            final int pos) {
+        int op = pos;
+        int l = len;
+
+        while (l >= MORE_LENGTH) {
+            dst[op++] = (byte) MORE_LENGTH;
+            l -= MORE_LENGTH;
+        }
+
+        dst[op++] = (byte) l;
+        return op;
+    }
+
+    /**
+     * Read the additional bytes of a length.
+     *
+     * @param src compressed block
+     * @return additional length
+     */
+    private static int readLength(final ByteBuffer src) {
+        int len = 0;
+        int b;
+
+        do {
+            b = src.get() & BYTE_MASK;
+            len += b;
+        } while (b == MORE_LENGTH);
+
+        return len;
+    }
+
+    /**
+     * Read a little endian int.
+     *
+     * @param buf array
+     * @param pos position in array
+     * @return int value
+     */
+    private static int readInt(final byte[] buf, final int pos) {
+        return (buf[pos] & BYTE_MASK) | (buf[pos + 1] & BYTE_MASK) << SHIFT_8
+                | (buf[pos + 2] & BYTE_MASK) << SHIFT_16
+                | (buf[pos + MIN_MATCH - 1] & BYTE_MASK) << SHIFT_24;
+    }
+
+    /**
+     * Hash of 4 bytes.
+     *
+     * @param seq 4 bytes as int
+     * @return index in hash table
+     */
+    private static int hash(final int seq) {
+        return (seq * HASH_PRIME) >>> (Integer.SIZE - HASH_BITS);
+    }
+}
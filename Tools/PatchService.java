@@ -7,10 +7,17 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.rmi.server.ExportException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.zip.Adler32;
 
 import extract.Diff;
@@ -37,10 +44,6 @@ import extract.ExtractException;
  * Service for patching files.
  */
 public class PatchService {
-    /**
-     * 4 kilobytes.
-     */
-    private static final int FOUR_KB = 4096;
     /**
      * Number of continuous bytes needed for re-synchronization.
      */
@@ -57,6 +60,14 @@ public class PatchService {
      * File name of patching configuration.
      */
     private static final String PATCH_INI_NAME = "patch.ini";
+    /**
+     * Folder of the DIF files and the patching configuration.
+     */
+    private static final String PATCH_DIR = "patch";
+    /**
+     * Extension of temporary files written before replacing a file.
+     */
+    private static final String TEMP_EXTENSION = ".tmp";
     /**
      * index for CRCs - static since multiple runs are possible.
      */
@@ -94,7 +105,7 @@ public class PatchService {
             final String destinationPath,
             final Map<String, Object> createdFiles)
             throws ExtractException, ExportException {
-        patchPath = Extract.exchangeSeparators(Extract.addSeparator("patch"));
+        patchPath = getDefaultPatchPath();
         ignoreExt = props.get("ignore_ext", ignoreExt);
 
         if (referencePath != null) {
@@ -143,21 +154,9 @@ public class PatchService {
     public void patchAllFiles(final String destinationPath)
             throws ExtractException {
         // step eight: use patch.ini to extract/patch all files
-        // read patch.ini file
-        final Props pprops = new Props();
-        final URL fnp = Extract
-                .findFile(patchPath + PATCH_INI_NAME/* , this */); // if it's in
-                                                                   // the JAR or
-                                                                   // local
-                                                                   // directory
-
-        if (!pprops.load(fnp)) {
-            throw new ExtractException("File " + PATCH_INI_NAME
-                    + " not found or error while reading");
-        }
-
+        final Props pprops = loadPatchIni(patchPath);
         // copy
-        Extract.out("\nExtract files");
+        final List<Callable<String>> tasks = new ArrayList<Callable<String>>();
 
         for (int i = 0; true; i++) {
             String[] copy = {null, null};
@@ -168,23 +167,150 @@ public class PatchService {
                 break;
             }
 
-            Extract.out(copy[0]);
-            final String fnDecorated = copy[0].replace('/', '@');
-            final URL fnc = Extract
-                    .findFile(patchPath + fnDecorated /* , pprops */);
+            final String[] copyEntry = copy;
+            tasks.add(() -> extractFile(copyEntry, destinationPath));
+        }
 
-            try {
-                copyFile(fnc, destinationPath + copy[0]);
-            } catch (final Exception ex) {
-                throw new ExtractException(
-                        "Copying " + patchPath + getFileName(copy[0]) + " to "
-                                + destinationPath + copy[0] + " failed");
+        Extract.runTasks("Extract files", tasks);
+        patchFiles(pprops, destinationPath);
+    }
+
+    /**
+     * Read the CRCs which the extracted files have after patching: the CRCs of
+     * the patched files and of the files which are extracted unchanged.
+     *
+     * @param destinationPath Destination path (Lemmini resource) for
+     *                        extraction.
+     * @return final CRCs by lower case file name
+     * @throws ExtractException if patch.ini can't be read
+     */
+    public static Map<String, Long> readFinalCrcs(
+            final String destinationPath) throws ExtractException {
+        final Props pprops = loadPatchIni(getDefaultPatchPath());
+        final Map<String, Long> crcs = new HashMap<String, Long>();
+
+        for (final String key : new String[] {"patch_", "check_"}) {
+            for (int i = 0; true; i++) {
+                String[] entry = {null, null};
+                // 0: name 1: crc
+                entry = pprops.get(key + Integer.toString(i), entry);
+
+                if (entry[0] == null) {
+                    break;
+                }
+
+                if (entry.length < 2 || entry[1] == null) {
+                    continue;
+                }
+
+                try {
+                    crcs.put((destinationPath + entry[0]).toLowerCase(),
+                            Long.decode(entry[1].trim()));
+                } catch (final NumberFormatException ex) {
+                    // no valid CRC: the file is always extracted
+                }
             }
+        }
+
+        return crcs;
+    }
+
+    /**
+     * Get the path of the DIF files and the patching configuration.
+     *
+     * @return path of the DIF files with separator
+     */
+    private static String getDefaultPatchPath() {
+        return Extract.exchangeSeparators(Extract.addSeparator(PATCH_DIR));
+    }
+
+    /**
+     * Read patch.ini from the JAR or the local directory.
+     *
+     * @param path path of the DIF files
+     * @return properties of patch.ini
+     * @throws ExtractException if patch.ini can't be read
+     */
+    private static Props loadPatchIni(final String path)
+            throws ExtractException {
+        final Props pprops = new Props();
+        final URL fnp = Extract.findFile(path + PATCH_INI_NAME);
 
-            Extract.checkCancel();
+        if (fnp == null || !pprops.load(fnp)) {
+            throw new ExtractException("File " + PATCH_INI_NAME
+                    + " not found or error while reading");
         }
 
-        patchFiles(pprops, destinationPath);
+        return pprops;
+    }
+
+    /**
+     * Extract a file from the patch directory, unless the target already has
+     * the wanted CRC.
+     *
+     * @param copy            0: name 1: crc
+     * @param destinationPath Destination path (Lemmini resource) for
+     *                        extraction.
+     * @return line for the log
+     * @throws ExtractException if copying failed
+     */
+    private String extractFile(final String[] copy,
+            final String destinationPath) throws ExtractException {
+        Extract.checkCancel();
+        final String fnTrg = destinationPath + copy[0];
+
+        if (hasCrc(fnTrg, copy[1])) {
+            return copy[0] + " (unchanged)";
+        }
+
+        final String fnDecorated = copy[0].replace('/', '@');
+        final URL fnc = Extract
+                .findFile(patchPath + fnDecorated /* , pprops */);
+
+        try {
+            final byte[] buf = readFile(fnc);
+            writeFile(fnTrg, buf);
+            putCrc(fnTrg, buf);
+        } catch (final Exception ex) {
+            throw new ExtractException(
+                    "Copying " + patchPath + getFileName(copy[0]) + " to "
+                            + destinationPath + copy[0] + " failed");
+        }
+
+        return copy[0];
+    }
+
+    /**
+     * Check if a file already has the wanted CRC.
+     *
+     * @param fname file name
+     * @param crc   wanted CRC as hex string ("0x...")
+     * @return true if the file exists and has the wanted CRC
+     */
+    private static boolean hasCrc(final String fname, final String crc) {
+        if (crc == null || !new File(fname).isFile()) {
+            return false;
+        }
+
+        try {
+            return Long.decode(crc.trim()) == Extract.getCrc(fname);
+        } catch (final NumberFormatException ex) {
+            return false;
+        } catch (final ExtractException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Remember the CRC of a file which was just written.
+     *
+     * @param fname file name
+     * @param buf   content of the file
+     */
+    private static void putCrc(final String fname, final byte[] buf) {
+        final Adler32 crc = new Adler32();
+        crc.update(buf);
+        Extract.putCrc(fname, crc.getValue());
     }
 
     /**
@@ -238,12 +364,9 @@ public class PatchService {
 
             try {
                 Extract.out(fnIn);
-                // read src file
-                final byte[] src = Extract.readFile(fnIn);
-                final Adler32 crc32 = new Adler32();
-                crc32.update(src);
-                out = subDir + files[i].getName() + ", " + src.length + ", 0x"
-                        + Long.toHexString(crc32.getValue());
+                final long crc = CrcCache.computeCrc(files[i]);
+                out = subDir + files[i].getName() + ", " + files[i].length()
+                        + ", 0x" + Long.toHexString(crc);
                 fCRCList.write("crc_" + (Integer.toString(crcNo++)) + " = "
                         + out + "\n");
             } catch (final Exception ex) {
@@ -520,7 +643,7 @@ public class PatchService {
     private void patchFiles(final Props pprops, final String destinationPath)
             throws ExtractException {
         // patch
-        Extract.out("\nPatch files");
+        final List<Callable<String>> tasks = new ArrayList<Callable<String>>();
 
         for (int i = 0; true; i++) {
             String[] ppath = {null, null};
@@ -531,36 +654,59 @@ public class PatchService {
                 break;
             }
 
-            Extract.out(ppath[0]);
-            String fnDif = ppath[0].replace('/', '@'); // getFileName(ppath[0]);
-            int pos = fnDif.toLowerCase().lastIndexOf('.');
+            final String[] patchEntry = ppath;
+            tasks.add(() -> patchFile(patchEntry, destinationPath));
+        }
 
-            if (pos == -1) {
-                pos = fnDif.length();
-            }
+        Extract.runTasks("Patch files", tasks);
+    }
+
+    /**
+     * Patch a file, unless it already has the wanted CRC.
+     *
+     * @param ppath           0: name 1: crc
+     * @param destinationPath Destination path (Lemmini resource) for
+     *                        extraction.
+     * @return line for the log
+     * @throws ExtractException if patching failed
+     */
+    private String patchFile(final String[] ppath,
+            final String destinationPath) throws ExtractException {
+        Extract.checkCancel();
 
-            fnDif = fnDif.substring(0, pos) + ".dif";
-            final URL urlDif = Extract.findFile(patchPath + fnDif);
+        if (hasCrc(destinationPath + ppath[0], ppath[1])) {
+            return ppath[0] + " (unchanged)";
+        }
 
-            if (urlDif == null) {
-                throw new ExtractException("Patching of file " + destinationPath
-                        + ppath[0] + " failed.\n");
-            }
+        String fnDif = ppath[0].replace('/', '@'); // getFileName(ppath[0]);
+        int pos = fnDif.toLowerCase().lastIndexOf('.');
 
-            final byte[] dif = readFile(urlDif);
-            final byte[] src = Extract.readFile(destinationPath + ppath[0]);
+        if (pos == -1) {
+            pos = fnDif.length();
+        }
 
-            try {
-                final byte[] trg = Diff.patchbuffers(src, dif);
-                // write new file
-                writeFile(destinationPath + ppath[0], trg);
-            } catch (final DiffException ex) {
-                throw new ExtractException("Patching of file " + destinationPath
-                        + ppath[0] + " failed.\n" + ex.getMessage());
-            }
+        fnDif = fnDif.substring(0, pos) + ".dif";
+        final URL urlDif = Extract.findFile(patchPath + fnDif);
 
-            Extract.checkCancel();
+        if (urlDif == null) {
+            throw new ExtractException("Patching of file " + destinationPath
+                    + ppath[0] + " failed.\n");
         }
+
+        final byte[] dif = readFile(urlDif);
+        final byte[] src = Extract.readFile(destinationPath + ppath[0]);
+
+        try {
+            final byte[] trg = Diff.patchbuffers(src, dif);
+            // write new file
+            writeFile(destinationPath + ppath[0], trg);
+            putCrc(destinationPath + ppath[0], trg);
+        } catch (final DiffException ex) {
+            throw new ExtractException("Patching of file " + destinationPath
+                    + ppath[0] + " failed.\n" + ex.getMessage());
+        }
+
+        return ppath[0];
     }
 
     /**
@@ -586,22 +732,6 @@ public class PatchService {
         return path.substring(p1);
     }
 
-    /**
-     * Copy a file.
-     *
-     * @param source      URL of source file
-     * @param destination full destination file name including path
-     * @throws FileNotFoundException
-     * @throws IOException
-     */
-    private void copyFile(final URL source, final String destination)
-            throws FileNotFoundException, IOException {
-        try (InputStream fSrc = source.openStream();
-                FileOutputStream fDest = new FileOutputStream(destination);) {
-            Extract.writeFromInputStreamToOutputStream(fSrc, fDest);
-        }
-    }
-
     /**
      * Read file into an array of byte.
      *
@@ -612,24 +742,9 @@ public class PatchService {
     private byte[] readFile(final URL fname) throws ExtractException {
         byte[] buf = null;
 
+        // URLs/InputStreams suck: we can't read a length
         try (InputStream f = fname.openStream();) {
-            final byte[] buffer = new byte[FOUR_KB];
-            // URLs/InputStreams suck: we can't read a length
-            int len;
-            final List<Byte> lbuf = new ArrayList<Byte>();
-
-            while ((len = f.read(buffer)) != -1) {
-                for (int i = 0; i < len; i++) {
-                    lbuf.add(buffer[i]);
-                }
-            }
-
-            // reconstruct byte array from ArrayList
-            buf = new byte[lbuf.size()];
-
-            for (int i = 0; i < lbuf.size(); i++) {
-                buf[i] = lbuf.get(i).byteValue();
-            }
+            buf = f.readAllBytes();
         } catch (final FileNotFoundException ex) {
             throw new ExtractException("File " + fname + " not found");
         } catch (final IOException ex) {
@@ -641,7 +756,8 @@ public class PatchService {
     }
 
     /**
-     * Write array of byte to file.
+     * Write array of byte to file. The data is written to a temporary file
+     * which then replaces the file, so the file is never left half written.
      *
      * @param fname file name
      * @param buf   array of byte
@@ -649,9 +765,26 @@ public class PatchService {
      */
     private void writeFile(final String fname, final byte[] buf)
             throws ExtractException {
-        try (FileOutputStream f = new FileOutputStream(fname);) {
-            f.write(buf);
+        final Path trg = Paths.get(fname);
+        final Path tmp = Paths.get(fname + TEMP_EXTENSION);
+
+        try {
+            try (FileOutputStream f = new FileOutputStream(tmp.toFile());) {
+                f.write(buf);
+            }
+
+            try {
+                Files.move(tmp, trg, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, trg, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (final IOException ex) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (final IOException ex2) {
+            }
+
             throw new ExtractException(
                     "IO exception while writing file " + fname);
         }
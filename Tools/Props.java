@@ -1,11 +1,14 @@
 package tools;
 
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
 
 /*
@@ -257,6 +260,42 @@ public class Props {
         }
     }
 
+    /**
+     * Save property file with the keys sorted and without the time stamp, so
+     * the file only changes if a property changes.
+     *
+     * @param fname File name of property file
+     * @return True if OK, false if exception occurred
+     */
+    public boolean saveSorted(final String fname) {
+        try (FileOutputStream f = new FileOutputStream(fname)) {
+            final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            // without comments, the first line is the time stamp
+            hash.store(buf, null);
+            final String[] lines = buf.toString(StandardCharsets.ISO_8859_1)
+                    .split("\\R");
+            final String[] entries = Arrays.copyOfRange(lines, 1,
+                    lines.length);
+            Arrays.sort(entries);
+            final StringBuilder sb = new StringBuilder();
+
+            if (!header.isEmpty()) {
+                sb.append('#').append(header).append(System.lineSeparator());
+            }
+
+            for (final String e : entries) {
+                sb.append(e).append(System.lineSeparator());
+            }
+
+            f.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+            return true;
+        } catch (final FileNotFoundException e) {
+            return false;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Load property file.
      *
@@ -274,6 +313,21 @@ public class Props {
         }
     }
 
+    /**
+     * Load properties from the content of a property file.
+     *
+     * @param data content of property file
+     * @return True if OK, false if exception occurred
+     */
+    public boolean load(final byte[] data) {
+        try (InputStream f = new ByteArrayInputStream(data)) {
+            hash.load(f);
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Load property file.
      *
@@ -281,7 +335,7 @@ public class Props {
      * @return True if OK, false if exception occurred
      */
     public boolean load(final String fname) {
-        try (FileInputStream f = new FileInputStream(fname)) {
+        try (InputStream f = Resources.open(fname)) {
             hash.load(f);
             return true;
         } catch (final FileNotFoundException e) {
@@ -0,0 +1,450 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Read only archive of resource files which is memory mapped as a whole.
+ *
+ * <pre>
+ * header:    int magic, int version, int number of entries,
+ *            long offset of central directory
+ * data:      entries, stored or LZ4 compressed
+ * directory: per entry: short length of name, name (UTF-8, "/" separated),
+ *            long offset, int stored size, int size, byte method
+ * </pre>
+ *
+ * All values are little endian. Stored entries are returned as slices of the
+ * mapping without copying. The folders are indexed once when the archive is
+ * opened, so listing a folder doesn't scan the entries. An archive is created from a folder with
+ * {@link #create(File, File, boolean)} or from the command line:
+ * <code>java tools.ResourceArchive folder archive [-lz4]</code>.
+ *
+ * @author Volker Oth
+ */
+public class ResourceArchive {
+    /** magic number: "LARC". */
+    private static final int MAGIC = 0x4352414c;
+    /** version of the file format. */
+    private static final int VERSION = 1;
+    /** size of the header in bytes. */
+    private static final int HEADER_SIZE = 20;
+    /** method: stored. */
+    private static final byte STORED = 0;
+    /** method: LZ4 block. */
+    private static final byte LZ4 = 1;
+    /** extension of archives which are being written. */
+    private static final String TEMP_EXTENSION = ".tmp";
+    /** mask of a byte. */
+    private static final int BYTE_MASK = 0xff;
+    /** mask of a short. */
+    private static final int SHORT_MASK = 0xffff;
+
+    /**
+     * Entry of the central directory.
+     */
+    private static final class Entry {
+        /** offset of the data in the archive. */
+        private final int offset;
+        /** size of the data in the archive. */
+        private final int storedSize;
+        /** size of the uncompressed data. */
+        private final int size;
+        /** compression method. */
+        private final byte method;
+
+        /**
+         * Constructor.
+         *
+         * @param ofs    offset of the data in the archive
+         * @param stored size of the data in the archive
+         * @param sz     size of the uncompressed data
+         * @param m      compression method
+         */
+        Entry(final int ofs, final int stored, final int sz, final byte m) {
+            offset = ofs;
+            storedSize = stored;
+            size = sz;
+            method = m;
+        }
+    }
+
+    /**
+     * Input stream reading from a byte buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        /** buffer to read from. */
+        private final ByteBuffer buf;
+
+        /**
+         * Constructor.
+         *
+         * @param b buffer to read from (from its position to its limit)
+         */
+        BufferInputStream(final ByteBuffer b) {
+            buf = b;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & BYTE_MASK : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+
+            final int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int s = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + s);
+            return s;
+        }
+    }
+
+    /** the mapped archive. */
+    private final MappedByteBuffer map;
+    /** entries by name. */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    /** sorted names of the files and folders inside each folder. */
+    private final Map<String, List<String>> folders =
+            new HashMap<String, List<String>>();
+
+    /**
+     * Open an archive.
+     *
+     * @param f archive file
+     * @throws IOException if the file can't be read or isn't an archive
+     */
+    public ResourceArchive(final File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(),
+                StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(f.getName() + " is too large");
+            }
+
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        final ByteBuffer b = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            if (b.getInt() != MAGIC || b.getInt() != VERSION) {
+                throw new IOException(f.getName() + " is no resource archive");
+            }
+
+            final int num = b.getInt();
+            b.position((int) b.getLong());
+
+            for (int i = 0; i < num; i++) {
+                final byte[] name = new byte[b.getShort() & SHORT_MASK];
+                b.get(name);
+                final Entry e = new Entry((int) b.getLong(), b.getInt(),
+                        b.getInt(), b.get());
+
+                if (e.offset < HEADER_SIZE || e.storedSize < 0
+                        || e.offset + e.storedSize > map.capacity()) {
+                    throw new IOException(f.getName() + " is corrupt");
+                }
+
+                entries.put(new String(name, StandardCharsets.UTF_8), e);
+            }
+        } catch (final RuntimeException ex) {
+            throw new IOException(f.getName() + " is corrupt", ex);
+        }
+
+        indexFolders();
+    }
+
+    /**
+     * Build the index of the folders from the entry names.
+     */
+    private void indexFolders() {
+        final Map<String, Set<String>> tree =
+                new HashMap<String, Set<String>>();
+
+        for (final String n : entries.keySet()) {
+            String parent = "";
+            int start = 0;
+            int slash;
+
+            while ((slash = n.indexOf('/', start)) >= 0) {
+                tree.computeIfAbsent(parent, k -> new TreeSet<String>())
+                        .add(n.substring(start, slash));
+                parent = n.substring(0, slash);
+                start = slash + 1;
+            }
+
+            tree.computeIfAbsent(parent, k -> new TreeSet<String>())
+                    .add(n.substring(start));
+        }
+
+        for (final Map.Entry<String, Set<String>> e : tree.entrySet()) {
+            folders.put(e.getKey(), Collections
+                    .unmodifiableList(new ArrayList<String>(e.getValue())));
+        }
+    }
+
+    /**
+     * Get the index key of a folder.
+     *
+     * @param dir name of folder ("/" separated, "" for the root)
+     * @return name without separator at the end
+     */
+    private static String getFolderKey(final String dir) {
+        return dir.endsWith("/") ? dir.substring(0, dir.length() - 1) : dir;
+    }
+
+    /**
+     * Check if the archive contains an entry.
+     *
+     * @param name name of entry ("/" separated)
+     * @return true if the entry exists
+     */
+    public boolean contains(final String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Get uncompressed size of an entry.
+     *
+     * @param name name of entry ("/" separated)
+     * @return size in bytes or -1 if the entry doesn't exist
+     */
+    public int getSize(final String name) {
+        final Entry e = entries.get(name);
+        return e != null ? e.size : -1;
+    }
+
+    /**
+     * Get the data of an entry. Stored entries are read only slices of the
+     * mapped archive, compressed entries are decompressed into a new buffer.
+     *
+     * @param name name of entry ("/" separated)
+     * @return data or null if the entry doesn't exist
+     * @throws IOException if the entry is corrupt
+     */
+    public ByteBuffer getBuffer(final String name) throws IOException {
+        final Entry e = entries.get(name);
+
+        if (e == null) {
+            return null;
+        }
+
+        final ByteBuffer data = map.asReadOnlyBuffer().position(e.offset)
+                .limit(e.offset + e.storedSize).slice();
+
+        if (e.method == STORED) {
+            return data;
+        }
+
+        try {
+            return ByteBuffer.wrap(Lz4.decompress(data, e.size));
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException(name + " is corrupt", ex);
+        }
+    }
+
+    /**
+     * Open an entry as stream.
+     *
+     * @param name name of entry ("/" separated)
+     * @return input stream or null if the entry doesn't exist
+     * @throws IOException if the entry is corrupt
+     */
+    public InputStream open(final String name) throws IOException {
+        final ByteBuffer b = getBuffer(name);
+        return b != null ? new BufferInputStream(b) : null;
+    }
+
+    /**
+     * List the names of the files and folders inside a folder.
+     *
+     * @param dir name of folder ("/" separated, "" for the root)
+     * @return sorted names (without path) of the files and folders
+     */
+    public List<String> list(final String dir) {
+        final List<String> names = folders.get(getFolderKey(dir));
+        return names != null ? names : Collections.<String>emptyList();
+    }
+
+    /**
+     * Check whether a folder exists inside the archive.
+     *
+     * @param dir name of folder ("/" separated)
+     * @return true if an entry is inside the folder
+     */
+    public boolean isDirectory(final String dir) {
+        return folders.containsKey(getFolderKey(dir));
+    }
+
+    /**
+     * Create an archive from all files inside a folder. The archive is
+     * written under a temporary name and renamed when complete.
+     *
+     * @param dir      folder to pack
+     * @param archive  archive file to create (skipped if inside the folder)
+     * @param compress true to compress entries with LZ4 (entries which don't
+     *                 get smaller are stored)
+     * @throws IOException
+     */
+    public static void create(final File dir, final File archive,
+            final boolean compress) throws IOException {
+        final Path root = dir.toPath().toAbsolutePath().normalize();
+        final Path target = archive.toPath().toAbsolutePath().normalize();
+        final Path temp = Paths.get(target + TEMP_EXTENSION);
+        List<Path> files;
+
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(Files::isRegularFile)
+                    .filter(p -> !p.equals(target) && !p.equals(temp))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        final List<byte[]> directory = new ArrayList<byte[]>();
+
+        try (FileChannel ch = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(HEADER_SIZE);
+
+            for (final Path p : files) {
+                final byte[] data = Files.readAllBytes(p);
+                byte[] stored = data;
+                byte method = STORED;
+
+                if (compress) {
+                    final byte[] c = Lz4.compress(data);
+
+                    if (c.length < data.length) {
+                        stored = c;
+                        method = LZ4;
+                    }
+                }
+
+                final long ofs = ch.position();
+                writeFully(ch, ByteBuffer.wrap(stored));
+                final byte[] name = root.relativize(p).toString()
+                        .replace(File.separatorChar, '/')
+                        .getBytes(StandardCharsets.UTF_8);
+                final ByteBuffer e = ByteBuffer.allocate(name.length
+                        + Short.BYTES + Long.BYTES + 2 * Integer.BYTES + 1)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                e.putShort((short) name.length).put(name).putLong(ofs)
+                        .putInt(stored.length).putInt(data.length).put(method);
+                directory.add(e.array());
+            }
+
+            final long dirOfs = ch.position();
+
+            for (final byte[] e : directory) {
+                writeFully(ch, ByteBuffer.wrap(e));
+            }
+
+            if (ch.position() > Integer.MAX_VALUE) {
+                throw new IOException(archive.getName() + " is too large");
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(directory.size())
+                    .putLong(dirOfs).flip();
+            ch.position(0);
+            writeFully(ch, header);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Write a buffer completely.
+     *
+     * @param ch  channel to write to
+     * @param buf buffer to write
+     * @throws IOException
+     */
+    private static void writeFully(final FileChannel ch, final ByteBuffer buf)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    /**
+     * Create an archive from the command line.
+     *
+     * @param args folder, archive file and optionally "-lz4"
+     */
+    public static void main(final String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: ResourceArchive folder archive [-lz4]");
+            System.exit(1);
+        }
+
+        try {
+            create(new File(args[0]), new File(args[1]),
+                    args.length > 2 && args[2].equalsIgnoreCase("-lz4"));
+        } catch (final IOException ex) {
+            System.out.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
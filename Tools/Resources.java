@@ -0,0 +1,238 @@
+package tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Access to resource files which are either loose files or entries of a
+ * {@link ResourceArchive} in the resource folder. Paths are the usual file
+ * paths; paths inside the resource folder are looked up in the archive first
+ * and only in the file system if the archive doesn't contain them. If
+ * overrides are enabled, loose files take precedence over archive entries,
+ * so single files can be replaced without rebuilding the archive. This costs
+ * a file system lookup for every archive entry.
+ *
+ * @author Volker Oth
+ */
+public final class Resources {
+    /** name of the archive inside the resource folder. */
+    public static final String ARCHIVE_NAME = "resources.lar";
+
+    /** resource folder with separator at the end. */
+    private static volatile String root = "";
+    /** archive of the resource folder (null if none). */
+    private static volatile ResourceArchive archive;
+    /** true if loose files take precedence over archive entries. */
+    private static volatile boolean overrides;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private Resources() {
+
+    }
+
+    /**
+     * Set the resource folder and open its archive if there is one.
+     *
+     * @param resourcePath resource folder
+     * @param override     true if loose files take precedence over archive
+     *                     entries
+     */
+    public static synchronized void init(final String resourcePath,
+            final boolean override) {
+        overrides = override;
+        // no ToolBox.addSeparator(): ToolBox needs a graphics environment
+        root = resourcePath.isEmpty() || resourcePath.endsWith("/")
+                || resourcePath.endsWith(File.separator) ? resourcePath
+                        : resourcePath + File.separator;
+        archive = null;
+        final File f = new File(root + ARCHIVE_NAME);
+
+        if (f.isFile()) {
+            try {
+                archive = new ResourceArchive(f);
+            } catch (final IOException ex) {
+                System.out.println(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the archive entry name of a path.
+     *
+     * @param path file path
+     * @return entry name or null if there is no archive or the path is not
+     *         inside the resource folder
+     */
+    private static String getEntryName(final String path) {
+        if (archive == null || root.isEmpty()) {
+            return null;
+        }
+
+        final String p = path.replace('\\', '/');
+        final String r = root.replace('\\', '/');
+
+        if (!p.startsWith(r)) {
+            return null;
+        }
+
+        String name = p.substring(r.length());
+
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+
+        return name.replace("//", "/");
+    }
+
+    /**
+     * Get the archive entry to read for a path.
+     *
+     * @param path file path
+     * @return entry name or null if the path is read from the file system
+     */
+    private static String getArchived(final String path) {
+        final String name = getEntryName(path);
+
+        if (name == null || !archive.contains(name)
+                || (overrides && new File(path).isFile())) {
+            return null;
+        }
+
+        return name;
+    }
+
+    /**
+     * Check whether a resource exists.
+     *
+     * @param path file path
+     * @return true if the file or archive entry exists
+     */
+    public static boolean exists(final String path) {
+        final String name = getEntryName(path);
+
+        if (name != null
+                && (archive.contains(name) || archive.isDirectory(name))) {
+            return true;
+        }
+
+        return new File(path).exists();
+    }
+
+    /**
+     * Check whether a path is a folder.
+     *
+     * @param path file path
+     * @return true if the path is a folder or a folder inside the archive
+     */
+    public static boolean isDirectory(final String path) {
+        final String name = getEntryName(path);
+
+        if (name != null && archive.isDirectory(name)) {
+            return true;
+        }
+
+        return new File(path).isDirectory();
+    }
+
+    /**
+     * Open a resource.
+     *
+     * @param path file path
+     * @return input stream
+     * @throws IOException if the resource doesn't exist or can't be read
+     */
+    public static InputStream open(final String path) throws IOException {
+        final String name = getArchived(path);
+
+        if (name != null) {
+            return archive.open(name);
+        }
+
+        final File f = new File(path);
+
+        if (!f.isFile()) {
+            throw new FileNotFoundException(path);
+        }
+
+        return new FileInputStream(f);
+    }
+
+    /**
+     * Read a resource completely.
+     *
+     * @param path file path
+     * @return contents
+     * @throws IOException if the resource doesn't exist or can't be read
+     */
+    public static byte[] readAllBytes(final String path) throws IOException {
+        try (InputStream in = open(path)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Get the size of a resource.
+     *
+     * @param path file path
+     * @return size in bytes or 0 if the resource doesn't exist
+     */
+    public static long length(final String path) {
+        final String name = getArchived(path);
+
+        if (name != null) {
+            return archive.getSize(name);
+        }
+
+        final File f = new File(path);
+        return f.isFile() ? f.length() : 0;
+    }
+
+    /**
+     * List the files and folders inside a folder, from the file system and
+     * the archive.
+     *
+     * @param path path of folder
+     * @return sorted names (without path)
+     */
+    public static String[] list(final String path) {
+        final Set<String> names = new TreeSet<String>();
+        final String[] files = new File(path).list();
+
+        if (files != null) {
+            for (final String n : files) {
+                names.add(n);
+            }
+        }
+
+        final String name = getEntryName(path);
+
+        if (name != null) {
+            names.addAll(archive.list(name));
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+}
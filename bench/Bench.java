@@ -0,0 +1,190 @@
+package bench;
+
+import java.util.Locale;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A single micro benchmark measured like JMH in average time mode: a number
+ * of warmup iterations are run and discarded, then each measurement
+ * iteration calls the operation for a fixed time and the time per operation
+ * is averaged over the iterations. The results of the operation are
+ * accumulated into a volatile field, so the JIT can't remove the work.
+ *
+ * @author Volker Oth
+ */
+public class Bench {
+    /**
+     * Setup code run before each iteration (not measured).
+     */
+    public interface Setup {
+        /**
+         * Prepare the next iteration.
+         *
+         * @throws Exception if the fixture can't be prepared
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The measured operation.
+     */
+    public interface Op {
+        /**
+         * Execute the operation once.
+         *
+         * @return any value depending on the work done (consumed as sink)
+         * @throws Exception if the operation fails
+         */
+        long run() throws Exception;
+    }
+
+    /** nanoseconds per millisecond. */
+    private static final long NS_PER_MS = 1000000L;
+    /** Student's t for a 99.9% confidence interval (large sample). */
+    private static final double T_999 = 3.29;
+
+    /** sink for the results of all operations. */
+    private static volatile long sink;
+
+    /** name of the benchmark. */
+    private final String name;
+    /** setup before each iteration or null. */
+    private final Setup setup;
+    /** measured operation. */
+    private final Op op;
+    /** number of operations done by one call of {@link #op}. */
+    private final int batch;
+
+    /**
+     * Constructor.
+     *
+     * @param benchName name of the benchmark
+     * @param s         setup before each iteration or null
+     * @param o         measured operation
+     * @param b         number of operations done by one call of the operation
+     *                  (the result is reported per operation)
+     */
+    public Bench(final String benchName, final Setup s, final Op o,
+            final int b) {
+        name = benchName;
+        setup = s;
+        op = o;
+        batch = b;
+    }
+
+    /**
+     * Get the name.
+     *
+     * @return name of the benchmark
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param warmups    number of warmup iterations
+     * @param iterations number of measurement iterations
+     * @param millis     duration of one iteration in milliseconds
+     * @return nanoseconds per operation of each measurement iteration
+     * @throws Exception if setup or operation fail
+     */
+    public double[] run(final int warmups, final int iterations,
+            final int millis) throws Exception {
+        final double[] result = new double[iterations];
+
+        for (int i = 0; i < warmups; i++) {
+            iteration(millis);
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            result[i] = iteration(millis);
+        }
+
+        return result;
+    }
+
+    /**
+     * Run one iteration.
+     *
+     * @param millis duration in milliseconds
+     * @return nanoseconds per operation
+     * @throws Exception if setup or operation fail
+     */
+    private double iteration(final int millis) throws Exception {
+        if (setup != null) {
+            setup.run();
+        }
+
+        final long duration = millis * NS_PER_MS;
+        long acc = 0;
+        long calls = 0;
+        final long start = System.nanoTime();
+        long now;
+
+        do {
+            acc += op.run();
+            calls++;
+            now = System.nanoTime();
+        } while (now - start < duration);
+
+        sink += acc;
+        return (double) (now - start) / (calls * batch);
+    }
+
+    /**
+     * Format the result of a benchmark like JMH: mean and the half width of
+     * the 99.9% confidence interval in nanoseconds per operation.
+     *
+     * @param benchName name of the benchmark
+     * @param ns        nanoseconds per operation of each iteration
+     * @return formatted line
+     */
+    public static String format(final String benchName, final double[] ns) {
+        double mean = 0;
+
+        for (final double d : ns) {
+            mean += d;
+        }
+
+        mean /= ns.length;
+        double var = 0;
+
+        for (final double d : ns) {
+            var += (d - mean) * (d - mean);
+        }
+
+        final double error = ns.length > 1
+                ? T_999 * Math.sqrt(var / (ns.length - 1) / ns.length)
+                : Double.NaN;
+        return String.format(Locale.ROOT,
+                "%-28s avgt %4d %14.3f +- %12.3f ns/op", benchName,
+                ns.length, mean, error);
+    }
+
+    /**
+     * Get the header line for {@link #format(String, double[])}.
+     *
+     * @return header
+     */
+    public static String header() {
+        return String.format(Locale.ROOT, "%-28s %4s %4s %14s   %12s %s",
+                "Benchmark", "Mode", "Cnt", "Score", "Error", "Units");
+    }
+}
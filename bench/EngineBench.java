@@ -0,0 +1,640 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.swing.JFrame;
+
+import extract.Diff;
+import extract.GifEncoder;
+import game.Core;
+import game.GameController;
+import game.LemmException;
+import game.LemmingHandler;
+import game.SoundController;
+import game.Type;
+import game.lemmings.Direction;
+import game.lemmings.Lemming;
+import game.lemmings.LemmingAnimator;
+import game.lemmings.LemmingImageLoader;
+import game.level.ChunkedImage;
+import game.level.Entry;
+import game.level.Level;
+import game.level.LevelLoader;
+import game.level.LevelPainter;
+import game.level.Mask;
+import game.level.Stencil;
+import game.replay.ReplayStream;
+import gameutil.FaderHandler;
+import micromod.Micromod;
+import tools.Props;
+import tools.Resources;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Micro benchmarks of the engine hot paths, see {@link Bench}.
+ * <p>
+ * The headless benchmarks (Stencil, Micromod, Diff, GifEncoder, replay
+ * loading) use fixtures built from the files in the patch folder. If a folder
+ * with the GifEncoder class of an older revision is given, the GifEncoder is
+ * compared with it, encoding one image per call like the extraction does.
+ * Both must write identical files. The level
+ * benchmarks (masks, Lemmings, level painting, mini map) need the extracted
+ * resource folder and a graphics environment; they are only run if a resource
+ * folder is given.
+ *
+ * <pre>
+ * java bench.EngineBench [options] [regex]
+ *   -w n      warmup iterations (default 5)
+ *   -i n      measurement iterations (default 5)
+ *   -t ms     duration of an iteration in milliseconds (default 1000)
+ *   -p folder patch folder (default "patch")
+ *   -r folder resource folder: also run the level benchmarks
+ *   -l n      level of the first pack to use (default 0)
+ *   -g folder folder with an older extract.GifEncoder class to compare with
+ * </pre>
+ *
+ * Only benchmarks whose name contains the regular expression are run.
+ *
+ * @author Volker Oth
+ */
+public final class EngineBench {
+    /** default number of warmup iterations. */
+    private static final int DEFAULT_WARMUPS = 5;
+    /** default number of measurement iterations. */
+    private static final int DEFAULT_ITERATIONS = 5;
+    /** default duration of an iteration in milliseconds. */
+    private static final int DEFAULT_MILLIS = 1000;
+    /** frames mixed by one call of Micromod.mix. */
+    private static final int MIX_FRAMES = 1024;
+    /** sample rate used for Micromod. */
+    private static final int SAMPLE_RATE = 44100;
+    /** MOD used for the Micromod and Diff benchmarks. */
+    private static final String MOD_NAME = "music@lemming1.mod";
+    /** every n-th byte of the MOD is changed for the Diff target. */
+    private static final int DIFF_STRIDE = 97;
+    /** number of bytes inserted into the Diff target. */
+    private static final int DIFF_INSERT = 256;
+    /** number of events in the replay file. */
+    private static final int REPLAY_EVENTS = 2000;
+    /** frames between two replay events. */
+    private static final int REPLAY_STEP = 3;
+    /** number of Lemmings animated per call. */
+    private static final int POPULATION = 100;
+    /** number of mask positions per call. */
+    private static final int MASK_POSITIONS = 64;
+    /** scaling factor of the mini map. */
+    private static final int MINIMAP_SCALE = 16;
+    /** step of the Lemming position used by freeBelow. */
+    private static final int FREE_BELOW_STEP = 4;
+    /** y offset of the created Lemmings below the entry. */
+    private static final int ENTRY_Y_OFS = 20;
+    /** x offset of the created Lemmings from the entry. */
+    private static final int ENTRY_X_OFS = 2;
+    /** exit code for errors. */
+    private static final int EXIT_ERROR = 2;
+
+    /** name of the GifEncoder class. */
+    private static final String GIF_ENCODER = "extract.GifEncoder";
+
+    /** patch folder with separator at the end. */
+    private static String patchDir = "patch" + File.separator;
+    /** folder with an older GifEncoder class (null: don't compare). */
+    private static String gifBaselineDir;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private EngineBench() {
+
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args command line arguments (see class description)
+     */
+    public static void main(final String[] args) {
+        int warmups = DEFAULT_WARMUPS;
+        int iterations = DEFAULT_ITERATIONS;
+        int millis = DEFAULT_MILLIS;
+        int lvl = 0;
+        String res = null;
+        Pattern filter = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-w":
+                warmups = Integer.parseInt(args[++i]);
+                break;
+            case "-i":
+                iterations = Integer.parseInt(args[++i]);
+                break;
+            case "-t":
+                millis = Integer.parseInt(args[++i]);
+                break;
+            case "-p":
+                patchDir = args[++i] + File.separator;
+                break;
+            case "-r":
+                res = args[++i];
+                break;
+            case "-l":
+                lvl = Integer.parseInt(args[++i]);
+                break;
+            case "-g":
+                gifBaselineDir = args[++i];
+                break;
+            default:
+                filter = Pattern.compile(args[i]);
+                break;
+            }
+        }
+
+        try {
+            final List<Bench> benches = new ArrayList<Bench>();
+            addHeadless(benches);
+
+            if (res != null) {
+                addLevel(benches, res, lvl);
+            }
+
+            System.out.println(Bench.header());
+
+            for (final Bench b : benches) {
+                if (filter == null || filter.matcher(b.getName()).find()) {
+                    System.out.println(Bench.format(b.getName(),
+                            b.run(warmups, iterations, millis)));
+                }
+            }
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+            System.exit(EXIT_ERROR);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Add the benchmarks which don't need resources or graphics.
+     *
+     * @param benches list to add to
+     * @throws Exception if a fixture can't be created
+     */
+    private static void addHeadless(final List<Bench> benches)
+            throws Exception {
+        final Stencil stencil = new Stencil(Level.WIDTH, Level.HEIGHT);
+        final int size = Level.WIDTH * Level.HEIGHT;
+        benches.add(new Bench("Stencil.get", null, () -> {
+            long sum = 0;
+
+            for (int y = 0; y < Level.HEIGHT; y++) {
+                for (int x = 0; x < Level.WIDTH; x++) {
+                    sum += stencil.get(x, y);
+                }
+            }
+
+            return sum;
+        }, size));
+        benches.add(new Bench("Stencil.set", null, () -> {
+            for (int y = 0; y < Level.HEIGHT; y++) {
+                for (int x = 0; x < Level.WIDTH; x++) {
+                    stencil.set(x, y, x ^ y);
+                }
+            }
+
+            return stencil.get(1, 1);
+        }, size));
+
+        final byte[] mod = Files
+                .readAllBytes(new File(patchDir + MOD_NAME).toPath());
+        final int[] mix = new int[MIX_FRAMES << 1];
+        final Micromod[] mm = new Micromod[1];
+        benches.add(new Bench("Micromod.mix",
+                () -> mm[0] = new Micromod(mod, SAMPLE_RATE), () -> {
+                    Arrays.fill(mix, 0);
+                    mm[0].mix(mix, 0, MIX_FRAMES);
+                    return mix[MIX_FRAMES];
+                }, MIX_FRAMES));
+
+        final byte[] target = mutate(mod);
+        final byte[] patch = Diff.diffBuffers(mod, target);
+        benches.add(new Bench("Diff.diffBuffers", null,
+                () -> Diff.diffBuffers(mod, target).length, 1));
+        benches.add(new Bench("Diff.patchbuffers", null,
+                () -> Diff.patchbuffers(mod, patch).length, 1));
+
+        final BufferedImage gifImg = loadLargestGif();
+        final int gifWidth = gifImg.getWidth();
+        final int gifHeight = gifImg.getHeight();
+        final byte[] gifPixels = getIndexedPixels(gifImg);
+        final IndexColorModel icm = (IndexColorModel) gifImg.getColorModel();
+        final int trans = icm.getTransparentPixel();
+        final byte[] red = new byte[icm.getMapSize()];
+        final byte[] green = new byte[icm.getMapSize()];
+        final byte[] blue = new byte[icm.getMapSize()];
+        icm.getReds(red);
+        icm.getGreens(green);
+        icm.getBlues(blue);
+        final GifEncoder gif = new GifEncoder();
+        final ByteArrayOutputStream gifOut = new ByteArrayOutputStream();
+        final Bench.Op encode = () -> {
+            gifOut.reset();
+            gif.setImage(gifWidth, gifHeight, gifPixels, red, green, blue);
+            gif.setTransparentPixel(trans);
+            gif.write(gifOut);
+            return gifOut.size();
+        };
+        benches.add(new Bench("GifEncoder.write", null, encode, 1));
+
+        if (gifBaselineDir != null) {
+            // the older encoder has the same name, so it's loaded by its own
+            // class loader which looks into the baseline folder first
+            final URLClassLoader loader = new URLClassLoader(new URL[] {
+                    new File(gifBaselineDir).toURI().toURL(),
+                    GifEncoder.class.getProtectionDomain().getCodeSource()
+                            .getLocation()},
+                    ClassLoader.getPlatformClassLoader());
+            final Class<?> cls = loader.loadClass(GIF_ENCODER);
+            final Constructor<?> create = cls.getConstructor(int.class,
+                    int.class, byte[].class, byte[].class, byte[].class,
+                    byte[].class);
+            final Method setTrans = cls.getMethod("setTransparentPixel",
+                    int.class);
+            final Method write = cls.getMethod("write", OutputStream.class);
+            final Bench.Op encodeBaseline = () -> {
+                gifOut.reset();
+                final Object enc = create.newInstance(gifWidth, gifHeight,
+                        gifPixels, red, green, blue);
+                setTrans.invoke(enc, trans);
+                write.invoke(enc, gifOut);
+                return gifOut.size();
+            };
+            encode.run();
+            final byte[] expected = gifOut.toByteArray();
+            encodeBaseline.run();
+
+            if (!Arrays.equals(expected, gifOut.toByteArray())) {
+                throw new IllegalStateException("GifEncoder output differs"
+                        + " from the one in " + gifBaselineDir);
+            }
+
+            benches.add(new Bench("GifEncoder.write (baseline)", null,
+                    encodeBaseline, 1));
+        }
+
+        final File replay = createReplay();
+        final ReplayStream rs = new ReplayStream();
+        benches.add(new Bench("ReplayStream.load", null,
+                () -> rs.load(replay.getPath()).getLvlNumber(), 1));
+    }
+
+    /**
+     * Add the benchmarks which need a level.
+     *
+     * @param benches list to add to
+     * @param res     resource folder
+     * @param lvl     level of the first level pack
+     * @throws Exception if the level can't be loaded
+     */
+    private static void addLevel(final List<Bench> benches, final String res,
+            final int lvl) throws Exception {
+        final JFrame frame = initGame(res);
+        final String lvlPath = FaderHandler.getLevelPack(1).getInfo(0, lvl)
+                .getFileName();
+        LemmingImageLoader.loadLemmings(frame);
+        final Level level = GameController.getLevel();
+        LevelLoader.loadLevel(lvlPath, frame, level);
+        LemmingHandler.initLevelsLemmings();
+        final ChunkedImage bgImage = GameController.getBgImage();
+        final Bench.Setup paint = () -> GameController.setStencil(
+                new LevelPainter(level).paintLevel(bgImage, frame,
+                        GameController.getStencil()));
+        paint.run();
+
+        benches.add(new Bench("LevelPainter.paintLevel", null, () -> {
+            paint.run();
+            return GameController.getStencil().get(0);
+        }, 1));
+        final BufferedImage[] map = new BufferedImage[1];
+        benches.add(new Bench("Level.createMiniMap", null, () -> {
+            map[0] = level.createMiniMap(map[0], bgImage, MINIMAP_SCALE,
+                    MINIMAP_SCALE, false);
+            return map[0].getRGB(0, 0);
+        }, 1));
+
+        final Mask bomb = Lemming.getResource(Type.BOMBER)
+                .getMask(Direction.RIGHT);
+        benches.add(new Bench("Mask.eraseMask", paint, () -> {
+            long n = 0;
+
+            for (int i = 0; i < MASK_POSITIONS; i++) {
+                n += bomb.eraseMask(maskX(bomb, i), maskY(bomb), 0,
+                        Stencil.MSK_STEEL) ? 1 : 0;
+            }
+
+            return n;
+        }, MASK_POSITIONS));
+        final Mask step = Lemming.getResource(Type.BUILDER)
+                .getMask(Direction.RIGHT);
+        final int debris = level.getDebrisColor();
+        benches.add(new Bench("Mask.paintStep", paint, () -> {
+            for (int i = 0; i < MASK_POSITIONS; i++) {
+                step.paintStep(maskX(step, i), maskY(step), 0, debris);
+            }
+
+            return GameController.getStencil().getModCount();
+        }, MASK_POSITIONS));
+        final Mask stopper = Lemming.getResource(Type.STOPPER)
+                .getMask(Direction.RIGHT);
+        benches.add(new Bench("Mask.clearType", paint, () -> {
+            for (int i = 0; i < MASK_POSITIONS; i++) {
+                stopper.clearType(maskX(stopper, i), maskY(stopper), 0,
+                        Stencil.MSK_STOPPER);
+            }
+
+            return GameController.getStencil().getModCount();
+        }, MASK_POSITIONS));
+
+        final Entry entry = level.getEntry(0);
+        final List<Lemming> lemmings = new ArrayList<Lemming>();
+        final Bench.Setup populate = () -> {
+            paint.run();
+            lemmings.clear();
+
+            for (int i = 0; i < POPULATION; i++) {
+                lemmings.add(createLemming(entry));
+            }
+        };
+        benches.add(new Bench("Lemming.freeBelow", populate, () -> {
+            long n = 0;
+
+            for (final Lemming l : lemmings) {
+                n += l.freeBelow(FREE_BELOW_STEP);
+            }
+
+            return n;
+        }, POPULATION));
+        benches.add(new Bench("Lemming.aboveGround", populate, () -> {
+            long n = 0;
+
+            for (final Lemming l : lemmings) {
+                n += l.aboveGround();
+            }
+
+            return n;
+        }, POPULATION));
+        benches.add(new Bench("LemmingAnimator.animate", populate, () -> {
+            long n = 0;
+
+            for (int i = 0; i < lemmings.size(); i++) {
+                Lemming l = lemmings.get(i);
+
+                // keep the population constant
+                if (l.hasDied() || l.hasLeft()) {
+                    l = createLemming(entry);
+                    lemmings.set(i, l);
+                }
+
+                LemmingAnimator.animate(l);
+                n += l.getX();
+            }
+
+            return n;
+        }, POPULATION));
+    }
+
+    /**
+     * Initialize the game without showing a window: resources, properties
+     * (sound, music and frame statistics off) and the game controller.
+     *
+     * @param res resource folder
+     * @return invisible frame used as parent component for loading
+     * @throws Exception if the game can't be initialized
+     */
+    static JFrame initGame(final String res) throws Exception {
+        final JFrame frame = new JFrame();
+        Resources.init(res, false);
+        Core.setResourcePath(res.endsWith(File.separator) ? res
+                : res + File.separator);
+        final Props props = new Props();
+        props.set("frameStats", false);
+        Core.setProgramProps(props);
+        GameController.init(frame);
+        SoundController.setSoundOn(false);
+        SoundController.setMusicOn(false);
+        return frame;
+    }
+
+    /**
+     * Get the index of a level pack as used by {@link FaderHandler}.
+     *
+     * @param folder folder of the level pack inside "levels"
+     * @return index of the level pack
+     * @throws LemmException if there is no such level pack
+     */
+    static int findLevelPack(final String folder) throws LemmException {
+        final List<String> dirs = new ArrayList<String>();
+        final String levels = Core.getResourcePath() + "levels/";
+
+        for (final String d : Resources.list(levels)) {
+            if (Resources.isDirectory(levels + d)) {
+                dirs.add(d);
+            }
+        }
+
+        // same order as in GameController.init (pack 0 is a dummy)
+        Collections.sort(dirs);
+        final int lpn = dirs.indexOf(folder) + 1;
+
+        if (lpn == 0) {
+            throw new LemmException("Level pack not found: " + folder);
+        }
+
+        return lpn;
+    }
+
+    /**
+     * Create a Lemming below an entry.
+     *
+     * @param entry entry of the level
+     * @return new Lemming
+     */
+    private static Lemming createLemming(final Entry entry) {
+        return new Lemming(entry.getxPos() + ENTRY_X_OFS,
+                entry.getyPos() + ENTRY_Y_OFS);
+    }
+
+    /**
+     * Get the x position of a mask, distributed over the level width.
+     *
+     * @param m mask
+     * @param i index of the position (0..MASK_POSITIONS-1)
+     * @return x position in pixels
+     */
+    private static int maskX(final Mask m, final int i) {
+        return i * (Level.WIDTH - m.getWidth()) / MASK_POSITIONS;
+    }
+
+    /**
+     * Get the y position of a mask (vertically centered).
+     *
+     * @param m mask
+     * @return y position in pixels
+     */
+    private static int maskY(final Mask m) {
+        return (Level.HEIGHT - m.getHeight()) / 2;
+    }
+
+    /**
+     * Create the target for the Diff benchmarks: some changed bytes and an
+     * inserted block.
+     *
+     * @param src source data
+     * @return changed copy of the source data
+     */
+    private static byte[] mutate(final byte[] src) {
+        final int ins = src.length / 2;
+        final byte[] trg = new byte[src.length + DIFF_INSERT];
+        System.arraycopy(src, 0, trg, 0, ins);
+        System.arraycopy(src, ins, trg, ins + DIFF_INSERT, src.length - ins);
+
+        for (int i = 0; i < DIFF_INSERT; i++) {
+            trg[ins + i] = (byte) i;
+        }
+
+        for (int i = 0; i < trg.length; i += DIFF_STRIDE) {
+            trg[i] ^= (byte) i;
+        }
+
+        return trg;
+    }
+
+    /**
+     * Load the largest 8bit GIF of the patch folder.
+     *
+     * @return image with an IndexColorModel
+     * @throws IOException if there is no GIF
+     */
+    private static BufferedImage loadLargestGif() throws IOException {
+        final File[] files = new File(patchDir).listFiles();
+        BufferedImage best = null;
+
+        if (files != null) {
+            Arrays.sort(files);
+
+            for (final File f : files) {
+                if (!f.getName().toLowerCase().endsWith(".gif")) {
+                    continue;
+                }
+
+                final BufferedImage img = ImageIO.read(f);
+
+                if (img != null
+                        && img.getColorModel() instanceof IndexColorModel
+                        && (best == null || img.getWidth() * img.getHeight()
+                                > best.getWidth() * best.getHeight())) {
+                    best = img;
+                }
+            }
+        }
+
+        if (best == null) {
+            throw new IOException("No GIF in " + patchDir);
+        }
+
+        return best;
+    }
+
+    /**
+     * Get the palette indices of an image with an IndexColorModel.
+     *
+     * @param img image
+     * @return one palette index per pixel
+     */
+    private static byte[] getIndexedPixels(final BufferedImage img) {
+        final int[] samples = img.getRaster().getSamples(0, 0, img.getWidth(),
+                img.getHeight(), 0, (int[]) null);
+        final byte[] pixels = new byte[samples.length];
+
+        for (int i = 0; i < samples.length; i++) {
+            pixels[i] = (byte) samples[i];
+        }
+
+        return pixels;
+    }
+
+    /**
+     * Write a replay file with all kinds of events in the format of
+     * {@link ReplayStream#save(String)} (which needs the level packs).
+     *
+     * @return temporary replay file (deleted on exit)
+     * @throws IOException if the file can't be written
+     */
+    private static File createReplay() throws IOException {
+        final File f = File.createTempFile("bench", ".rpl");
+        f.deleteOnExit();
+        final Type[] skills = {Type.CLIMBER, Type.FLOATER, Type.BOMBER,
+            Type.STOPPER, Type.BUILDER, Type.BASHER, Type.MINER, Type.DIGGER};
+        final StringBuilder sb = new StringBuilder("#REPLAY\n#bench, 0, 0\n");
+
+        for (int i = 0; i < REPLAY_EVENTS; i++) {
+            final int ctr = i * REPLAY_STEP;
+            final int skill = skills[i % skills.length].ordinal();
+
+            switch (i % REPLAY_STEP) {
+            case 0:
+                sb.append(ctr).append(", ").append(ReplayStream.SELECT_SKILL)
+                        .append(", ").append(skill).append('\n');
+                sb.append(ctr).append(", ").append(ReplayStream.ASSIGN_SKILL)
+                        .append(", ").append(skill).append(", ")
+                        .append(i % POPULATION).append('\n');
+                break;
+            case 1:
+                sb.append(ctr).append(", ").append(ReplayStream.MOVE_XPOS)
+                        .append(", ").append(i % Level.WIDTH).append('\n');
+                break;
+            default:
+                sb.append(ctr).append(", ")
+                        .append(ReplayStream.SET_RELEASE_RATE).append(", ")
+                        .append(i % POPULATION).append('\n');
+                break;
+            }
+        }
+
+        sb.append(REPLAY_EVENTS * REPLAY_STEP).append(", ")
+                .append(ReplayStream.NUKE).append('\n');
+        Files.write(f.toPath(), sb.toString().getBytes("US-ASCII"));
+        return f;
+    }
+}
@@ -0,0 +1,473 @@
+package bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.JFrame;
+
+import game.GameController;
+import game.GameState;
+import game.LemmException;
+import game.LemmingHandler;
+import game.Type;
+import game.lemmings.Lemming;
+import game.lemmings.SkillHandler;
+import game.level.ReleaseRateHandler;
+import game.replay.ReplayController;
+import game.replay.ReplayLevelInfo;
+import gameutil.FaderHandler;
+import tools.Histogram;
+import tools.Props;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Macro benchmark: plays a fixed set of replays through
+ * {@link GameController#update()} as fast as possible, without window and
+ * drawing, and reports per replay the ticks per second, the allocation rate
+ * and the 99th percentile of the tick time. The results can be stored as
+ * baseline and later runs are compared against it.
+ * <p>
+ * The replays of the suite are recorded from scripted play (mass nuking,
+ * bashing and building in levels of "1_orig" and "2_ohno") the first time
+ * they are missing, so they match the installed resources. Delete a replay
+ * to record it again.
+ *
+ * <pre>
+ * java bench.ReplayBench [options] resources
+ *   -d folder  replay folder (default "bench/replays")
+ *   -b file    baseline file (default "baseline.ini" in the replay folder)
+ *   -u         write the results to the baseline file
+ *   -x percent allowed regression (default 10)
+ *   -w n       warmup runs per replay (default 2)
+ *   -n n       measured runs per replay (default 5)
+ * </pre>
+ *
+ * The exit code is 1 if a replay regressed or played differently than in
+ * the baseline, 2 for errors.
+ *
+ * @author Volker Oth
+ */
+public final class ReplayBench {
+    /** kinds of scripted play. */
+    private enum Script {
+        /** release all Lemmings at maximum rate and nuke them. */
+        NUKE,
+        /** make as many Lemmings bashers as possible. */
+        BASH,
+        /** make as many Lemmings builders as possible. */
+        BUILD
+    }
+
+    /**
+     * A replay of the suite.
+     */
+    private static final class Scenario {
+        /** name (also name of the replay file). */
+        private final String name;
+        /** folder of the level pack inside "levels". */
+        private final String pack;
+        /** index of difficulty level. */
+        private final int diffLevel;
+        /** level number. */
+        private final int level;
+        /** scripted play used for recording. */
+        private final Script script;
+
+        /**
+         * Constructor.
+         *
+         * @param n name
+         * @param p folder of the level pack
+         * @param d index of difficulty level
+         * @param l level number
+         * @param s scripted play
+         */
+        Scenario(final String n, final String p, final int d, final int l,
+                final Script s) {
+            name = n;
+            pack = p;
+            diffLevel = d;
+            level = l;
+            script = s;
+        }
+    }
+
+    /**
+     * Result of measuring one replay.
+     */
+    private static final class Result {
+        /** tick times in nanoseconds. */
+        private final Histogram ticks = new Histogram();
+        /** time spent in update in nanoseconds. */
+        private long nanos;
+        /** allocated bytes. */
+        private long allocated;
+        /** ticks of one run. */
+        private int ticksPerRun;
+        /** Lemmings saved in one run. */
+        private int saved;
+    }
+
+    /** the suite. */
+    private static final Scenario[] SUITE = {
+        new Scenario("orig_fun5_bash", "1_orig", 0, 4, Script.BASH),
+        new Scenario("orig_fun7_build", "1_orig", 0, 6, Script.BUILD),
+        new Scenario("orig_fun18_nuke", "1_orig", 0, 17, Script.NUKE),
+        new Scenario("ohno_tame1_nuke", "2_ohno", 0, 0, Script.NUKE),
+        new Scenario("ohno_tame2_bash", "2_ohno", 0, 1, Script.BASH),
+        new Scenario("ohno_tame5_build", "2_ohno", 0, 4, Script.BUILD)};
+
+    /** extension of replay files. */
+    private static final String EXTENSION = ".rpl";
+    /** default allowed regression in percent. */
+    private static final double DEFAULT_THRESHOLD = 10;
+    /** default number of warmup runs. */
+    private static final int DEFAULT_WARMUPS = 2;
+    /** default number of measured runs. */
+    private static final int DEFAULT_RUNS = 5;
+    /** maximum ticks of a run (more than the longest time limit). */
+    private static final int MAX_TICKS = 250000;
+    /** ticks between two skill assignments when recording. */
+    private static final int ASSIGN_TICKS = 15;
+    /** tick after which all Lemmings are nuked when recording. */
+    private static final int NUKE_TICK = 2000;
+    /** maximum release rate. */
+    private static final int MAX_RELEASE_RATE = 99;
+    /** percentile of the tick time. */
+    private static final double PERCENTILE = 99;
+    /** percent of all values. */
+    private static final double HUNDRED_PERCENT = 100.0;
+    /** nanoseconds per second. */
+    private static final double NS_PER_SEC = 1e9;
+    /** nanoseconds per microsecond. */
+    private static final double NS_PER_US = 1e3;
+    /** bytes per megabyte. */
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+    /** exit code: regression. */
+    private static final int EXIT_REGRESSION = 1;
+    /** exit code: error. */
+    private static final int EXIT_ERROR = 2;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private ReplayBench() {
+
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args command line arguments (see class description)
+     */
+    public static void main(final String[] args) {
+        String dir = "bench" + File.separator + "replays";
+        String baseline = null;
+        String res = null;
+        boolean update = false;
+        double threshold = DEFAULT_THRESHOLD;
+        int warmups = DEFAULT_WARMUPS;
+        int runs = DEFAULT_RUNS;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-d":
+                dir = args[++i];
+                break;
+            case "-b":
+                baseline = args[++i];
+                break;
+            case "-u":
+                update = true;
+                break;
+            case "-x":
+                threshold = Double.parseDouble(args[++i]);
+                break;
+            case "-w":
+                warmups = Integer.parseInt(args[++i]);
+                break;
+            case "-n":
+                runs = Integer.parseInt(args[++i]);
+                break;
+            default:
+                res = args[i];
+                break;
+            }
+        }
+
+        if (res == null) {
+            System.out.println("Usage: java bench.ReplayBench [-d folder] "
+                    + "[-b file] [-u] [-x percent] [-w n] [-n n] resources");
+            System.exit(EXIT_ERROR);
+        }
+
+        if (baseline == null) {
+            baseline = dir + File.separator + "baseline.ini";
+        }
+
+        boolean failed = false;
+
+        try {
+            final JFrame frame = EngineBench.initGame(res);
+            new File(dir).mkdirs();
+            final Props base = new Props();
+            final boolean haveBase = !update && base.load(baseline);
+            final Props out = new Props();
+            out.setHeader("# ReplayBench baseline");
+            System.out.println(String.format(Locale.ROOT,
+                    "%-18s %7s %5s %12s %10s %10s %s", "replay", "ticks",
+                    "saved", "ticks/s", "p99 us", "MB/s", "result"));
+
+            for (final Scenario s : SUITE) {
+                final File f = new File(dir, s.name + EXTENSION);
+
+                if (!f.isFile()) {
+                    record(s, f, frame);
+                }
+
+                final Result r = measure(f, warmups, runs, frame);
+                final double tps = r.ticks.getCount() * NS_PER_SEC / r.nanos;
+                final double p99 = r.ticks.getValueAtPercentile(PERCENTILE)
+                        / NS_PER_US;
+                final double mbs = r.allocated / BYTES_PER_MB
+                        / (r.nanos / NS_PER_SEC);
+                out.set(s.name + ".ticks", r.ticksPerRun);
+                out.set(s.name + ".saved", r.saved);
+                out.set(s.name + ".ticksPerSec", tps);
+                out.set(s.name + ".p99Us", p99);
+                out.set(s.name + ".allocMBPerSec", mbs);
+                String verdict = "";
+
+                if (haveBase) {
+                    verdict = compare(base, s.name, r, tps, p99, mbs,
+                            threshold);
+                    failed |= !verdict.startsWith("ok");
+                }
+
+                System.out.println(String.format(Locale.ROOT,
+                        "%-18s %7d %5d %12.0f %10.1f %10.2f %s", s.name,
+                        r.ticksPerRun, r.saved, tps, p99, mbs, verdict));
+            }
+
+            if (update) {
+                if (!out.save(baseline)) {
+                    System.out.println("Can't write " + baseline);
+                    System.exit(EXIT_ERROR);
+                }
+
+                System.out.println("Baseline written to " + baseline);
+            }
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+            System.exit(EXIT_ERROR);
+        }
+
+        System.exit(failed ? EXIT_REGRESSION : 0);
+    }
+
+    /**
+     * Compare a result against the baseline.
+     *
+     * @param base      baseline
+     * @param name      name of the replay
+     * @param r         result
+     * @param tps       ticks per second
+     * @param p99       99th percentile of the tick time in microseconds
+     * @param mbs       allocation rate in MB/s
+     * @param threshold allowed regression in percent
+     * @return "ok" and the change of the ticks per second, or a description of
+     *         the regression
+     */
+    private static String compare(final Props base, final String name,
+            final Result r, final double tps, final double p99,
+            final double mbs, final double threshold) {
+        final int ticks = base.get(name + ".ticks", -1);
+
+        if (ticks < 0) {
+            return "ok (not in baseline)";
+        }
+
+        final int saved = base.get(name + ".saved", -1);
+
+        if (ticks != r.ticksPerRun || saved != r.saved) {
+            return "CHANGED (baseline " + ticks + " ticks, " + saved
+                    + " saved)";
+        }
+
+        final double f = threshold / HUNDRED_PERCENT;
+        final double baseTps = base.get(name + ".ticksPerSec", 0.0);
+        final List<String> reg = new ArrayList<String>();
+
+        if (tps < baseTps * (1 - f)) {
+            reg.add(String.format(Locale.ROOT, "ticks/s %.0f", baseTps));
+        }
+
+        final double baseP99 = base.get(name + ".p99Us", 0.0);
+
+        if (p99 > baseP99 * (1 + f)) {
+            reg.add(String.format(Locale.ROOT, "p99 %.1f", baseP99));
+        }
+
+        final double baseMbs = base.get(name + ".allocMBPerSec", 0.0);
+
+        if (mbs > baseMbs * (1 + f)) {
+            reg.add(String.format(Locale.ROOT, "MB/s %.2f", baseMbs));
+        }
+
+        if (!reg.isEmpty()) {
+            return "REGRESSION (baseline " + String.join(", ", reg) + ")";
+        }
+
+        return String.format(Locale.ROOT, "ok (%+.1f%%)",
+                (tps / baseTps - 1) * HUNDRED_PERCENT);
+    }
+
+    /**
+     * Play a replay several times and measure the ticks.
+     *
+     * @param f       replay file
+     * @param warmups number of runs which are not measured
+     * @param runs    number of measured runs
+     * @param frame   parent component
+     * @return result of the measured runs
+     * @throws Exception if the replay or the level can't be loaded
+     */
+    private static Result measure(final File f, final int warmups,
+            final int runs, final JFrame frame) throws Exception {
+        final ReplayLevelInfo rli = ReplayController.loadReplay(f.getPath());
+
+        if (rli == null) {
+            throw new LemmException("Wrong format: " + f.getPath());
+        }
+
+        int lpn = -1;
+
+        for (int i = 0; i < FaderHandler.getLevelPackNum(); i++) {
+            if (FaderHandler.getLevelPack(i).getName()
+                    .equals(rli.getLevelPack())) {
+                lpn = i;
+            }
+        }
+
+        if (lpn < 0) {
+            throw new LemmException(
+                    "Level pack not found: " + rli.getLevelPack());
+        }
+
+        final Result r = new Result();
+
+        for (int run = 0; run < warmups + runs; run++) {
+            FaderHandler.startLevel(lpn, rli.getDiffLevel(),
+                    rli.getLvlNumber(), true, frame);
+            final boolean measured = run >= warmups;
+            final long alloc = allocatedBytes();
+            int ticks = 0;
+
+            while (GameController.getGameState() == GameState.LEVEL
+                    && ticks < MAX_TICKS) {
+                final long t = System.nanoTime();
+                GameController.update();
+                final long dt = System.nanoTime() - t;
+
+                if (measured) {
+                    r.ticks.record(dt);
+                    r.nanos += dt;
+                }
+
+                ticks++;
+            }
+
+            if (measured) {
+                r.allocated += allocatedBytes() - alloc;
+                r.ticksPerRun = ticks;
+                r.saved = GameController.getNumLeft();
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Record a replay of the suite by scripted play.
+     *
+     * @param s     scenario
+     * @param f     replay file to write
+     * @param frame parent component
+     * @throws Exception if the level can't be loaded or the replay can't be
+     *                   written
+     */
+    private static void record(final Scenario s, final File f,
+            final JFrame frame) throws Exception {
+        final int lpn = EngineBench.findLevelPack(s.pack);
+        System.out.println("Recording " + f.getPath());
+        FaderHandler.startLevel(lpn, s.diffLevel, s.level, false, frame);
+        ReleaseRateHandler.setReleaseRate(MAX_RELEASE_RATE);
+        ReleaseRateHandler.calcReleaseBase();
+
+        if (s.script != Script.NUKE) {
+            SkillHandler.setLemmSkill(
+                    s.script == Script.BASH ? Type.BASHER : Type.BUILDER);
+        }
+
+        int ticks = 0;
+
+        while (GameController.getGameState() == GameState.LEVEL
+                && ticks < MAX_TICKS) {
+            if (ticks >= NUKE_TICK || s.script == Script.NUKE
+                    && LemmingHandler.getNumLemmingsOut() == GameController
+                            .getNumLemmingsMax()) {
+                GameController.setNuke(true);
+            } else if (s.script != Script.NUKE && ticks % ASSIGN_TICKS == 0) {
+                // same path as a mouse click on a walking Lemming
+                for (final Lemming l : LemmingHandler.getLemmings()) {
+                    if (l.getSkill() == Type.WALKER) {
+                        LemmingHandler.requestSkill(l);
+                        break;
+                    }
+                }
+            }
+
+            GameController.update();
+            ticks++;
+        }
+
+        if (!ReplayController.saveReplay(f.getPath())) {
+            throw new LemmException("Can't write " + f.getPath());
+        }
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread.
+     *
+     * @return allocated bytes or 0 if not supported
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads)
+                    .getCurrentThreadAllocatedBytes();
+        }
+
+        return 0;
+    }
+}
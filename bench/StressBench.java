@@ -0,0 +1,325 @@
+package bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import javax.swing.JFrame;
+
+import game.GameController;
+import game.GameState;
+import game.LemmingHandler;
+import game.level.Level;
+import game.level.ReleaseRateHandler;
+import gameutil.FaderHandler;
+import tools.Histogram;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Stress levels with thousands of Lemmings and a report how the tick time
+ * scales with the number of Lemmings.
+ * <p>
+ * The stress levels are generated into the level pack "levels/9_stress" of
+ * the resource folder (brick style, a long floor with walls at both ends,
+ * eight entries and no exit, 100 to 4000 Lemmings released several at once).
+ * They can also be played in the game. Each level is then played without
+ * window and drawing until all Lemmings are out and some time has passed;
+ * tick times are collected per range of active Lemmings.
+ *
+ * <pre>
+ * java bench.StressBench [-g] resources
+ *   -g  only (re)generate the stress levels
+ * </pre>
+ *
+ * @author Volker Oth
+ */
+public final class StressBench {
+    /** folder of the level pack inside "levels". */
+    private static final String PACK = "9_stress";
+    /** numbers of Lemmings of the stress levels. */
+    private static final int[] COUNTS = {100, 250, 500, 1000, 2000, 4000};
+    /** Lemmings per release step: one for each this many Lemmings. */
+    private static final int LEMMINGS_PER_RELEASE = 250;
+    /** brick style: terrain piece of 32x32 pixels. */
+    private static final int BRICK = 42;
+    /** brick style: entry object. */
+    private static final int ENTRY = 1;
+    /** object paint mode: don't overwrite terrain. */
+    private static final int NO_OVERWRITE = 4;
+    /** size of a terrain piece in pixels. */
+    private static final int BRICK_SIZE = 32;
+    /** y position of the floor. */
+    private static final int FLOOR_Y = 238;
+    /** y position of the topmost wall piece. */
+    private static final int WALL_TOP = 46;
+    /** y position of the entries (Lemmings must survive the fall). */
+    private static final int ENTRY_Y = 120;
+    /** number of entries. */
+    private static final int ENTRIES = 8;
+    /** number of each skill. */
+    private static final int SKILLS = 20;
+    /** time limit in minutes. */
+    private static final int TIME_LIMIT = 9;
+    /** maximum release rate. */
+    private static final int MAX_RELEASE_RATE = 99;
+    /** ticks played after all Lemmings are out. */
+    private static final int SETTLE_TICKS = 1000;
+    /** maximum ticks of a level. */
+    private static final int MAX_TICKS = 20000;
+    /** number of ranges of active Lemmings (powers of two). */
+    private static final int RANGES = 14;
+    /** percentile of the tick time. */
+    private static final double PERCENTILE = 99;
+    /** nanoseconds per microsecond. */
+    private static final double NS_PER_US = 1e3;
+    /** exit code for errors. */
+    private static final int EXIT_ERROR = 2;
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private StressBench() {
+
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args command line arguments (see class description)
+     */
+    public static void main(final String[] args) {
+        boolean generateOnly = false;
+        String res = null;
+
+        for (final String a : args) {
+            if ("-g".equals(a)) {
+                generateOnly = true;
+            } else {
+                res = a;
+            }
+        }
+
+        if (res == null) {
+            System.out.println("Usage: java bench.StressBench [-g] resources");
+            System.exit(EXIT_ERROR);
+        }
+
+        try {
+            final File dir = new File(new File(res, "levels"), PACK);
+
+            if (generateOnly || !new File(dir, "levelpack.ini").isFile()) {
+                generate(dir);
+                System.out.println("Stress levels written to " + dir);
+            }
+
+            if (!generateOnly) {
+                run(res);
+            }
+        } catch (final Exception ex) {
+            ex.printStackTrace();
+            System.exit(EXIT_ERROR);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Play all stress levels and print the tick times per range of active
+     * Lemmings.
+     *
+     * @param res resource folder
+     * @throws Exception if a level can't be loaded
+     */
+    private static void run(final String res) throws Exception {
+        final JFrame frame = EngineBench.initGame(res);
+        final int lpn = EngineBench.findLevelPack(PACK);
+        final Histogram[] ranges = new Histogram[RANGES];
+
+        for (int i = 0; i < RANGES; i++) {
+            ranges[i] = new Histogram();
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-8s %7s %10s %10s",
+                "level", "ticks", "mean us", "p99 us"));
+
+        for (int lvl = 0; lvl < COUNTS.length; lvl++) {
+            FaderHandler.startLevel(lpn, 0, lvl, false, frame);
+            ReleaseRateHandler.setReleaseRate(MAX_RELEASE_RATE);
+            ReleaseRateHandler.calcReleaseBase();
+            final Histogram all = new Histogram();
+            int ticks = 0;
+            int settle = 0;
+
+            while (GameController.getGameState() == GameState.LEVEL
+                    && ticks < MAX_TICKS && settle < SETTLE_TICKS) {
+                final int n = LemmingHandler.getLemmings().size();
+                final long t = System.nanoTime();
+                GameController.update();
+                final long dt = System.nanoTime() - t;
+                all.record(dt);
+                ranges[range(n)].record(dt);
+                ticks++;
+
+                if (LemmingHandler.getNumLemmingsOut() == GameController
+                        .getNumLemmingsMax()) {
+                    settle++;
+                }
+            }
+
+            System.out.println(String.format(Locale.ROOT,
+                    "%-8d %7d %10.1f %10.1f", COUNTS[lvl], ticks,
+                    all.getMean() / NS_PER_US,
+                    all.getValueAtPercentile(PERCENTILE) / NS_PER_US));
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT,
+                "%-11s %7s %10s %10s %12s", "lemmings", "ticks", "mean us",
+                "p99 us", "ns/lemming"));
+
+        for (int i = 0; i < RANGES; i++) {
+            final Histogram h = ranges[i];
+
+            if (h.getCount() == 0) {
+                continue;
+            }
+
+            final int lo = i == 0 ? 0 : 1 << (i - 1);
+            final int hi = (1 << i) - 1;
+            final double perLemming = hi > 0 ? h.getMean() / ((lo + hi) / 2.0)
+                    : 0;
+            System.out.println(String.format(Locale.ROOT,
+                    "%5d-%-5d %7d %10.1f %10.1f %12.1f", lo, hi, h.getCount(),
+                    h.getMean() / NS_PER_US,
+                    h.getValueAtPercentile(PERCENTILE) / NS_PER_US,
+                    perLemming));
+        }
+    }
+
+    /**
+     * Get the range of a number of Lemmings: 0, 1, 2-3, 4-7, ...
+     *
+     * @param n number of Lemmings
+     * @return index of range
+     */
+    private static int range(final int n) {
+        return Math.min(RANGES - 1,
+                Integer.SIZE - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * Write the level pack with the stress levels.
+     *
+     * @param dir folder of the level pack
+     * @throws IOException if a file can't be written
+     */
+    private static void generate(final File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+
+        try (PrintWriter w = new PrintWriter(
+                new FileWriter(new File(dir, "levelpack.ini")))) {
+            w.println("# generated by bench.StressBench");
+            w.println();
+            w.println("name = Stress");
+            w.println("maxFallDistance = 126");
+            w.println("codeSeed = AAAAAAAAAA");
+            w.println();
+            w.println("music_0 = cancan.mod");
+            w.println();
+            w.println("level_0 = Stress");
+            w.println();
+
+            for (int i = 0; i < COUNTS.length; i++) {
+                w.println("stress_" + i + " = " + levelName(COUNTS[i])
+                        + ",0");
+            }
+        }
+
+        for (final int n : COUNTS) {
+            writeLevel(new File(dir, levelName(n)), n);
+        }
+    }
+
+    /**
+     * Get the file name of a stress level.
+     *
+     * @param n number of Lemmings
+     * @return file name
+     */
+    private static String levelName(final int n) {
+        return String.format(Locale.ROOT, "stress%04d.ini", n);
+    }
+
+    /**
+     * Write a stress level.
+     *
+     * @param f file
+     * @param n number of Lemmings
+     * @throws IOException if the file can't be written
+     */
+    private static void writeLevel(final File f, final int n)
+            throws IOException {
+        try (PrintWriter w = new PrintWriter(new FileWriter(f))) {
+            w.println("# generated by bench.StressBench");
+            w.println("name = " + n + " Lemmings");
+            w.println("releaseRate = " + MAX_RELEASE_RATE);
+            w.println("releaseCount = "
+                    + Math.max(1, n / LEMMINGS_PER_RELEASE));
+            w.println("numLemmings = " + n);
+            w.println("numToRescue = 0");
+            w.println("timeLimit = " + TIME_LIMIT);
+
+            for (final String s : new String[] {"Climbers", "Floaters",
+                "Bombers", "Blockers", "Builders", "Bashers", "Miners",
+                "Diggers"}) {
+                w.println("num" + s + " = " + SKILLS);
+            }
+
+            w.println("xPos = 0");
+            w.println("style = brick");
+            w.println();
+            w.println("# Objects");
+
+            for (int i = 0; i < ENTRIES; i++) {
+                w.println("object_" + i + " = " + ENTRY + ", "
+                        + (Level.WIDTH * (2 * i + 1) / (2 * ENTRIES)) + ", "
+                        + ENTRY_Y + ", " + NO_OVERWRITE + ", 0");
+            }
+
+            w.println();
+            w.println("# Terrain");
+            int t = 0;
+
+            for (int x = 0; x < Level.WIDTH; x += BRICK_SIZE) {
+                w.println("terrain_" + t++ + " = " + BRICK + ", " + x + ", "
+                        + FLOOR_Y + ", 0");
+            }
+
+            for (int y = WALL_TOP; y < FLOOR_Y; y += BRICK_SIZE) {
+                w.println("terrain_" + t++ + " = " + BRICK + ", 0, " + y
+                        + ", 0");
+                w.println("terrain_" + t++ + " = " + BRICK + ", "
+                        + (Level.WIDTH - BRICK_SIZE) + ", " + y + ", 0");
+            }
+        }
+    }
+}
@@ -16,7 +16,9 @@ import javax.swing.JPanel;
 
 import game.Core;
 import game.ExplosionHandler;
+import game.FrameProfiler;
 import game.GameController;
+import game.GameStats;
 import game.Icons;
 import game.LemmCursor;
 import game.LemmFont;
@@ -26,6 +28,7 @@ import game.GameState;
 import game.TransitionState;
 import game.lemmings.Lemming;
 import game.lemmings.SkillHandler;
+import game.level.ChunkedImage;
 import game.level.Level;
 import game.level.MiniMap;
 import game.level.ReleaseRateHandler;
@@ -96,6 +99,10 @@ public class GraphicsPane extends JPanel
     static final int X_STEP = 4;
     /** step size in pixels for fast horizontal scrolling. */
     static final int X_STEP_FAST = 8;
+    /** step size in pixels for vertical scrolling. */
+    static final int Y_STEP = 4;
+    /** step size in pixels for fast vertical scrolling. */
+    static final int Y_STEP_FAST = 8;
     /**
      * Size of auto scrolling range in pixels (from the left and right border).
      */
@@ -115,6 +122,8 @@ public class GraphicsPane extends JPanel
 
     /** start position of mouse drag (for mouse scrolling). */
     private int mouseDragStartX;
+    /** vertical start position of mouse drag (for mouse scrolling). */
+    private int mouseDragStartY;
     /** x position of cursor in level. */
     private int xMouse;
     /** x position of cursor on screen. */
@@ -201,10 +210,12 @@ public class GraphicsPane extends JPanel
                 final int w = Core.getDrawWidth();
                 final int h = Core.getDrawHeight();
                 final double scale = Core.getScale();
+                final long t = FrameProfiler.start();
                 // g.drawImage(offImage[activeBuffer],0,0,null);
                 g.drawImage(offImage[activeBuffer], 0, 0,
                         (int) Math.round(w * scale),
                         (int) Math.round(h * scale), 0, 0, w, h, null);
+                FrameProfiler.record(FrameProfiler.Phase.PRESENT, t);
             }
         }
     }
@@ -268,6 +279,7 @@ public class GraphicsPane extends JPanel
      */
     private void redraw() {
         final double scale = Core.getScale();
+        final long start = FrameProfiler.start();
         int drawBuffer;
         Graphics2D offGfx;
 
@@ -275,7 +287,7 @@ public class GraphicsPane extends JPanel
             drawBuffer = (activeBuffer == 0) ? 1 : 0;
             offGfx = offGraphics[drawBuffer];
 
-            final BufferedImage bgImage = GameController.getBgImage();
+            final ChunkedImage bgImage = GameController.getBgImage();
 
             switch (GameController.getGameState()) {
             case INTRO:
@@ -289,14 +301,19 @@ public class GraphicsPane extends JPanel
                 break;
             case LEVEL:
             case LEVEL_END:
-                drawLevelOrLevelEnd(scale, offGfx, bgImage);
+                drawLevelOrLevelEnd(scale, offGfx, offImage[drawBuffer],
+                        bgImage);
                 break;
             default:
                 break;
             }
 
             // fader
+            final long t = FrameProfiler.start();
             FaderHandler.fade(offGfx, frame);
+            FrameProfiler.lap(FrameProfiler.Phase.FADER, t);
+            FrameProfiler.drawOverlay(offGfx);
+            FrameProfiler.endFrame(start);
             // and all onto screen
             activeBuffer = drawBuffer;
 
@@ -306,7 +323,8 @@ public class GraphicsPane extends JPanel
     }
 
     private void drawLevelOrLevelEnd(final double scale,
-            final Graphics2D offGfx, final BufferedImage bgImage) {
+            final Graphics2D offGfx, final BufferedImage offImg,
+            final ChunkedImage bgImage) {
         if (bgImage != null) {
             GameController.update();
 
@@ -317,6 +335,7 @@ public class GraphicsPane extends JPanel
             // threads
             // (scrolling by dragging changes xOfs as well)
             final int xOfsTemp = GameController.getxPos();
+            final int yOfsTemp = GameController.getyPos();
 
             // timeBaseRedraw +=GameController.timePerFrame;
             final int w = this.getWidth();
@@ -326,7 +345,9 @@ public class GraphicsPane extends JPanel
                 h = this.getHeight();
             }
 
-            drawLevel(offGfx, bgImage, xOfsTemp, w, h);
+            long t = FrameProfiler.start();
+            drawLevel(offGfx, bgImage, xOfsTemp, yOfsTemp, w, h);
+            t = FrameProfiler.lap(FrameProfiler.Phase.DRAW_LEVEL, t);
 
             // clear parts of the screen for menu etc.
             offGfx.setClip(0, Level.HEIGHT, w, this.getHeight());
@@ -338,18 +359,21 @@ public class GraphicsPane extends JPanel
             GameController.drawIcons(offGfx, 0, ICONS_Y);
             offGfx.drawImage(MiscGfx.getImage(MiscGfx.Index.BORDER),
                     SMALL_X - FOUR_PIXELS, SMALL_Y - FOUR_PIXELS, null);
-            MiniMap.draw(offGfx, SMALL_X, SMALL_Y, xOfsTemp);
+            MiniMap.draw(offGfx, SMALL_X, SMALL_Y, xOfsTemp, yOfsTemp);
             // draw counters
             SkillHandler.drawCounters(offGfx, COUNTER_Y);
+            t = FrameProfiler.lap(FrameProfiler.Phase.DRAW_HUD, t);
 
             // draw lemmings
-            drawLemmings(offGfx, xOfsTemp, w, h);
+            drawLemmings(offGfx, xOfsTemp, yOfsTemp, w, h);
             final Lemming lemmUnderCursor = SkillHandler
                     .lemmUnderCursor(LemmCursor.getType());
+            t = FrameProfiler.lap(FrameProfiler.Phase.DRAW_LEMMINGS, t);
             offGfx.setClip(0, 0, w, h);
             // draw explosions
-            ExplosionHandler.drawExplosions(offGfx, offImage[0].getWidth(),
-                    Level.HEIGHT, xOfsTemp);
+            ExplosionHandler.drawExplosions(offGfx, offImg.getWidth(), h,
+                    xOfsTemp, yOfsTemp);
+            t = FrameProfiler.lap(FrameProfiler.Phase.DRAW_EXPLOSIONS, t);
             offGfx.setClip(0, 0, w, this.getHeight());
 
             // draw info string
@@ -360,8 +384,7 @@ public class GraphicsPane extends JPanel
                 final Stencil stencil = GameController.getStencil();
 
                 if (stencil != null) {
-                    final int stencilVal = stencil
-                            .get(xMouse + yMouse * Level.WIDTH);
+                    final int stencilVal = stencil.get(xMouse, yMouse);
                     final String test = "x: " + xMouse + ", y: " + yMouse
                             + ", mask: " + (stencilVal & SIXTEEN_BIT_MASK) + " "
                             + Stencil.getObjectID(stencilVal);
@@ -440,7 +463,7 @@ public class GraphicsPane extends JPanel
                     enableCursor(false);
                 } else {
                     lx = lemmUnderCursor.midX() - xOfsTemp;
-                    ly = lemmUnderCursor.midY();
+                    ly = lemmUnderCursor.midY() - yOfsTemp;
                 }
 
                 final BufferedImage cursorImg = LemmCursor.getBoxImage();
@@ -450,28 +473,27 @@ public class GraphicsPane extends JPanel
             } else if (!LemmCursor.getEnabled()) {
                 enableCursor(true);
             }
+
+            FrameProfiler.lap(FrameProfiler.Phase.DRAW_HUD, t);
         }
     }
 
     private void drawLemmings(final Graphics2D offGfx, final int xOfsTemp,
-            final int w, final int h) {
+            final int yOfsTemp, final int w, final int h) {
         offGfx.setClip(0, 0, w, h);
-        LemmingHandler.getLemmsUnderCursor().clear();
+        LemmingHandler.updateLemmsUnderCursor(xOfsTemp, yOfsTemp);
         final List<Lemming> lemmings = LemmingHandler.getLemmings();
 
         synchronized (LemmingHandler.getLemmings()) {
             for (final Lemming l : lemmings) {
                 final int lx = l.screenX();
-                final int ly = l.screenY();
+                final int ly = l.screenY() - yOfsTemp;
                 final int mx = l.midX() - 16;
 
-                if (lx + l.width() > xOfsTemp && lx < xOfsTemp + w) {
+                if (lx + l.width() > xOfsTemp && lx < xOfsTemp + w
+                        && ly + l.getImage().getHeight() > 0 && ly < h) {
                     offGfx.drawImage(l.getImage(), lx - xOfsTemp, ly, null);
 
-                    if (LemmCursor.doesCollide(l, xOfsTemp)) {
-                        LemmingHandler.getLemmsUnderCursor().add(l);
-                    }
-
                     final BufferedImage cd = l.getCountdown();
 
                     if (cd != null) {
@@ -490,18 +512,19 @@ public class GraphicsPane extends JPanel
 
             // draw pixels in mini map
             offGfx.setClip(0, 0, w, this.getHeight());
+            MiniMap.clearLemmings();
 
             for (final Lemming l : lemmings) {
-                final int lx = l.screenX();
-                final int ly = l.screenY();
-                // draw pixel in mini map
-                MiniMap.drawLemming(offGfx, lx, ly);
+                // plot pixel in mini map overlay
+                MiniMap.plotLemming(l.screenX(), l.screenY());
             }
+
+            MiniMap.drawLemmings(offGfx);
         }
     }
 
-    private void drawLevel(final Graphics2D offGfx, final BufferedImage bgImage,
-            final int xOfsTemp, final int w, final int h) {
+    private void drawLevel(final Graphics2D offGfx, final ChunkedImage bgImage,
+            final int xOfsTemp, final int yOfsTemp, final int w, final int h) {
         final Level level = GameController.getLevel();
 
         if (level != null) {
@@ -511,14 +534,15 @@ public class GraphicsPane extends JPanel
             offGfx.clearRect(0, 0, w, h);
 
             // draw "behind" objects
-            GameController.getLevel().drawBehindObjects(offGfx, w, xOfsTemp);
+            GameController.getLevel().drawBehindObjects(offGfx, w, h, xOfsTemp,
+                    yOfsTemp);
 
             // draw background
-            offGfx.drawImage(bgImage, 0, 0, w, h, xOfsTemp, 0, xOfsTemp + w, h,
-                    this);
+            bgImage.draw(offGfx, xOfsTemp, yOfsTemp, w, h);
 
             // draw "in front" objects
-            GameController.getLevel().drawInFrontObjects(offGfx, w, xOfsTemp);
+            GameController.getLevel().drawInFrontObjects(offGfx, w, h, xOfsTemp,
+                    yOfsTemp);
         }
     }
 
@@ -528,14 +552,15 @@ public class GraphicsPane extends JPanel
             int xOfsTemp;
 
             if (xMouseScreen > this.getWidth() - AUTOSCROLL_RANGE * scale) {
+                final int levelWidth = GameController.getLevel().getWidth();
                 xOfsTemp = GameController.getxPos()
                         + ((shiftPressed) ? X_STEP_FAST : X_STEP);
 
-                if (xOfsTemp < Level.WIDTH - this.getWidth() / scale) {
+                if (xOfsTemp < levelWidth - this.getWidth() / scale) {
                     GameController.setxPos(xOfsTemp);
                 } else {
                     GameController.setxPos((int) Math
-                            .round(Level.WIDTH - this.getWidth() / scale));
+                            .round(levelWidth - this.getWidth() / scale));
                 }
             } else if (xMouseScreen < AUTOSCROLL_RANGE * scale) {
                 xOfsTemp = GameController.getxPos()
@@ -547,9 +572,30 @@ public class GraphicsPane extends JPanel
                     GameController.setxPos(0);
                 }
             }
+
+            // levels higher than the screen also scroll vertically
+            final int yStep = (shiftPressed) ? Y_STEP_FAST : Y_STEP;
+
+            if (yMouseScreen > (SCORE_Y - AUTOSCROLL_RANGE) * scale) {
+                setyPos(GameController.getyPos() + yStep);
+            } else if (yMouseScreen < (MOUSE_AREA_TOP + AUTOSCROLL_RANGE)
+                    * scale) {
+                setyPos(GameController.getyPos() - yStep);
+            }
         }
     }
 
+    /**
+     * Set the vertical scrolling offset, clamped to the height of the level.
+     *
+     * @param yOfs vertical scrolling offset in pixels
+     */
+    private static void setyPos(final int yOfs) {
+        final int maxOfs = GameController.getLevel().getHeight()
+                - Level.HEIGHT;
+        GameController.setyPos(Math.max(0, Math.min(maxOfs, yOfs)));
+    }
+
     private void drawDebriefing(final double scale, final Graphics2D offGfx) {
         TextScreen.setMode(TextScreen.Mode.DEBRIEFING);
         TextScreen.update();
@@ -588,6 +634,8 @@ public class GraphicsPane extends JPanel
                 if (timerRepaint
                         .timePassedAdd(GameController.MICROSEC_PER_FRAME)) {
                     // time passed -> redraw necessary
+                    GameStats.frame(timerRepaint
+                            .delta() >= GameController.MICROSEC_PER_FRAME);
                     redraw();
 
                     // special handling for fast forward or super lemming mode
@@ -598,8 +646,8 @@ public class GraphicsPane extends JPanel
                         // game mechanics
                         // multiple times per (drawn) frame
                         if (GameController.isFastForward()) {
-                            for (int f = 0; f < GameController.FAST_FWD_MULTI
-                                    - 1; f++) {
+                            for (int f = 0; f < GameController
+                                    .getFastForwardMulti() - 1; f++) {
                                 GameController.update();
                             }
                         } else if (GameController.isSuperLemming()) {
@@ -617,6 +665,7 @@ public class GraphicsPane extends JPanel
 
                         if (diff > GameController.MICROSEC_RESYNC) {
                             timerRepaint.update(); // resync to time base
+                            GameStats.resync();
                             System.out.println("Resynced, diff was "
                                     + (diff / MS_PER_SECOND) + " millis");
                         } else if (diff > Lemmini.THR_SLEEP * MS_PER_SECOND) {
@@ -649,22 +698,7 @@ public class GraphicsPane extends JPanel
 
         switch (GameController.getGameState()) {
         case LEVEL:
-            if (y > ICONS_Y && y < ICONS_Y + Icons.HEIGHT) {
-                final Icons.Type type = GameController.getIconType(x);
-
-                if (type != Icons.Type.INVALID) {
-                    GameController.releaseIcon(type);
-                }
-            }
-
-            // always release icons which don't stay pressed
-            // this is to avoid the icons get stuck when they're pressed,
-            // the the mouse is dragged out and released outside
-            ReleaseRateHandler.releasePlus(GameController.KEYREPEAT_ICON);
-            ReleaseRateHandler.releaseMinus(GameController.KEYREPEAT_ICON);
-            GameController.releaseIcon(Icons.Type.MINUS);
-            GameController.releaseIcon(Icons.Type.PLUS);
-            GameController.releaseIcon(Icons.Type.NUKE);
+            GameController.queueInput(() -> levelMouseReleased(x, y));
             mouseevent.consume();
             break;
         default:
@@ -672,6 +706,31 @@ public class GraphicsPane extends JPanel
         }
     }
 
+    /**
+     * Handle a mouse button release in a level. Called from the game loop.
+     *
+     * @param x x position in pixels
+     * @param y y position in pixels
+     */
+    private static void levelMouseReleased(final int x, final int y) {
+        if (y > ICONS_Y && y < ICONS_Y + Icons.HEIGHT) {
+            final Icons.Type type = GameController.getIconType(x);
+
+            if (type != Icons.Type.INVALID) {
+                GameController.releaseIcon(type);
+            }
+        }
+
+        // always release icons which don't stay pressed
+        // this is to avoid the icons get stuck when they're pressed,
+        // the the mouse is dragged out and released outside
+        ReleaseRateHandler.releasePlus(GameController.KEYREPEAT_ICON);
+        ReleaseRateHandler.releaseMinus(GameController.KEYREPEAT_ICON);
+        GameController.releaseIcon(Icons.Type.MINUS);
+        GameController.releaseIcon(Icons.Type.PLUS);
+        GameController.releaseIcon(Icons.Type.NUKE);
+    }
+
     @Override
     public void mouseClicked(final MouseEvent mouseevent) {
 
@@ -755,39 +814,104 @@ public class GraphicsPane extends JPanel
             mouseevent.consume();
             break;
         case LEVEL:
-            // debug drawing
-            debugDraw(x, y, leftMousePressed);
+            final boolean left = leftMousePressed;
+            final int swidth = (int) Math.round(this.getWidth() / scale);
+            // the cursor moves on until the command is run: pick the
+            // Lemmings under the cursor position of the click
+            final int cursorX = LemmCursor.getX() + GameController.getxPos();
+            final int cursorY = LemmCursor.getY() + GameController.getyPos();
+            GameController.queueInput(() -> levelMousePressed(x, y, cursorX,
+                    cursorY, left, swidth));
+
+            if (left) {
+                mouseevent.consume();
+            }
 
-            if (leftMousePressed) {
-                if (y > ICONS_Y && y < ICONS_Y + Icons.HEIGHT) {
-                    final Icons.Type type = GameController.getIconType(x);
+            break;
+        default:
+            break;
+        }
+    }
 
-                    if (type != Icons.Type.INVALID) {
-                        SkillHandler.handleIconButton(type);
-                    }
-                } else {
-                    final Lemming l = SkillHandler
-                            .lemmUnderCursor(LemmCursor.getType());
+    /**
+     * Handle a mouse button press in a level. Called from the game loop.
+     *
+     * @param x       x position in pixels
+     * @param y       y position in pixels
+     * @param cursorX x position of the cursor in the level at the click
+     * @param cursorY y position of the cursor in the level at the click
+     * @param left    true: left mouse button is pressed
+     * @param swidth  screen width in pixels
+     */
+    private void levelMousePressed(final int x, final int y,
+            final int cursorX, final int cursorY, final boolean left,
+            final int swidth) {
+        // debug drawing
+        debugDraw(x, y, left);
 
-                    if (l != null) {
-                        LemmingHandler.requestSkill(l);
-                    }
-                }
+        if (left) {
+            if (y > ICONS_Y && y < ICONS_Y + Icons.HEIGHT) {
+                final Icons.Type type = GameController.getIconType(x);
 
-                // check minimap mouse move
-                final int ofs = MiniMap.move(x, y,
-                        (int) Math.round(this.getWidth() / scale));
+                if (type != Icons.Type.INVALID) {
+                    SkillHandler.handleIconButton(type);
+                }
+            } else {
+                LemmingHandler.updateLemmsAt(cursorX, cursorY);
+                final Lemming l = SkillHandler
+                        .lemmUnderCursor(LemmCursor.getType());
 
-                if (ofs != -1) {
-                    GameController.setxPos(ofs);
+                if (l != null) {
+                    LemmingHandler.requestSkill(l);
                 }
+            }
 
-                mouseevent.consume();
+            // check minimap mouse move
+            final int ofs = MiniMap.move(x, y, swidth);
+
+            if (ofs != -1) {
+                GameController.setxPos(ofs);
+                GameController.setyPos(MiniMap.moveY(y));
             }
+        }
+    }
 
-        default:
-            break;
+    /**
+     * Handle mouse dragging in a level. Called from the game loop.
+     *
+     * @param x      x position in pixels
+     * @param y      y position in pixels
+     * @param left   true: left mouse button is pressed
+     * @param dx     horizontal distance since the last mouse event in pixels
+     * @param dy     vertical distance since the last mouse event in pixels
+     * @param swidth screen width in pixels
+     */
+    private void levelMouseDragged(final int x, final int y,
+            final boolean left, final int dx, final int dy,
+            final double swidth) {
+        if (left) {
+            final int ofs = MiniMap.move(x, y, (int) Math.round(swidth));
+
+            if (ofs != -1) {
+                GameController.setxPos(ofs);
+                GameController.setyPos(MiniMap.moveY(y));
+            }
+        } else {
+            setyPos(GameController.getyPos() + dy);
+            final int levelWidth = GameController.getLevel().getWidth();
+            int xOfsTemp = GameController.getxPos() + dx;
+
+            if (xOfsTemp < 0) {
+                xOfsTemp = 0;
+            } else if (xOfsTemp >= levelWidth - swidth) {
+                GameController.setxPos((int) Math.round(levelWidth - swidth));
+            } else {
+                GameController.setxPos(xOfsTemp);
+            }
         }
+
+        // debug drawing
+        debugDraw(x, y, left);
     }
 
     /**
@@ -802,18 +926,20 @@ public class GraphicsPane extends JPanel
             final int rgbVal = (doDraw) ? 0xffffffff : 0x0;
             final int maskVal = (doDraw) ? Stencil.MSK_BRICK
                     : Stencil.MSK_EMPTY;
-            final int xOfs = GameController.getxPos();
-
-            if (x + xOfs > 0 && x + xOfs < Level.WIDTH - 1 && y > 0
-                    && y < Level.HEIGHT - 1) {
-                GameController.getBgImage().setRGB(x + xOfs, y, rgbVal);
-                GameController.getStencil().set(x + xOfs, y, maskVal);
-                GameController.getBgImage().setRGB(x + xOfs + 1, y, rgbVal);
-                GameController.getStencil().set(x + xOfs + 1, y, maskVal);
-                GameController.getBgImage().setRGB(x + xOfs, y + 1, rgbVal);
-                GameController.getStencil().set(x + xOfs, y + 1, maskVal);
-                GameController.getBgImage().setRGB(x + xOfs + 1, y + 1, rgbVal);
-                GameController.getStencil().set(x + xOfs + 1, y + 1, maskVal);
+            final int lx = x + GameController.getxPos();
+            final int ly = y + GameController.getyPos();
+
+            if (lx > 0 && lx < GameController.getStencil().getWidth() - 1
+                    && y > 0 && y < Level.HEIGHT - 1) {
+                GameController.getBgImage().setRGB(lx, ly, rgbVal);
+                GameController.getStencil().set(lx, ly, maskVal);
+                GameController.getBgImage().setRGB(lx + 1, ly, rgbVal);
+                GameController.getStencil().set(lx + 1, ly, maskVal);
+                GameController.getBgImage().setRGB(lx, ly + 1, rgbVal);
+                GameController.getStencil().set(lx, ly + 1, maskVal);
+                GameController.getBgImage().setRGB(lx + 1, ly + 1, rgbVal);
+                GameController.getStencil().set(lx + 1, ly + 1, maskVal);
+                MiniMap.invalidate(lx, ly, 2, 2);
             }
         }
     }
@@ -851,8 +977,8 @@ public class GraphicsPane extends JPanel
             xMouseScreen = x;
             x += GameController.getxPos() * scale;
 
-            if (x >= Level.WIDTH) {
-                x = Level.WIDTH - 1;
+            if (x >= GameController.getLevel().getWidth()) {
+                x = GameController.getLevel().getWidth() - 1;
             }
 
             xMouse = x;
@@ -872,8 +998,8 @@ public class GraphicsPane extends JPanel
             yMouseScreen = y;
             y = yMouse + mouseDy;
 
-            if (y >= Level.HEIGHT) {
-                y = Level.HEIGHT - 1;
+            if (y >= GameController.getLevel().getHeight()) {
+                y = GameController.getLevel().getHeight() - 1;
             }
 
             if (y < 0) {
@@ -902,28 +1028,12 @@ public class GraphicsPane extends JPanel
             final int x = (int) Math.round(mouseevent.getX() / scale);
             final int y = (int) Math.round(mouseevent.getY() / scale);
 
-            if (leftMousePressed) {
-                final int ofs = MiniMap.move(x, y,
-                        (int) Math.round(this.getWidth() / scale));
-
-                if (ofs != -1) {
-                    GameController.setxPos(ofs);
-                }
-            } else {
-                int xOfsTemp = GameController.getxPos() + (x - mouseDragStartX);
-
-                if (xOfsTemp < 0) {
-                    xOfsTemp = 0;
-                } else if (xOfsTemp >= Level.WIDTH - this.getWidth() / scale) {
-                    GameController.setxPos((int) Math
-                            .round(Level.WIDTH - this.getWidth() / scale));
-                } else {
-                    GameController.setxPos(xOfsTemp);
-                }
-            }
-
-            // debug drawing
-            debugDraw(x, y, leftMousePressed);
+            final boolean left = leftMousePressed;
+            final int dx = x - mouseDragStartX;
+            final int dy = y - mouseDragStartY;
+            final double swidth = this.getWidth() / scale;
+            GameController.queueInput(() -> levelMouseDragged(x, y, left, dx,
+                    dy, swidth));
             mouseMoved(mouseevent);
             mouseevent.consume();
             break;
@@ -943,14 +1053,15 @@ public class GraphicsPane extends JPanel
 
         x = (int) Math
                 .round((mouseevent.getX() / scale + GameController.getxPos()));
-        y = (int) Math.round(mouseevent.getY() / scale);
+        y = (int) Math
+                .round((mouseevent.getY() / scale + GameController.getyPos()));
 
-        if (x >= Level.WIDTH) {
-            x = Level.WIDTH - 1;
+        if (x >= GameController.getLevel().getWidth()) {
+            x = GameController.getLevel().getWidth() - 1;
         }
 
-        if (y >= Level.HEIGHT) {
-            y = Level.HEIGHT - 1;
+        if (y >= GameController.getLevel().getHeight()) {
+            y = GameController.getLevel().getHeight() - 1;
         }
 
         xMouse = (int) Math.round(x * scale);
@@ -989,6 +1100,7 @@ public class GraphicsPane extends JPanel
             mouseDx = (xMouse - oldX);
             mouseDy = (yMouse - oldY);
             mouseDragStartX = (int) Math.round(mouseevent.getX() / scale);
+            mouseDragStartY = (int) Math.round(mouseevent.getY() / scale);
             mouseevent.consume();
             break;
 
@@ -25,6 +25,7 @@ import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
 import game.Core;
+import game.FrameProfiler;
 import game.GameController;
 import game.GroupBitfield;
 import game.Icons;
@@ -37,7 +38,6 @@ import game.GameState;
 import game.TransitionState;
 import game.lemmings.Lemming;
 import game.lemmings.SkillHandler;
-import game.level.Level;
 import game.level.ReleaseRateHandler;
 import gameutil.Fader;
 import gameutil.FaderHandler;
@@ -337,95 +337,22 @@ public class Lemmini extends JFrame implements KeyListener {
 
         if (GameController.getGameState() == GameState.LEVEL) {
             switch (code) {
-            case KeyEvent.VK_1:
-            case KeyEvent.VK_F3:
-                SkillHandler.handleIconButton(Icons.Type.CLIMB);
-                break;
-            case KeyEvent.VK_2:
-            case KeyEvent.VK_F4:
-                SkillHandler.handleIconButton(Icons.Type.FLOAT);
-                break;
-            case KeyEvent.VK_3:
-            case KeyEvent.VK_F5:
-                SkillHandler.handleIconButton(Icons.Type.BOMB);
-                break;
-            case KeyEvent.VK_4:
-            case KeyEvent.VK_F6:
-                SkillHandler.handleIconButton(Icons.Type.BLOCK);
-                break;
-            case KeyEvent.VK_5:
-            case KeyEvent.VK_F7:
-                SkillHandler.handleIconButton(Icons.Type.BUILD);
-                break;
-            case KeyEvent.VK_6:
-            case KeyEvent.VK_F8:
-                SkillHandler.handleIconButton(Icons.Type.BASH);
-                break;
-            case KeyEvent.VK_7:
-            case KeyEvent.VK_F9:
-                SkillHandler.handleIconButton(Icons.Type.MINE);
-                break;
-            case KeyEvent.VK_8:
-            case KeyEvent.VK_F10:
-                SkillHandler.handleIconButton(Icons.Type.DIG);
-                break;
             case KeyEvent.VK_D:
                 toggleDebugDraw();
                 break;
-            case KeyEvent.VK_W:
-                handleWKey();
+            case KeyEvent.VK_T:
+                FrameProfiler.toggleOverlay();
                 break;
             case KeyEvent.VK_L:
                 printCurrentLevelOnConsole();
                 break;
-            case KeyEvent.VK_S: // superlemming on/off
-                toggleSuperLemming();
-                break;
-            case KeyEvent.VK_C:
-                toggleCheatMode();
-                break;
-            case KeyEvent.VK_F11:
-            case KeyEvent.VK_P:
-                GameController.setPaused(!GameController.isPaused());
-                GameController.pressIcon(Icons.Type.PAUSE);
-                break;
-            case KeyEvent.VK_F:
-            case KeyEvent.VK_ENTER:
-                GameController.setFastForward(!GameController.isFastForward());
-                GameController.pressIcon(Icons.Type.FFWD);
-                break;
-            case KeyEvent.VK_X:
-                doPatchLevelIfCheatEnabled();
-                break;
-            case KeyEvent.VK_RIGHT /* 39 */:
-                processRightArrow();
-                break;
-            case KeyEvent.VK_LEFT /* 37 */:
-                processLeftArrow();
-                break;
-            case KeyEvent.VK_UP:
-                gp.setCursor(LemmCursor.Type.WALKER);
-                break;
             case KeyEvent.VK_SHIFT:
                 gp.setShiftPressed(true);
                 break;
-            case KeyEvent.VK_SPACE:
-                putNewLemmingAtCursorPosition();
-                break;
-            case KeyEvent.VK_PLUS:
-            case KeyEvent.VK_ADD:
-            case KeyEvent.VK_F2:
-                ReleaseRateHandler.pressPlus(GameController.KEYREPEAT_KEY);
-                break;
-            case KeyEvent.VK_MINUS:
-            case KeyEvent.VK_SUBTRACT:
-            case KeyEvent.VK_F1:
-                ReleaseRateHandler.pressMinus(GameController.KEYREPEAT_KEY);
-                break;
-            case KeyEvent.VK_F12:
-                SkillHandler.handleIconButton(Icons.Type.NUKE);
-                break;
             default:
+                // all other keys change the game state: apply them at the
+                // start of the next update
+                GameController.queueInput(() -> handleKeyPressed(code));
                 break;
             }
 
@@ -433,6 +360,98 @@ public class Lemmini extends JFrame implements KeyListener {
         }
     }
 
+    /**
+     * Handle a key press which changes the game state. Called from the game
+     * loop.
+     *
+     * @param code key code
+     */
+    private void handleKeyPressed(final int code) {
+        switch (code) {
+        case KeyEvent.VK_1:
+        case KeyEvent.VK_F3:
+            SkillHandler.handleIconButton(Icons.Type.CLIMB);
+            break;
+        case KeyEvent.VK_2:
+        case KeyEvent.VK_F4:
+            SkillHandler.handleIconButton(Icons.Type.FLOAT);
+            break;
+        case KeyEvent.VK_3:
+        case KeyEvent.VK_F5:
+            SkillHandler.handleIconButton(Icons.Type.BOMB);
+            break;
+        case KeyEvent.VK_4:
+        case KeyEvent.VK_F6:
+            SkillHandler.handleIconButton(Icons.Type.BLOCK);
+            break;
+        case KeyEvent.VK_5:
+        case KeyEvent.VK_F7:
+            SkillHandler.handleIconButton(Icons.Type.BUILD);
+            break;
+        case KeyEvent.VK_6:
+        case KeyEvent.VK_F8:
+            SkillHandler.handleIconButton(Icons.Type.BASH);
+            break;
+        case KeyEvent.VK_7:
+        case KeyEvent.VK_F9:
+            SkillHandler.handleIconButton(Icons.Type.MINE);
+            break;
+        case KeyEvent.VK_8:
+        case KeyEvent.VK_F10:
+            SkillHandler.handleIconButton(Icons.Type.DIG);
+            break;
+        case KeyEvent.VK_W:
+            handleWKey();
+            break;
+        case KeyEvent.VK_S: // superlemming on/off
+            toggleSuperLemming();
+            break;
+        case KeyEvent.VK_C:
+            toggleCheatMode();
+            break;
+        case KeyEvent.VK_F11:
+        case KeyEvent.VK_P:
+            GameController.setPaused(!GameController.isPaused());
+            GameController.pressIcon(Icons.Type.PAUSE);
+            break;
+        case KeyEvent.VK_F:
+        case KeyEvent.VK_ENTER:
+            GameController.setFastForward(!GameController.isFastForward());
+            GameController.pressIcon(Icons.Type.FFWD);
+            break;
+        case KeyEvent.VK_X:
+            doPatchLevelIfCheatEnabled();
+            break;
+        case KeyEvent.VK_RIGHT /* 39 */:
+            processRightArrow();
+            break;
+        case KeyEvent.VK_LEFT /* 37 */:
+            processLeftArrow();
+            break;
+        case KeyEvent.VK_UP:
+            gp.setCursor(LemmCursor.Type.WALKER);
+            break;
+        case KeyEvent.VK_SPACE:
+            putNewLemmingAtCursorPosition();
+            break;
+        case KeyEvent.VK_PLUS:
+        case KeyEvent.VK_ADD:
+        case KeyEvent.VK_F2:
+            ReleaseRateHandler.pressPlus(GameController.KEYREPEAT_KEY);
+            break;
+        case KeyEvent.VK_MINUS:
+        case KeyEvent.VK_SUBTRACT:
+        case KeyEvent.VK_F1:
+            ReleaseRateHandler.pressMinus(GameController.KEYREPEAT_KEY);
+            break;
+        case KeyEvent.VK_F12:
+            SkillHandler.handleIconButton(Icons.Type.NUKE);
+            break;
+        default:
+            break;
+        }
+    }
+
     /**
      * Puts a new Lemming at the current cursor position, if cheat mode is
      * enabled.
@@ -477,10 +496,12 @@ public class Lemmini extends JFrame implements KeyListener {
                     + ((gp.isShiftPressed()) ? GraphicsPane.X_STEP_FAST
                             : GraphicsPane.X_STEP);
 
-            if (xOfsTemp < Level.WIDTH - this.getWidth()) {
+            final int levelWidth = GameController.getLevel().getWidth();
+
+            if (xOfsTemp < levelWidth - this.getWidth()) {
                 GameController.setxPos(xOfsTemp);
             } else {
-                GameController.setxPos(Level.WIDTH - this.getWidth());
+                GameController.setxPos(levelWidth - this.getWidth());
             }
         }
     }
@@ -570,44 +591,55 @@ public class Lemmini extends JFrame implements KeyListener {
         final int code = keyevent.getKeyCode();
 
         if (GameController.getGameState() == GameState.LEVEL) {
-            switch (code) {
-            case KeyEvent.VK_SHIFT:
+            if (code == KeyEvent.VK_SHIFT) {
                 gp.setShiftPressed(false);
-                break;
-            case KeyEvent.VK_PLUS:
-            case KeyEvent.VK_ADD:
-            case KeyEvent.VK_F2:
-                ReleaseRateHandler.releasePlus(GameController.KEYREPEAT_KEY);
-                break;
-            case KeyEvent.VK_MINUS:
-            case KeyEvent.VK_SUBTRACT:
-            case KeyEvent.VK_F1:
-                ReleaseRateHandler.releaseMinus(GameController.KEYREPEAT_KEY);
-                break;
-            case KeyEvent.VK_F12:
-                GameController.releaseIcon(Icons.Type.NUKE);
-                break;
-            case KeyEvent.VK_LEFT:
-                if (LemmCursor.getType() == LemmCursor.Type.LEFT) {
-                    gp.setCursor(LemmCursor.Type.NORMAL);
-                }
+            } else {
+                GameController.queueInput(() -> handleKeyReleased(code));
+            }
+        }
+    }
 
-                break;
-            case KeyEvent.VK_RIGHT:
-                if (LemmCursor.getType() == LemmCursor.Type.RIGHT) {
-                    gp.setCursor(LemmCursor.Type.NORMAL);
-                }
+    /**
+     * Handle a key release which changes the game state. Called from the game
+     * loop.
+     *
+     * @param code key code
+     */
+    private void handleKeyReleased(final int code) {
+        switch (code) {
+        case KeyEvent.VK_PLUS:
+        case KeyEvent.VK_ADD:
+        case KeyEvent.VK_F2:
+            ReleaseRateHandler.releasePlus(GameController.KEYREPEAT_KEY);
+            break;
+        case KeyEvent.VK_MINUS:
+        case KeyEvent.VK_SUBTRACT:
+        case KeyEvent.VK_F1:
+            ReleaseRateHandler.releaseMinus(GameController.KEYREPEAT_KEY);
+            break;
+        case KeyEvent.VK_F12:
+            GameController.releaseIcon(Icons.Type.NUKE);
+            break;
+        case KeyEvent.VK_LEFT:
+            if (LemmCursor.getType() == LemmCursor.Type.LEFT) {
+                gp.setCursor(LemmCursor.Type.NORMAL);
+            }
 
-                break;
-            case KeyEvent.VK_UP:
-                if (LemmCursor.getType() == LemmCursor.Type.WALKER) {
-                    gp.setCursor(LemmCursor.Type.NORMAL);
-                }
+            break;
+        case KeyEvent.VK_RIGHT:
+            if (LemmCursor.getType() == LemmCursor.Type.RIGHT) {
+                gp.setCursor(LemmCursor.Type.NORMAL);
+            }
 
-                break;
-            default:
-                break;
+            break;
+        case KeyEvent.VK_UP:
+            if (LemmCursor.getType() == LemmCursor.Type.WALKER) {
+                gp.setCursor(LemmCursor.Type.NORMAL);
             }
+
+            break;
+        default:
+            break;
         }
     }
 
@@ -631,6 +663,7 @@ public class Lemmini extends JFrame implements KeyListener {
         programProps.set("framePosY", p.y);
         //
         Core.saveProgramProps();
+        FrameProfiler.saveCsv();
         System.exit(0);
     }
 }
@@ -0,0 +1,85 @@
+package lemmini;
+
+import java.awt.Image;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+
+import game.level.ThumbnailService;
+import gameutil.FaderHandler;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Listener which adds the level thumbnails to the items of a difficulty menu
+ * when the menu is opened for the first time.
+ *
+ * @author Volker Oth
+ */
+public class LevelThumbnailMenuListener implements MenuListener {
+    /** thumbnails are shown at this fraction of their size. */
+    private static final int ICON_DIVISOR = 2;
+
+    /** level menu items of the difficulty menu. */
+    private final List<LvlMenuItem> items;
+    /** thumbnails were already requested. */
+    private boolean requested;
+
+    /**
+     * Constructor.
+     *
+     * @param menuItems level menu items of the difficulty menu
+     */
+    LevelThumbnailMenuListener(final List<LvlMenuItem> menuItems) {
+        items = menuItems;
+    }
+
+    @Override
+    public final void menuSelected(final MenuEvent e) {
+        if (requested) {
+            return;
+        }
+
+        requested = true;
+
+        for (final LvlMenuItem item : items) {
+            final String path = FaderHandler.getLevelPack(item.getLevelPack())
+                    .getInfo(item.getDiffLevel(), item.getLevel())
+                    .getFileName();
+            ThumbnailService.get(path).thenAccept(img -> {
+                if (img != null) {
+                    SwingUtilities.invokeLater(() -> item.setIcon(
+                            new ImageIcon(img.getScaledInstance(
+                                    img.getWidth() / ICON_DIVISOR,
+                                    img.getHeight() / ICON_DIVISOR,
+                                    Image.SCALE_SMOOTH))));
+                }
+            });
+        }
+    }
+
+    @Override
+    public final void menuDeselected(final MenuEvent e) {
+    }
+
+    @Override
+    public final void menuCanceled(final MenuEvent e) {
+    }
+}
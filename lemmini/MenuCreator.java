@@ -25,6 +25,7 @@ import game.LevelPack;
 import game.Music;
 import game.Player;
 import game.SoundController;
+import game.level.ThumbnailService;
 import game.replay.ReplayController;
 import game.replay.ReplayLevelInfo;
 import gameutil.FaderHandler;
@@ -804,6 +805,7 @@ public class MenuCreator {
     private void loadLevelPacksAndCreateLevelMenu(
             final Map<String, List<LvlMenuItem>> difficultyLevelMenus) {
         final ActionListener lvlListener = new LevelMenuActionListener();
+        final List<String> levelPaths = new ArrayList<>();
 
         jMenuSelect = new JMenu("Select Level");
 
@@ -835,8 +837,11 @@ public class MenuCreator {
 
                     jMenuDiff.add(jMenuLvl);
                     menuItems.add(jMenuLvl);
+                    levelPaths.add(lPack.getInfo(i, n).getFileName());
                 }
 
+                jMenuDiff.addMenuListener(
+                        new LevelThumbnailMenuListener(menuItems));
                 jMenuPack.add(jMenuDiff);
                 // store menus to access them later
                 difficultyLevelMenus.put(
@@ -846,6 +851,9 @@ public class MenuCreator {
 
             jMenuSelect.add(jMenuPack);
         }
+
+        // render the thumbnails in the background before they're shown
+        ThumbnailService.prescan(levelPaths);
     }
 
     /**
@@ -209,6 +209,8 @@ public class Micromod {
     static final int FP_SHIFT = 13;
     /** FP one. */
     private static final int FP_ONE = 1 << FP_SHIFT;
+    /** FP fraction mask. */
+    private static final int FP_MASK = FP_ONE - 1;
     /** In struct len. */
     private static final int IN_STRUCT_LEN = 0x05;
     /** In sample index. */
@@ -305,6 +307,8 @@ public class Micromod {
     private final byte[] mod;
     /** Amiga? */
     private boolean amiga;
+    /** Interpolate between sample points? */
+    private boolean interpolation;
 
     /** Number of channels. */
     private int numchan;
@@ -659,6 +663,26 @@ public class Micromod {
         return len;
     }
 
+    /**
+     * Enable or disable linear interpolation between sample points. Without
+     * interpolation the nearest lower sample point is used (the original
+     * Micromod output).
+     *
+     * @param interpolate true to enable linear interpolation
+     */
+    public void setInterpolation(final boolean interpolate) {
+        this.interpolation = interpolate;
+    }
+
+    /**
+     * Get whether linear interpolation is enabled.
+     *
+     * @return true if linear interpolation is enabled
+     */
+    public boolean isInterpolation() {
+        return interpolation;
+    }
+
     /**
      * Mix 16 bit stereo audio into the buffers.
      *
@@ -669,8 +693,35 @@ public class Micromod {
      */
     public void mix(final int[] l, final int[] r, final int ofs,
             final int length) {
+        mix(l, ofs, r, ofs, 1, length);
+    }
+
+    /**
+     * Mix 16 bit stereo audio into an interleaved buffer (left, right, left,
+     * ...).
+     *
+     * @param buf    interleaved stereo buffer
+     * @param ofs    offset in frames
+     * @param length length in frames
+     */
+    public void mix(final int[] buf, final int ofs, final int length) {
+        mix(buf, ofs << 1, buf, (ofs << 1) + 1, 2, length);
+    }
+
+    /**
+     * Mix 16 bit stereo audio into the buffers.
+     *
+     * @param l      left buffer
+     * @param lofs   offset of the first left value
+     * @param r      right buffer
+     * @param rofs   offset of the first right value
+     * @param stride distance between two values of one channel
+     * @param length length in frames
+     */
+    private void mix(final int[] l, final int lofs, final int[] r,
+            final int rofs, final int stride, final int length) {
         int len = length;
-        int offset = ofs;
+        int offset = 0;
 
         while (len > 0) {
             int count = tickremain;
@@ -680,39 +731,8 @@ public class Micromod {
             }
 
             for (int chan = 0; chan < numchan; chan++) {
-                final int coffset = chan * CH_STRUCT_LEN;
-                final int ampl = channels[coffset + CH_AMPL];
-                final int pann = channels[coffset + CH_PANNING] << FP_SHIFT
-                        - Constants.SHIFT_8;
-                final int lamp = ampl * (FP_ONE - pann) >> FP_SHIFT;
-                final int ramp = ampl * pann >> FP_SHIFT;
-                final int inst = channels[coffset + CH_INSTRUMENT];
-                final int ioffset = inst * IN_STRUCT_LEN;
-                final int sidx = instruments[ioffset + IN_SAMPLE_INDEX];
-                final int lsta = instruments[ioffset
-                        + IN_LOOP_START] << FP_SHIFT;
-                final int lep1 = instruments[ioffset + IN_LOOP_END]
-                        + 1 << FP_SHIFT;
-                int spos = channels[coffset + CH_SPOS];
-                final int step = channels[coffset + CH_STEP];
-                final int llen = lep1 - lsta;
-                final boolean dontmix = llen <= FP_ONE && spos >= lsta;
-
-                if (!dontmix) {
-                    for (int x = 0; x < count; x++) {
-                        while (spos >= lep1) {
-                            spos -= llen;
-                        }
-
-                        final int sample = mod[sidx
-                                + (spos >> FP_SHIFT)] << Constants.SHIFT_8;
-                        l[offset + x] += sample * lamp >> FP_SHIFT;
-                        r[offset + x] += sample * ramp >> FP_SHIFT;
-                        spos += step;
-                    }
-                }
-
-                channels[coffset + CH_SPOS] = spos;
+                mixChannel(chan * CH_STRUCT_LEN, l, lofs + offset * stride, r,
+                        rofs + offset * stride, stride, count);
             }
 
             tickremain -= count;
@@ -727,6 +747,102 @@ public class Micromod {
         }
     }
 
+    /**
+     * Mix one channel. The frames are mixed in runs which end before the loop
+     * end, so the inner loops need no wrap checks.
+     *
+     * @param coffset offset of the channel in {@link #channels}
+     * @param l       left buffer
+     * @param lofs    offset of the first left value
+     * @param r       right buffer
+     * @param rofs    offset of the first right value
+     * @param stride  distance between two values of one channel
+     * @param count   number of frames
+     */
+    private void mixChannel(final int coffset, final int[] l, final int lofs,
+            final int[] r, final int rofs, final int stride,
+            final int count) {
+        final int ampl = channels[coffset + CH_AMPL];
+        final int pann = channels[coffset + CH_PANNING] << FP_SHIFT
+                - Constants.SHIFT_8;
+        final int lamp = ampl * (FP_ONE - pann) >> FP_SHIFT;
+        final int ramp = ampl * pann >> FP_SHIFT;
+        final int inst = channels[coffset + CH_INSTRUMENT];
+        final int ioffset = inst * IN_STRUCT_LEN;
+        final int sidx = instruments[ioffset + IN_SAMPLE_INDEX];
+        final int lsta = instruments[ioffset + IN_LOOP_START] << FP_SHIFT;
+        final int lep1 = instruments[ioffset + IN_LOOP_END] + 1 << FP_SHIFT;
+        int spos = channels[coffset + CH_SPOS];
+        final int step = channels[coffset + CH_STEP];
+        final int llen = lep1 - lsta;
+
+        if (llen <= FP_ONE && spos >= lsta) {
+            return;
+        }
+
+        final boolean interpolate = interpolation;
+        // with interpolation the last sample point needs the loop start
+        final int limit = interpolate ? lep1 - FP_ONE : lep1;
+        int li = lofs;
+        int ri = rofs;
+        int x = 0;
+
+        while (x < count) {
+            while (spos >= lep1) {
+                spos -= llen;
+            }
+
+            // number of frames before spos reaches the limit
+            int n = count - x;
+
+            if (spos >= limit) {
+                n = 0;
+            } else if (step > 0) {
+                n = Math.min(n, (limit - spos - 1) / step + 1);
+            }
+
+            if (n == 0) {
+                // interpolate between the last sample point and loop start
+                final int s0 = mod[sidx + (spos >> FP_SHIFT)];
+                final int s1 = mod[sidx + (lsta >> FP_SHIFT)];
+                final int sample = (s0 << Constants.SHIFT_8)
+                        + (((s1 - s0) << Constants.SHIFT_8)
+                                * (spos & FP_MASK) >> FP_SHIFT);
+                l[li] += sample * lamp >> FP_SHIFT;
+                r[ri] += sample * ramp >> FP_SHIFT;
+                li += stride;
+                ri += stride;
+                spos += step;
+                x++;
+            } else if (interpolate) {
+                for (final int end = x + n; x < end; x++) {
+                    final int idx = sidx + (spos >> FP_SHIFT);
+                    final int s0 = mod[idx];
+                    final int sample = (s0 << Constants.SHIFT_8)
+                            + (((mod[idx + 1] - s0) << Constants.SHIFT_8)
+                                    * (spos & FP_MASK) >> FP_SHIFT);
+                    l[li] += sample * lamp >> FP_SHIFT;
+                    r[ri] += sample * ramp >> FP_SHIFT;
+                    li += stride;
+                    ri += stride;
+                    spos += step;
+                }
+            } else {
+                for (final int end = x + n; x < end; x++) {
+                    final int sample = mod[sidx
+                            + (spos >> FP_SHIFT)] << Constants.SHIFT_8;
+                    l[li] += sample * lamp >> FP_SHIFT;
+                    r[ri] += sample * ramp >> FP_SHIFT;
+                    li += stride;
+                    ri += stride;
+                    spos += step;
+                }
+            }
+        }
+
+        channels[coffset + CH_SPOS] = spos;
+    }
+
     private void reset() {
         rowHandler.reset();
         tempo = DEFAULT_TEMPO;
@@ -0,0 +1,367 @@
+package micromod;
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import tools.Props;
+
+/**
+ * Headless renderer for MOD files. Renders one song length of a MOD (or of
+ * all MODs in a folder, in parallel) through {@link Micromod} as fast as
+ * possible and reports the throughput and the cost of the tick and row
+ * processing. The Adler32 of the rendered PCM can be compared against golden
+ * checksums to detect changes of the output. Nothing is written unless WAV
+ * files or the golden checksums are requested.
+ *
+ * <pre>
+ * java micromod.ModRender [options] (file.mod | folder) [output folder]
+ *   -i         linear interpolation
+ *   -w         write WAV files (into the output folder or next to the MODs)
+ *   -g file    compare against golden checksums in file
+ *   -u         write the checksums to the golden file
+ *   -t threads number of render threads for folders
+ * </pre>
+ *
+ * The exit code is 1 if a checksum doesn't match, 2 for errors.
+ */
+public final class ModRender {
+    /** sample rate. */
+    private static final int SAMPLE_RATE = 44100;
+    /** number of frames rendered at once. */
+    private static final int RENDER_FRAMES = 4096;
+    /** bytes per frame: two 16bit channels. */
+    private static final int FRAME_BYTES = 4;
+    /** bits per sample. */
+    private static final int SAMPLE_BITS = 16;
+    /** nanoseconds per second. */
+    private static final double NS_PER_SEC = 1e9;
+    /** nanoseconds per millisecond. */
+    private static final double NS_PER_MS = 1e6;
+    /** radix for hexadecimal numbers. */
+    private static final int HEX_RADIX = 16;
+    /** bits to shift for the high byte of a 16bit value. */
+    private static final int SHIFT_8 = 8;
+    /** exit code: a checksum didn't match. */
+    private static final int EXIT_MISMATCH = 1;
+    /** exit code: error. */
+    private static final int EXIT_ERROR = 2;
+
+    /**
+     * Result of rendering one MOD.
+     */
+    private static final class Result {
+        /** file name of the MOD. */
+        private String name;
+        /** rendered frames. */
+        private int frames;
+        /** time needed to mix the song in nanoseconds. */
+        private long mixNanos;
+        /** number of ticks. */
+        private int ticks;
+        /** number of rows. */
+        private int rows;
+        /** time needed for the ticks alone in nanoseconds. */
+        private long tickNanos;
+        /** Adler32 of the rendered PCM (16bit little endian). */
+        private long crc;
+    }
+
+    /**
+     * Private default constructor for utility class.
+     */
+    private ModRender() {
+
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args command line arguments (see class description)
+     */
+    public static void main(final String[] args) {
+        boolean interpolate = false;
+        boolean writeWav = false;
+        boolean update = false;
+        String golden = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<String> names = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-i":
+                interpolate = true;
+                break;
+            case "-w":
+                writeWav = true;
+                break;
+            case "-u":
+                update = true;
+                break;
+            case "-g":
+                golden = ++i < args.length ? args[i] : null;
+                break;
+            case "-t":
+                threads = ++i < args.length ? Integer.parseInt(args[i]) : 1;
+                break;
+            default:
+                names.add(args[i]);
+                break;
+            }
+        }
+
+        if (names.isEmpty() || names.size() > 2 || (update && golden == null)) {
+            System.out.println("Usage: ModRender [-i] [-w] [-g golden [-u]]"
+                    + " [-t threads] (file.mod | folder) [output folder]");
+            System.exit(EXIT_ERROR);
+        }
+
+        final File src = new File(names.get(0));
+        final File outDir = names.size() > 1 ? new File(names.get(1)) : null;
+        File[] files;
+
+        if (src.isDirectory()) {
+            files = src.listFiles(
+                    f -> f.getName().toLowerCase().endsWith(".mod"));
+
+            if (files == null) {
+                files = new File[0];
+            }
+
+            Arrays.sort(files);
+        } else {
+            files = new File[] {src};
+            threads = 1;
+        }
+
+        try {
+            final List<Result> results = renderAll(files, outDir, interpolate,
+                    writeWav, Math.max(1, threads));
+            System.exit(checkGolden(results, golden, update, interpolate));
+        } catch (final IOException ex) {
+            System.out.println(ex.getMessage());
+            System.exit(EXIT_ERROR);
+        }
+    }
+
+    /**
+     * Render MODs on a thread pool and print the results.
+     *
+     * @param files       MOD files
+     * @param outDir      folder for WAV files (null: next to the MODs)
+     * @param interpolate true for linear interpolation
+     * @param writeWav    true to write WAV files
+     * @param threads     number of threads
+     * @return results in the order of the files
+     * @throws IOException
+     */
+    private static List<Result> renderAll(final File[] files,
+            final File outDir, final boolean interpolate,
+            final boolean writeWav, final int threads) throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+        final List<Result> results = new ArrayList<Result>();
+        final long start = System.nanoTime();
+
+        for (final File f : files) {
+            futures.add(pool.submit(() -> {
+                final File wav = writeWav ? new File(outDir != null ? outDir
+                        : f.getAbsoluteFile().getParentFile(),
+                        f.getName().replaceFirst("(?i)\\.mod$", "") + ".wav")
+                        : null;
+                return render(f, wav, interpolate);
+            }));
+        }
+
+        try {
+            System.out.println(String.format(Locale.ROOT,
+                    "%-24s %9s %9s %10s %8s %8s %10s %8s", "file", "seconds",
+                    "mix ms", "frames/s", "realtime", "ticks", "ns/tick",
+                    "rows"));
+            long frames = 0;
+
+            for (final Future<Result> fr : futures) {
+                final Result r = fr.get();
+                results.add(r);
+                frames += r.frames;
+                System.out.println(String.format(Locale.ROOT,
+                        "%-24s %9.1f %9.1f %10.0f %7.0fx %8d %10.0f %8d",
+                        r.name, (double) r.frames / SAMPLE_RATE,
+                        r.mixNanos / NS_PER_MS,
+                        r.frames * NS_PER_SEC / r.mixNanos,
+                        r.frames * NS_PER_SEC / SAMPLE_RATE / r.mixNanos,
+                        r.ticks, (double) r.tickNanos / Math.max(1, r.ticks),
+                        r.rows));
+            }
+
+            final long nanos = System.nanoTime() - start;
+            System.out.println(String.format(Locale.ROOT,
+                    "%d files, %d frames in %.1f ms on %d threads"
+                            + " (%.0f frames/s)",
+                    files.length, frames, nanos / NS_PER_MS, threads,
+                    frames * NS_PER_SEC / nanos));
+        } catch (final InterruptedException ex) {
+            throw new IOException("Interrupted");
+        } catch (final ExecutionException ex) {
+            throw new IOException(ex.getCause().toString());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * Render one song length of a MOD.
+     *
+     * @param f           MOD file
+     * @param wav         WAV file to write or null
+     * @param interpolate true for linear interpolation
+     * @return result
+     * @throws IOException
+     */
+    private static Result render(final File f, final File wav,
+            final boolean interpolate) throws IOException {
+        final Result r = new Result();
+        r.name = f.getName();
+        final Micromod mm = new Micromod(Files.readAllBytes(f.toPath()),
+                SAMPLE_RATE);
+        mm.setInterpolation(interpolate);
+
+        // tick and row processing alone (getlen() resets the song)
+        r.frames = mm.getlen();
+        final TickHandler th = mm.getTickHandler();
+        long t = System.nanoTime();
+        boolean end;
+
+        do {
+            end = th.tick();
+            r.ticks++;
+
+            if (th.getTick() == mm.getTempo()) {
+                r.rows++;
+            }
+        } while (!end);
+
+        r.tickNanos = System.nanoTime() - t;
+        mm.getlen();
+
+        // mix song
+        final byte[] pcm = new byte[r.frames * FRAME_BYTES];
+        final int[] mix = new int[RENDER_FRAMES << 1];
+        int ofs = 0;
+        t = System.nanoTime();
+
+        for (int pos = 0; pos < r.frames; pos += RENDER_FRAMES) {
+            final int count = Math.min(RENDER_FRAMES, r.frames - pos);
+            mm.mix(mix, 0, count);
+
+            for (int i = 0; i < count << 1; i++) {
+                final int s = Math.max(Short.MIN_VALUE,
+                        Math.min(Short.MAX_VALUE, mix[i]));
+                pcm[ofs++] = (byte) s;
+                pcm[ofs++] = (byte) (s >> SHIFT_8);
+                mix[i] = 0;
+            }
+        }
+
+        r.mixNanos = System.nanoTime() - t;
+        final Adler32 crc = new Adler32();
+        crc.update(pcm, 0, pcm.length);
+        r.crc = crc.getValue();
+
+        if (wav != null) {
+            final AudioFormat format = new AudioFormat(SAMPLE_RATE,
+                    SAMPLE_BITS, 2, true, false);
+
+            try (AudioInputStream ais = new AudioInputStream(
+                    new ByteArrayInputStream(pcm), format, r.frames)) {
+                AudioSystem.write(ais, AudioFileFormat.Type.WAVE, wav);
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Compare the checksums with the golden checksums or update them.
+     *
+     * @param results     render results
+     * @param golden      file of golden checksums (null: no check)
+     * @param update      true to write the checksums to the golden file
+     * @param interpolate true if rendered with linear interpolation
+     * @return exit code
+     * @throws IOException
+     */
+    private static int checkGolden(final List<Result> results,
+            final String golden, final boolean update,
+            final boolean interpolate) throws IOException {
+        if (golden == null) {
+            return 0;
+        }
+
+        final Props props = new Props();
+        props.load(golden);
+        // interpolated output has checksums of its own
+        final String suffix = interpolate ? ".interpolated" : "";
+        int exit = 0;
+
+        for (final Result r : results) {
+            final String crc = Long.toString(r.crc, HEX_RADIX);
+            final String expected = props.get(r.name + suffix, "");
+
+            if (update) {
+                props.set(r.name + suffix, crc);
+            } else if (expected.isEmpty()) {
+                System.out.println(r.name + ": no golden checksum (" + crc
+                        + ")");
+            } else if (!expected.equalsIgnoreCase(crc)) {
+                System.out.println(r.name + ": checksum " + crc
+                        + " doesn't match golden checksum " + expected);
+                exit = EXIT_MISMATCH;
+            }
+        }
+
+        if (update) {
+            props.setHeader("Golden checksums (Adler32) of rendered MODs");
+
+            if (!props.saveSorted(golden)) {
+                throw new IOException("Can't write " + golden);
+            }
+        } else if (exit == 0) {
+            System.out.println("All checksums match.");
+        }
+
+        return exit;
+    }
+}